@@ -0,0 +1,118 @@
+package benchmarks;
+
+import index.ColaboratorSnapshot;
+import model.COLABORADOR;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link ColaboratorSnapshot} with two hundred thousand colaborators, reading a colaborator by
+ * position and by number, against an {@code ArrayList} of {@code COLABORADOR}.
+ * The heap used by each is measured when they are built and written to the {@link MemoryReport} with the ratio
+ * between them. Every row has its own {@code String} and {@code Date} objects, as when read from the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColaboratorSnapshotBenchmark {
+    /** Number of colaborators */
+    private static final int COLABORADORES = 200_000;
+    /** Number of colaborators read, a power of two */
+    private static final int READS = 1 << 12;
+
+    /** The colaborators as objects */
+    private ArrayList<COLABORADOR> objects;
+    /** The colaborators by column */
+    private ColaboratorSnapshot snapshot;
+    /** The list view of the snapshot */
+    private List<COLABORADOR> view;
+    /** Positions read */
+    private int[] positions;
+    /** Index of the next read */
+    private int next;
+
+    /**
+     * Build both and measure the heap they use
+     *
+     * @param params The parameters of the benchmark, for the memory report
+     */
+    @Setup
+    public void setup(BenchmarkParams params) {
+        Random random = new Random(42);
+        String[] nomes = {"Ana", "João", "Maria", "José", "Inês", "Francisco", "Beatriz", "Tomás"};
+        String[] apelidos = {"Silva", "Santos", "Ferreira", "Pereira", "Oliveira", "Costa", "Rodrigues", "Martins"};
+        String[] nacionalidades = {"Portuguesa", "Portuguesa", "Portuguesa", "Brasileira", "Angolana", "Cabo-verdiana"};
+        String[] ruas = {"Rua de Santa Catarina", "Avenida da Liberdade", "Rua Augusta", "Avenida dos Aliados"};
+
+        long before = usedHeap();
+        objects = new ArrayList<>(COLABORADORES);
+        for (int i = 0; i < COLABORADORES; i++) {
+            // New String and Date objects per row, as a JDBC driver returns them
+            objects.add(new COLABORADOR(i + 1,
+                    new String(nomes[random.nextInt(nomes.length)]),
+                    new String(apelidos[random.nextInt(apelidos.length)] + " " + apelidos[random.nextInt(apelidos.length)]),
+                    Date.valueOf(LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1 + random.nextInt(28))),
+                    String.valueOf(10_000_000 + random.nextInt(90_000_000)),
+                    1 + random.nextInt(3),
+                    String.valueOf(100_000_000 + random.nextInt(900_000_000)),
+                    new String(nacionalidades[random.nextInt(nacionalidades.length)]),
+                    ruas[random.nextInt(ruas.length)] + ", " + (1 + random.nextInt(300)) + ", " + (1000 + random.nextInt(9000)) + "-" + (100 + random.nextInt(900)) + " Lisboa"));
+        }
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        snapshot = new ColaboratorSnapshot();
+        for (COLABORADOR colaborador : objects) snapshot.add(colaborador);
+        snapshot.trimToSize();
+        long snapshotBytes = usedHeap() - before;
+        view = snapshot.view();
+
+        positions = new int[READS];
+        for (int i = 0; i < READS; i++) positions[i] = random.nextInt(COLABORADORES);
+        LinkedHashMap<String, Double> memory = new LinkedHashMap<>();
+        memory.put("objectsMB", objectBytes / 1e6);
+        memory.put("snapshotMB", snapshotBytes / 1e6);
+        memory.put("ratio", (double) objectBytes / snapshotBytes);
+        MemoryReport.write(params, memory);
+    }
+
+    /**
+     * Get the heap in use after a garbage collection
+     *
+     * @return The used heap, in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** @return A colaborator of the list */
+    @Benchmark
+    public COLABORADOR objectsGet() {
+        return objects.get(positions[next++ & (READS - 1)]);
+    }
+
+    /** @return A colaborator read from the snapshot by position */
+    @Benchmark
+    public COLABORADOR viewGet() {
+        return view.get(positions[next++ & (READS - 1)]);
+    }
+
+    /** @return A colaborator read from the snapshot by number */
+    @Benchmark
+    public COLABORADOR snapshotFind() {
+        return snapshot.find(positions[next++ & (READS - 1)] + 1);
+    }
+}
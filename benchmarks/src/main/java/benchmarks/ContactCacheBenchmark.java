@@ -0,0 +1,156 @@
+package benchmarks;
+
+import index.ContactCache;
+import model.CONTACTO;
+import model.CONTACTOEMERGENCIA;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link ContactCache} with three hundred thousand contacts and emergency contacts, reading a
+ * contact by colaborator and order number, against a {@code HashMap} of {@code CONTACTO}, and reopening a cache
+ * file against building the cache again.
+ * The heap used by each is measured when they are built and written to the {@link MemoryReport} with the memory the
+ * cache uses off the heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContactCacheBenchmark {
+    /** Number of colaborators, each with two contacts and one emergency contact */
+    private static final int COLABORADORES = 100_000;
+    /** Number of contacts read, a power of two */
+    private static final int READS = 1 << 12;
+
+    /** The contacts as objects, keyed by colaborator and order number */
+    private HashMap<Long, CONTACTO> objects;
+    /** The contacts off the heap */
+    private ContactCache cache;
+    /** The cache file reopened by {@link #reopen()} */
+    private Path file;
+    /** Colaborator numbers read */
+    private int[] idtitulares;
+    /** Order numbers read, 3 for a contact that is not cached */
+    private int[] noordens;
+    /** Index of the next read */
+    private int next;
+
+    /**
+     * Build both, write the cache file and measure the heap they use
+     *
+     * @param params The parameters of the benchmark, for the memory report
+     * @throws IOException If the cache file can not be created
+     */
+    @Setup
+    public void setup(BenchmarkParams params) throws IOException {
+        Random random = new Random(42);
+        String[] nomes = {"Ana", "João", "Maria", "José", "Inês", "Francisco", "Beatriz", "Tomás"};
+        String[] graus = {"Mãe", "Pai", "Irmão", "Irmã", "Cônjuge", "Amigo"};
+
+        long before = usedHeap();
+        objects = new HashMap<>();
+        for (int i = 1; i <= COLABORADORES; i++) {
+            CONTACTO telefone = new CONTACTO(1, String.valueOf(910_000_000 + random.nextInt(90_000_000)), "Telemóvel");
+            telefone.setNoColaborador(i);
+            CONTACTO email = new CONTACTO(2, "colaborador" + i + "@ongd.pt", "Email");
+            email.setNoColaborador(i);
+            objects.put((long) i << 32 | 1, telefone);
+            objects.put((long) i << 32 | 2, email);
+        }
+        long objectBytes = usedHeap() - before;
+
+        file = Files.createTempFile("contactos", ".cache");
+        ContactCache fileCache = ContactCache.create(file, 3 * COLABORADORES);
+        before = usedHeap();
+        cache = new ContactCache(3 * COLABORADORES);
+        for (CONTACTO contacto : objects.values()) {
+            cache.putContacto(contacto);
+            fileCache.putContacto(contacto);
+        }
+        for (int i = 1; i <= COLABORADORES; i++) {
+            CONTACTOEMERGENCIA emergencia = new CONTACTOEMERGENCIA(nomes[random.nextInt(nomes.length)],
+                    graus[random.nextInt(graus.length)], String.valueOf(910_000_000 + random.nextInt(90_000_000)), 1);
+            emergencia.setNoColaborador(i);
+            cache.putContactoEmergencia(emergencia);
+            fileCache.putContactoEmergencia(emergencia);
+        }
+        long cacheBytes = usedHeap() - before;
+        fileCache.markLoaded();
+        fileCache.close();
+
+        idtitulares = new int[READS];
+        noordens = new int[READS];
+        for (int i = 0; i < READS; i++) {
+            idtitulares[i] = 1 + random.nextInt(COLABORADORES);
+            noordens[i] = 1 + random.nextInt(3);
+        }
+        LinkedHashMap<String, Double> memory = new LinkedHashMap<>();
+        memory.put("objectsMB", objectBytes / 1e6);
+        memory.put("cacheMB", cacheBytes / 1e6);
+        memory.put("cacheOffHeapMB", cache.getOffHeapBytes() / 1e6);
+        MemoryReport.write(params, memory);
+    }
+
+    /**
+     * Delete the cache file
+     *
+     * @throws IOException If it can not be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Get the heap in use after a garbage collection
+     *
+     * @return The used heap, in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** @return A contact of the map, a third of them missing */
+    @Benchmark
+    public CONTACTO objectsGet() {
+        int i = next++ & (READS - 1);
+        return objects.get((long) idtitulares[i] << 32 | noordens[i]);
+    }
+
+    /** @return A contact read from the cache, a third of them missing */
+    @Benchmark
+    public CONTACTO cacheGet() {
+        int i = next++ & (READS - 1);
+        return cache.getContacto(idtitulares[i], noordens[i]);
+    }
+
+    /** @return An emergency contact read from the cache */
+    @Benchmark
+    public CONTACTOEMERGENCIA cacheGetEmergencia() {
+        return cache.getContactoEmergencia(idtitulares[next++ & (READS - 1)], 1);
+    }
+
+    /** @return The number of contacts of the cache file, reopened */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int reopen() {
+        ContactCache reopened = ContactCache.reopen(file, Long.MAX_VALUE);
+        int size = reopened.size();
+        reopened.close();
+        return size;
+    }
+}
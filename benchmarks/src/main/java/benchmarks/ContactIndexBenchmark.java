@@ -0,0 +1,70 @@
+package benchmarks;
+
+import index.ContactIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link ContactIndex} lookups with a million contacts, half emails and half phone numbers, for
+ * contacts that are present, typed in another format, and for unknown ones.
+ * The memory used is written to the {@link MemoryReport} when the index is built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContactIndexBenchmark {
+    /** Number of contacts in the index */
+    private static final int CONTACTS = 1_000_000;
+    /** Number of contacts looked up, a power of two */
+    private static final int LOOKUPS = 1 << 12;
+
+    /** The index */
+    private ContactIndex index;
+    /** Contacts in the index, with the phone numbers in international format */
+    private String[] present;
+    /** Contacts not in the index */
+    private String[] absent;
+    /** Index of the next lookup */
+    private int next;
+
+    /**
+     * Fill the index with half a million emails and half a million phone numbers
+     *
+     * @param params The parameters of the benchmark, for the memory report
+     */
+    @Setup
+    public void setup(BenchmarkParams params) {
+        index = new ContactIndex(CONTACTS);
+        for (int i = 0; i < CONTACTS; i += 2) {
+            index.add("colaborador" + i + "@ongd.pt", i, 1, "email", false);
+            index.add(String.valueOf(910_000_000 + i), i + 1, 2, "telefone", (i & 2) != 0);
+        }
+        present = new String[LOOKUPS];
+        absent = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int contact = (i * 131 % (CONTACTS / 2)) * 2;
+            present[i] = (i & 1) == 0 ? "Colaborador" + contact + "@ONGD.pt" : "+351 " + (910_000_000 + contact);
+            absent[i] = (i & 1) == 0 ? "desconhecido" + contact + "@ongd.pt" : String.valueOf(930_000_000 + contact);
+        }
+        MemoryReport.write(params, Collections.singletonMap("indexMB", index.getMemoryBytes() / 1e6));
+    }
+
+    /** @return The owners of a contact in the index */
+    @Benchmark
+    public List<ContactIndex.Owner> lookupPresent() {
+        return index.lookup(present[next++ & (LOOKUPS - 1)]);
+    }
+
+    /** @return The owners of a contact not in the index, always empty */
+    @Benchmark
+    public List<ContactIndex.Owner> lookupAbsent() {
+        return index.lookup(absent[next++ & (LOOKUPS - 1)]);
+    }
+}
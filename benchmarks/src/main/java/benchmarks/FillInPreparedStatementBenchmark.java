@@ -0,0 +1,78 @@
+package benchmarks;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@code fillInPreparedStatement} method of each model, filling a {@link RecordingStatement}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FillInPreparedStatementBenchmark {
+    /** The parameters filled in, by parameter index minus one */
+    private final Object[] parameters = new Object[16];
+    /** The statement filled in */
+    private final PreparedStatement statement = RecordingStatement.create(parameters);
+
+    /** A colaborator */
+    private final COLABORADOR colaborador = new COLABORADOR("Nome", "Apelido", "1990-05-17", "12345678", 1, "123456789", "Portuguesa", "Rua de exemplo");
+    /** An insurance */
+    private final SEGURO seguro = new SEGURO("2020-01-01", "Seguro de exemplo", "100.00", "temporario", "12");
+    /** A volunteer */
+    private final VOLUNTARIO voluntario = new VOLUNTARIO("Estudante", "Português", "P1");
+    /** A paycheck colaborator */
+    private final ASSALARIADO assalariado = new ASSALARIADO("Técnico", "1000.00");
+    /** A contact */
+    private final CONTACTO contacto = new CONTACTO(1, "colaborador@exemplo.pt", "email");
+    /** An emergency contact */
+    private final CONTACTOEMERGENCIA contactoEmergencia = new CONTACTOEMERGENCIA("Nome", "Mãe", "912345678", 1);
+
+    /** @return The filled in parameters */
+    @Benchmark
+    public Object[] colaborador() {
+        colaborador.fillInPreparedStatement(statement, 1);
+        return parameters;
+    }
+
+    /** @return The filled in parameters */
+    @Benchmark
+    public Object[] seguro() {
+        seguro.fillInPreparedStatement(statement, 1);
+        return parameters;
+    }
+
+    /** @return The filled in parameters */
+    @Benchmark
+    public Object[] voluntario() {
+        voluntario.fillInPreparedStatement(statement, 1);
+        return parameters;
+    }
+
+    /** @return The filled in parameters */
+    @Benchmark
+    public Object[] assalariado() {
+        assalariado.fillInPreparedStatement(statement, 1);
+        return parameters;
+    }
+
+    /** @return The filled in parameters */
+    @Benchmark
+    public Object[] contacto() {
+        contacto.fillInPreparedStatement(statement, 1);
+        return parameters;
+    }
+
+    /** @return The filled in parameters */
+    @Benchmark
+    public Object[] contactoEmergencia() {
+        contactoEmergencia.fillInPreparedStatement(statement, 1);
+        return parameters;
+    }
+}
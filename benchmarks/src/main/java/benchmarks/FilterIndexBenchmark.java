@@ -0,0 +1,70 @@
+package benchmarks;
+
+import index.Bitmap;
+import index.FilterIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link FilterIndex} filters over a million colaborators, for a filter on common values, where the
+ * bitmaps are dense, and for one on a single program, where they are sparse.
+ * The memory used is written to the {@link MemoryReport} when the index is built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterIndexBenchmark {
+    /** Number of colaborators in the index */
+    private static final int COLABORADORES = 1_000_000;
+    /** Number of programs */
+    private static final int PROGRAMAS = 1_000;
+
+    /** The index */
+    private FilterIndex index;
+
+    /**
+     * Fill the index with colaborators, 70% of them volunteers, with skewed nationalities and occupations
+     *
+     * @param params The parameters of the benchmark, for the memory report
+     */
+    @Setup
+    public void setup(BenchmarkParams params) {
+        Random random = new Random(42);
+        String[] nacionalidades = {"Portuguesa", "Portuguesa", "Portuguesa", "Brasileira", "Angolana", "Cabo-verdiana", "Espanhola", "Francesa"};
+        String[] ocupacoes = {"Estudante", "Desempregado", "Empregado", "Empregado", "Reformado"};
+        String[] idiomas = {"Português", "Inglês", "Francês, Inglês", "Espanhol", "Português, Inglês"};
+        index = new FilterIndex();
+        for (int i = 1; i <= COLABORADORES; i++) {
+            index.add(i, FilterIndex.NACIONALIDADE, nacionalidades[random.nextInt(nacionalidades.length)]);
+            index.add(i, FilterIndex.TIPOID, String.valueOf(1 + random.nextInt(3)));
+            if (random.nextInt(10) < 7) {
+                index.add(i, FilterIndex.TIPO, FilterIndex.VOLUNTARIO);
+                index.add(i, FilterIndex.OCUPACAO, ocupacoes[random.nextInt(ocupacoes.length)]);
+                index.add(i, FilterIndex.IDIOMA, idiomas[random.nextInt(idiomas.length)]);
+                index.add(i, FilterIndex.PROGRAMA, "P" + random.nextInt(PROGRAMAS));
+            } else {
+                index.add(i, FilterIndex.TIPO, FilterIndex.ASSALARIADO);
+            }
+        }
+        MemoryReport.write(params, Collections.singletonMap("indexMB", index.getMemoryBytes() / 1e6));
+    }
+
+    /** @return The unemployed volunteers who speak English and are not Portuguese */
+    @Benchmark
+    public Bitmap filterDense() {
+        return index.filter("tipo=voluntario AND ocupacao=desempregado AND idioma=ingles AND NOT nacionalidade=portuguesa");
+    }
+
+    /** @return The volunteers of a program who are students or speak Spanish */
+    @Benchmark
+    public Bitmap filterSparse() {
+        return index.filter("programa=P42 AND (ocupacao=estudante OR idioma=espanhol)");
+    }
+}
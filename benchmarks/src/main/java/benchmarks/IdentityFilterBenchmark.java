@@ -0,0 +1,65 @@
+package benchmarks;
+
+import index.IdentityFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link IdentityFilter} lookups with a million identification numbers, for numbers that are present
+ * and for new ones, most of which are answered by the Bloom filter alone.
+ * The memory used by the filter is written to the {@link MemoryReport} when it is built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdentityFilterBenchmark {
+    /** Number of values in the filter */
+    private static final int VALUES = 1_000_000;
+    /** Number of values looked up, a power of two */
+    private static final int LOOKUPS = 1 << 12;
+
+    /** The filter */
+    private IdentityFilter filter;
+    /** Values in the filter */
+    private String[] present;
+    /** Values not in the filter */
+    private String[] absent;
+    /** Index of the next lookup */
+    private int next;
+
+    /**
+     * Fill the filter with a million 8 digit identification numbers
+     *
+     * @param params The parameters of the benchmark, for the memory report
+     */
+    @Setup
+    public void setup(BenchmarkParams params) {
+        filter = new IdentityFilter(VALUES);
+        for (int i = 0; i < VALUES; i++) filter.add(String.valueOf(10_000_000 + i * 7));
+        present = new String[LOOKUPS];
+        absent = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            present[i] = String.valueOf(10_000_000 + (i * 131 % VALUES) * 7);
+            absent[i] = String.valueOf(10_000_000 + (i * 131 % VALUES) * 7 + 3);
+        }
+        MemoryReport.write(params, Collections.singletonMap("filterMB", filter.getMemoryBytes() / 1e6));
+    }
+
+    /** @return If the value is present, always true */
+    @Benchmark
+    public boolean containsPresent() {
+        return filter.contains(present[next++ & (LOOKUPS - 1)]);
+    }
+
+    /** @return If the value is present, almost always answered by the Bloom filter */
+    @Benchmark
+    public boolean containsAbsent() {
+        return filter.contains(absent[next++ & (LOOKUPS - 1)]);
+    }
+}
@@ -0,0 +1,144 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A forward only {@code ResultSet} over rows kept in memory, used instead of a database connection.
+ * Only the getters used by the models are supported. {@code beforeFirst()} rewinds it so the same rows can be read
+ * by every benchmark invocation.
+ * <p>
+ * Every call goes through a {@code Proxy}, like the calls to the {@code ResultSet} handed out by the
+ * {@code jdbc} package, so the dispatch cost is part of the results and stays the same between versions.
+ */
+final class InMemoryResultSet implements InvocationHandler {
+    /** The column labels */
+    private final String[] labels;
+    /** Column index by lower case label */
+    private final Map<String, Integer> indexes = new HashMap<>();
+    /** The rows, each one with a value per column */
+    private final Object[][] rows;
+    /** The metadata returned by {@code getMetaData()} */
+    private final ResultSetMetaData metaData;
+    /** Index of the current row. -1 before the first row. */
+    private int row = -1;
+    /** Whether the last value read was null */
+    private boolean wasNull;
+
+    /**
+     * Creates an in memory result set
+     *
+     * @param labels The column labels
+     * @param rows The rows
+     */
+    private InMemoryResultSet(String[] labels, Object[][] rows) {
+        this.labels = labels;
+        this.rows = rows;
+        for (int i = labels.length - 1; i >= 0; i--) indexes.put(labels[i].toLowerCase(Locale.ROOT), i + 1);
+        this.metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return labels.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return labels[(Integer) args[0] - 1];
+                        case "getColumnDisplaySize":
+                            return displaySize((Integer) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Create a {@code ResultSet} over rows kept in memory
+     *
+     * @param labels The column labels
+     * @param rows The rows, each one with a value per column
+     * @return The {@code ResultSet}
+     */
+    static ResultSet create(String[] labels, Object[][] rows) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                new InMemoryResultSet(labels, rows));
+    }
+
+    /**
+     * Get the display size of a column, the length of its longest value
+     *
+     * @param column The column index
+     * @return The display size
+     */
+    private int displaySize(int column) {
+        int size = labels[column - 1].length();
+        for (Object[] values : rows) size = Math.max(size, String.valueOf(values[column - 1]).length());
+        return size;
+    }
+
+    /**
+     * Get a value of the current row
+     *
+     * @param column The column index or label
+     * @return The value
+     * @throws SQLException if there is no current row or the column does not exist
+     */
+    private Object value(Object column) throws SQLException {
+        if (row < 0 || row >= rows.length) throw new SQLException("No current row");
+        Integer index = column instanceof Integer ? (Integer) column : indexes.get(((String) column).toLowerCase(Locale.ROOT));
+        if (index == null || index < 1 || index > labels.length) throw new SQLException("Column " + column + " not found");
+        Object value = rows[row][index - 1];
+        wasNull = value == null;
+        return value;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "next":
+                if (row < rows.length) row++;
+                return row < rows.length;
+            case "beforeFirst":
+                row = -1;
+                return null;
+            case "getString":
+                Object string = value(args[0]);
+                return string == null ? null : string.toString();
+            case "getInt":
+                Object number = value(args[0]);
+                return number == null ? 0 : ((Number) number).intValue();
+            case "getDate":
+                return (Date) value(args[0]);
+            case "getBigDecimal":
+                return (BigDecimal) value(args[0]);
+            case "getObject":
+                return value(args[0]);
+            case "wasNull":
+                return wasNull;
+            case "getMetaData":
+                return metaData;
+            case "close":
+                return null;
+            case "isClosed":
+                return false;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "InMemoryResultSet[" + rows.length + " rows]";
+        }
+        throw new UnsupportedOperationException(method.getName());
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the memory measured by a benchmark to a JSON side file, since the JMH results only hold measures that are
+ * per operation or per iteration. Each benchmark method appends one line with its name, as in the JMH results, and its
+ * values, like {@code {"benchmark":"benchmarks.FilterIndexBenchmark.filterDense","indexMB":5.4}}.
+ * <p>
+ * The file is {@code memory.json} in the working directory, or the one set in {@code benchmarks.memoryFile}. JMH
+ * passes the {@code -D} options of its command line to the forked benchmarks.
+ */
+final class MemoryReport {
+    /** The file the lines are appended to */
+    private static final String FILE = System.getProperty("benchmarks.memoryFile", "memory.json");
+
+    /**
+     * Not instantiable
+     */
+    private MemoryReport() {
+    }
+
+    /**
+     * Append the values measured by a benchmark
+     *
+     * @param params The parameters of the benchmark, for its name
+     * @param values The values by name, in the order they are written
+     */
+    static void write(BenchmarkParams params, Map<String, Double> values) {
+        StringBuilder line = new StringBuilder("{\"benchmark\":\"").append(params.getBenchmark()).append('"');
+        for (Map.Entry<String, Double> value : values.entrySet()) {
+            line.append(",\"").append(value.getKey()).append("\":").append(String.format(Locale.ROOT, "%.3f", value.getValue()));
+        }
+        line.append('}');
+        try {
+            Files.write(Paths.get(FILE), Collections.singletonList(line), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Não foi possível escrever a memória em " + FILE + ": " + e.getMessage());
+        }
+    }
+}
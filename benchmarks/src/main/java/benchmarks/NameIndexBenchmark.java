@@ -0,0 +1,70 @@
+package benchmarks;
+
+import index.NameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link NameIndex} searches over a million colaborators, by name prefix and by similar names with
+ * typos. The names are combinations of common first and last names, so many colaborators share each word.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NameIndexBenchmark {
+    /** Number of colaborators in the index */
+    private static final int COLABORADORES = 1_000_000;
+    /** Number of results per search, the rows of a console page */
+    private static final int LIMIT = 20;
+    /** First names */
+    private static final String[] NOMES = {
+            "João", "Maria", "José", "Ana", "António", "Francisco", "Manuel", "Rita", "Pedro", "Sofia",
+            "Luís", "Inês", "Carlos", "Beatriz", "Rui", "Marta", "Paulo", "Catarina", "Miguel", "Joana",
+            "Tiago", "Sílvia", "Ricardo", "Helena", "Nuno", "Teresa", "Filipe", "Cláudia", "Jorge", "Patrícia"
+    };
+    /** Last names */
+    private static final String[] APELIDOS = {
+            "Silva", "Santos", "Ferreira", "Pereira", "Oliveira", "Costa", "Rodrigues", "Martins", "Jesus", "Sousa",
+            "Fernandes", "Gonçalves", "Gomes", "Lopes", "Marques", "Alves", "Almeida", "Ribeiro", "Pinto", "Carvalho",
+            "Teixeira", "Moreira", "Correia", "Mendes", "Nunes", "Soares", "Vieira", "Monteiro", "Cardoso", "Rocha"
+    };
+    /** Searches by name prefix */
+    private static final String[] PREFIXOS = {"mar", "joao sil", "ferr", "Ana Pe", "card", "teresa roch"};
+    /** Searches with typos */
+    private static final String[] SEMELHANTES = {"slvia", "joao peirera", "fernandez", "cataria gomez", "mnteiro", "rodriges"};
+
+    /** The index */
+    private NameIndex index;
+    /** Index of the next search */
+    private int next;
+
+    /**
+     * Fill the index with a million colaborators, each with a first name and two last names
+     */
+    @Setup
+    public void setup() {
+        index = new NameIndex();
+        for (int i = 0; i < COLABORADORES; i++) {
+            String nome = NOMES[i % NOMES.length];
+            String apelido = APELIDOS[(i / NOMES.length) % APELIDOS.length] + " " + APELIDOS[(i * 7 + i / 900) % APELIDOS.length];
+            index.add(i + 1, nome, apelido, String.valueOf(10_000_000 + i));
+        }
+    }
+
+    /** @return The colaborators starting with a prefix */
+    @Benchmark
+    public List<NameIndex.Entry> prefix() {
+        return index.search(PREFIXOS[next++ % PREFIXOS.length], LIMIT);
+    }
+
+    /** @return The colaborators with names similar to a name with typos */
+    @Benchmark
+    public List<NameIndex.Entry> similar() {
+        return index.search(SEMELHANTES[next++ % SEMELHANTES.length], LIMIT);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import index.ProgramIndex;
+import model.PROGRAMA;
+import model.RowMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link ProgramIndex} matching of a volunteer against ten thousand programs spread over three
+ * years, for a short availability window, where the interval tree is walked, and for a young volunteer, where few
+ * programs have a low enough minimum age and the age index is scanned instead.
+ * The programs come from an {@link InMemoryResultSet}, so no database is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramIndexBenchmark {
+    /** Number of programs in the index */
+    private static final int PROGRAMS = 10_000;
+    /** First day of the programs */
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 1, 1);
+    /** Number of availability windows, a power of two */
+    private static final int WINDOWS = 1 << 8;
+
+    /** The index */
+    private ProgramIndex index;
+    /** Start of each availability window */
+    private LocalDate[] windowStarts;
+    /** Index of the next window */
+    private int next;
+
+    /**
+     * Fill the index with programs of up to two months and minimum ages from 16 to 35, each with some volunteers
+     *
+     * @throws SQLException never, the rows are in memory
+     */
+    @Setup
+    public void setup() throws SQLException {
+        Random random = new Random(42);
+        Object[][] rows = new Object[PROGRAMS][];
+        for (int i = 0; i < PROGRAMS; i++) {
+            LocalDate start = FIRST_DAY.plusDays(random.nextInt(3 * 365));
+            int minAge = random.nextInt(100) < 5 ? 16 : 18 + random.nextInt(18);
+            rows[i] = new Object[]{"P" + i, "EDU", 1, "Programa " + i, Date.valueOf(start), Date.valueOf(start.plusDays(1 + random.nextInt(60))),
+                    minAge, new BigDecimal("150.00"), "PCD", "Educação"};
+        }
+        ResultSet rs = InMemoryResultSet.create(new String[]{"identificador", "codigo", "idassociacao", "nome", "datainicio", "datafinal", "idademinima", "custo", "atrdiscriminante", "areaintervencao"}, rows);
+        RowMapper<PROGRAMA> mapper = PROGRAMA.mapper(rs.getMetaData());
+        ArrayList<PROGRAMA> programas = new ArrayList<>();
+        while (rs.next()) programas.add(mapper.mapRow(rs));
+
+        index = new ProgramIndex();
+        index.refresh(programas);
+        String[] idiomas = {"Português", "Inglês", "Francês, Inglês", "Espanhol"};
+        for (int i = 0; i < PROGRAMS * 5; i++) index.addVolunteer("P" + random.nextInt(PROGRAMS), idiomas[random.nextInt(idiomas.length)]);
+
+        windowStarts = new LocalDate[WINDOWS];
+        for (int i = 0; i < WINDOWS; i++) windowStarts[i] = FIRST_DAY.plusDays(random.nextInt(3 * 365 - 90));
+    }
+
+    /** @return The programs an adult can join within three months */
+    @Benchmark
+    public ArrayList<PROGRAMA> matchWindow() {
+        LocalDate from = windowStarts[next++ & (WINDOWS - 1)];
+        return index.match(LocalDate.of(1990, 5, 17), "inglês", from, from.plusDays(90), "PCD");
+    }
+
+    /** @return The programs a 17 year old can join, with no end date */
+    @Benchmark
+    public ArrayList<PROGRAMA> matchYoung() {
+        LocalDate from = windowStarts[next++ & (WINDOWS - 1)];
+        return index.match(from.minusYears(17), "português", from, null, "PCD");
+    }
+}
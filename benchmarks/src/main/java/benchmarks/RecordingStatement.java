@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+/**
+ * A {@code PreparedStatement} that only keeps the parameters it is given, used instead of a database connection.
+ * Every call goes through a {@code Proxy}, like the calls to the statements handed out by the {@code jdbc} package.
+ */
+final class RecordingStatement {
+    /** Not instantiable */
+    private RecordingStatement() {}
+
+    /**
+     * Create a {@code PreparedStatement} that records its parameters
+     *
+     * @param parameters Where the parameters are kept, by parameter index minus one
+     * @return The {@code PreparedStatement}
+     */
+    static PreparedStatement create(Object[] parameters) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parameters[(Integer) args[0] - 1] = name.equals("setNull") ? null : args[1];
+                        return null;
+                    }
+                    switch (name) {
+                        case "clearParameters":
+                        case "close":
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "RecordingStatement";
+                    }
+                    throw new UnsupportedOperationException(name);
+                });
+    }
+}
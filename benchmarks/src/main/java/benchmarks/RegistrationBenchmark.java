@@ -0,0 +1,166 @@
+package benchmarks;
+
+import jdbc.Database;
+import model.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Measures the latency of a colaborator registration through {@link Database#adicionarColaborador} (one statement
+ * per table) and through {@link Database#registarColaborador} (a single procedure call with table-valued parameters).
+ * <p>
+ * Registers paycheck colaborators with generated data, so it only runs against a test database given explicitly
+ * in the {@code ongd.db.url} system property, and deletes every colaborator it registered when it ends.
+ * It is not a JMH benchmark and is run from the benchmarks jar:
+ * {@code java -Dongd.db.url=... -Dongd.db.user=... -Dongd.db.password=... -cp benchmarks.jar benchmarks.RegistrationBenchmark [registrations per path]}
+ */
+public final class RegistrationBenchmark {
+    /** Number of registrations per path when none is given */
+    private static final int DEFAULT_REGISTRATIONS = 200;
+    /** Number of registrations per path that are not measured */
+    private static final int WARMUP = 20;
+    /** Maximum number of registrations per path, so the generated identification numbers fit in 11 digits */
+    private static final int MAX_REGISTRATIONS = 4000;
+
+    /** Tables of the rows registered with a colaborator and their colaborator number column, children first */
+    private static final String[][] CLEANUP = {
+            {"CONTACTOEMERGENCIA", "idtitular"}, {"CONTACTO", "idtitular"}, {"ASSALARIADO", "nocolaborador"},
+            {"VOLUNTARIO", "nocolaborador"}, {"SEGURO", "pessoa"}, {"COLABORADOR", "nocolaborador"}};
+
+    /** Next generated identification number */
+    private static long nident;
+    /** Numbers of the colaborators registered, deleted when the benchmark ends */
+    private static final ArrayList<Integer> registered = new ArrayList<>();
+
+    /** Not instantiable */
+    private RegistrationBenchmark() {}
+
+    /**
+     * Runs the benchmark and shows the latency percentiles of each path
+     *
+     * @param args Optionally the number of registrations per path
+     */
+    public static void main(String[] args) {
+        if (System.getProperty("ongd.db.url") == null) {
+            System.err.println("Indique a base de dados de teste com -Dongd.db.url=jdbc:sqlserver://...");
+            return;
+        }
+        int registrations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REGISTRATIONS;
+        registrations = Math.max(1, Math.min(registrations, MAX_REGISTRATIONS));
+        nident = System.currentTimeMillis() % 10_000_000L * 10_000;
+
+        if (Database.testConnection() == null) {
+            System.err.println("Não foi possivel ligar à base de dados.");
+            return;
+        }
+        try {
+            long[] porTabela = measure(registrations, registo -> Database.adicionarColaborador(registo.colaborador,
+                    registo.seguro, registo.voluntario, registo.assalariado, registo.contactos, registo.contactos_emergencia));
+            long[] procedimento = measure(registrations, Database::registarColaborador);
+            print("adicionarColaborador", porTabela);
+            print("registarColaborador", procedimento);
+        } finally {
+            Database.shutdown();
+            cleanup();
+        }
+    }
+
+    /**
+     * Interface used to represent a registration path
+     */
+    private interface Path { boolean register(Registration registo); }
+
+    /**
+     * Register colaborators through a path, measuring each registration after the warmup ones
+     *
+     * @param registrations Number of measured registrations
+     * @param path The registration path
+     * @return The latency of each measured registration, in nanoseconds, sorted
+     */
+    private static long[] measure(int registrations, Path path) {
+        long[] latencies = new long[registrations];
+        for (int i = -WARMUP; i < registrations; i++) {
+            Registration registo = generate();
+            long start = System.nanoTime();
+            boolean success = path.register(registo);
+            long elapsed = System.nanoTime() - start;
+            if (!success) throw new IllegalStateException("O registo do colaborador " + registo.colaborador.nident + " falhou.");
+            registered.add(registo.colaborador.nocolaborador);
+            if (i >= 0) latencies[i] = elapsed;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Delete every colaborator registered by the benchmark, with all their rows
+     */
+    private static void cleanup() {
+        if (registered.isEmpty()) return;
+        try (Connection con = DriverManager.getConnection(System.getProperty("ongd.db.url"),
+                System.getProperty("ongd.db.user"), System.getProperty("ongd.db.password"))) {
+            con.setAutoCommit(false);
+            for (String[] table : CLEANUP) {
+                try (PreparedStatement delete = con.prepareStatement("delete from " + table[0] + " where " + table[1] + " = ?")) {
+                    for (int nocolaborador : registered) {
+                        delete.setInt(1, nocolaborador);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+            }
+            con.commit();
+            System.out.println(registered.size() + " colaboradores de teste apagados.");
+        } catch (SQLException e) {
+            System.err.println("Não foi possivel apagar os colaboradores de teste: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Generate a paycheck colaborator with two contacts
+     *
+     * @return The generated {@link Registration}
+     */
+    private static Registration generate() {
+        String numero = String.valueOf(nident++);
+        COLABORADOR colaborador = new COLABORADOR("Teste", "Benchmark", "1990-01-01", numero, 1, null, "Portuguesa", "Rua de teste");
+        SEGURO seguro = new SEGURO("2020-01-01", "Seguro de teste", "100.00", "temporario", "12");
+        ASSALARIADO assalariado = new ASSALARIADO("Teste", "1000.00");
+        ArrayList<CONTACTO> contactos = new ArrayList<>();
+        contactos.add(new CONTACTO(1, "teste" + numero + "@teste.pt", "email"));
+        contactos.add(new CONTACTO(2, "912345678", "telefone"));
+        return new Registration(colaborador, seguro, null, assalariado, contactos, new ArrayList<>());
+    }
+
+    /**
+     * Show the latency percentiles of a path
+     *
+     * @param name The path name
+     * @param latencies The sorted latencies, in nanoseconds
+     */
+    private static void print(String name, long[] latencies) {
+        long total = 0;
+        for (long latency : latencies) total += latency;
+        System.out.printf("%-22s n=%d  média=%.2fms  p50=%.2fms  p95=%.2fms  p99=%.2fms  máx=%.2fms%n",
+                name, latencies.length, total / 1e6 / latencies.length,
+                percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    /**
+     * Get a percentile of sorted latencies
+     *
+     * @param latencies The sorted latencies, in nanoseconds
+     * @param percentile The percentile, from 0 to 100
+     * @return The percentile, in milliseconds
+     */
+    private static double percentile(long[] latencies, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+}
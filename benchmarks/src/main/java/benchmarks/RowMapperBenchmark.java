@@ -0,0 +1,138 @@
+package benchmarks;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the model construction from a {@code ResultSet}: the {@link RowMapper} of each model, which resolves the
+ * column indexes once per query, against the deprecated constructors, which look up every column by name.
+ * The rows come from an {@link InMemoryResultSet}, so no database is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMapperBenchmark {
+    /** Number of rows of each result */
+    @Param({"1000"})
+    public int rows;
+
+    /** Colaborators result */
+    private ResultSet colaboradores;
+    /** Contacts result */
+    private ResultSet contactos;
+    /** Emergency contacts result */
+    private ResultSet contactosEmergencia;
+    /** Programs result, with the intervention area */
+    private ResultSet programas;
+
+    /**
+     * Generate the results
+     */
+    @Setup
+    public void setup() {
+        Date date = Date.valueOf("1990-05-17");
+        Object[][] colaborador = new Object[rows][];
+        Object[][] contacto = new Object[rows][];
+        Object[][] contactoEmergencia = new Object[rows][];
+        Object[][] programa = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            colaborador[i] = new Object[]{i + 1, "Nome " + i, "Apelido " + i, date, String.valueOf(10_000_000 + i), 1, String.valueOf(200_000_000 + i), "Portuguesa", "Rua " + i};
+            contacto[i] = new Object[]{i + 1, 1, "colaborador" + i + "@exemplo.pt", "email"};
+            contactoEmergencia[i] = new Object[]{"Nome " + i, "Mãe", "912345678", i + 1, 1};
+            programa[i] = new Object[]{"P" + i, "PCD", 1, "Programa " + i, date, date, 18, new BigDecimal("150.00"), "PCD", "Educação  "};
+        }
+        colaboradores = InMemoryResultSet.create(new String[]{"nocolaborador", "nome", "apelido", "dtnascimento", "nident", "tipoid", "nfiscal", "nacionalidade", "morada"}, colaborador);
+        contactos = InMemoryResultSet.create(new String[]{"idtitular", "noordem", "contacto", "descricao"}, contacto);
+        contactosEmergencia = InMemoryResultSet.create(new String[]{"nome", "grauparentesco", "contacto", "idtitular", "noordem"}, contactoEmergencia);
+        programas = InMemoryResultSet.create(new String[]{"identificador", "codigo", "idassociacao", "nome", "datainicio", "datafinal", "idademinima", "custo", "atrdiscriminante", "areaintervencao"}, programa);
+    }
+
+    /**
+     * Map every row of a result
+     *
+     * @param rs The result, rewound first
+     * @param mapper The mapper
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    private static void mapAll(ResultSet rs, RowMapper<?> mapper, Blackhole bh) throws SQLException {
+        rs.beforeFirst();
+        while (rs.next()) bh.consume(mapper.mapRow(rs));
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    public void colaboradorMapper(Blackhole bh) throws SQLException {
+        mapAll(colaboradores, COLABORADOR.mapper(colaboradores.getMetaData()), bh);
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void colaboradorByName(Blackhole bh) throws SQLException {
+        mapAll(colaboradores, COLABORADOR::new, bh);
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    public void contactoMapper(Blackhole bh) throws SQLException {
+        mapAll(contactos, CONTACTO.mapper(contactos.getMetaData()), bh);
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void contactoByName(Blackhole bh) throws SQLException {
+        mapAll(contactos, CONTACTO::new, bh);
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    public void contactoEmergenciaMapper(Blackhole bh) throws SQLException {
+        mapAll(contactosEmergencia, CONTACTOEMERGENCIA.mapper(contactosEmergencia.getMetaData()), bh);
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    public void programaMapper(Blackhole bh) throws SQLException {
+        mapAll(programas, PROGRAMA.mapper(programas.getMetaData()), bh);
+    }
+
+    /**
+     * @param bh Consumes the models
+     * @throws SQLException if a row can not be read
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void programaByName(Blackhole bh) throws SQLException {
+        mapAll(programas, PROGRAMA::new, bh);
+    }
+}
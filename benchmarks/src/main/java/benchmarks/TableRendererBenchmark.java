@@ -0,0 +1,87 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import view.TableRenderer;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link TableRenderer} used by {@code Database.printResults} and {@code Report.print} to pad the
+ * result rows into a table. The table is written to a {@code Writer} that drops the output, so only the formatting is
+ * measured, not the console.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TableRendererBenchmark {
+    /** Number of rows of the table */
+    @Param({"100", "10000"})
+    public int rows;
+
+    /** The column labels, like the contacts report */
+    private final String[] labels = {"nocolaborador", "nome", "apelido", "contacto", "descricao"};
+    /** The display size of each column */
+    private final int[] displaySizes = {10, 50, 50, 100, 20};
+    /** The cell values of each row */
+    private String[][] values;
+    /** {@code Writer} that drops everything written to it */
+    private final Writer discard = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {}
+        @Override
+        public void write(String str, int off, int len) {}
+        @Override
+        public void flush() {}
+        @Override
+        public void close() {}
+    };
+
+    /**
+     * Generate the rows
+     */
+    @Setup
+    public void setup() {
+        values = new String[rows][];
+        for (int i = 0; i < rows; i++) {
+            values[i] = new String[]{String.valueOf(i + 1), "Nome " + i, "Apelido " + i, "colaborador" + i + "@exemplo.pt", i % 2 == 0 ? "email" : "telefone"};
+        }
+    }
+
+    /**
+     * Render the header and every row of the table
+     *
+     * @return If a write failed
+     */
+    @Benchmark
+    public boolean render() {
+        TableRenderer table = new TableRenderer(labels, displaySizes, discard);
+        table.writeHeader();
+        for (String[] row : values) {
+            table.beginRow();
+            for (String value : row) table.cell(value);
+            table.endRow();
+        }
+        return table.checkError();
+    }
+
+    /**
+     * Render every row as a {@code String}, like the pager does
+     *
+     * @return Total length of the rendered rows
+     */
+    @Benchmark
+    public long rowStrings() {
+        TableRenderer table = new TableRenderer(labels, displaySizes, null);
+        long length = table.headerString().length();
+        for (String[] row : values) {
+            table.beginRow();
+            for (String value : row) table.cell(value);
+            length += table.rowString().length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,139 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import view.Validator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Validator} methods, each one with a valid and an invalid input.
+ * The inputs are {@code @State} fields so the JIT can not fold the calls into constants.
+ * <p>
+ * Run with the allocation profiler ({@code -prof gc}) to check that the validators allocate nothing:
+ * {@code gc.alloc.rate.norm} must stay at 0 B/op, except for {@link #validateRecords()} which returns the error bitmap
+ * and splits the contact lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidatorBenchmark {
+    /** A valid date */
+    public String date = "1990-05-17";
+    /** A date that does not exist */
+    public String invalidDate = "1990-02-30";
+    /** The minimal date used by {@link #isDateAfter()} */
+    public String minDate = "1900-01-01";
+    /** A valid decimal number */
+    public String decimal = "1234.56";
+    /** A number with too many decimals */
+    public String invalidDecimal = "1234.567";
+    /** A valid positive integer */
+    public String integer = "123456789";
+    /** A text that is not an integer */
+    public String invalidInteger = "12a45";
+    /** A valid email */
+    public String email = "joao.silva-teste@exemplo.com.pt";
+    /** A text that is not an email */
+    public String invalidEmail = "joao.silva@exemplo";
+    /** A valid phone number */
+    public String phone = "+351912345678";
+
+    /** Number of records checked by {@link #validateRecords()} */
+    private static final int RECORDS = 100_000;
+    /** Colaborator records, one in ten with an invalid field */
+    private String[][] records;
+
+    /**
+     * Generate the colaborator records
+     */
+    @Setup
+    public void setup() {
+        records = new String[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            boolean voluntario = i % 2 == 0;
+            records[i] = new String[]{
+                    voluntario ? "Voluntário" : "Assalariado", "Nome" + i, "Apelido", "1990-05-17", String.valueOf(10_000_000 + i),
+                    "CC", "123456789", "Portuguesa", "Rua de exemplo", voluntario ? "estudante" : "", voluntario ? "Português" : "",
+                    voluntario ? "P1" : "", voluntario ? "" : "Técnico", voluntario ? "" : "1000.00",
+                    "2020-01-01", "Seguro de exemplo", i % 10 == 0 ? "100.001" : "100.00", "temporario", "12",
+                    "colaborador" + i + "@exemplo.pt|912345678", voluntario ? "912345678;Nome;Mãe;mae@exemplo.pt" : ""
+            };
+        }
+    }
+
+    /** @return If {@link #date} is valid */
+    @Benchmark
+    public boolean isDate() {
+        return Validator.isDate(date);
+    }
+
+    /** @return If {@link #invalidDate} is valid */
+    @Benchmark
+    public boolean isDateInvalid() {
+        return Validator.isDate(invalidDate);
+    }
+
+    /** @return If {@link #date} is valid and after {@link #minDate} */
+    @Benchmark
+    public boolean isDateAfter() {
+        return Validator.isDate(date, minDate);
+    }
+
+    /** @return If {@link #email} fits in 100 chars */
+    @Benchmark
+    public boolean isLength() {
+        return Validator.isLength(email, 100);
+    }
+
+    /** @return If {@link #decimal} is a valid {@code decimal(8,2)} */
+    @Benchmark
+    public boolean isDecimal() {
+        return Validator.isDecimal(decimal, 8, 2);
+    }
+
+    /** @return If {@link #invalidDecimal} is a valid {@code decimal(8,2)} */
+    @Benchmark
+    public boolean isDecimalInvalid() {
+        return Validator.isDecimal(invalidDecimal, 8, 2);
+    }
+
+    /** @return If {@link #integer} is a positive integer */
+    @Benchmark
+    public boolean isInteger() {
+        return Validator.isInteger(integer, true);
+    }
+
+    /** @return If {@link #invalidInteger} is an integer */
+    @Benchmark
+    public boolean isIntegerInvalid() {
+        return Validator.isInteger(invalidInteger, false);
+    }
+
+    /** @return If {@link #email} is an email */
+    @Benchmark
+    public boolean isEmail() {
+        return Validator.isEmail(email);
+    }
+
+    /** @return If {@link #invalidEmail} is an email */
+    @Benchmark
+    public boolean isEmailInvalid() {
+        return Validator.isEmail(invalidEmail);
+    }
+
+    /** @return If {@link #phone} is an email or a phone number */
+    @Benchmark
+    public boolean isEmailOrPhone() {
+        return Validator.isEmailOrPhone(phone);
+    }
+
+    /** @return The error bitmap of every record */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long[] validateRecords() {
+        return Validator.validateRecords(records, "P1"::equals);
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * JMH benchmarks of the application hot paths: input validation, table rendering, model mapping from a
+ * {@code ResultSet} and {@code fillInPreparedStatement}. They need no database, except
+ * {@link benchmarks.RegistrationBenchmark}, which runs against a test database given explicitly.
+ */
+package benchmarks;
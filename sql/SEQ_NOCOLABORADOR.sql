@@ -0,0 +1,17 @@
+-- Sequence used to reserve blocks of colaborator numbers (jdbc.KeyAllocator).
+-- The application inserts the reserved numbers with IDENTITY_INSERT, so the login needs ALTER permission on COLABORADOR.
+-- The sequence starts after the highest number already in use. Run it again to resync the sequence
+-- if colaborators were inserted through the identity column while the sequence was not used.
+-- The sequence name can be changed with the ongd.keys.sequence system property.
+
+declare @start bigint = isnull((select max(nocolaborador) from dbo.COLABORADOR), 0) + 1;
+declare @identity bigint = isnull(cast(ident_current('dbo.COLABORADOR') as bigint), 0) + 1;
+if @identity > @start set @start = @identity;
+
+declare @sql nvarchar(200);
+if object_id('dbo.SEQ_NOCOLABORADOR', 'SO') is null
+    set @sql = N'create sequence dbo.SEQ_NOCOLABORADOR as int start with ' + cast(@start as nvarchar(20)) + N' increment by 1 no cycle cache 100';
+else
+    set @sql = N'alter sequence dbo.SEQ_NOCOLABORADOR restart with ' + cast(@start as nvarchar(20));
+exec sp_executesql @sql;
+go
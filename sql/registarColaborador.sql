@@ -0,0 +1,96 @@
+-- Table types and procedure used to register a colaborator in a single call (jdbc.Database.registarColaborador).
+-- Each table type has the columns of the matching insert in jdbc.Database, in the same order, so the rows are
+-- built from the fillInPreparedStatement of the models. The colaborator number columns are ignored and filled in
+-- with the number of the new colaborator. Text sizes follow the validation rules in main.App.
+-- If @nocolaborador is given (a number reserved by jdbc.KeyAllocator) it is inserted with IDENTITY_INSERT,
+-- otherwise the identity column generates it. The number is returned in @nocolaborador.
+
+if object_id('dbo.registarColaborador', 'P') is not null drop procedure dbo.registarColaborador;
+if type_id('dbo.TT_COLABORADOR') is not null drop type dbo.TT_COLABORADOR;
+if type_id('dbo.TT_SEGURO') is not null drop type dbo.TT_SEGURO;
+if type_id('dbo.TT_VOLUNTARIO') is not null drop type dbo.TT_VOLUNTARIO;
+if type_id('dbo.TT_ASSALARIADO') is not null drop type dbo.TT_ASSALARIADO;
+if type_id('dbo.TT_CONTACTO') is not null drop type dbo.TT_CONTACTO;
+if type_id('dbo.TT_CONTACTOEMERGENCIA') is not null drop type dbo.TT_CONTACTOEMERGENCIA;
+go
+
+create type dbo.TT_COLABORADOR as table (
+    nome nvarchar(15), apelido nvarchar(30), dtnascimento date, nident nvarchar(11), tipoid int,
+    nfiscal nvarchar(9), nacionalidade nvarchar(20), morada nvarchar(250)
+);
+create type dbo.TT_SEGURO as table (
+    data date, pessoa int, descricao nvarchar(150), premio decimal(8, 2), prazo nvarchar(10), duracao int
+);
+create type dbo.TT_VOLUNTARIO as table (
+    nocolaborador int, ocupacaoatual nvarchar(12), idioma nvarchar(250), idprograma nvarchar(50)
+);
+create type dbo.TT_ASSALARIADO as table (
+    nocolaborador int, cargo nvarchar(50), vencimento decimal(8, 2)
+);
+create type dbo.TT_CONTACTO as table (
+    idtitular int, noordem int, contacto nvarchar(250), descricao nvarchar(8)
+);
+create type dbo.TT_CONTACTOEMERGENCIA as table (
+    nome nvarchar(50), grauparentesco nvarchar(15), contacto nvarchar(250), idtitular int, noordem int
+);
+go
+
+create procedure dbo.registarColaborador
+    @colaborador dbo.TT_COLABORADOR readonly,
+    @seguro dbo.TT_SEGURO readonly,
+    @voluntario dbo.TT_VOLUNTARIO readonly,
+    @assalariado dbo.TT_ASSALARIADO readonly,
+    @contactos dbo.TT_CONTACTO readonly,
+    @contactos_emergencia dbo.TT_CONTACTOEMERGENCIA readonly,
+    @nocolaborador int output
+as
+begin
+    set nocount on;
+    declare @ids table (nocolaborador int);
+    declare @identity_insert bit = 0;
+
+    begin try
+        begin transaction;
+
+        if @nocolaborador is null
+            insert into COLABORADOR (nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada)
+            output inserted.nocolaborador into @ids
+            select nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada from @colaborador;
+        else
+        begin
+            set identity_insert COLABORADOR on;
+            set @identity_insert = 1;
+            insert into COLABORADOR (nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada, nocolaborador)
+            output inserted.nocolaborador into @ids
+            select nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada, @nocolaborador from @colaborador;
+            set identity_insert COLABORADOR off;
+            set @identity_insert = 0;
+        end
+
+        if (select count(*) from @ids) <> 1 throw 50001, 'Exactly one colaborator must be registered.', 1;
+        select @nocolaborador = nocolaborador from @ids;
+
+        insert into SEGURO (data, pessoa, descricao, premio, prazo, duracao)
+        select data, @nocolaborador, descricao, premio, prazo, duracao from @seguro;
+
+        insert into VOLUNTARIO (nocolaborador, ocupacaoatual, idioma, idprograma)
+        select @nocolaborador, ocupacaoatual, idioma, idprograma from @voluntario;
+
+        insert into ASSALARIADO (nocolaborador, cargo, vencimento)
+        select @nocolaborador, cargo, vencimento from @assalariado;
+
+        insert into CONTACTO (idtitular, noordem, contacto, descricao)
+        select @nocolaborador, noordem, contacto, descricao from @contactos;
+
+        insert into CONTACTOEMERGENCIA (nome, grauparentesco, contacto, idtitular, noordem)
+        select nome, grauparentesco, contacto, @nocolaborador, noordem from @contactos_emergencia;
+
+        commit transaction;
+    end try
+    begin catch
+        if @@trancount > 0 rollback transaction;
+        if @identity_insert = 1 set identity_insert COLABORADOR off;
+        throw;
+    end catch
+end
+go
@@ -0,0 +1,520 @@
+package index;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative {@code int}, in the style of a Roaring bitmap.
+ * <p>
+ * The values are split by their high 16 bits into chunks of 65536 values. Each chunk is a container: a sorted
+ * {@code char[]} of the low 16 bits while it has up to {@link #ARRAY_MAX} values, or a {@code long[]} with one bit per
+ * value once it has more. Sparse chunks take two bytes per value and dense ones 8 KB, whichever is smaller, and
+ * {@link #and(Bitmap)}, {@link #or(Bitmap)} and {@link #andNot(Bitmap)} only combine the containers of the chunks
+ * present in both sets, a word or a merge step at a time.
+ * <p>
+ * Combining a bitmap container with another one, or subtracting from it, gives a bitmap container even when few
+ * values are left: turning the bits back into values costs ten times as much as combining the words, and the result
+ * of a filter is usually combined again, counted or read in part rather than kept.
+ * <p>
+ * The combining methods return new bitmaps and leave both operands unchanged. Not thread safe.
+ */
+public final class Bitmap {
+    /** Maximum number of values of an array container. Past it a bitmap container is smaller. */
+    private static final int ARRAY_MAX = 4096;
+    /** Number of {@code long} words of a bitmap container */
+    private static final int WORDS = 1 << 16 >>> 6;
+    /** Initial capacity of an array container */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** High 16 bits of the values of each chunk, in increasing order */
+    private char[] keys;
+    /** Container of each chunk */
+    private Container[] containers;
+    /** Number of chunks */
+    private int chunks;
+
+    /**
+     * The low 16 bits of the values of a chunk
+     */
+    private static final class Container {
+        /** Sorted values of an array container. Null for a bitmap container. */
+        char[] values;
+        /** Bits of a bitmap container. Null for an array container. */
+        long[] words;
+        /** Number of values */
+        int cardinality;
+
+        /**
+         * Creates an array container
+         *
+         * @param values_ The sorted values, possibly with spare capacity
+         * @param cardinality_ The number of values
+         */
+        Container(char[] values_, int cardinality_) {
+            this.values = values_;
+            this.cardinality = cardinality_;
+        }
+
+        /**
+         * Creates a bitmap container
+         *
+         * @param words_ The bits
+         * @param cardinality_ The number of bits set
+         */
+        Container(long[] words_, int cardinality_) {
+            this.words = words_;
+            this.cardinality = cardinality_;
+        }
+
+        /**
+         * Check if a value is in the container
+         *
+         * @param low The low 16 bits of the value
+         * @return {@code boolean} indicating if it is present
+         */
+        boolean contains(char low) {
+            if (words != null) return (words[low >>> 6] & 1L << low) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        /**
+         * Add a value, turning the container into a bitmap container if it gets too large
+         *
+         * @param low The low 16 bits of the value
+         * @return {@code boolean} indicating if it was added. False if already present.
+         */
+        boolean add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) return false;
+                words[low >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position >= 0) return false;
+            position = -position - 1;
+            if (cardinality == ARRAY_MAX) {
+                words = toWords(values, cardinality);
+                values = null;
+                words[low >>> 6] |= 1L << low;
+                cardinality++;
+                return true;
+            }
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+            System.arraycopy(values, position, values, position + 1, cardinality - position);
+            values[position] = low;
+            cardinality++;
+            return true;
+        }
+
+        /**
+         * Remove a value, turning the container into an array container if it gets small enough
+         *
+         * @param low The low 16 bits of the value
+         * @return {@code boolean} indicating if it was removed. False if not present.
+         */
+        boolean remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) return false;
+                words[low >>> 6] &= ~bit;
+                if (--cardinality <= ARRAY_MAX) {
+                    values = toValues(words, cardinality);
+                    words = null;
+                }
+                return true;
+            }
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position < 0) return false;
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+            cardinality--;
+            return true;
+        }
+
+        /**
+         * Copy the container, without spare capacity
+         *
+         * @return The copy
+         */
+        Container copy() {
+            if (words != null) return new Container(words.clone(), cardinality);
+            return new Container(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        /**
+         * Get the estimated memory used by the container, in bytes
+         *
+         * @return The memory used
+         */
+        long getMemoryBytes() {
+            return 24 + (words != null ? 16 + 8L * words.length : 16 + ((2L * values.length + 7) & ~7L));
+        }
+    }
+
+    /**
+     * Creates an empty bitmap
+     */
+    public Bitmap() {
+        this.keys = new char[INITIAL_CAPACITY];
+        this.containers = new Container[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates a bitmap with some chunks
+     *
+     * @param keys_ High 16 bits of each chunk, in increasing order
+     * @param containers_ Container of each chunk
+     * @param chunks_ Number of chunks
+     */
+    private Bitmap(char[] keys_, Container[] containers_, int chunks_) {
+        this.keys = keys_;
+        this.containers = containers_;
+        this.chunks = chunks_;
+    }
+
+    /**
+     * Find the chunk of a value
+     *
+     * @param key The high 16 bits of the value
+     * @return The chunk index, or {@code -(insertion point) - 1} if there is no such chunk
+     */
+    private int chunk(char key) {
+        return Arrays.binarySearch(keys, 0, chunks, key);
+    }
+
+    /**
+     * Check if a value is in the set
+     *
+     * @param value The value
+     * @return {@code boolean} indicating if it is present
+     */
+    public boolean contains(int value) {
+        int chunk = chunk((char) (value >>> 16));
+        return chunk >= 0 && containers[chunk].contains((char) value);
+    }
+
+    /**
+     * Add a value to the set
+     *
+     * @param value The value, non-negative
+     * @return {@code boolean} indicating if it was added. False if already present.
+     */
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int chunk = chunk(key);
+        if (chunk >= 0) return containers[chunk].add((char) value);
+        chunk = -chunk - 1;
+        if (chunks == keys.length) {
+            keys = Arrays.copyOf(keys, chunks * 2);
+            containers = Arrays.copyOf(containers, chunks * 2);
+        }
+        System.arraycopy(keys, chunk, keys, chunk + 1, chunks - chunk);
+        System.arraycopy(containers, chunk, containers, chunk + 1, chunks - chunk);
+        keys[chunk] = key;
+        containers[chunk] = new Container(new char[INITIAL_CAPACITY], 0);
+        chunks++;
+        return containers[chunk].add((char) value);
+    }
+
+    /**
+     * Remove a value from the set
+     *
+     * @param value The value
+     * @return {@code boolean} indicating if it was removed. False if not present.
+     */
+    public boolean remove(int value) {
+        int chunk = chunk((char) (value >>> 16));
+        if (chunk < 0 || !containers[chunk].remove((char) value)) return false;
+        if (containers[chunk].cardinality == 0) {
+            System.arraycopy(keys, chunk + 1, keys, chunk, chunks - chunk - 1);
+            System.arraycopy(containers, chunk + 1, containers, chunk, chunks - chunk - 1);
+            containers[--chunks] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of values in the set
+     *
+     * @return The number of values
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < chunks; i++) cardinality += containers[i].cardinality;
+        return cardinality;
+    }
+
+    /**
+     * Check if the set is empty
+     *
+     * @return {@code boolean} indicating if it has no values
+     */
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /**
+     * Get the smallest values of the set
+     *
+     * @param limit Maximum number of values
+     * @return The values, in increasing order
+     */
+    public int[] toArray(int limit) {
+        int[] result = new int[Math.min(limit, cardinality())];
+        int length = 0;
+        for (int i = 0; i < chunks && length < result.length; i++) {
+            int high = keys[i] << 16;
+            Container container = containers[i];
+            if (container.values != null) {
+                for (int j = 0; j < container.cardinality && length < result.length; j++) result[length++] = high | container.values[j];
+                continue;
+            }
+            for (int w = 0; w < WORDS && length < result.length; w++) {
+                for (long word = container.words[w]; word != 0 && length < result.length; word &= word - 1) {
+                    result[length++] = high | w << 6 | Long.numberOfTrailingZeros(word);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copy the set
+     *
+     * @return A new bitmap with the same values
+     */
+    public Bitmap copy() {
+        Container[] copies = new Container[Math.max(INITIAL_CAPACITY, chunks)];
+        for (int i = 0; i < chunks; i++) copies[i] = containers[i].copy();
+        return new Bitmap(Arrays.copyOf(keys, copies.length), copies, chunks);
+    }
+
+    /**
+     * Intersect with another set
+     *
+     * @param other The other set
+     * @return A new bitmap with the values present in both sets
+     */
+    public Bitmap and(Bitmap other) {
+        Bitmap result = new Bitmap(new char[Math.max(INITIAL_CAPACITY, Math.min(chunks, other.chunks))],
+                new Container[Math.max(INITIAL_CAPACITY, Math.min(chunks, other.chunks))], 0);
+        int i = 0;
+        int j = 0;
+        while (i < chunks && j < other.chunks) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else result.append(keys[i], and(containers[i++], other.containers[j++]));
+        }
+        return result;
+    }
+
+    /**
+     * Unite with another set
+     *
+     * @param other The other set
+     * @return A new bitmap with the values present in either set
+     */
+    public Bitmap or(Bitmap other) {
+        Bitmap result = new Bitmap(new char[Math.max(INITIAL_CAPACITY, chunks + other.chunks)],
+                new Container[Math.max(INITIAL_CAPACITY, chunks + other.chunks)], 0);
+        int i = 0;
+        int j = 0;
+        while (i < chunks || j < other.chunks) {
+            if (j == other.chunks || (i < chunks && keys[i] < other.keys[j])) result.append(keys[i], containers[i++].copy());
+            else if (i == chunks || keys[i] > other.keys[j]) result.append(other.keys[j], other.containers[j++].copy());
+            else result.append(keys[i], or(containers[i++], other.containers[j++]));
+        }
+        return result;
+    }
+
+    /**
+     * Subtract another set
+     *
+     * @param other The other set
+     * @return A new bitmap with the values of this set not present in the other set
+     */
+    public Bitmap andNot(Bitmap other) {
+        Bitmap result = new Bitmap(new char[Math.max(INITIAL_CAPACITY, chunks)], new Container[Math.max(INITIAL_CAPACITY, chunks)], 0);
+        int j = 0;
+        for (int i = 0; i < chunks; i++) {
+            while (j < other.chunks && other.keys[j] < keys[i]) j++;
+            if (j < other.chunks && other.keys[j] == keys[i]) result.append(keys[i], andNot(containers[i], other.containers[j]));
+            else result.append(keys[i], containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Add a chunk after the last one, if it is not empty. The arrays have room for it.
+     *
+     * @param key The high 16 bits of the chunk
+     * @param container The container of the chunk
+     */
+    private void append(char key, Container container) {
+        if (container.cardinality == 0) return;
+        keys[chunks] = key;
+        containers[chunks++] = container;
+    }
+
+    /**
+     * Intersect two containers
+     *
+     * @param a A container
+     * @param b Another container
+     * @return A new container with the values present in both
+     */
+    private static Container and(Container a, Container b) {
+        if (a.words != null && b.words != null) {
+            long[] words = new long[WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < WORDS; w++) cardinality += Long.bitCount(words[w] = a.words[w] & b.words[w]);
+            return new Container(words, cardinality);
+        }
+        if (a.words != null) return filter(b, a, true);
+        if (b.words != null) return filter(a, b, true);
+
+        char[] values = new char[Math.min(a.cardinality, b.cardinality)];
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.cardinality && j < b.cardinality) {
+            if (a.values[i] < b.values[j]) i++;
+            else if (a.values[i] > b.values[j]) j++;
+            else {
+                values[cardinality++] = a.values[i++];
+                j++;
+            }
+        }
+        return new Container(values, cardinality);
+    }
+
+    /**
+     * Unite two containers
+     *
+     * @param a A container
+     * @param b Another container
+     * @return A new container with the values present in either
+     */
+    private static Container or(Container a, Container b) {
+        if (a.words != null || b.words != null) {
+            long[] words = a.words != null ? a.words.clone() : toWords(a.values, a.cardinality);
+            if (b.words != null) {
+                for (int w = 0; w < WORDS; w++) words[w] |= b.words[w];
+            } else {
+                for (int j = 0; j < b.cardinality; j++) words[b.values[j] >>> 6] |= 1L << b.values[j];
+            }
+            int cardinality = 0;
+            for (long word : words) cardinality += Long.bitCount(word);
+            return new Container(words, cardinality);
+        }
+
+        char[] values = new char[a.cardinality + b.cardinality];
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.cardinality || j < b.cardinality) {
+            if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) values[cardinality++] = a.values[i++];
+            else if (i == a.cardinality || a.values[i] > b.values[j]) values[cardinality++] = b.values[j++];
+            else {
+                values[cardinality++] = a.values[i++];
+                j++;
+            }
+        }
+        if (cardinality > ARRAY_MAX) return new Container(toWords(values, cardinality), cardinality);
+        return new Container(values, cardinality);
+    }
+
+    /**
+     * Subtract a container from another
+     *
+     * @param a The container
+     * @param b The container to subtract
+     * @return A new container with the values of the first not present in the second
+     */
+    private static Container andNot(Container a, Container b) {
+        if (a.words == null) {
+            if (b.words != null) return filter(a, b, false);
+            char[] values = new char[a.cardinality];
+            int cardinality = 0;
+            int j = 0;
+            for (int i = 0; i < a.cardinality; i++) {
+                while (j < b.cardinality && b.values[j] < a.values[i]) j++;
+                if (j == b.cardinality || b.values[j] != a.values[i]) values[cardinality++] = a.values[i];
+            }
+            return new Container(values, cardinality);
+        }
+
+        long[] words = a.words.clone();
+        int cardinality = a.cardinality;
+        if (b.words != null) {
+            cardinality = 0;
+            for (int w = 0; w < WORDS; w++) cardinality += Long.bitCount(words[w] &= ~b.words[w]);
+        } else {
+            for (int j = 0; j < b.cardinality; j++) {
+                long bit = 1L << b.values[j];
+                if ((words[b.values[j] >>> 6] & bit) == 0) continue;
+                words[b.values[j] >>> 6] &= ~bit;
+                cardinality--;
+            }
+        }
+        return new Container(words, cardinality);
+    }
+
+    /**
+     * Keep the values of an array container that are, or are not, in a bitmap container
+     *
+     * @param array The array container
+     * @param bitmap The bitmap container
+     * @param present Whether to keep the values present in the bitmap container, or the ones absent
+     * @return A new array container
+     */
+    private static Container filter(Container array, Container bitmap, boolean present) {
+        char[] values = new char[array.cardinality];
+        int cardinality = 0;
+        for (int i = 0; i < array.cardinality; i++) {
+            char low = array.values[i];
+            if (((bitmap.words[low >>> 6] & 1L << low) != 0) == present) values[cardinality++] = low;
+        }
+        return new Container(values, cardinality);
+    }
+
+    /**
+     * Turn sorted values into bits
+     *
+     * @param values The sorted values
+     * @param cardinality The number of values
+     * @return The bits
+     */
+    private static long[] toWords(char[] values, int cardinality) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < cardinality; i++) words[values[i] >>> 6] |= 1L << values[i];
+        return words;
+    }
+
+    /**
+     * Turn bits into sorted values
+     *
+     * @param words The bits
+     * @param cardinality The number of bits set
+     * @return The sorted values
+     */
+    private static char[] toValues(long[] words, int cardinality) {
+        char[] values = new char[cardinality];
+        int length = 0;
+        for (int w = 0; w < WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) values[length++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+        }
+        return values;
+    }
+
+    /**
+     * Get the estimated memory used by the set, in bytes
+     *
+     * @return The memory used
+     */
+    public long getMemoryBytes() {
+        long bytes = 16 + 16 + ((2L * keys.length + 7) & ~7L) + 16 + 4L * containers.length;
+        for (int i = 0; i < chunks; i++) bytes += containers[i].getMemoryBytes();
+        return bytes;
+    }
+}
@@ -0,0 +1,461 @@
+package index;
+
+import model.COLABORADOR;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Snapshot of the COLABORADOR table stored by column, so every colaborator can be kept in memory for a fraction of
+ * the heap of the {@link COLABORADOR} objects.
+ * <p>
+ * A {@code COLABORADOR} costs an object, a {@code java.sql.Date} and six {@code String}, each with its own header and
+ * array, about 370 bytes for a short address. Here the numbers and ID types are {@code int} arrays, the birth dates
+ * are days since the epoch, the nationalities are numbers into a dictionary of the distinct ones, and the names,
+ * identification numbers, fiscal numbers and addresses are UTF-8 bytes in a single {@code byte[]}. Only one row in
+ * {@link #OFFSET_INTERVAL} has the offset of its record, the other rows add the lengths of the records before them,
+ * kept in a byte per row. Identification and fiscal numbers made of digits only take half a byte per digit. That is
+ * about 90 bytes per colaborator, around a quarter of the objects.
+ * <p>
+ * Rows are read back as new {@code COLABORADOR} objects only when accessed, through {@link #get(int)},
+ * {@link #find(int)} or the {@link #view()}. Changing those objects does not change the snapshot.
+ */
+public final class ColaboratorSnapshot {
+    /** Initial capacity of the arrays */
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Birth date of a colaborator without one */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    /** Nationality number of a colaborator without one, or past the maximum number of nationalities */
+    private static final char NO_NATIONALITY = 0;
+    /** Kind of a null value in a record */
+    private static final int NULL = 0;
+    /** Kind of a UTF-8 value in a record, with its length in bytes */
+    private static final int UTF8 = 1;
+    /** Kind of a value of only decimal digits in a record, two per byte, with its number of digits */
+    private static final int DIGITS = 2;
+    /** Position of the first name in a record */
+    private static final int NOME = 0;
+    /** Position of the last name in a record */
+    private static final int APELIDO = 1;
+    /** Position of the identification number in a record */
+    private static final int NIDENT = 2;
+    /** Position of the fiscal number in a record */
+    private static final int NFISCAL = 3;
+    /** Position of the address in a record */
+    private static final int MORADA = 4;
+    /** Number of values in a record */
+    private static final int FIELDS = 5;
+    /** Log2 of {@link #OFFSET_INTERVAL} */
+    private static final int OFFSET_SHIFT = 4;
+    /** Number of rows per record offset */
+    private static final int OFFSET_INTERVAL = 1 << OFFSET_SHIFT;
+    /** Record length of a row whose record is longer, found by reading its values */
+    private static final int LONG_RECORD = 0xff;
+
+    /** Colaborator number of each row */
+    private int[] numbers = new int[INITIAL_CAPACITY];
+    /** ID type of each row */
+    private int[] tipoids = new int[INITIAL_CAPACITY];
+    /** Birth date of each row, in days since the epoch. {@link #NO_DATE} if null. */
+    private int[] birthDays = new int[INITIAL_CAPACITY];
+    /** Nationality number of each row, into {@link #nationalities} */
+    private char[] nationalityNumbers = new char[INITIAL_CAPACITY];
+    /** Offset in {@link #records} of the record of every {@link #OFFSET_INTERVAL}th row */
+    private int[] offsets = new int[INITIAL_CAPACITY >>> OFFSET_SHIFT];
+    /** Length of the record of each row, unsigned. {@link #LONG_RECORD} if longer. */
+    private byte[] lengths = new byte[INITIAL_CAPACITY];
+    /**
+     * The {@code String} columns of every row, one record after the other. A record has the first name, the last
+     * name, the identification number, the fiscal number and the address, each as a header with its kind and length,
+     * a varint, followed by its bytes.
+     */
+    private byte[] records = new byte[INITIAL_CAPACITY * 64];
+    /** Number of bytes of {@link #records} used */
+    private int recordsLength;
+    /** Number of rows */
+    private int size;
+    /** Whether the rows are in increasing colaborator number, so {@link #find(int)} can do a binary search */
+    private boolean sorted = true;
+
+    /** The distinct nationalities, by nationality number. Number 0 is null. */
+    private final ArrayList<String> nationalities = new ArrayList<>();
+    /** Number of each nationality */
+    private final HashMap<String, Character> nationalityNumbersByName = new HashMap<>();
+
+    /**
+     * Creates an empty snapshot
+     */
+    public ColaboratorSnapshot() {
+        nationalities.add(null);
+    }
+
+    /**
+     * Add a colaborator. Adding them in increasing colaborator number keeps {@link #find(int)} a binary search.
+     *
+     * @param colaborador The colaborator
+     */
+    public synchronized void add(COLABORADOR colaborador) {
+        if (size == numbers.length) grow(size * 2);
+        if (size > 0 && colaborador.nocolaborador <= numbers[size - 1]) sorted = false;
+        numbers[size] = colaborador.nocolaborador;
+        tipoids[size] = colaborador.tipoid;
+        birthDays[size] = colaborador.dtnascimento == null ? NO_DATE : epochDay(colaborador.dtnascimento);
+        nationalityNumbers[size] = nationality(colaborador.nacionalidade);
+        if ((size & (OFFSET_INTERVAL - 1)) == 0) offsets[size >>> OFFSET_SHIFT] = recordsLength;
+        int start = recordsLength;
+        write(colaborador.nome);
+        write(colaborador.apelido);
+        write(colaborador.nident);
+        write(colaborador.nfiscal);
+        write(colaborador.morada);
+        lengths[size] = (byte) Math.min(recordsLength - start, LONG_RECORD);
+        size++;
+    }
+
+    /**
+     * Read a colaborator
+     *
+     * @param row The row number, from 0 to {@link #size()}
+     * @return A new {@code COLABORADOR} with the row values
+     */
+    public synchronized COLABORADOR get(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return new COLABORADOR(
+                numbers[row],
+                read(row, NOME),
+                read(row, APELIDO),
+                birthDays[row] == NO_DATE ? null : date(birthDays[row]),
+                read(row, NIDENT),
+                tipoids[row],
+                read(row, NFISCAL),
+                nationalities.get(nationalityNumbers[row]),
+                read(row, MORADA));
+    }
+
+    /**
+     * Find a colaborator by number
+     *
+     * @param nocolaborador The colaborator number
+     * @return A new {@code COLABORADOR} with its values. Null if not in the snapshot.
+     */
+    public synchronized COLABORADOR find(int nocolaborador) {
+        int row = row(nocolaborador);
+        return row < 0 ? null : get(row);
+    }
+
+    /**
+     * Find the row of a colaborator
+     *
+     * @param nocolaborador The colaborator number
+     * @return The row number. Negative if not in the snapshot.
+     */
+    private int row(int nocolaborador) {
+        if (sorted) return Arrays.binarySearch(numbers, 0, size, nocolaborador);
+        for (int row = 0; row < size; row++) {
+            if (numbers[row] == nocolaborador) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Remove colaborators, for when they are deleted
+     *
+     * @param nocolaboradores The colaborator numbers
+     * @return The number of colaborators removed
+     */
+    public synchronized int removeAll(Bitmap nocolaboradores) {
+        int[] kept = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (!nocolaboradores.contains(numbers[row])) kept[count++] = row;
+        }
+        if (count == size) return 0;
+        int written = 0;
+        int position = 0;
+        int row = 0;
+        for (int i = 0; i < count; i++) {
+            // Records are read in row order, skipping the ones of removed rows
+            for (; row < kept[i]; row++) position = skip(position, FIELDS);
+            int end = skip(position, FIELDS);
+            numbers[i] = numbers[row];
+            tipoids[i] = tipoids[row];
+            birthDays[i] = birthDays[row];
+            nationalityNumbers[i] = nationalityNumbers[row];
+            lengths[i] = lengths[row];
+            if ((i & (OFFSET_INTERVAL - 1)) == 0) offsets[i >>> OFFSET_SHIFT] = written;
+            System.arraycopy(records, position, records, written, end - position);
+            written += end - position;
+            position = end;
+            row++;
+        }
+        recordsLength = written;
+        int removed = size - count;
+        size = count;
+        return removed;
+    }
+
+    /**
+     * Get a read-only list of the colaborators, in the order they were added. Each access reads a new
+     * {@code COLABORADOR} from the snapshot, nothing is kept.
+     *
+     * @return The list. It follows the changes to the snapshot.
+     */
+    public List<COLABORADOR> view() {
+        return new View();
+    }
+
+    /**
+     * Read-only list over the rows of the snapshot
+     */
+    private final class View extends AbstractList<COLABORADOR> implements RandomAccess {
+        /**
+         * Read a colaborator
+         *
+         * @param index The row number
+         * @return A new {@code COLABORADOR} with the row values
+         */
+        @Override
+        public COLABORADOR get(int index) {
+            return ColaboratorSnapshot.this.get(index);
+        }
+
+        /**
+         * Get the number of colaborators
+         *
+         * @return The number of rows
+         */
+        @Override
+        public int size() {
+            return ColaboratorSnapshot.this.size();
+        }
+    }
+
+    /**
+     * Get the number of a nationality, adding it if it is new
+     *
+     * @param nacionalidade The nationality
+     * @return The nationality number. {@link #NO_NATIONALITY} if null or there are too many nationalities.
+     */
+    private char nationality(String nacionalidade) {
+        if (nacionalidade == null) return NO_NATIONALITY;
+        Character number = nationalityNumbersByName.get(nacionalidade);
+        if (number != null) return number;
+        if (nationalities.size() > Character.MAX_VALUE) return NO_NATIONALITY;
+        nationalities.add(nacionalidade);
+        nationalityNumbersByName.put(nacionalidade, (char) (nationalities.size() - 1));
+        return (char) (nationalities.size() - 1);
+    }
+
+    /**
+     * Append a value to the records
+     *
+     * @param value The value. May be null.
+     */
+    private void write(String value) {
+        if (value == null) {
+            writeHeader(NULL, 0);
+            return;
+        }
+        if (isDigits(value)) {
+            writeHeader(DIGITS, value.length());
+            ensureRecords((value.length() + 1) / 2);
+            for (int i = 0; i < value.length(); i += 2) {
+                int high = value.charAt(i) - '0';
+                int low = i + 1 < value.length() ? value.charAt(i + 1) - '0' : 0;
+                records[recordsLength++] = (byte) (high << 4 | low);
+            }
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(UTF8, encoded.length);
+        ensureRecords(encoded.length);
+        System.arraycopy(encoded, 0, records, recordsLength, encoded.length);
+        recordsLength += encoded.length;
+    }
+
+    /**
+     * Append the header of a value to the records, as a varint
+     *
+     * @param kind The kind of value, {@link #NULL}, {@link #UTF8} or {@link #DIGITS}
+     * @param length The length of the value, in bytes or digits
+     */
+    private void writeHeader(int kind, int length) {
+        ensureRecords(5);
+        int header = length << 2 | kind;
+        while ((header & ~0x7f) != 0) {
+            records[recordsLength++] = (byte) (header & 0x7f | 0x80);
+            header >>>= 7;
+        }
+        records[recordsLength++] = (byte) header;
+    }
+
+    /**
+     * Read a value of a record
+     *
+     * @param row The row number
+     * @param field The position of the value in the record
+     * @return The value. May be null.
+     */
+    private String read(int row, int field) {
+        int position = skip(recordStart(row), field);
+        int header = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = records[position++];
+            header |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        int kind = header & 3;
+        int length = header >>> 2;
+        if (kind == NULL) return null;
+        if (kind == UTF8) return new String(records, position, length, StandardCharsets.UTF_8);
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) digits[i] = (char) ('0' + ((records[position + i / 2] >> ((i & 1) == 0 ? 4 : 0)) & 0xf));
+        return new String(digits);
+    }
+
+    /**
+     * Find the record of a row, from the offset of the first row of its interval
+     *
+     * @param row The row number
+     * @return The position of the record in {@link #records}
+     */
+    private int recordStart(int row) {
+        int position = offsets[row >>> OFFSET_SHIFT];
+        for (int previous = row & ~(OFFSET_INTERVAL - 1); previous < row; previous++) {
+            int length = lengths[previous] & 0xff;
+            position = length == LONG_RECORD ? skip(position, FIELDS) : position + length;
+        }
+        return position;
+    }
+
+    /**
+     * Skip values of the records
+     *
+     * @param position The position of the first value
+     * @param values The number of values to skip
+     * @return The position after the values
+     */
+    private int skip(int position, int values) {
+        for (; values > 0; values--) {
+            int header = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = records[position++];
+                header |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            int length = header >>> 2;
+            position += (header & 3) == DIGITS ? (length + 1) / 2 : length;
+        }
+        return position;
+    }
+
+    /**
+     * Get the day of a date. Unlike {@code toLocalDate()} it does not make the {@code Date} cache its fields, about
+     * 100 bytes more per date.
+     *
+     * @param date The date, at midnight in the default time zone
+     * @return The days since the epoch
+     */
+    private static int epochDay(java.sql.Date date) {
+        return (int) Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Get the date of a day, like {@code java.sql.Date.valueOf(LocalDate)} without its calendar fields
+     *
+     * @param epochDay The days since the epoch
+     * @return The date, at midnight in the default time zone
+     */
+    private static java.sql.Date date(int epochDay) {
+        return new java.sql.Date(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Check if a value has only decimal digits
+     *
+     * @param value The value
+     * @return {@code boolean} indicating if it is not empty and has only the digits 0 to 9
+     */
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Make room in the records
+     *
+     * @param bytes The number of bytes about to be appended
+     */
+    private void ensureRecords(int bytes) {
+        if (recordsLength + bytes > records.length) records = Arrays.copyOf(records, Math.max(records.length * 2, recordsLength + bytes));
+    }
+
+    /**
+     * Resize the row arrays
+     *
+     * @param capacity The new number of rows
+     */
+    private void grow(int capacity) {
+        numbers = Arrays.copyOf(numbers, capacity);
+        tipoids = Arrays.copyOf(tipoids, capacity);
+        birthDays = Arrays.copyOf(birthDays, capacity);
+        nationalityNumbers = Arrays.copyOf(nationalityNumbers, capacity);
+        offsets = Arrays.copyOf(offsets, (capacity + OFFSET_INTERVAL - 1) >>> OFFSET_SHIFT);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    /**
+     * Release the spare capacity of the arrays, once the table has been loaded
+     */
+    public synchronized void trimToSize() {
+        grow(Math.max(size, 1));
+        records = Arrays.copyOf(records, recordsLength);
+    }
+
+    /**
+     * Get the number of colaborators
+     *
+     * @return The number of rows
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the estimated memory used by the snapshot, in bytes
+     *
+     * @return The memory used
+     */
+    public synchronized long getMemoryBytes() {
+        long bytes = 16 + 4L * numbers.length + 16 + 4L * tipoids.length + 16 + 4L * birthDays.length + 16 + 2L * nationalityNumbers.length
+                + 16 + 4L * offsets.length + 16 + lengths.length + 16 + records.length;
+        for (String nacionalidade : nationalities) bytes += nacionalidade == null ? 0 : 40 + 2L * nacionalidade.length() + 48;
+        return bytes;
+    }
+
+    /**
+     * Get the number of colaborators, the number of nationalities and the memory used, in Portuguese
+     *
+     * @return The formatted {@code String}
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d colaboradores, %d nacionalidades, %.1f MB", size, nationalities.size() - 1, getMemoryBytes() / 1e6);
+    }
+}
@@ -0,0 +1,678 @@
+package index;
+
+import model.CONTACTO;
+import model.CONTACTOEMERGENCIA;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cache of the contacts and emergency contacts of the colaborators kept outside the Java heap, so hundreds of
+ * thousands of them do not make the garbage collection pauses longer.
+ * <p>
+ * Each colaborator number and order number has a fixed size record with the columns of its {@code CONTACTO} and of
+ * its {@code CONTACTOEMERGENCIA}, either of which may be missing. Text values are UTF-8 in fixed size fields, so a
+ * contact with a value too long for its field is not cached, and a cache file missing it is not reopened.
+ * Records are stored in slabs of {@link #SLAB_RECORDS} records, each a direct {@code ByteBuffer}, and found through
+ * an open addressing hash table in another direct buffer, where each slot packs the key hash and the record number
+ * in a {@code long}.
+ * <p>
+ * The slabs may instead be mapped from a file, which then holds every record after a small header. A restarted
+ * application reopens the file with {@link #reopen(Path, long)} and only rebuilds the hash table from the records,
+ * instead of reading the tables again. Until {@link #markLoaded()} is called the file is incomplete and is not
+ * reopened. The file is locked while it is open, so another application given the same file neither reopens it nor
+ * truncates it, and keeps its contacts in direct buffers instead.
+ */
+public final class ContactCache {
+    /** Number of records of a slab */
+    private static final int SLAB_RECORDS = 1 << 14;
+    /** Maximum fill of the hash table before it grows */
+    private static final double MAX_LOAD = 0.6;
+
+    /** Offset of the colaborator number in a record */
+    private static final int IDTITULAR = 0;
+    /** Offset of the order number in a record */
+    private static final int NOORDEM = 4;
+    /** Offset of the flags in a record, {@link #HAS_CONTACTO} and {@link #HAS_EMERGENCIA}. 0 if removed. */
+    private static final int FLAGS = 8;
+    /** Offset of the lengths of the text fields in a record, a byte each, in the order of the fields */
+    private static final int LENGTHS = 9;
+    /** Length of a null text value */
+    private static final int NULL_LENGTH = 0xff;
+    /** Offset of the contact in a record */
+    private static final int CONTACTO_FIELD = 16;
+    /** Offset of the description in a record */
+    private static final int DESCRICAO_FIELD = 80;
+    /** Offset of the emergency contact name in a record */
+    private static final int NOME_FIELD = 96;
+    /** Offset of the emergency contact relationship in a record */
+    private static final int GRAUPARENTESCO_FIELD = 160;
+    /** Offset of the emergency contact in a record */
+    private static final int CONTACTO_EMERGENCIA_FIELD = 192;
+    /** Offset of each text field, in the order of their lengths */
+    private static final int[] FIELDS = {CONTACTO_FIELD, DESCRICAO_FIELD, NOME_FIELD, GRAUPARENTESCO_FIELD, CONTACTO_EMERGENCIA_FIELD};
+    /** Size of a record */
+    private static final int RECORD_BYTES = 256;
+    /** Size of each text field, in bytes */
+    private static final int[] FIELD_BYTES = {DESCRICAO_FIELD - CONTACTO_FIELD, NOME_FIELD - DESCRICAO_FIELD,
+            GRAUPARENTESCO_FIELD - NOME_FIELD, CONTACTO_EMERGENCIA_FIELD - GRAUPARENTESCO_FIELD, RECORD_BYTES - CONTACTO_EMERGENCIA_FIELD};
+    /** Flag of a record with the {@code CONTACTO} columns */
+    private static final byte HAS_CONTACTO = 1;
+    /** Flag of a record with the {@code CONTACTOEMERGENCIA} columns */
+    private static final byte HAS_EMERGENCIA = 2;
+
+    /** First bytes of a cache file */
+    private static final int MAGIC = 0x4f4e4743;
+    /** Version of the file layout, changed with the record layout */
+    private static final int VERSION = 1;
+    /** Offset of the version in the file header */
+    private static final int HEADER_VERSION = 4;
+    /** Offset of the record size in the file header */
+    private static final int HEADER_RECORD_BYTES = 8;
+    /** Offset of the number of records in the file header */
+    private static final int HEADER_RECORDS = 12;
+    /** Offset of the time the file was loaded in the file header, 0 while it is incomplete */
+    private static final int HEADER_LOADED = 16;
+    /** Size of the file header */
+    private static final int HEADER_BYTES = 64;
+
+    /** The file the slabs are mapped from. Null if they are direct buffers. */
+    private final FileChannel channel;
+    /** The file header. Null if the slabs are direct buffers. */
+    private final MappedByteBuffer header;
+    /** The lock of the file while it is open. Null if the slabs are direct buffers. */
+    private final FileLock lock;
+    /** The record slabs */
+    private final ArrayList<ByteBuffer> slabs = new ArrayList<>();
+    /** Number of records, including the removed ones */
+    private int records;
+    /** Number of records not removed */
+    private int size;
+    /** Number of records not cached because a value was too long */
+    private int rejected;
+
+    /** Hash table slots, a {@code long} each: the key hash in the high half and the record number plus one in the low half */
+    private ByteBuffer table;
+    /** Number of slots of the hash table, a power of two */
+    private int tableSize;
+
+    /**
+     * Creates an empty cache in direct buffers
+     *
+     * @param expected Number of contacts expected. The cache grows if more are added.
+     */
+    public ContactCache(int expected) {
+        this(null, null, null, expected);
+    }
+
+    /**
+     * Creates a cache
+     *
+     * @param channel_ The file the slabs are mapped from. Null for direct buffers.
+     * @param header_ The file header. Null for direct buffers.
+     * @param lock_ The lock of the file. Null for direct buffers.
+     * @param expected Number of contacts expected
+     */
+    private ContactCache(FileChannel channel_, MappedByteBuffer header_, FileLock lock_, int expected) {
+        this.channel = channel_;
+        this.header = header_;
+        this.lock = lock_;
+        allocateTable(expected);
+    }
+
+    /**
+     * Creates an empty cache mapped from a file, replacing the file if it exists. The file is only truncated once it is
+     * locked.
+     *
+     * @param file The file
+     * @param expected Number of contacts expected
+     * @return The cache. Null if the file can not be created or is locked by another cache.
+     */
+    public static ContactCache create(Path file, int expected) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = lock(channel);
+            channel.truncate(0);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(0, MAGIC);
+            header.putInt(HEADER_VERSION, VERSION);
+            header.putInt(HEADER_RECORD_BYTES, RECORD_BYTES);
+            header.putInt(HEADER_RECORDS, 0);
+            header.putLong(HEADER_LOADED, 0);
+            return new ContactCache(channel, header, lock, expected);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    /**
+     * Reopen a cache file written by a previous run
+     *
+     * @param file The file
+     * @param maxAgeMillis Maximum time since it was loaded, in milliseconds
+     * @return The cache. Null if the file does not exist, is incomplete, has another layout, is too old or is locked by
+     * another cache.
+     */
+    public static ContactCache reopen(Path file, long maxAgeMillis) {
+        if (!Files.isRegularFile(file)) return null;
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = lock(channel);
+            if (channel.size() < HEADER_BYTES) throw new IOException("No header");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            long loaded = header.getLong(HEADER_LOADED);
+            int records = header.getInt(HEADER_RECORDS);
+            if (header.getInt(0) != MAGIC || header.getInt(HEADER_VERSION) != VERSION || header.getInt(HEADER_RECORD_BYTES) != RECORD_BYTES
+                    || loaded == 0 || System.currentTimeMillis() - loaded > maxAgeMillis
+                    || channel.size() < HEADER_BYTES + (long) records * RECORD_BYTES) {
+                throw new IOException("Not reusable");
+            }
+            ContactCache cache = new ContactCache(channel, header, lock, records);
+            for (int record = 0; record < records; record++) {
+                if (record % SLAB_RECORDS == 0) cache.addSlab();
+                ByteBuffer slab = cache.slab(record);
+                int offset = offset(record);
+                if (slab.get(offset + FLAGS) == 0) continue;
+                cache.insert(slab.getInt(offset + IDTITULAR), slab.getInt(offset + NOORDEM), record);
+                cache.size++;
+            }
+            cache.records = records;
+            return cache;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    /**
+     * Lock a cache file, without waiting for another application that has it
+     *
+     * @param channel The file
+     * @return The lock
+     * @throws IOException If the file is locked by another cache or can not be locked
+     */
+    private static FileLock lock(FileChannel channel) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) throw new IOException("Locked by another cache");
+        return lock;
+    }
+
+    /**
+     * Close a file ignoring errors, which also releases its lock
+     *
+     * @param channel The file. May be null.
+     */
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) { /* Nothing else to do */ }
+    }
+
+    /**
+     * Mark the cache as fully loaded, so the file can be reopened by {@link #reopen(Path, long)}, and write it to disk.
+     * A file missing a contact that was not cached is never marked, so the contacts are read from the database again.
+     *
+     * @return {@code boolean} indicating if the file can be reopened
+     */
+    public synchronized boolean markLoaded() {
+        if (header == null || rejected > 0) return false;
+        header.putLong(HEADER_LOADED, System.currentTimeMillis());
+        force();
+        return true;
+    }
+
+    /**
+     * Mark the file as stale, so it is not reopened by {@link #reopen(Path, long)}. Used when another cache replaces
+     * this one and the file stops getting the changes.
+     */
+    public synchronized void markStale() {
+        if (header == null) return;
+        header.putLong(HEADER_LOADED, 0);
+        header.force();
+    }
+
+    /**
+     * Count a contact that was not cached and mark the file as incomplete
+     */
+    private void reject() {
+        rejected++;
+        if (header != null) header.putLong(HEADER_LOADED, 0);
+    }
+
+    /**
+     * Cache a contact
+     *
+     * @param contacto The contact
+     * @return {@code boolean} indicating if it was cached. False if a value is too long for its field or the file can
+     * not grow.
+     */
+    public synchronized boolean putContacto(CONTACTO contacto) {
+        byte[][] values = {utf8(contacto.contacto), utf8(contacto.descricao)};
+        if (!fits(values, 0)) {
+            reject();
+            return false;
+        }
+        int record = record(contacto.idtitular, contacto.noordem);
+        if (record < 0) {
+            reject();
+            return false;
+        }
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        write(slab, offset, 0, values[0]);
+        write(slab, offset, 1, values[1]);
+        slab.put(offset + FLAGS, (byte) (slab.get(offset + FLAGS) | HAS_CONTACTO));
+        return true;
+    }
+
+    /**
+     * Cache an emergency contact
+     *
+     * @param contacto The emergency contact
+     * @return {@code boolean} indicating if it was cached. False if a value is too long for its field or the file can
+     * not grow.
+     */
+    public synchronized boolean putContactoEmergencia(CONTACTOEMERGENCIA contacto) {
+        byte[][] values = {null, null, utf8(contacto.nome), utf8(contacto.grauparentesco), utf8(contacto.contacto)};
+        if (!fits(values, 0)) {
+            reject();
+            return false;
+        }
+        int record = record(contacto.idtitular, contacto.noordem);
+        if (record < 0) {
+            reject();
+            return false;
+        }
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        write(slab, offset, 2, values[2]);
+        write(slab, offset, 3, values[3]);
+        write(slab, offset, 4, values[4]);
+        slab.put(offset + FLAGS, (byte) (slab.get(offset + FLAGS) | HAS_EMERGENCIA));
+        return true;
+    }
+
+    /**
+     * Get a cached contact
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return A new {@code CONTACTO}. Null if not cached.
+     */
+    public synchronized CONTACTO getContacto(int idtitular, int noordem) {
+        int record = find(idtitular, noordem);
+        if (record < 0) return null;
+        return contacto(slab(record), offset(record));
+    }
+
+    /**
+     * Get a cached emergency contact
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return A new {@code CONTACTOEMERGENCIA}. Null if not cached or not an emergency contact.
+     */
+    public synchronized CONTACTOEMERGENCIA getContactoEmergencia(int idtitular, int noordem) {
+        int record = find(idtitular, noordem);
+        if (record < 0) return null;
+        return contactoEmergencia(slab(record), offset(record));
+    }
+
+    /**
+     * Read every cached contact
+     *
+     * @param action Called with a new {@code CONTACTO} for each one, in the order they were cached
+     */
+    public synchronized void forEachContacto(Consumer<CONTACTO> action) {
+        for (int record = 0; record < records; record++) {
+            CONTACTO contacto = contacto(slab(record), offset(record));
+            if (contacto != null) action.accept(contacto);
+        }
+    }
+
+    /**
+     * Read every cached emergency contact
+     *
+     * @param action Called with a new {@code CONTACTOEMERGENCIA} for each one, in the order they were cached
+     */
+    public synchronized void forEachContactoEmergencia(Consumer<CONTACTOEMERGENCIA> action) {
+        for (int record = 0; record < records; record++) {
+            CONTACTOEMERGENCIA contacto = contactoEmergencia(slab(record), offset(record));
+            if (contacto != null) action.accept(contacto);
+        }
+    }
+
+    /**
+     * Remove the contacts of some colaborators, for when they are deleted. The records are kept but not used again.
+     *
+     * @param idtitulares The colaborator numbers
+     * @return The number of contacts removed
+     */
+    public synchronized int removeAll(Bitmap idtitulares) {
+        int removed = 0;
+        for (int record = 0; record < records; record++) {
+            ByteBuffer slab = slab(record);
+            int offset = offset(record);
+            if (slab.get(offset + FLAGS) == 0 || !idtitulares.contains(slab.getInt(offset + IDTITULAR))) continue;
+            slab.put(offset + FLAGS, (byte) 0);
+            removed++;
+        }
+        if (removed == 0) return 0;
+        size -= removed;
+        allocateTable(size);
+        for (int record = 0; record < records; record++) {
+            ByteBuffer slab = slab(record);
+            int offset = offset(record);
+            if (slab.get(offset + FLAGS) != 0) insert(slab.getInt(offset + IDTITULAR), slab.getInt(offset + NOORDEM), record);
+        }
+        return removed;
+    }
+
+    /**
+     * Find the record of a key, adding an empty one if there is none
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return The record number. Negative if a file slab can not be mapped.
+     */
+    private int record(int idtitular, int noordem) {
+        int record = find(idtitular, noordem);
+        if (record >= 0) return record;
+        record = records;
+        if (record % SLAB_RECORDS == 0 && record / SLAB_RECORDS == slabs.size() && !addSlab()) return -1;
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        slab.putInt(offset + IDTITULAR, idtitular);
+        slab.putInt(offset + NOORDEM, noordem);
+        slab.put(offset + FLAGS, (byte) 0);
+        for (int field = 0; field < FIELDS.length; field++) slab.put(offset + LENGTHS + field, (byte) NULL_LENGTH);
+        records++;
+        size++;
+        if (header != null) header.putInt(HEADER_RECORDS, records);
+        insert(idtitular, noordem, record);
+        return record;
+    }
+
+    /**
+     * Find the record of a key
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return The record number. -1 if not cached.
+     */
+    private int find(int idtitular, int noordem) {
+        int hash = hash(idtitular, noordem);
+        int mask = tableSize - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = table.getLong(slot << 3);
+            if (entry == 0) return -1;
+            if ((int) (entry >>> 32) != hash) continue;
+            int record = (int) entry - 1;
+            ByteBuffer slab = slab(record);
+            int offset = offset(record);
+            if (slab.getInt(offset + IDTITULAR) == idtitular && slab.getInt(offset + NOORDEM) == noordem) return record;
+        }
+    }
+
+    /**
+     * Add a record to the hash table, growing it if needed
+     *
+     * @param idtitular The colaborator number of the record
+     * @param noordem The order number of the record
+     * @param record The record number
+     */
+    private void insert(int idtitular, int noordem, int record) {
+        if (size > tableSize * MAX_LOAD) {
+            ByteBuffer old = table;
+            int oldSize = tableSize;
+            allocateTable(tableSize);
+            for (int slot = 0; slot < oldSize; slot++) {
+                long entry = old.getLong(slot << 3);
+                if (entry != 0) insertEntry(entry);
+            }
+        }
+        insertEntry((long) hash(idtitular, noordem) << 32 | (record + 1L));
+    }
+
+    /**
+     * Put a slot value in the first free slot of its probe run
+     *
+     * @param entry The slot value
+     */
+    private void insertEntry(long entry) {
+        int mask = tableSize - 1;
+        int slot = (int) (entry >>> 32) & mask;
+        while (table.getLong(slot << 3) != 0) slot = (slot + 1) & mask;
+        table.putLong(slot << 3, entry);
+    }
+
+    /**
+     * Allocate an empty hash table
+     *
+     * @param entries Number of records it must hold below the maximum fill
+     */
+    private void allocateTable(int entries) {
+        tableSize = Integer.highestOneBit((int) Math.min(1 << 28, Math.max(16, entries / MAX_LOAD)) - 1) << 1;
+        table = ByteBuffer.allocateDirect(tableSize << 3);
+    }
+
+    /**
+     * Hash a key, mixing the bits so consecutive numbers spread over the table
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return The hash
+     */
+    private static int hash(int idtitular, int noordem) {
+        int h = idtitular * 0x9e3779b1 ^ noordem;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Add a slab, mapped from the file if there is one
+     *
+     * @return {@code boolean} indicating if it was added. False if it can not be mapped.
+     */
+    private boolean addSlab() {
+        if (channel == null) {
+            slabs.add(ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_BYTES));
+            return true;
+        }
+        try {
+            slabs.add(channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + (long) slabs.size() * SLAB_RECORDS * RECORD_BYTES,
+                    (long) SLAB_RECORDS * RECORD_BYTES));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the slab of a record
+     *
+     * @param record The record number
+     * @return The slab
+     */
+    private ByteBuffer slab(int record) {
+        return slabs.get(record / SLAB_RECORDS);
+    }
+
+    /**
+     * Get the offset of a record in its slab
+     *
+     * @param record The record number
+     * @return The offset, in bytes
+     */
+    private static int offset(int record) {
+        return (record % SLAB_RECORDS) * RECORD_BYTES;
+    }
+
+    /**
+     * Read the {@code CONTACTO} columns of a record
+     *
+     * @param slab The slab of the record
+     * @param offset The offset of the record
+     * @return A new {@code CONTACTO}. Null if the record does not have them.
+     */
+    private static CONTACTO contacto(ByteBuffer slab, int offset) {
+        if ((slab.get(offset + FLAGS) & HAS_CONTACTO) == 0) return null;
+        CONTACTO contacto = new CONTACTO(slab.getInt(offset + NOORDEM), read(slab, offset, 0), read(slab, offset, 1));
+        contacto.setNoColaborador(slab.getInt(offset + IDTITULAR));
+        return contacto;
+    }
+
+    /**
+     * Read the {@code CONTACTOEMERGENCIA} columns of a record
+     *
+     * @param slab The slab of the record
+     * @param offset The offset of the record
+     * @return A new {@code CONTACTOEMERGENCIA}. Null if the record does not have them.
+     */
+    private static CONTACTOEMERGENCIA contactoEmergencia(ByteBuffer slab, int offset) {
+        if ((slab.get(offset + FLAGS) & HAS_EMERGENCIA) == 0) return null;
+        CONTACTOEMERGENCIA contacto = new CONTACTOEMERGENCIA(read(slab, offset, 2), read(slab, offset, 3), read(slab, offset, 4),
+                slab.getInt(offset + NOORDEM));
+        contacto.setNoColaborador(slab.getInt(offset + IDTITULAR));
+        return contacto;
+    }
+
+    /**
+     * Encode a text value
+     *
+     * @param value The value. May be null.
+     * @return The UTF-8 bytes. Null if null.
+     */
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Check if text values fit their fields
+     *
+     * @param values The UTF-8 bytes of each field, null for the fields that are null or not written
+     * @param first The field of the first value
+     * @return {@code boolean} indicating if every value fits
+     */
+    private static boolean fits(byte[][] values, int first) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i].length > Math.min(FIELD_BYTES[first + i], NULL_LENGTH - 1)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write a text field of a record
+     *
+     * @param slab The slab of the record
+     * @param offset The offset of the record
+     * @param field The field, in the order of {@link #FIELDS}
+     * @param value The UTF-8 bytes, which fit the field. Null if null.
+     */
+    private static void write(ByteBuffer slab, int offset, int field, byte[] value) {
+        slab.put(offset + LENGTHS + field, (byte) (value == null ? NULL_LENGTH : value.length));
+        if (value == null) return;
+        for (int i = 0; i < value.length; i++) slab.put(offset + FIELDS[field] + i, value[i]);
+    }
+
+    /**
+     * Read a text field of a record
+     *
+     * @param slab The slab of the record
+     * @param offset The offset of the record
+     * @param field The field, in the order of {@link #FIELDS}
+     * @return The value. May be null.
+     */
+    private static String read(ByteBuffer slab, int offset, int field) {
+        int length = slab.get(offset + LENGTHS + field) & 0xff;
+        if (length == NULL_LENGTH) return null;
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) value[i] = slab.get(offset + FIELDS[field] + i);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of cached colaborator and order numbers, each with a contact, an emergency contact or both
+     *
+     * @return The number of records not removed
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the memory used outside the Java heap, by the slabs and the hash table
+     *
+     * @return The memory used, in bytes
+     */
+    public synchronized long getOffHeapBytes() {
+        return (long) slabs.size() * SLAB_RECORDS * RECORD_BYTES + ((long) tableSize << 3);
+    }
+
+    /**
+     * Check if the slabs are mapped from a file
+     *
+     * @return {@code boolean} indicating if they are
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    /**
+     * Write the mapped slabs to disk, if any
+     */
+    private void force() {
+        if (channel == null) return;
+        header.force();
+        for (ByteBuffer slab : slabs) ((MappedByteBuffer) slab).force();
+    }
+
+    /**
+     * Write the mapped slabs to disk, release the lock and close the file, if any. The cache can not be used afterwards.
+     */
+    public synchronized void close() {
+        if (channel == null) return;
+        force();
+        try {
+            lock.release();
+        } catch (IOException e) {
+            // Released when the file is closed
+        }
+        // The mapped buffers stay valid until collected
+        closeQuietly(channel);
+    }
+
+    /**
+     * Get the number of contacts, the records not cached and the memory used, in Portuguese
+     *
+     * @return The formatted {@code String}
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d registos, %d não guardados, %.1f MB fora do heap%s", size, rejected, getOffHeapBytes() / 1e6,
+                channel != null ? ", em ficheiro" : "");
+    }
+}
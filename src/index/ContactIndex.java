@@ -0,0 +1,315 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reverse index of the contacts and emergency contacts of the colaborators, from the contact value to the colaborator
+ * that has it, so the owner of an email or phone number is found without a query.
+ * <p>
+ * Contacts are normalized first: emails are trimmed and turned to lower case, phone numbers keep only their digits
+ * without the {@code 00} or {@code +351} prefix, so {@code "+351 912 345 678"} and {@code "912345678"} are the same.
+ * <p>
+ * The index is an open addressing hash table with linear probing. Each slot has the contact, its hash and the owner
+ * packed into a {@code long}: the colaborator number, the order number, the description and whether it is an
+ * emergency contact. Descriptions repeat a lot ({@code email}, {@code telefone} or the relationship of an emergency
+ * contact) so they are stored once and referred to by number. A contact shared by several colaborators takes one slot
+ * per owner, all in the same probe run, so a lookup reads a few consecutive slots whatever the number of contacts.
+ * Removing the contacts of deleted colaborators rebuilds the table, which is rare enough to not need tombstones.
+ */
+public final class ContactIndex {
+    /** Maximum fill of the table before it grows */
+    private static final double MAX_LOAD = 0.6;
+    /** Country code removed from phone numbers */
+    private static final String COUNTRY_CODE = "351";
+    /** Number of digits of a phone number without the country code */
+    private static final int PHONE_DIGITS = 9;
+    /** Bits of the order number in a packed owner */
+    private static final int ORDER_BITS = 16;
+    /** Bits of the description number in a packed owner */
+    private static final int DESCRIPTION_BITS = 15;
+    /** Description number of the descriptions past the maximum, shown as null */
+    private static final int NO_DESCRIPTION = (1 << DESCRIPTION_BITS) - 1;
+    /** Bit of an emergency contact in a packed owner */
+    private static final long EMERGENCY = 1L << 63;
+
+    /** The normalized contacts. Null slots are empty. */
+    private String[] contacts;
+    /** Hash of the contact in each slot */
+    private int[] hashes;
+    /** Owner of the contact in each slot, packed by {@link #pack(int, int, int, boolean)} */
+    private long[] owners;
+    /** Number of contacts, one per owner */
+    private int size;
+    /** Estimated memory used by the contacts themselves, in bytes */
+    private long contactBytes;
+
+    /** The distinct descriptions, by description number */
+    private final ArrayList<String> descriptions = new ArrayList<>();
+    /** Number of each description */
+    private final HashMap<String, Integer> descriptionNumbers = new HashMap<>();
+
+    /**
+     * The colaborator that has a contact
+     */
+    public static final class Owner {
+        /** Colaborator number */
+        public final int idtitular;
+        /** Order number of the contact */
+        public final int noordem;
+        /** Contact description, or the relationship for an emergency contact */
+        public final String descricao;
+        /** Whether it is an emergency contact */
+        public final boolean emergencia;
+
+        /**
+         * Creates the owner of a contact
+         *
+         * @param idtitular_ Colaborator number
+         * @param noordem_ Order number of the contact
+         * @param descricao_ Contact description
+         * @param emergencia_ Whether it is an emergency contact
+         */
+        Owner(int idtitular_, int noordem_, String descricao_, boolean emergencia_) {
+            this.idtitular = idtitular_;
+            this.noordem = noordem_;
+            this.descricao = descricao_;
+            this.emergencia = emergencia_;
+        }
+    }
+
+    /**
+     * Creates an empty contact index
+     *
+     * @param expected Number of contacts expected. The index grows if more are added.
+     */
+    public ContactIndex(int expected) {
+        int tableSize = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, expected / MAX_LOAD)) - 1) << 1;
+        this.contacts = new String[tableSize];
+        this.hashes = new int[tableSize];
+        this.owners = new long[tableSize];
+    }
+
+    /**
+     * Normalize a contact: emails trimmed and in lower case, phone numbers with only their digits and without the
+     * international prefix of the country
+     *
+     * @param contacto The contact
+     * @return The normalized contact. Empty if it has no letters or digits.
+     */
+    public static String normalize(String contacto) {
+        if (contacto == null) return "";
+        if (contacto.indexOf('@') >= 0) return contacto.trim().toLowerCase(Locale.ROOT);
+
+        char[] digits = new char[contacto.length()];
+        int length = 0;
+        for (int i = 0; i < contacto.length(); i++) {
+            char c = contacto.charAt(i);
+            if (c >= '0' && c <= '9') digits[length++] = c;
+        }
+        int start = 0;
+        if (length > 2 && digits[0] == '0' && digits[1] == '0') start = 2;
+        if (length - start == COUNTRY_CODE.length() + PHONE_DIGITS && new String(digits, start, COUNTRY_CODE.length()).equals(COUNTRY_CODE)) {
+            start += COUNTRY_CODE.length();
+        }
+        return new String(digits, start, length - start);
+    }
+
+    /**
+     * Hash a normalized contact, mixing the bits of {@code String.hashCode()} so close values spread over the table
+     *
+     * @param contacto The normalized contact
+     * @return The hash
+     */
+    private static int hash(String contacto) {
+        int h = contacto.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Pack the owner of a contact into a {@code long}
+     *
+     * @param idtitular Colaborator number, the low 32 bits
+     * @param noordem Order number, the next {@link #ORDER_BITS} bits
+     * @param description Description number, the next {@link #DESCRIPTION_BITS} bits
+     * @param emergencia Whether it is an emergency contact, the top bit
+     * @return The packed owner
+     */
+    private static long pack(int idtitular, int noordem, int description, boolean emergencia) {
+        return (idtitular & 0xffffffffL)
+                | (long) (noordem & ((1 << ORDER_BITS) - 1)) << 32
+                | (long) description << (32 + ORDER_BITS)
+                | (emergencia ? EMERGENCY : 0);
+    }
+
+    /**
+     * Unpack the owner of a contact
+     *
+     * @param owner The packed owner
+     * @return The {@link Owner}
+     */
+    private Owner unpack(long owner) {
+        int description = (int) (owner >>> (32 + ORDER_BITS)) & NO_DESCRIPTION;
+        return new Owner(
+                (int) owner,
+                (int) (owner >>> 32) & ((1 << ORDER_BITS) - 1),
+                description == NO_DESCRIPTION ? null : descriptions.get(description),
+                (owner & EMERGENCY) != 0);
+    }
+
+    /**
+     * Get the number of a description, adding it if it is new
+     *
+     * @param descricao The description
+     * @return The description number. {@link #NO_DESCRIPTION} if null or there are too many descriptions.
+     */
+    private int description(String descricao) {
+        if (descricao == null) return NO_DESCRIPTION;
+        Integer number = descriptionNumbers.get(descricao);
+        if (number != null) return number;
+        if (descriptions.size() == NO_DESCRIPTION) return NO_DESCRIPTION;
+        descriptions.add(descricao);
+        descriptionNumbers.put(descricao, descriptions.size() - 1);
+        return descriptions.size() - 1;
+    }
+
+    /**
+     * Add a contact of a colaborator. The order number is kept in {@link #ORDER_BITS} bits.
+     *
+     * @param contacto The contact, email or phone number
+     * @param idtitular The colaborator number
+     * @param noordem The order number of the contact
+     * @param descricao The contact description, or the relationship for an emergency contact
+     * @param emergencia Whether it is an emergency contact
+     * @return {@code boolean} indicating if the contact was added. False if it is empty or was already present.
+     */
+    public synchronized boolean add(String contacto, int idtitular, int noordem, String descricao, boolean emergencia) {
+        String normalized = normalize(contacto);
+        if (normalized.isEmpty()) return false;
+        int hash = hash(normalized);
+        long owner = pack(idtitular, noordem, description(descricao), emergencia);
+
+        int mask = contacts.length - 1;
+        int slot = hash & mask;
+        while (contacts[slot] != null) {
+            if (owners[slot] == owner && hashes[slot] == hash && contacts[slot].equals(normalized)) return false;
+            slot = (slot + 1) & mask;
+        }
+        contacts[slot] = normalized;
+        hashes[slot] = hash;
+        owners[slot] = owner;
+        contactBytes += stringBytes(normalized);
+        if (++size > contacts.length * MAX_LOAD) rehash(contacts.length << 1);
+        return true;
+    }
+
+    /**
+     * Remove the contacts of colaborators, for when they are deleted. Emptying slots would cut the probe runs of the
+     * contacts after them, so the table is rebuilt at the same size.
+     *
+     * @param idtitulares The colaborator numbers
+     * @return The number of contacts removed
+     */
+    public synchronized int removeAll(Bitmap idtitulares) {
+        int count = 0;
+        for (int slot = 0; slot < contacts.length; slot++) {
+            if (contacts[slot] == null || !idtitulares.contains((int) owners[slot])) continue;
+            contactBytes -= stringBytes(contacts[slot]);
+            contacts[slot] = null;
+            count++;
+        }
+        if (count == 0) return 0;
+        size -= count;
+        rehash(contacts.length);
+        return count;
+    }
+
+    /**
+     * Find the colaborators that have a contact
+     *
+     * @param contacto The contact, email or phone number, in any format accepted by {@link #normalize(String)}
+     * @return The owners of the contact. Empty if none.
+     */
+    public synchronized List<Owner> lookup(String contacto) {
+        ArrayList<Owner> found = new ArrayList<>();
+        String normalized = normalize(contacto);
+        if (normalized.isEmpty()) return found;
+        int hash = hash(normalized);
+
+        int mask = contacts.length - 1;
+        for (int slot = hash & mask; contacts[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && contacts[slot].equals(normalized)) found.add(unpack(owners[slot]));
+        }
+        return found;
+    }
+
+    /**
+     * Grow or rebuild the table
+     *
+     * @param tableSize The new number of slots, a power of two
+     */
+    private void rehash(int tableSize) {
+        String[] oldContacts = contacts;
+        int[] oldHashes = hashes;
+        long[] oldOwners = owners;
+        contacts = new String[tableSize];
+        hashes = new int[tableSize];
+        owners = new long[tableSize];
+        int mask = tableSize - 1;
+        for (int i = 0; i < oldContacts.length; i++) {
+            if (oldContacts[i] == null) continue;
+            int slot = oldHashes[i] & mask;
+            while (contacts[slot] != null) slot = (slot + 1) & mask;
+            contacts[slot] = oldContacts[i];
+            hashes[slot] = oldHashes[i];
+            owners[slot] = oldOwners[i];
+        }
+    }
+
+    /**
+     * Estimate the memory used by a {@code String} on a 64 bit JVM with compressed references, counting two bytes
+     * per char
+     *
+     * @param value The value
+     * @return The estimated size, in bytes
+     */
+    private static long stringBytes(String value) {
+        return 24 + ((16 + 2L * value.length() + 7) & ~7L);
+    }
+
+    /**
+     * Get the number of contacts, one per owner
+     *
+     * @return The number of contacts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the estimated memory used by the index, in bytes
+     *
+     * @return The memory used
+     */
+    public synchronized long getMemoryBytes() {
+        return contacts.length * (4L + 4L + 8L) + contactBytes;
+    }
+
+    /**
+     * Get the number of contacts and the memory used, in Portuguese
+     *
+     * @return The formatted {@code String}
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d contactos, %.1f MB, %d descrições", size, getMemoryBytes() / 1e6, descriptions.size());
+    }
+}
@@ -0,0 +1,324 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bitmap index over the attributes of the colaborators with few distinct values, so ad-hoc filters like
+ * {@code tipo=voluntario AND idioma=ingles AND NOT nacionalidade=portuguesa} are answered without a query.
+ * <p>
+ * Every value of every attribute has a {@link Bitmap} with the numbers of the colaborators that have it, and
+ * {@link #filter(String)} combines them with {@link Bitmap#and(Bitmap)}, {@link Bitmap#or(Bitmap)} and
+ * {@link Bitmap#andNot(Bitmap)}. A bitmap of every colaborator is kept for {@code NOT}.
+ * <p>
+ * Values are normalized to lower case letters and digits without accents, so {@code "Inglês"} and {@code "ingles"}
+ * are the same. Each language of a volunteer is indexed on its own, so a volunteer with {@code "Francês, Inglês"}
+ * matches {@code idioma=ingles}.
+ */
+public final class FilterIndex {
+    /** Colaborator type attribute, {@link #VOLUNTARIO} or {@link #ASSALARIADO} */
+    public static final String TIPO = "tipo";
+    /** Nationality attribute, {@code COLABORADOR.nacionalidade} */
+    public static final String NACIONALIDADE = "nacionalidade";
+    /** Identification type attribute, {@code COLABORADOR.tipoid} */
+    public static final String TIPOID = "tipoid";
+    /** Current occupation attribute, {@code VOLUNTARIO.ocupacaoatual} */
+    public static final String OCUPACAO = "ocupacao";
+    /** Language attribute, {@code VOLUNTARIO.idioma} */
+    public static final String IDIOMA = "idioma";
+    /** Program attribute, {@code VOLUNTARIO.idprograma} */
+    public static final String PROGRAMA = "programa";
+    /** Every attribute, in the order they are shown */
+    public static final String[] ATRIBUTOS = {TIPO, NACIONALIDADE, TIPOID, OCUPACAO, IDIOMA, PROGRAMA};
+    /** Type of a volunteer */
+    public static final String VOLUNTARIO = "voluntario";
+    /** Type of a colaborator with a paycheck */
+    public static final String ASSALARIADO = "assalariado";
+
+    /** Bitmap of each value of each attribute */
+    private final LinkedHashMap<String, HashMap<String, Bitmap>> attributes = new LinkedHashMap<>();
+    /** Every colaborator */
+    private Bitmap all = new Bitmap();
+
+    /**
+     * Creates an empty filter index
+     */
+    public FilterIndex() {
+        for (String atributo : ATRIBUTOS) attributes.put(atributo, new HashMap<>());
+    }
+
+    /**
+     * Add a value of an attribute of a colaborator
+     *
+     * @param nocolaborador The colaborator number
+     * @param atributo The attribute, one of {@link #ATRIBUTOS}
+     * @param valor The value. Ignored if null or empty.
+     * @return {@code boolean} indicating if the attribute exists
+     */
+    public synchronized boolean add(int nocolaborador, String atributo, String valor) {
+        HashMap<String, Bitmap> values = attributes.get(atributo);
+        if (values == null) return false;
+        all.add(nocolaborador);
+        for (String value : values(atributo, valor)) values.computeIfAbsent(value, v -> new Bitmap()).add(nocolaborador);
+        return true;
+    }
+
+    /**
+     * Replace the values of an attribute of a colaborator
+     *
+     * @param nocolaborador The colaborator number
+     * @param atributo The attribute, one of {@link #ATRIBUTOS}
+     * @param valor The new value
+     * @return {@code boolean} indicating if the attribute exists
+     */
+    public synchronized boolean set(int nocolaborador, String atributo, String valor) {
+        HashMap<String, Bitmap> values = attributes.get(atributo);
+        if (values == null) return false;
+        values.values().removeIf(bitmap -> bitmap.remove(nocolaborador) && bitmap.isEmpty());
+        return add(nocolaborador, atributo, valor);
+    }
+
+    /**
+     * Remove every colaborator that has a value of an attribute, for when they are deleted together
+     *
+     * @param atributo The attribute, one of {@link #ATRIBUTOS}
+     * @param valor The value
+     * @return The numbers of the colaborators removed
+     */
+    public synchronized Bitmap removeMatching(String atributo, String valor) {
+        HashMap<String, Bitmap> values = attributes.get(atributo);
+        Bitmap removed = values == null ? null : values.get(key(valor));
+        if (removed == null) return new Bitmap();
+        removed = removed.copy();
+        for (HashMap<String, Bitmap> attribute : attributes.values()) {
+            for (Map.Entry<String, Bitmap> value : attribute.entrySet()) value.setValue(value.getValue().andNot(removed));
+            attribute.values().removeIf(Bitmap::isEmpty);
+        }
+        all = all.andNot(removed);
+        return removed;
+    }
+
+    /**
+     * Find the colaborators that match a filter. A filter is made of conditions {@code atributo=valor}, with the value
+     * between double quotes if it has spaces, combined with {@code AND}, {@code OR}, {@code NOT} and parentheses.
+     * {@code AND} comes before {@code OR}.
+     *
+     * @param expression The filter
+     * @return The numbers of the colaborators that match. Null if the filter is not valid.
+     */
+    public synchronized Bitmap filter(String expression) {
+        try {
+            Parser parser = new Parser(tokenize(expression));
+            Bitmap result = parser.or();
+            if (parser.position != parser.tokens.size()) return null;
+            return result.copy();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the values of an attribute, the most common first
+     *
+     * @param atributo The attribute, one of {@link #ATRIBUTOS}
+     * @return The normalized values. Empty if the attribute does not exist.
+     */
+    public synchronized List<String> values(String atributo) {
+        HashMap<String, Bitmap> values = attributes.get(atributo);
+        if (values == null) return Collections.emptyList();
+        HashMap<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, Bitmap> value : values.entrySet()) counts.put(value.getKey(), value.getValue().cardinality());
+        ArrayList<String> result = new ArrayList<>(counts.keySet());
+        result.sort((a, b) -> counts.get(a).equals(counts.get(b)) ? a.compareTo(b) : counts.get(b) - counts.get(a));
+        return result;
+    }
+
+    /**
+     * Get the number of colaborators
+     *
+     * @return The number of colaborators
+     */
+    public synchronized int size() {
+        return all.cardinality();
+    }
+
+    /**
+     * Get the estimated memory used by the index, in bytes
+     *
+     * @return The memory used
+     */
+    public synchronized long getMemoryBytes() {
+        long bytes = all.getMemoryBytes();
+        for (HashMap<String, Bitmap> values : attributes.values()) {
+            for (Map.Entry<String, Bitmap> value : values.entrySet()) bytes += 32 + 40 + 2L * value.getKey().length() + value.getValue().getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the number of colaborators, the number of values and the memory used, in Portuguese
+     *
+     * @return The formatted {@code String}
+     */
+    @Override
+    public synchronized String toString() {
+        int values = 0;
+        for (HashMap<String, Bitmap> attribute : attributes.values()) values += attribute.size();
+        return String.format("%d colaboradores, %d valores, %.1f MB", size(), values, getMemoryBytes() / 1e6);
+    }
+
+    /**
+     * Normalize the value of an attribute into the keys it is indexed under
+     *
+     * @param atributo The attribute
+     * @param valor The value
+     * @return The keys, one per language for {@link #IDIOMA}
+     */
+    private static String[] values(String atributo, String valor) {
+        if (IDIOMA.equals(atributo)) return ProgramIndex.languages(valor);
+        String key = key(valor);
+        return key.isEmpty() ? new String[0] : new String[]{key};
+    }
+
+    /**
+     * Normalize a value into the key it is indexed under
+     *
+     * @param valor The value
+     * @return The key, in lower case without accents
+     */
+    private static String key(String valor) {
+        return NameIndex.normalize(valor);
+    }
+
+    /**
+     * Split a filter into tokens: parentheses, {@code =}, quoted values and words
+     *
+     * @param expression The filter
+     * @return The tokens. Quoted values keep their opening quote so they are never taken for an operator.
+     */
+    private static List<String> tokenize(String expression) {
+        if (expression == null) throw new IllegalArgumentException();
+        ArrayList<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == '=') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                int end = expression.indexOf('"', i + 1);
+                if (end < 0) throw new IllegalArgumentException();
+                tokens.add(expression.substring(i, end));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < expression.length() && !Character.isWhitespace(expression.charAt(i)) && "()=\"".indexOf(expression.charAt(i)) < 0) i++;
+                tokens.add(expression.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Recursive descent parser of a filter that evaluates it as it goes
+     */
+    private final class Parser {
+        /** The tokens */
+        final List<String> tokens;
+        /** Index of the next token */
+        int position;
+
+        /**
+         * Creates a parser
+         *
+         * @param tokens_ The tokens of the filter
+         */
+        Parser(List<String> tokens_) {
+            this.tokens = tokens_;
+        }
+
+        /**
+         * Check if the next token is a keyword and skip it if so
+         *
+         * @param keyword The keyword, in upper case
+         * @return {@code boolean} indicating if it was
+         */
+        boolean accept(String keyword) {
+            if (position == tokens.size() || !tokens.get(position).toUpperCase(Locale.ROOT).equals(keyword)) return false;
+            position++;
+            return true;
+        }
+
+        /**
+         * Get the next token
+         *
+         * @return The token
+         */
+        String next() {
+            if (position == tokens.size()) throw new IllegalArgumentException();
+            return tokens.get(position++);
+        }
+
+        /**
+         * Evaluate conditions joined by {@code OR}
+         *
+         * @return The colaborators that match
+         */
+        Bitmap or() {
+            Bitmap result = and();
+            while (accept("OR")) result = result.or(and());
+            return result;
+        }
+
+        /**
+         * Evaluate conditions joined by {@code AND}
+         *
+         * @return The colaborators that match
+         */
+        Bitmap and() {
+            Bitmap result = not();
+            while (accept("AND")) {
+                // a AND NOT b is a single subtraction, without the complement of b
+                if (accept("NOT")) result = result.andNot(not());
+                else result = result.and(not());
+            }
+            return result;
+        }
+
+        /**
+         * Evaluate a condition, possibly negated
+         *
+         * @return The colaborators that match
+         */
+        Bitmap not() {
+            if (accept("NOT")) return all.andNot(not());
+            return condition();
+        }
+
+        /**
+         * Evaluate a condition {@code atributo=valor} or a filter between parentheses
+         *
+         * @return The colaborators that match
+         */
+        Bitmap condition() {
+            if (accept("(")) {
+                Bitmap result = or();
+                if (!accept(")")) throw new IllegalArgumentException();
+                return result;
+            }
+            HashMap<String, Bitmap> values = attributes.get(next().toLowerCase(Locale.ROOT));
+            if (values == null || !accept("=")) throw new IllegalArgumentException();
+            String valor = next();
+            if ("()=".contains(valor)) throw new IllegalArgumentException();
+            Bitmap result = values.get(key(valor.startsWith("\"") ? valor.substring(1) : valor));
+            return result == null ? new Bitmap() : result;
+        }
+    }
+}
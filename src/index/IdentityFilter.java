@@ -0,0 +1,309 @@
+package index;
+
+import java.util.Arrays;
+
+/**
+ * Set of identity values, like the identification or fiscal numbers of the colaborators, used to find duplicates
+ * before they reach the database.
+ * <p>
+ * A lookup first checks a Bloom filter, a bit array that fits in the processor cache and answers most lookups of new
+ * values without touching the exact set. Only when the filter says the value may be present is it looked up in the
+ * exact set, an open addressing hash table of the values themselves, so the answer is never a false positive.
+ * Both grow as values are added. A removed value leaves the exact set but keeps its bits in the filter, since they
+ * may be shared with other values, so later lookups of it are settled by the exact set.
+ * <p>
+ * The memory used is reported by {@link #getMemoryBytes()} and {@link #toString()}. With the default false positive
+ * rate of 1%, the filter takes 1.2 to 2.4 bytes and the table 13 to 27 bytes per value, depending on how close they are
+ * to growing, plus the values themselves.
+ */
+public final class IdentityFilter {
+    /** Default false positive rate of the Bloom filter */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    /** Maximum fill of the exact set before it grows */
+    private static final double MAX_LOAD = 0.6;
+    /** FNV-1a 64 bit offset basis */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** FNV-1a 64 bit prime */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** False positive rate the Bloom filter is sized for */
+    private final double falsePositiveRate;
+
+    /** The Bloom filter bits */
+    private long[] bits;
+    /** Mask of a bit index, the number of bits minus one */
+    private long bitMask;
+    /** Number of bits set per value */
+    private int hashes;
+    /** Number of values the Bloom filter was sized for */
+    private int capacity;
+
+    /** The exact set. Null slots are empty. */
+    private String[] values;
+    /** Hash of the value in each slot of {@link #values} */
+    private int[] valueHashes;
+    /** Number of values */
+    private int size;
+    /** Estimated memory used by the values themselves, in bytes */
+    private long valueBytes;
+    /** Number of lookups answered by the Bloom filter alone */
+    private long filterNegatives;
+    /** Number of lookups the Bloom filter let through for values that were not present */
+    private long falsePositives;
+
+    /**
+     * Creates an empty identity filter
+     *
+     * @param expected Number of values expected. The filter grows if more are added.
+     * @param falsePositiveRate Rate of lookups of new values that go past the Bloom filter, between 0 and 1
+     */
+    public IdentityFilter(int expected, double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        int tableSize = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, expected / MAX_LOAD)) - 1) << 1;
+        this.values = new String[tableSize];
+        this.valueHashes = new int[tableSize];
+        sizeFilter(Math.max(expected, 1024));
+    }
+
+    /**
+     * Creates an empty identity filter with the {@link #DEFAULT_FALSE_POSITIVE_RATE}
+     *
+     * @param expected Number of values expected. The filter grows if more are added.
+     */
+    public IdentityFilter(int expected) {
+        this(expected, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Size an empty Bloom filter. The number of bits is rounded up to a power of two.
+     *
+     * @param expected Number of values the filter is sized for
+     */
+    private void sizeFilter(int expected) {
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long bitCount = Long.highestOneBit(Math.max(64, optimalBits) - 1) << 1;
+        bits = new long[(int) (bitCount >>> 6)];
+        bitMask = bitCount - 1;
+        hashes = Math.max(1, (int) Math.round((double) bitCount / expected * ln2));
+        capacity = expected;
+    }
+
+    /**
+     * Hash a value into 64 bits with FNV-1a followed by a finalizer, so both halves are well mixed
+     *
+     * @param value The value
+     * @return The hash
+     */
+    private static long hash64(String value) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Set the bits of a value in the Bloom filter
+     *
+     * @param hash The 64 bit hash of the value
+     */
+    private void setBits(long hash) {
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Check the bits of a value in the Bloom filter
+     *
+     * @param hash The 64 bit hash of the value
+     * @return {@code boolean} indicating if the value may be present. False if it is certainly not.
+     */
+    private boolean testBits(long hash) {
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the slot of a value in the exact set
+     *
+     * @param value The value
+     * @param hash The hash of the value
+     * @return The slot of the value, or of the empty slot where it would be added
+     */
+    private int slot(String value, int hash) {
+        int mask = values.length - 1;
+        int slot = hash & mask;
+        while (values[slot] != null && (valueHashes[slot] != hash || !values[slot].equals(value))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Checks if a value is present. Null and empty values are never present.
+     *
+     * @param value The value
+     * @return {@code boolean} indicating if the value is present
+     */
+    public synchronized boolean contains(String value) {
+        if (value == null || value.isEmpty()) return false;
+        long hash = hash64(value);
+        if (!testBits(hash)) {
+            filterNegatives++;
+            return false;
+        }
+        boolean present = values[slot(value, (int) hash)] != null;
+        if (!present) falsePositives++;
+        return present;
+    }
+
+    /**
+     * Add a value. Null and empty values are ignored.
+     *
+     * @param value The value
+     * @return {@code boolean} indicating if the value was added. False if it was already present.
+     */
+    public synchronized boolean add(String value) {
+        if (value == null || value.isEmpty()) return false;
+        long hash = hash64(value);
+        int slot = slot(value, (int) hash);
+        if (values[slot] != null) return false;
+
+        values[slot] = value;
+        valueHashes[slot] = (int) hash;
+        valueBytes += stringBytes(value);
+        size++;
+        if (size > values.length * MAX_LOAD) rehash(values.length << 1);
+        if (size > capacity) rebuildFilter(capacity << 1);
+        else setBits(hash);
+        return true;
+    }
+
+    /**
+     * Remove a value, for when its colaborator is deleted. Null and empty values are ignored.
+     *
+     * @param value The value
+     * @return {@code boolean} indicating if the value was removed. False if it was not present.
+     */
+    public synchronized boolean remove(String value) {
+        if (value == null || value.isEmpty()) return false;
+        int hole = slot(value, (int) hash64(value));
+        if (values[hole] == null) return false;
+        values[hole] = null;
+        valueBytes -= stringBytes(value);
+        size--;
+        // Move back the values after the hole that would no longer be found past it
+        int mask = values.length - 1;
+        for (int slot = (hole + 1) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            int home = valueHashes[slot] & mask;
+            if (((slot - home) & mask) < ((slot - hole) & mask)) continue;
+            values[hole] = values[slot];
+            valueHashes[hole] = valueHashes[slot];
+            values[slot] = null;
+            hole = slot;
+        }
+        return true;
+    }
+
+    /**
+     * Remove every value
+     */
+    public synchronized void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(bits, 0);
+        size = 0;
+        valueBytes = 0;
+    }
+
+    /**
+     * Grow the exact set
+     *
+     * @param tableSize The new number of slots, a power of two
+     */
+    private void rehash(int tableSize) {
+        String[] oldValues = values;
+        int[] oldHashes = valueHashes;
+        values = new String[tableSize];
+        valueHashes = new int[tableSize];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = slot(oldValues[i], oldHashes[i]);
+            values[slot] = oldValues[i];
+            valueHashes[slot] = oldHashes[i];
+        }
+    }
+
+    /**
+     * Grow the Bloom filter and set the bits of every value again
+     *
+     * @param expected Number of values the new filter is sized for
+     */
+    private void rebuildFilter(int expected) {
+        sizeFilter(expected);
+        for (String value : values) {
+            if (value != null) setBits(hash64(value));
+        }
+    }
+
+    /**
+     * Estimate the memory used by a {@code String} on a 64 bit JVM with compressed references, counting two bytes
+     * per char
+     *
+     * @param value The value
+     * @return The estimated size, in bytes
+     */
+    private static long stringBytes(String value) {
+        return 24 + ((16 + 2L * value.length() + 7) & ~7L);
+    }
+
+    /**
+     * Get the number of values
+     *
+     * @return The number of values
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the estimated memory used by the filter, the exact set and the values
+     *
+     * @return The memory used, in bytes
+     */
+    public synchronized long getMemoryBytes() {
+        return bits.length * 8L + values.length * (4L + 4L) + valueBytes;
+    }
+
+    /**
+     * Get the estimated memory used per million values
+     *
+     * @return The memory used per million values, in bytes. 0 if there are no values.
+     */
+    public synchronized long getBytesPerMillion() {
+        return size == 0 ? 0 : Math.round(getMemoryBytes() * 1e6 / size);
+    }
+
+    /**
+     * Returns the number of values, the memory used and how many lookups the Bloom filter answered alone
+     *
+     * @return A formatted {@code String}
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d valores, %.1f MB (%.1f MB por milhão), %d pesquisas resolvidas pelo filtro, %d falsos positivos",
+                size, getMemoryBytes() / 1e6, getBytesPerMillion() / 1e6, filterNegatives, falsePositives);
+    }
+}
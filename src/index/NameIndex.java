@@ -0,0 +1,697 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search index over the names of the colaborators, answering searches by name prefix and, for typos, by similarity.
+ * <p>
+ * Names are normalized to lower case letters and digits without accents, then split into words. Every word goes into
+ * a prefix trie whose nodes list the colaborators with a word ending there, so a prefix search walks down the trie
+ * and collects the colaborators of the subtree in alphabetical order. Every distinct word is also split into trigrams,
+ * groups of three chars padded like {@code "  silva "}, and each trigram lists the words that have it. A similarity
+ * search first finds the words that share enough trigrams with each query word, which only looks at the vocabulary and
+ * not at every colaborator, and then takes the colaborators of those words from the trie.
+ * <p>
+ * The trie, the lists and the words of each colaborator are stored in {@code int} arrays, without an object per node
+ * or per entry. Colaborators are added one at a time, so the index is built by streaming the table and kept up to date
+ * by inserts. Removed colaborators are marked and skipped by the searches, since their words may be shared.
+ */
+public final class NameIndex {
+    /** Number of distinct chars in a trigram: a space, the letters a to z and the digits 0 to 9 */
+    private static final int ALPHABET = 37;
+    /** Number of distinct trigrams */
+    private static final int TRIGRAMS = ALPHABET * ALPHABET * ALPHABET;
+    /** Minimum share of trigrams in common for two words to be similar, from 0 to 1 */
+    private static final double MIN_SIMILARITY = 0.3;
+    /** Maximum number of similar words kept per query word, the most similar */
+    private static final int MAX_SIMILAR_WORDS = 32;
+    /** Maximum number of colaborators checked per search, so common names do not make a search slow */
+    private static final int MAX_CANDIDATES = 4096;
+    /** Initial capacity of the arrays */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Colaborator number of each entry */
+    private int[] numbers = new int[INITIAL_CAPACITY];
+    /** First name of each entry */
+    private String[] nomes = new String[INITIAL_CAPACITY];
+    /** Last name of each entry */
+    private String[] apelidos = new String[INITIAL_CAPACITY];
+    /** Identification number of each entry */
+    private String[] nidents = new String[INITIAL_CAPACITY];
+    /** Start of the words of each entry in {@link #entryWords}. The words of the last entry end at {@link #words}. */
+    private int[] wordStarts = new int[INITIAL_CAPACITY];
+    /** Number of entries, including the removed ones */
+    private int size;
+    /** Removed entries, a bit per entry */
+    private long[] removed = new long[INITIAL_CAPACITY >>> 6];
+    /** Number of removed entries */
+    private int removedCount;
+
+    /** Trie node where each word of each entry ends */
+    private int[] entryWords = new int[INITIAL_CAPACITY];
+    /** Number of words of every entry */
+    private int words;
+
+    /** Char of each trie node. The root is node 0. */
+    private char[] nodeChars = new char[INITIAL_CAPACITY];
+    /** Parent of each trie node */
+    private int[] parents = new int[INITIAL_CAPACITY];
+    /** Depth of each trie node, the length of the prefix it stands for */
+    private int[] depths = new int[INITIAL_CAPACITY];
+    /** First child of each trie node. 0 if none. */
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+    /** Next sibling of each trie node, in char order. 0 if none. */
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+    /** First posting of the entries with a word ending at each trie node. -1 if none. */
+    private int[] firstPosting = new int[INITIAL_CAPACITY];
+    /** Number of distinct trigrams of the word ending at each trie node. 0 if no word ends there. */
+    private short[] wordTrigrams = new short[INITIAL_CAPACITY];
+    /** Number of trie nodes */
+    private int nodes = 1;
+
+    /** Entry of each posting */
+    private int[] postingEntries = new int[INITIAL_CAPACITY];
+    /** Next posting of the same trie node. -1 if none. */
+    private int[] postingNext = new int[INITIAL_CAPACITY];
+    /** Number of postings */
+    private int postings;
+
+    /** Trie nodes of the words with each trigram. Null if none. */
+    private final int[][] trigramWords = new int[TRIGRAMS][];
+    /** Number of words with each trigram */
+    private final int[] trigramSizes = new int[TRIGRAMS];
+
+    /** Search in which each entry was last seen, so an entry is only checked once per search */
+    private int[] seen = new int[INITIAL_CAPACITY];
+    /** Number of the current search */
+    private int generation;
+    /** Trigrams in common with the current query word, per trie node */
+    private int[] shared = new int[INITIAL_CAPACITY];
+    /** Query word for which {@link #shared} was last counted, per trie node */
+    private int[] sharedStamps = new int[INITIAL_CAPACITY];
+    /** Number of the current query word */
+    private int sharedGeneration;
+
+    /**
+     * A search result
+     */
+    public static final class Entry {
+        /** Colaborator number */
+        public final int nocolaborador;
+        /** Colaborator name */
+        public final String nome;
+        /** Colaborator last name */
+        public final String apelido;
+        /** Colaborator identification number */
+        public final String nident;
+        /** Similarity to the search, from 0 to 1. 1 for a prefix match. */
+        public final double score;
+
+        /**
+         * Creates a search result
+         *
+         * @param nocolaborador_ Colaborator number
+         * @param nome_ Colaborator name
+         * @param apelido_ Colaborator last name
+         * @param nident_ Colaborator identification number
+         * @param score_ Similarity to the search
+         */
+        public Entry(int nocolaborador_, String nome_, String apelido_, String nident_, double score_) {
+            this.nocolaborador = nocolaborador_;
+            this.nome = nome_;
+            this.apelido = apelido_;
+            this.nident = nident_;
+            this.score = score_;
+        }
+    }
+
+    /**
+     * The words of the vocabulary similar to a query word
+     */
+    private static final class Similar {
+        /** Trie node where the query word ends. -1 if no word starts with it. */
+        final int prefix;
+        /** Trie nodes of the similar words, the most similar first */
+        final int[] nodes;
+        /** Similarity of each word, from 0 to 1 */
+        final double[] scores;
+        /** Number of similar words */
+        final int count;
+
+        /**
+         * Creates the similar words of a query word
+         *
+         * @param prefix_ Trie node where the query word ends
+         * @param nodes_ Trie nodes of the similar words
+         * @param scores_ Similarity of each word
+         * @param count_ Number of similar words
+         */
+        Similar(int prefix_, int[] nodes_, double[] scores_, int count_) {
+            this.prefix = prefix_;
+            this.nodes = nodes_;
+            this.scores = scores_;
+            this.count = count_;
+        }
+    }
+
+    /**
+     * Creates an empty name index
+     */
+    public NameIndex() {
+        firstPosting[0] = -1;
+    }
+
+    /**
+     * Get the number of colaborators in the index
+     *
+     * @return The number of colaborators
+     */
+    public synchronized int size() {
+        return size - removedCount;
+    }
+
+    /**
+     * Add a colaborator to the index
+     *
+     * @param nocolaborador The colaborator number
+     * @param nome The colaborator name
+     * @param apelido The colaborator last name
+     * @param nident The colaborator identification number
+     */
+    public synchronized void add(int nocolaborador, String nome, String apelido, String nident) {
+        if (size == numbers.length) growEntries();
+        int entry = size++;
+        numbers[entry] = nocolaborador;
+        nomes[entry] = nome;
+        apelidos[entry] = apelido;
+        nidents[entry] = nident;
+        wordStarts[entry] = words;
+
+        for (String word : words(normalize(nome + " " + apelido))) {
+            int node = insertWord(word);
+            if (wordTrigrams[node] == 0) {
+                int[] trigrams = trigrams(word);
+                for (int trigram : trigrams) addTrigramWord(trigram, node);
+                wordTrigrams[node] = (short) Math.min(Short.MAX_VALUE, trigrams.length);
+            }
+            if (firstPosting[node] >= 0 && postingEntries[firstPosting[node]] == entry) continue;
+            addPosting(node, entry);
+            if (words == entryWords.length) entryWords = Arrays.copyOf(entryWords, words * 2);
+            entryWords[words++] = node;
+        }
+    }
+
+    /**
+     * Remove colaborators from the index, for when they are deleted
+     *
+     * @param nocolaboradores The colaborator numbers
+     * @return The number of colaborators removed
+     */
+    public synchronized int removeAll(Bitmap nocolaboradores) {
+        int count = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (isRemoved(entry) || !nocolaboradores.contains(numbers[entry])) continue;
+            removed[entry >>> 6] |= 1L << entry;
+            count++;
+        }
+        removedCount += count;
+        return count;
+    }
+
+    /**
+     * Checks if an entry was removed
+     *
+     * @param entry The entry
+     * @return {@code boolean} indicating if it was removed
+     */
+    private boolean isRemoved(int entry) {
+        return (removed[entry >>> 6] & (1L << entry)) != 0;
+    }
+
+    /**
+     * Search colaborators by name. Colaborators with a word starting with each word of the query come first, in
+     * alphabetical order, followed by the colaborators with similar names, the most similar first.
+     *
+     * @param query The name, or the start of the name, to search
+     * @param limit Maximum number of results
+     * @return The results. Empty if none.
+     */
+    public synchronized List<Entry> search(String query, int limit) {
+        ArrayList<Entry> results = new ArrayList<>();
+        String[] queryWords = words(normalize(query));
+        if (queryWords.length == 0 || limit <= 0) return results;
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            generation = 1;
+        }
+        int[] prefixes = new int[queryWords.length];
+        for (int i = 0; i < queryWords.length; i++) prefixes[i] = find(queryWords[i]);
+
+        searchPrefix(prefixes, limit, results);
+        if (results.size() < limit) searchSimilar(queryWords, prefixes, limit - results.size(), results);
+        return results;
+    }
+
+    /**
+     * Find the colaborators with a word starting with each word of the query
+     *
+     * @param prefixes Trie node where each query word ends. -1 if none.
+     * @param limit Maximum number of results
+     * @param results Where the results are added
+     */
+    private void searchPrefix(int[] prefixes, int limit, ArrayList<Entry> results) {
+        int deepest = prefixes[0];
+        for (int prefix : prefixes) {
+            if (prefix < 0) return;
+            if (depths[prefix] > depths[deepest]) deepest = prefix;
+        }
+        collect(deepest, prefixes, limit, results, new int[]{0});
+    }
+
+    /**
+     * Collect the entries of a trie subtree, in alphabetical order, that have a word under every prefix node
+     *
+     * @param node The subtree root
+     * @param prefixes Trie node where each query word ends
+     * @param limit Maximum number of results
+     * @param results Where the results are added
+     * @param checked Number of entries checked so far, in its first element
+     * @return {@code boolean} indicating if the search must stop
+     */
+    private boolean collect(int node, int[] prefixes, int limit, ArrayList<Entry> results, int[] checked) {
+        for (int posting = firstPosting[node]; posting >= 0; posting = postingNext[posting]) {
+            int entry = postingEntries[posting];
+            if (seen[entry] == generation) continue;
+            seen[entry] = generation;
+            if (isRemoved(entry)) continue;
+            if (++checked[0] > MAX_CANDIDATES) return true;
+            if (prefixes.length == 1 || hasPrefixes(entry, prefixes)) {
+                results.add(entry(entry, 1));
+                if (results.size() == limit) return true;
+            }
+        }
+        for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+            if (collect(child, prefixes, limit, results, checked)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an entry has a word under every prefix node
+     *
+     * @param entry The entry
+     * @param prefixes Trie node where each query word ends
+     * @return {@code boolean} indicating if the entry matches
+     */
+    private boolean hasPrefixes(int entry, int[] prefixes) {
+        int end = wordEnd(entry);
+        for (int prefix : prefixes) {
+            boolean found = false;
+            for (int i = wordStarts[entry]; i < end && !found; i++) found = isUnder(entryWords[i], prefix);
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the colaborators whose words are similar to the query words, or start with them.
+     * The candidates are the colaborators of the words similar to the query word with the fewest of them, taken from
+     * the most similar word down. Each query word scores the best of the colaborator words, 1 for a word starting
+     * with it, and the colaborator scores the average.
+     *
+     * @param queryWords The query words
+     * @param prefixes Trie node where each query word ends. -1 if none.
+     * @param limit Maximum number of results
+     * @param results Where the results are added
+     */
+    private void searchSimilar(String[] queryWords, int[] prefixes, int limit, ArrayList<Entry> results) {
+        Similar[] similar = new Similar[queryWords.length];
+        Similar candidates = null;
+        for (int i = 0; i < queryWords.length; i++) {
+            similar[i] = similarWords(queryWords[i], prefixes[i]);
+            if (similar[i].count > 0 && (candidates == null || similar[i].count < candidates.count)) candidates = similar[i];
+        }
+        if (candidates == null) return;
+
+        int[] best = new int[limit];
+        double[] bestScores = new double[limit];
+        int found = 0;
+        int checked = 0;
+        for (int w = 0; w < candidates.count && checked < MAX_CANDIDATES; w++) {
+            for (int posting = firstPosting[candidates.nodes[w]]; posting >= 0 && checked < MAX_CANDIDATES; posting = postingNext[posting]) {
+                int entry = postingEntries[posting];
+                if (seen[entry] == generation) continue;
+                seen[entry] = generation;
+                if (isRemoved(entry)) continue;
+                checked++;
+
+                double score = score(entry, similar);
+                if (score == 0) continue;
+                if (found == limit && !isBetter(score, entry, bestScores[found - 1], best[found - 1])) continue;
+
+                // Insert in score order, dropping the worst when full
+                int position = found < limit ? found++ : found - 1;
+                while (position > 0 && isBetter(score, entry, bestScores[position - 1], best[position - 1])) {
+                    best[position] = best[position - 1];
+                    bestScores[position] = bestScores[position - 1];
+                    position--;
+                }
+                best[position] = entry;
+                bestScores[position] = score;
+            }
+        }
+        for (int i = 0; i < found; i++) results.add(entry(best[i], bestScores[i]));
+    }
+
+    /**
+     * Find the words of the vocabulary that share enough trigrams with a query word, counting the trigrams in common
+     * over the word lists of the query trigrams
+     *
+     * @param word The query word
+     * @param prefix Trie node where the query word ends. -1 if none.
+     * @return The {@link Similar} words, at most {@link #MAX_SIMILAR_WORDS}
+     */
+    private Similar similarWords(String word, int prefix) {
+        if (++sharedGeneration == 0) {
+            Arrays.fill(sharedStamps, 0);
+            sharedGeneration = 1;
+        }
+        int[] query = trigrams(word);
+        int[] similarNodes = new int[MAX_SIMILAR_WORDS];
+        double[] similarScores = new double[MAX_SIMILAR_WORDS];
+        int count = 0;
+        for (int trigram : query) {
+            int[] nodesWithTrigram = trigramWords[trigram];
+            for (int i = 0; i < trigramSizes[trigram]; i++) {
+                int node = nodesWithTrigram[i];
+                if (sharedStamps[node] != sharedGeneration) {
+                    sharedStamps[node] = sharedGeneration;
+                    shared[node] = 0;
+                }
+                int common = ++shared[node];
+                double score = (double) common / (query.length + wordTrigrams[node] - common);
+                if (score < MIN_SIMILARITY) continue;
+
+                // Keep the most similar words in score order. A word already kept moves up as its count grows.
+                int position = 0;
+                while (position < count && similarNodes[position] != node) position++;
+                if (position == count) {
+                    if (count < MAX_SIMILAR_WORDS) count++;
+                    else if (score <= similarScores[count - 1]) continue;
+                    position = count - 1;
+                }
+                while (position > 0 && similarScores[position - 1] < score) {
+                    similarNodes[position] = similarNodes[position - 1];
+                    similarScores[position] = similarScores[position - 1];
+                    position--;
+                }
+                similarNodes[position] = node;
+                similarScores[position] = score;
+            }
+        }
+        return new Similar(prefix, similarNodes, similarScores, count);
+    }
+
+    /**
+     * Score an entry against the query words
+     *
+     * @param entry The entry
+     * @param similar The similar words of each query word
+     * @return The average of the best score of each query word. 0 if a query word matches no word of the entry.
+     */
+    private double score(int entry, Similar[] similar) {
+        int end = wordEnd(entry);
+        double total = 0;
+        for (Similar query : similar) {
+            double best = 0;
+            for (int i = wordStarts[entry]; i < end && best < 1; i++) {
+                int node = entryWords[i];
+                if (query.prefix >= 0 && isUnder(node, query.prefix)) best = 1;
+                for (int w = 0; w < query.count && query.scores[w] > best; w++) {
+                    if (query.nodes[w] == node) best = query.scores[w];
+                }
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total / similar.length;
+    }
+
+    /**
+     * Checks if a similarity match ranks before another: higher score, then fewer words
+     *
+     * @param score The score of the match
+     * @param entry The entry of the match
+     * @param otherScore The score of the other match
+     * @param other The entry of the other match
+     * @return {@code boolean} indicating if the match ranks first
+     */
+    private boolean isBetter(double score, int entry, double otherScore, int other) {
+        return score > otherScore
+                || (score == otherScore && wordEnd(entry) - wordStarts[entry] < wordEnd(other) - wordStarts[other]);
+    }
+
+    /**
+     * Get the end of the words of an entry in {@link #entryWords}
+     *
+     * @param entry The entry
+     * @return The index after its last word
+     */
+    private int wordEnd(int entry) {
+        return entry + 1 < size ? wordStarts[entry + 1] : words;
+    }
+
+    /**
+     * Create the search result of an entry
+     *
+     * @param entry The entry
+     * @param score The similarity to the search
+     * @return The {@link Entry}
+     */
+    private Entry entry(int entry, double score) {
+        return new Entry(numbers[entry], nomes[entry], apelidos[entry], nidents[entry], score);
+    }
+
+    /**
+     * Checks if a trie node is in the subtree of another, meaning its word starts with the prefix of the other
+     *
+     * @param node The node
+     * @param ancestor The subtree root
+     * @return {@code boolean} indicating if the node is in the subtree
+     */
+    private boolean isUnder(int node, int ancestor) {
+        while (depths[node] > depths[ancestor]) node = parents[node];
+        return node == ancestor;
+    }
+
+    /**
+     * Find the trie node of a prefix
+     *
+     * @param prefix The normalized prefix
+     * @return The node. -1 if no word starts with the prefix.
+     */
+    private int find(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node >= 0; i++) node = child(node, prefix.charAt(i));
+        return node;
+    }
+
+    /**
+     * Find the child of a trie node with a char
+     *
+     * @param node The node
+     * @param c The char
+     * @return The child node. -1 if none.
+     */
+    private int child(int node, char c) {
+        for (int child = firstChild[node]; child != 0 && nodeChars[child] <= c; child = nextSibling[child]) {
+            if (nodeChars[child] == c) return child;
+        }
+        return -1;
+    }
+
+    /**
+     * Add a word to the trie, keeping the children of each node in char order
+     *
+     * @param word The word
+     * @return The node where the word ends
+     */
+    private int insertWord(String word) {
+        int node = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int previous = 0;
+            int child = firstChild[node];
+            while (child != 0 && nodeChars[child] < c) {
+                previous = child;
+                child = nextSibling[child];
+            }
+            if (child == 0 || nodeChars[child] != c) {
+                if (nodes == nodeChars.length) growNodes();
+                int created = nodes++;
+                nodeChars[created] = c;
+                parents[created] = node;
+                depths[created] = i + 1;
+                firstPosting[created] = -1;
+                nextSibling[created] = child;
+                if (previous == 0) firstChild[node] = created;
+                else nextSibling[previous] = created;
+                child = created;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Add an entry to the postings of a trie node
+     *
+     * @param node The trie node
+     * @param entry The entry
+     */
+    private void addPosting(int node, int entry) {
+        if (postings == postingEntries.length) {
+            postingEntries = Arrays.copyOf(postingEntries, postings * 2);
+            postingNext = Arrays.copyOf(postingNext, postings * 2);
+        }
+        postingEntries[postings] = entry;
+        postingNext[postings] = firstPosting[node];
+        firstPosting[node] = postings++;
+    }
+
+    /**
+     * Add a word to the list of a trigram
+     *
+     * @param trigram The trigram code
+     * @param node The trie node where the word ends
+     */
+    private void addTrigramWord(int trigram, int node) {
+        int[] nodesWithTrigram = trigramWords[trigram];
+        int count = trigramSizes[trigram];
+        if (nodesWithTrigram == null) nodesWithTrigram = trigramWords[trigram] = new int[4];
+        else if (count == nodesWithTrigram.length) nodesWithTrigram = trigramWords[trigram] = Arrays.copyOf(nodesWithTrigram, count * 2);
+        nodesWithTrigram[count] = node;
+        trigramSizes[trigram] = count + 1;
+    }
+
+    /**
+     * Grow the entry arrays
+     */
+    private void growEntries() {
+        int capacity = numbers.length * 2;
+        numbers = Arrays.copyOf(numbers, capacity);
+        nomes = Arrays.copyOf(nomes, capacity);
+        apelidos = Arrays.copyOf(apelidos, capacity);
+        nidents = Arrays.copyOf(nidents, capacity);
+        wordStarts = Arrays.copyOf(wordStarts, capacity);
+        seen = Arrays.copyOf(seen, capacity);
+        removed = Arrays.copyOf(removed, capacity >>> 6);
+    }
+
+    /**
+     * Grow the trie node arrays
+     */
+    private void growNodes() {
+        int capacity = nodeChars.length * 2;
+        nodeChars = Arrays.copyOf(nodeChars, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        firstPosting = Arrays.copyOf(firstPosting, capacity);
+        wordTrigrams = Arrays.copyOf(wordTrigrams, capacity);
+        shared = Arrays.copyOf(shared, capacity);
+        sharedStamps = Arrays.copyOf(sharedStamps, capacity);
+    }
+
+    /**
+     * Get the distinct trigrams of a word padded with two spaces before and one after
+     *
+     * @param word The normalized word
+     * @return The sorted trigram codes
+     */
+    private static int[] trigrams(String word) {
+        int[] codes = new int[word.length() + 1];
+        int a = 0, b = 0;
+        for (int i = 0; i <= word.length(); i++) {
+            int c = i < word.length() ? code(word.charAt(i)) : 0;
+            codes[i] = (a * ALPHABET + b) * ALPHABET + c;
+            a = b;
+            b = c;
+        }
+        Arrays.sort(codes);
+        int distinct = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (distinct == 0 || codes[distinct - 1] != codes[i]) codes[distinct++] = codes[i];
+        }
+        return Arrays.copyOf(codes, distinct);
+    }
+
+    /**
+     * Get the trigram code of a normalized char
+     *
+     * @param c The char, a letter from a to z or a digit
+     * @return The code, from 1 to 36
+     */
+    private static int code(char c) {
+        return c >= 'a' ? c - 'a' + 1 : c - '0' + 27;
+    }
+
+    /**
+     * Split a normalized text into words
+     *
+     * @param normalized The normalized text
+     * @return The words
+     */
+    private static String[] words(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    /**
+     * Normalize a name: lower case letters from a to z and digits, with accents removed and every other char turned
+     * into a single space between words
+     *
+     * @param text The text
+     * @return The normalized text
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        char[] out = new char[text.length()];
+        int length = 0;
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(Character.toLowerCase(text.charAt(i)));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                out[length++] = c;
+                space = false;
+            } else if (!space) {
+                out[length++] = ' ';
+                space = true;
+            }
+        }
+        if (space && length > 0) length--;
+        return new String(out, 0, length);
+    }
+
+    /**
+     * Remove the accent of a lower case letter
+     *
+     * @param c The char
+     * @return The char without accent
+     */
+    private static char fold(char c) {
+        switch (c) {
+            case 'á': case 'à': case 'â': case 'ã': case 'ä': return 'a';
+            case 'é': case 'è': case 'ê': case 'ë': return 'e';
+            case 'í': case 'ì': case 'î': case 'ï': return 'i';
+            case 'ó': case 'ò': case 'ô': case 'õ': case 'ö': return 'o';
+            case 'ú': case 'ù': case 'û': case 'ü': return 'u';
+            case 'ç': return 'c';
+            case 'ñ': return 'n';
+            case 'ý': case 'ÿ': return 'y';
+            default: return c;
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package index;
+
+import model.PROGRAMA;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Index of the programs used to find the ones a volunteer can join, ranked for the program picker.
+ * <p>
+ * The program dates are kept in an interval tree: a treap ordered by start date where each node also holds the latest
+ * end date of its subtree, so the programs overlapping a period are found without looking at the subtrees that end
+ * before it or start after it. The minimum ages are kept in a sorted array, which says how many programs the volunteer
+ * is old enough for before any of them is looked at; when that is a small share of the programs they are checked
+ * directly instead of walking the tree.
+ * <p>
+ * Programs are added, replaced and removed one at a time, so the index is refreshed by the changes only.
+ * Each program also counts the languages of its volunteers. Programs where more volunteers speak the language of the
+ * new volunteer rank first, then the ones that start sooner.
+ */
+public final class ProgramIndex {
+    /** Share of the programs under which the programs of the age index are checked instead of walking the tree */
+    private static final double AGE_SCAN_SHARE = 0.25;
+    /** Number of affinity levels in a sort key */
+    private static final int AFFINITY_STEPS = 1 << 16;
+    /** Bits of the start date in a sort key, enough for any day until the year 4840 */
+    private static final int DAY_BITS = 20;
+    /** Mask of the start date in a sort key */
+    private static final long DAY_MASK = (1L << DAY_BITS) - 1;
+    /** Bits of the candidate position in a sort key */
+    private static final int POSITION_BITS = 24;
+    /** Mask of the candidate position in a sort key */
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+    /**
+     * A program in the interval tree
+     */
+    private static final class Node {
+        /** The program */
+        PROGRAMA programa;
+        /** The trimmed program type */
+        String type;
+        /** Start date, in days since the epoch */
+        final long start;
+        /** End date, in days since the epoch */
+        final long end;
+        /** Minimum age */
+        final int minAge;
+        /** Latest birth date to have the minimum age at the start, in days since the epoch */
+        final long latestBirth;
+        /** Heap priority of the treap */
+        final int priority;
+        /** Latest end date of the subtree */
+        long maxEnd;
+        /** Programs that start before, or at the same date with a smaller identifier */
+        Node left;
+        /** Programs that start after, or at the same date with a bigger identifier */
+        Node right;
+        /** Number of volunteers of the program */
+        int volunteers;
+        /** Number of volunteers of the program per normalized language */
+        HashMap<String, Integer> languages;
+
+        /**
+         * Creates a program node
+         *
+         * @param programa_ The program, with its dates set
+         * @param priority_ Heap priority of the treap
+         */
+        Node(PROGRAMA programa_, int priority_) {
+            LocalDate inicio = programa_.datainicio.toLocalDate();
+            this.programa = programa_;
+            this.type = trim(programa_.atrdiscriminante);
+            this.start = inicio.toEpochDay();
+            this.end = programa_.datafinal.toLocalDate().toEpochDay();
+            this.minAge = programa_.idademinima;
+            this.latestBirth = inicio.minusYears(programa_.idademinima).toEpochDay();
+            this.priority = priority_;
+            this.maxEnd = end;
+        }
+    }
+
+    /** Root of the interval tree. Null if empty. */
+    private Node root;
+    /** The programs by identifier */
+    private final HashMap<String, Node> programs = new HashMap<>();
+    /** Minimum age of each program, in increasing order */
+    private int[] minAges = new int[16];
+    /** Program of each element of {@link #minAges} */
+    private Node[] byAge = new Node[16];
+    /** State of the priority generator */
+    private int seed = 0x2545F491;
+
+    /**
+     * Get the number of programs in the index
+     *
+     * @return The number of programs
+     */
+    public synchronized int size() {
+        return programs.size();
+    }
+
+    /**
+     * Add a program, or replace it if a program with the same identifier is present. Programs without dates are not
+     * indexed.
+     *
+     * @param programa The program
+     * @return {@code boolean} indicating if the program was indexed
+     */
+    public synchronized boolean put(PROGRAMA programa) {
+        if (programa == null || programa.identificador == null || programa.datainicio == null || programa.datafinal == null) return false;
+        Node old = programs.get(programa.identificador);
+        if (old != null) {
+            if (old.start == programa.datainicio.toLocalDate().toEpochDay()
+                    && old.end == programa.datafinal.toLocalDate().toEpochDay()
+                    && old.minAge == programa.idademinima) {
+                old.programa = programa;
+                old.type = trim(programa.atrdiscriminante);
+                return true;
+            }
+            remove(programa.identificador);
+        }
+
+        Node node = new Node(programa, nextPriority());
+        if (old != null) {
+            node.volunteers = old.volunteers;
+            node.languages = old.languages;
+        }
+        programs.put(programa.identificador, node);
+        root = insert(root, node);
+        insertAge(node);
+        return true;
+    }
+
+    /**
+     * Remove a program
+     *
+     * @param identificador The program identifier
+     * @return {@code boolean} indicating if the program was present
+     */
+    public synchronized boolean remove(String identificador) {
+        Node node = programs.remove(identificador);
+        if (node == null) return false;
+        root = delete(root, node);
+        removeAge(node);
+        return true;
+    }
+
+    /**
+     * Bring the index up to date with a list of every program: new and changed programs are put and the programs
+     * missing from the list are removed. Programs that did not change keep their place in the tree.
+     *
+     * @param programas Every program
+     */
+    public synchronized void refresh(List<PROGRAMA> programas) {
+        HashSet<String> present = new HashSet<>();
+        for (PROGRAMA programa : programas) {
+            if (put(programa)) present.add(programa.identificador);
+        }
+        for (String identificador : new ArrayList<>(programs.keySet())) {
+            if (!present.contains(identificador)) remove(identificador);
+        }
+    }
+
+    /**
+     * Count the language of a volunteer of a program. The language may list several, separated by commas, slashes
+     * or spaces. Volunteers of programs not in the index are ignored.
+     *
+     * @param idprograma The program identifier
+     * @param idioma The volunteer language. May be null.
+     */
+    public synchronized void addVolunteer(String idprograma, String idioma) {
+        Node node = idprograma == null ? null : programs.get(idprograma);
+        if (node != null) countLanguage(node, idioma);
+    }
+
+    /**
+     * Move a volunteer to another program, taking its language from the count of the old program and counting it
+     * in the new one. Programs not in the index are ignored.
+     *
+     * @param from The old program identifier. May be null.
+     * @param to The new program identifier. May be null.
+     * @param idioma The volunteer language. May be null.
+     */
+    public synchronized void moveVolunteer(String from, String to, String idioma) {
+        Node node = from == null ? null : programs.get(from);
+        if (node != null) uncountLanguage(node, idioma);
+        addVolunteer(to, idioma);
+    }
+
+    /**
+     * Find the programs a volunteer can join: the ones that start and end within the dates the volunteer is
+     * available and whose minimum age the volunteer has at the start.
+     *
+     * @param dtnascimento The volunteer birth date
+     * @param idioma The volunteer language. May be null.
+     * @param de First day the volunteer is available
+     * @param ate Last day the volunteer is available. Null if there is no limit.
+     * @param atrdiscriminante The program type, {@code "PCD"} or {@code "PLD"}. Null for both.
+     * @return The eligible programs, those with more volunteers of the same language first, then by start date
+     */
+    public synchronized ArrayList<PROGRAMA> match(LocalDate dtnascimento, String idioma, LocalDate de, LocalDate ate, String atrdiscriminante) {
+        long from = de.toEpochDay();
+        long to = ate == null ? Long.MAX_VALUE : ate.toEpochDay();
+        long birth = dtnascimento.toEpochDay();
+        ArrayList<Node> candidates = new ArrayList<>();
+
+        // No program starts after the last available day, so the age then is the oldest the volunteer can be
+        int oldest = ate == null ? Integer.MAX_VALUE : ageAt(dtnascimento, ate);
+        int oldEnough = countMinAgesUpTo(oldest, programs.size());
+        if (oldEnough < programs.size() * AGE_SCAN_SHARE) {
+            for (int i = 0; i < oldEnough; i++) candidates.add(byAge[i]);
+        } else {
+            within(root, from, to, candidates);
+        }
+
+        // Sort by a key with the affinity, then the start date, then the candidate position
+        String[] words = languages(idioma);
+        long[] keys = new long[candidates.size()];
+        int eligible = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Node node = candidates.get(i);
+            if (node.start < from || node.end > to || birth > node.latestBirth) continue;
+            if (atrdiscriminante != null && !atrdiscriminante.equalsIgnoreCase(node.type)) continue;
+            long distance = Math.round((1 - affinity(node, words)) * AFFINITY_STEPS);
+            keys[eligible++] = distance << (DAY_BITS + POSITION_BITS) | (node.start & DAY_MASK) << POSITION_BITS | i;
+        }
+        Arrays.sort(keys, 0, eligible);
+
+        ArrayList<PROGRAMA> result = new ArrayList<>(eligible);
+        for (int i = 0; i < eligible; i++) result.add(candidates.get((int) (keys[i] & POSITION_MASK)).programa);
+        return result;
+    }
+
+    /**
+     * Collect the programs of a subtree that start and end within a period. The subtrees that end before the period
+     * or start after it are skipped, as are the programs that start before it.
+     *
+     * @param node The subtree root
+     * @param from First day of the period, in days since the epoch
+     * @param to Last day of the period, in days since the epoch
+     * @param found Where the programs are added, in start order
+     */
+    private static void within(Node node, long from, long to, ArrayList<Node> found) {
+        while (node != null && node.maxEnd >= from) {
+            if (node.start >= from) {
+                within(node.left, from, to, found);
+                if (node.start > to) return;
+                if (node.end <= to) found.add(node);
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * Get the age on a date
+     *
+     * @param dtnascimento The birth date
+     * @param date The date
+     * @return The age in whole years
+     */
+    private static int ageAt(LocalDate dtnascimento, LocalDate date) {
+        int age = date.getYear() - dtnascimento.getYear();
+        if (date.getMonthValue() < dtnascimento.getMonthValue()
+                || (date.getMonthValue() == dtnascimento.getMonthValue() && date.getDayOfMonth() < dtnascimento.getDayOfMonth())) {
+            age--;
+        }
+        return age;
+    }
+
+    /**
+     * Get the share of the volunteers of a program that speak one of the languages
+     *
+     * @param node The program
+     * @param words The normalized languages
+     * @return The highest share of a language, from 0 to 1
+     */
+    private static double affinity(Node node, String[] words) {
+        if (node.volunteers == 0 || node.languages == null) return 0;
+        int best = 0;
+        for (String word : words) {
+            Integer count = node.languages.get(word);
+            if (count != null && count > best) best = count;
+        }
+        return (double) best / node.volunteers;
+    }
+
+    /**
+     * Count a volunteer and its languages in a program
+     *
+     * @param node The program
+     * @param idioma The volunteer language. May be null.
+     */
+    private static void countLanguage(Node node, String idioma) {
+        node.volunteers++;
+        for (String word : languages(idioma)) {
+            if (node.languages == null) node.languages = new HashMap<>();
+            node.languages.merge(word, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Stop counting a volunteer of a program and its languages
+     *
+     * @param node The program
+     * @param idioma The volunteer language. May be null.
+     */
+    private static void uncountLanguage(Node node, String idioma) {
+        if (node.volunteers > 0) node.volunteers--;
+        if (node.languages == null) return;
+        for (String word : languages(idioma)) {
+            node.languages.computeIfPresent(word, (language, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Split a language field into distinct normalized languages
+     *
+     * @param idioma The language field. May be null.
+     * @return The languages, in lower case without accents
+     */
+    static String[] languages(String idioma) {
+        String normalized = NameIndex.normalize(idioma);
+        if (normalized.isEmpty()) return new String[0];
+        return Arrays.stream(normalized.split(" ")).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Trim a value that may be null
+     *
+     * @param value The value
+     * @return The trimmed value. Null if null.
+     */
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * Get the next treap priority from a xorshift generator, so the tree stays balanced whatever the insert order
+     *
+     * @return The priority
+     */
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    /**
+     * Checks if a program comes before another in the tree: earlier start, then smaller identifier
+     *
+     * @param a The program
+     * @param b The other program
+     * @return {@code boolean} indicating if {@code a} comes first
+     */
+    private static boolean before(Node a, Node b) {
+        return a.start < b.start || (a.start == b.start && a.programa.identificador.compareTo(b.programa.identificador) < 0);
+    }
+
+    /**
+     * Update the latest end date of a node from its children
+     *
+     * @param node The node
+     * @return The node
+     */
+    private static Node update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) maxEnd = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd > maxEnd) maxEnd = node.right.maxEnd;
+        node.maxEnd = maxEnd;
+        return node;
+    }
+
+    /**
+     * Rotate a subtree to the right, lifting its left child
+     *
+     * @param node The subtree root
+     * @return The new subtree root
+     */
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = update(node);
+        return update(left);
+    }
+
+    /**
+     * Rotate a subtree to the left, lifting its right child
+     *
+     * @param node The subtree root
+     * @return The new subtree root
+     */
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = update(node);
+        return update(right);
+    }
+
+    /**
+     * Insert a program into a subtree
+     *
+     * @param node The subtree root. May be null.
+     * @param added The program
+     * @return The new subtree root
+     */
+    private static Node insert(Node node, Node added) {
+        if (node == null) return added;
+        if (before(added, node)) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) return rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) return rotateLeft(node);
+        }
+        return update(node);
+    }
+
+    /**
+     * Delete a program from a subtree
+     *
+     * @param node The subtree root. May be null.
+     * @param removed The program
+     * @return The new subtree root
+     */
+    private static Node delete(Node node, Node removed) {
+        if (node == null) return null;
+        if (node == removed) {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = delete(node.right, removed);
+            } else {
+                node = rotateLeft(node);
+                node.left = delete(node.left, removed);
+            }
+        } else if (before(removed, node)) {
+            node.left = delete(node.left, removed);
+        } else {
+            node.right = delete(node.right, removed);
+        }
+        return update(node);
+    }
+
+    /**
+     * Count the programs with a minimum age up to an age
+     *
+     * @param age The age
+     * @param count Number of programs in the age index
+     * @return The number of programs, the first ones of {@link #byAge}
+     */
+    private int countMinAgesUpTo(int age, int count) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (minAges[middle] <= age) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Add a program to the age index, keeping it sorted
+     *
+     * @param node The program, already counted in {@link #programs}
+     */
+    private void insertAge(Node node) {
+        int count = programs.size() - 1;
+        if (count == minAges.length) {
+            minAges = Arrays.copyOf(minAges, count * 2);
+            byAge = Arrays.copyOf(byAge, count * 2);
+        }
+        int position = countMinAgesUpTo(node.minAge, count);
+        System.arraycopy(minAges, position, minAges, position + 1, count - position);
+        System.arraycopy(byAge, position, byAge, position + 1, count - position);
+        minAges[position] = node.minAge;
+        byAge[position] = node;
+    }
+
+    /**
+     * Remove a program from the age index
+     *
+     * @param node The program, already removed from {@link #programs}
+     */
+    private void removeAge(Node node) {
+        int count = programs.size() + 1;
+        for (int i = 0; i < count; i++) {
+            if (byAge[i] != node) continue;
+            System.arraycopy(minAges, i + 1, minAges, i, count - i - 1);
+            System.arraycopy(byAge, i + 1, byAge, i, count - i - 1);
+            byAge[count - 1] = null;
+            return;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Provides in-memory indexes over the database data, loaded at startup and kept up to date by the application, so
+ * common lookups do not need a query.
+ */
+package index;
\ No newline at end of file
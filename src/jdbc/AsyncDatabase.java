@@ -0,0 +1,241 @@
+package jdbc;
+
+import model.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous version of {@link Database}. Every operation runs in the background and returns a
+ * {@code CompletableFuture} with the result the blocking method would return, so independent queries can run at the
+ * same time and the console is not blocked while they run.
+ * <p>
+ * Operations run on virtual threads when the Java runtime has them and on a fixed pool of daemon threads otherwise.
+ * At most {@code ongd.async.maxConcurrency} operations use the database at the same time, the others wait their turn.
+ * Exceptions thrown by the blocking method complete the future exceptionally.
+ */
+public final class AsyncDatabase {
+    /** Maximum number of operations using the database at the same time */
+    private static final int MAX_CONCURRENCY = Math.max(1, Integer.getInteger("ongd.async.maxConcurrency", 10));
+    /** Permits to use the database, one per running operation */
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENCY, true);
+    /** Runs the operations */
+    private static final ExecutorService EXECUTOR = newExecutor();
+
+    /** Not instantiable */
+    private AsyncDatabase() {}
+
+    /**
+     * Create the executor of the operations. Uses {@code Executors.newVirtualThreadPerTaskExecutor()} if it exists,
+     * found by reflection so the application still runs on Java 8.
+     *
+     * @return The {@code ExecutorService}
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(MAX_CONCURRENCY, runnable -> {
+                Thread thread = new Thread(runnable, "ongd-db-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Run an operation in the background once a permit is available
+     *
+     * @param operation The blocking operation
+     * @param <T> The result type
+     * @return A {@code CompletableFuture} with the operation result
+     */
+    private static <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(() -> {
+            PERMITS.acquireUninterruptibly();
+            try {
+                return operation.get();
+            } finally {
+                PERMITS.release();
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Get the number of operations waiting for or using the database.
+     *
+     * @return The number of pending operations
+     */
+    public static int getPendingOperations() {
+        return MAX_CONCURRENCY - PERMITS.availablePermits() + PERMITS.getQueueLength();
+    }
+
+    /**
+     * Stop accepting operations. Running operations are not interrupted.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    /**
+     * @see Database#testConnection()
+     * @return A {@code CompletableFuture} with the connection info. Null if not valid.
+     */
+    public static CompletableFuture<String[]> testConnection() {
+        return submit(Database::testConnection);
+    }
+
+    /**
+     * @see Database#carregarIndices()
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> carregarIndices() {
+        return submit(Database::carregarIndices);
+    }
+
+    /**
+     * @see Database#carregarProgramas()
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> carregarProgramas() {
+        return submit(Database::carregarProgramas);
+    }
+
+    /**
+     * @see Database#listarProgramas(boolean, String)
+     * @param ativos If only active programs are listed
+     * @param filter The program type
+     * @return A {@code CompletableFuture} with the programs. Null if there was an error.
+     */
+    public static CompletableFuture<ArrayList<PROGRAMA>> listarProgramas(boolean ativos, String filter) {
+        return submit(() -> Database.listarProgramas(ativos, filter));
+    }
+
+    /**
+     * @see Database#getAreaIntervencao(String)
+     * @param codigo The area code
+     * @return A {@code CompletableFuture} with the area name. Null if there was an error.
+     */
+    public static CompletableFuture<String> getAreaIntervencao(String codigo) {
+        return submit(() -> Database.getAreaIntervencao(codigo));
+    }
+
+    /**
+     * @see Database#adicionarColaborador(COLABORADOR, SEGURO, VOLUNTARIO, ASSALARIADO, ArrayList, ArrayList)
+     * @param colaborador {@code COLABORATOR} object
+     * @param seguro {@code SEGURO} object
+     * @param voluntario {@code VOLUNTARIO} object
+     * @param assalariado {@code ASSALARIADO} object
+     * @param contactos {@code ArrayList} of {@code CONTACTO}
+     * @param contactos_emergencia {@code ArrayList} of {@code CONTACTOEMERGENCIA}
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> adicionarColaborador(
+            COLABORADOR colaborador,
+            SEGURO seguro,
+            VOLUNTARIO voluntario,
+            ASSALARIADO assalariado,
+            ArrayList<CONTACTO> contactos,
+            ArrayList<CONTACTOEMERGENCIA> contactos_emergencia
+    ) {
+        return submit(() -> Database.adicionarColaborador(colaborador, seguro, voluntario, assalariado, contactos, contactos_emergencia));
+    }
+
+    /**
+     * @see Database#adicionarColaboradores(List)
+     * @param registos {@code List} of {@link Registration} to add
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> adicionarColaboradores(List<Registration> registos) {
+        return submit(() -> Database.adicionarColaboradores(registos));
+    }
+
+    /**
+     * @see Database#registarColaborador(Registration)
+     * @param registo The {@link Registration} to add
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> registarColaborador(Registration registo) {
+        return submit(() -> Database.registarColaborador(registo));
+    }
+
+    /**
+     * @see Database#alterarProgramaVoluntario(String, String)
+     * @param nident Identification number of the volunteer
+     * @param programaId New program ID
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> alterarProgramaVoluntario(String nident, String programaId) {
+        return submit(() -> Database.alterarProgramaVoluntario(nident, programaId));
+    }
+
+    /**
+     * @see Database#cancelarProgramaCurtaDuracao(String)
+     * @param programaId ID of the program to cancel
+     * @return A {@code CompletableFuture} indicating if it was successful
+     */
+    public static CompletableFuture<Boolean> cancelarProgramaCurtaDuracao(String programaId) {
+        return submit(() -> Database.cancelarProgramaCurtaDuracao(programaId));
+    }
+
+    /**
+     * @see Database#listarColaboradores(String, int, String)
+     * @param tipoColaborador The colaborator type
+     * @param pageSize Maximum number of rows of the page
+     * @param continuationToken Token of the previous page. Null for the first page.
+     * @return A {@code CompletableFuture} with the page. Null if there was an error.
+     */
+    public static CompletableFuture<Page<COLABORADOR>> listarColaboradores(String tipoColaborador, int pageSize, String continuationToken) {
+        return submit(() -> Database.listarColaboradores(tipoColaborador, pageSize, continuationToken));
+    }
+
+    /**
+     * @see Database#listarContactos(String, String, String, int, String)
+     * @param tipo The contact type
+     * @param tempo The time filter
+     * @param filter The contact filter
+     * @param pageSize Maximum number of rows of the page
+     * @param continuationToken Token of the previous page. Null for the first page.
+     * @return A {@code CompletableFuture} with the page. Null if there was an error.
+     */
+    public static CompletableFuture<Page<CONTACTO>> listarContactos(String tipo, String tempo, String filter, int pageSize, String continuationToken) {
+        return submit(() -> Database.listarContactos(tipo, tempo, filter, pageSize, continuationToken));
+    }
+
+    /**
+     * @see Database#relatorioContactos(String, String, String)
+     * @param tipo The contact type
+     * @param tempo The time filter
+     * @param filter The contact filter
+     * @return A {@code CompletableFuture} with the report. Null if there was an error.
+     */
+    public static CompletableFuture<Report> relatorioContactos(String tipo, String tempo, String filter) {
+        return submit(() -> Database.relatorioContactos(tipo, tempo, filter));
+    }
+
+    /**
+     * @see Database#relatorioColaboradores(String)
+     * @param tipoColaborador The colaborator type
+     * @return A {@code CompletableFuture} with the report. Null if there was an error.
+     */
+    public static CompletableFuture<Report> relatorioColaboradores(String tipoColaborador) {
+        return submit(() -> Database.relatorioColaboradores(tipoColaborador));
+    }
+
+    /**
+     * @see Database#relatorioVoluntariosUltimosAnos()
+     * @return A {@code CompletableFuture} with the report. Null if there was an error.
+     */
+    public static CompletableFuture<Report> relatorioVoluntariosUltimosAnos() {
+        return submit(Database::relatorioVoluntariosUltimosAnos);
+    }
+}
@@ -0,0 +1,55 @@
+package jdbc;
+
+/**
+ * A snapshot of the statistics of a reference data cache.
+ *
+ * @see Database#getCacheStats()
+ */
+public final class CacheStats {
+    /** Name of the cache */
+    public final String name;
+    /** Number of entries currently cached */
+    public final int size;
+    /** Number of lookups answered from the cache */
+    public final long hits;
+    /** Number of lookups that went to the database */
+    public final long misses;
+    /** Number of entries removed because the cache was full */
+    public final long evictions;
+    /** Number of entries removed because they expired */
+    public final long expirations;
+    /** Number of entries removed by an explicit invalidation */
+    public final long invalidations;
+
+    /**
+     * Creates a snapshot of the cache statistics
+     *
+     * @param name_ Name of the cache
+     * @param size_ Number of cached entries
+     * @param hits_ Number of hits
+     * @param misses_ Number of misses
+     * @param evictions_ Number of evictions
+     * @param expirations_ Number of expirations
+     * @param invalidations_ Number of invalidations
+     */
+    CacheStats(String name_, int size_, long hits_, long misses_, long evictions_, long expirations_, long invalidations_) {
+        this.name = name_;
+        this.size = size_;
+        this.hits = hits_;
+        this.misses = misses_;
+        this.evictions = evictions_;
+        this.expirations = expirations_;
+        this.invalidations = invalidations_;
+    }
+
+    /**
+     * Returns a formatted {@code String} representation of the statistics.
+     *
+     * @return A formatted {@code String}
+     */
+    @Override
+    public String toString() {
+        return name + ": " + size + " entradas | " + hits + " hits, " + misses + " misses, " + evictions +
+                " evicções, " + expirations + " expiradas, " + invalidations + " invalidadas";
+    }
+}
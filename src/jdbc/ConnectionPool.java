@@ -0,0 +1,465 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of physical {@code Connection}s to the SQL server.
+ * Borrowed connections are handed out as proxies whose {@code close()} returns the physical connection to the pool
+ * instead of closing it, so the TCP, TLS and login handshake is only paid when the pool grows.
+ * Each physical connection keeps a {@link StatementCache} so prepared statements survive between borrows.
+ *
+ * @see Driver#getConnection()
+ */
+final class ConnectionPool {
+    /** Connection URL of the SQL server */
+    private final String url;
+    /** SQL server username */
+    private final String user;
+    /** SQL server password */
+    private final String password;
+    /** Minimum number of physical connections kept open */
+    private final int minSize;
+    /** Maximum number of physical connections that can be open at the same time */
+    private final int maxSize;
+    /** Maximum time to wait for a free connection, in nanoseconds */
+    private final long borrowTimeoutNanos;
+    /** Time after which an idle connection above {@link #minSize} is closed, in milliseconds */
+    private final long idleTimeoutMillis;
+    /** Time after which a connection is retired no matter its use, in milliseconds */
+    private final long maxLifetimeMillis;
+    /** Connections used more recently than this are handed out without validation, in milliseconds */
+    private final long validationBypassMillis;
+    /** Timeout given to {@code Connection.isValid}, in seconds */
+    private final int validationTimeoutSeconds;
+    /** Number of prepared statements cached per connection */
+    private final int statementCacheSize;
+
+    /** Guards every mutable field of the pool */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Signalled whenever a connection is returned or a slot becomes free */
+    private final Condition available = lock.newCondition();
+    /** Idle connections. The most recently used is at the head. */
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    /** Number of physical connections open or being opened */
+    private int total;
+    /** Whether {@link #close()} was called */
+    private boolean closed;
+
+    /** Number of successful borrows */
+    private long borrows;
+    /** Number of borrows that had to wait for a connection */
+    private long waits;
+    /** Number of borrows that timed out */
+    private long timeouts;
+    /** Number of physical connections opened */
+    private long created;
+    /** Number of physical connections closed */
+    private long destroyed;
+    /** Sum of the time spent in {@link #borrow()}, in nanoseconds */
+    private long totalWaitNanos;
+    /** Longest time spent in {@link #borrow()}, in nanoseconds */
+    private long maxWaitNanos;
+
+    /** Background thread that evicts idle and expired connections and keeps the pool at {@link #minSize} */
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * Creates a pool. Physical connections are opened lazily and by the housekeeping thread.
+     *
+     * @param url The connection URL
+     * @param user The SQL server username
+     * @param password The SQL server password
+     * @param minSize Minimum number of connections kept open
+     * @param maxSize Maximum number of connections open at the same time
+     * @param borrowTimeoutMillis Maximum time to wait for a free connection
+     * @param idleTimeoutMillis Time after which an idle connection above {@code minSize} is closed
+     * @param maxLifetimeMillis Time after which a connection is retired
+     * @param validationBypassMillis Connections used more recently than this are not validated on borrow
+     * @param validationTimeoutSeconds Timeout given to {@code Connection.isValid}
+     * @param statementCacheSize Number of prepared statements cached per connection
+     * @param housekeepingMillis Interval between housekeeping runs
+     */
+    ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                   long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                   long validationBypassMillis, int validationTimeoutSeconds, int statementCacheSize,
+                   long housekeepingMillis) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize)
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationBypassMillis = validationBypassMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 0, housekeepingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if none is idle and the pool is not full.
+     * Waits up to the borrow timeout if the pool is exhausted.
+     *
+     * @return A {@code Connection} that returns to the pool when closed
+     * @throws SQLException if the pool is closed, the wait times out or a new connection can not be opened
+     */
+    Connection borrow() throws SQLException {
+        final long start = System.nanoTime();
+        final long deadline = start + borrowTimeoutNanos;
+        boolean waited = false;
+        while (true) {
+            PooledConnection pc;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) throw new SQLException("Connection pool is closed");
+                    pc = idle.pollFirst();
+                    if (pc != null || total < maxSize) break;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new SQLTimeoutException("Timed out waiting for a connection (" + maxSize + " in use)");
+                    }
+                    waited = true;
+                    available.awaitNanos(remaining);
+                }
+                if (pc == null) total++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (pc == null) {
+                pc = open();
+            } else if (!isUsable(pc)) {
+                destroy(pc);
+                continue;
+            }
+            recordBorrow(System.nanoTime() - start, waited);
+            return pc.lease();
+        }
+    }
+
+    /**
+     * Open a new physical connection. The slot for it must already be counted in {@link #total}.
+     *
+     * @return The new {@code PooledConnection}
+     * @throws SQLException if the connection can not be opened
+     */
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection con = DriverManager.getConnection(url, user, password);
+            lock.lock();
+            try {
+                created++;
+            } finally {
+                lock.unlock();
+            }
+            return new PooledConnection(con);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if an idle connection can be handed out. Recently used connections skip the validation round trip.
+     *
+     * @param pc The connection to check
+     * @return {@code boolean} indicating if the connection can be used
+     */
+    private boolean isUsable(PooledConnection pc) {
+        long now = System.currentTimeMillis();
+        if (now - pc.createdAt >= maxLifetimeMillis) return false;
+        if (now - pc.lastUsedAt < validationBypassMillis) return true;
+        try {
+            return pc.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return a connection to the pool. Uncommitted work is rolled back and auto-commit is restored
+     * so the next borrower always gets a connection in its default state.
+     *
+     * @param pc The connection being returned
+     */
+    private void release(PooledConnection pc) {
+        pc.statements.reclaim();
+        try {
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            destroy(pc);
+            return;
+        }
+        pc.lastUsedAt = System.currentTimeMillis();
+        if (pc.lastUsedAt - pc.createdAt >= maxLifetimeMillis) {
+            destroy(pc);
+            return;
+        }
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pc);
+    }
+
+    /**
+     * Close a physical connection and free its slot in the pool.
+     *
+     * @param pc The connection to close
+     */
+    private void destroy(PooledConnection pc) {
+        pc.statements.closeAll();
+        DBUtils.closeQuietly(pc.physical);
+        lock.lock();
+        try {
+            total--;
+            destroyed++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the statistics of a successful borrow.
+     *
+     * @param waitNanos Time spent in {@link #borrow()}
+     * @param waited Whether the borrow had to wait for a connection to be returned
+     */
+    private void recordBorrow(long waitNanos, boolean waited) {
+        lock.lock();
+        try {
+            borrows++;
+            if (waited) waits++;
+            totalWaitNanos += waitNanos;
+            if (waitNanos > maxWaitNanos) maxWaitNanos = waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close idle connections that expired and open new ones until the pool is back to its minimum size.
+     */
+    private void housekeep() {
+        ArrayList<PooledConnection> expired = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            if (closed) return;
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator(); // Least recently used first
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                boolean tooOld = now - pc.createdAt >= maxLifetimeMillis;
+                boolean tooIdle = now - pc.lastUsedAt >= idleTimeoutMillis && total - expired.size() > minSize;
+                if (tooOld || tooIdle) {
+                    it.remove();
+                    expired.add(pc);
+                }
+            }
+            missing = Math.max(0, minSize - (total - expired.size()));
+            total += missing;
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pc : expired) destroy(pc);
+        for (int i = 0; i < missing; i++) {
+            try {
+                PooledConnection pc = open();
+                lock.lock();
+                try {
+                    idle.addLast(pc);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Server unreachable, or a driver failure. The slot of this connection was already given back by open().
+                // A runtime exception escaping would cancel the scheduled housekeeping, so it is only logged.
+                if (e instanceof RuntimeException) System.err.println("Falha ao abrir uma conexão do pool: " + e);
+                lock.lock();
+                try {
+                    total -= missing - i - 1;
+                    available.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of the pool usage statistics.
+     *
+     * @return A {@code PoolStats} with the current counters
+     */
+    PoolStats getStats() {
+        lock.lock();
+        try {
+            return new PoolStats(total, idle.size(), borrows, waits, timeouts, created, destroyed,
+                    borrows == 0 ? 0 : totalWaitNanos / borrows, maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the pool. Idle connections are closed immediately and borrowed ones when they are returned.
+     */
+    void close() {
+        ArrayList<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pc : toClose) destroy(pc);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        /** The physical connection to the SQL server */
+        final Connection physical;
+        /** The prepared statements cached for this connection */
+        final StatementCache statements;
+        /** Time the connection was opened */
+        final long createdAt;
+        /** Time the connection was last returned to the pool */
+        long lastUsedAt;
+
+        /**
+         * Wraps a newly opened physical connection
+         *
+         * @param physical The physical connection
+         */
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize);
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        /**
+         * Create the proxy handed to a borrower.
+         *
+         * @return A {@code Connection} proxy that returns this connection to the pool when closed
+         */
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    /**
+     * Handles the calls made to a borrowed connection. Closing it more than once is harmless
+     * and any other call after closing fails like it would on a closed physical connection.
+     * Aborting it closes the physical connection instead of returning it to the pool, for when its session
+     * state can not be restored.
+     */
+    private final class Lease implements InvocationHandler {
+        /** The pooled connection behind this lease. Null once the lease is closed. */
+        private PooledConnection pc;
+
+        /**
+         * Create a lease over a pooled connection
+         *
+         * @param pc The pooled connection
+         */
+        Lease(PooledConnection pc) { this.pc = pc; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (pc != null) {
+                        PooledConnection returned = pc;
+                        pc = null;
+                        release(returned);
+                    }
+                    return null;
+                case "abort":
+                    if (pc != null) {
+                        PooledConnection aborted = pc;
+                        pc = null;
+                        destroy(aborted);
+                    }
+                    return null;
+                case "isClosed":
+                    return pc == null || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + (pc == null ? "[closed]" : pc.physical.toString());
+            }
+            if (pc == null) throw new SQLException("Connection is closed");
+            if (method.getName().equals("prepareStatement") && args.length <= 2 && (args.length == 1 || args[1] instanceof Integer)) {
+                int autoGeneratedKeys = args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1];
+                return pc.statements.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -174,6 +174,21 @@ final class DBUtils {
         }
     }
 
+    /**
+     * Aborts a {@code Connection}, avoid aborting if null and hide
+     * any SQLExceptions that occur. A pooled connection is discarded
+     * instead of going back to the pool.
+     *
+     * @param conn Connection to abort.
+     */
+    static void abortQuietly(final Connection conn) {
+        try {
+            if (conn != null) conn.abort(Runnable::run);
+        } catch (final SQLException e) { // NOPMD
+            // quiet
+        }
+    }
+
     /**
      * Handles rollback in case of exceptions
      * @param con Connection to rollback
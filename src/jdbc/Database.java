@@ -1,49 +1,657 @@
 package jdbc;
 
+import index.Bitmap;
+import index.ColaboratorSnapshot;
+import index.ContactCache;
+import index.ContactIndex;
+import index.FilterIndex;
+import index.IdentityFilter;
+import index.NameIndex;
+import index.ProgramIndex;
 import model.*;
+import view.TableRenderer;
 import view.UI;
 
+import com.microsoft.sqlserver.jdbc.SQLServerCallableStatement;
+
+import java.nio.file.Paths;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles all actions to the SQL Database such as creation, editing or removal of information.
  */
 public class Database {
+    /** Maximum number of entries of each reference data cache */
+    private static final int CACHE_MAX_ENTRIES = Integer.getInteger("ongd.cache.maxEntries", 64);
+    /** Time to live of the reference data, in seconds */
+    private static final long CACHE_TTL_SECONDS = Long.getLong("ongd.cache.ttlSeconds", 300L);
+
+    /** Sequence the colaborator number blocks are reserved on */
+    private static final String KEYS_SEQUENCE = System.getProperty("ongd.keys.sequence", "dbo.SEQ_NOCOLABORADOR");
+    /** Number of colaborator numbers reserved at a time */
+    private static final int KEYS_BLOCK_SIZE = Integer.getInteger("ongd.keys.blockSize", 100);
+    /** Allocator of the colaborator numbers used by {@link #adicionarColaboradores(List)} */
+    private static final KeyAllocator COLABORADOR_KEYS = new KeyAllocator(KEYS_SEQUENCE, KEYS_BLOCK_SIZE);
+
+    /** SQL Server error when a stored procedure does not exist */
+    private static final int ERROR_MISSING_PROCEDURE = 2812;
+    /** SQL Server error when a parameter data type does not exist */
+    private static final int ERROR_MISSING_TYPE = 2715;
+    /** Whether the {@code registarColaborador} procedure can be used by {@link #registarColaborador(Registration)} */
+    private static volatile boolean registarColaboradorDisponivel = true;
+
+    /** Number of rows fetched per round trip by the reports, which read every row */
+    private static final int REPORT_FETCH_SIZE = Integer.getInteger("ongd.report.fetchSize", 500);
+
+    /** Number of colaborators the identity filters are sized for when they are loaded */
+    private static final int IDENTITIES_EXPECTED = Integer.getInteger("ongd.identities.expected", 100_000);
+    /** Identification numbers of every colaborator. Null until {@link #carregarIndices()} is called. */
+    private static volatile IdentityFilter nidents;
+    /** Fiscal numbers of every colaborator. Null until {@link #carregarIndices()} is called. */
+    private static volatile IdentityFilter nfiscais;
+    /** Names of every colaborator. Null until {@link #carregarIndices()} is called. */
+    private static volatile NameIndex nomes;
+    /** Number of contacts and emergency contacts the contact index is sized for when it is loaded */
+    private static final int CONTACTS_EXPECTED = Integer.getInteger("ongd.contacts.expected", 300_000);
+    /** Contacts and emergency contacts of every colaborator. Null until {@link #carregarIndices()} is called. */
+    private static volatile ContactIndex contactos;
+    /** File the contact cache is mapped from, so it is reopened after a restart. Not kept in a file if not set. */
+    private static final String CONTACT_CACHE_FILE = System.getProperty("ongd.contactCache.file");
+    /** Maximum age of a contact cache file reopened by {@link #carregarIndices()}, in minutes */
+    private static final long CONTACT_CACHE_MAX_AGE_MINUTES = Long.getLong("ongd.contactCache.maxAgeMinutes", 24 * 60L);
+    /** Contacts and emergency contacts of every colaborator, off the heap. Null until {@link #carregarIndices()} is called. */
+    private static volatile ContactCache contactCache;
+    /** Every colaborator, stored by column. Null until {@link #carregarIndices()} is called. */
+    private static volatile ColaboratorSnapshot snapshot;
+    /** Attributes of every colaborator, for the filters. Null until {@link #carregarIndices()} is called. */
+    private static volatile FilterIndex filtros;
+    /** Every program, with the languages of its volunteers. Null until {@link #carregarProgramas()} is called. */
+    private static volatile ProgramIndex programIndex;
+    /** The {@code System.nanoTime()} when {@link #programIndex} was last brought up to date */
+    private static volatile long programIndexRefreshed;
+
+    /** Metrics of {@link #testConnection} */
+    private static final OperationMetrics TEST_CONNECTION_METRICS = Metrics.operation("testConnection");
+    /** Metrics of {@link #listarProgramas} */
+    private static final OperationMetrics LISTAR_PROGRAMAS_METRICS = Metrics.operation("listarProgramas");
+    /** Metrics of {@link #getAreaIntervencao} */
+    private static final OperationMetrics GET_AREA_INTERVENCAO_METRICS = Metrics.operation("getAreaIntervencao");
+    /** Metrics of {@link #adicionarColaborador} */
+    private static final OperationMetrics ADICIONAR_COLABORADOR_METRICS = Metrics.operation("adicionarColaborador");
+    /** Metrics of {@link #adicionarColaboradores} */
+    private static final OperationMetrics ADICIONAR_COLABORADORES_METRICS = Metrics.operation("adicionarColaboradores");
+    /** Metrics of {@link #registarColaborador} */
+    private static final OperationMetrics REGISTAR_COLABORADOR_METRICS = Metrics.operation("registarColaborador");
+    /** Metrics of {@link #alterarProgramaVoluntario} */
+    private static final OperationMetrics ALTERAR_PROGRAMA_VOLUNTARIO_METRICS = Metrics.operation("alterarProgramaVoluntario");
+    /** Metrics of {@link #cancelarProgramaCurtaDuracao} */
+    private static final OperationMetrics CANCELAR_PROGRAMA_CURTA_DURACAO_METRICS = Metrics.operation("cancelarProgramaCurtaDuracao");
+    /** Metrics of {@link #apresentarContactos} */
+    private static final OperationMetrics APRESENTAR_CONTACTOS_METRICS = Metrics.operation("apresentarContactos");
+    /** Metrics of {@link #apresentarColaboradores} */
+    private static final OperationMetrics APRESENTAR_COLABORADORES_METRICS = Metrics.operation("apresentarColaboradores");
+    /** Metrics of {@link #apresentarVoluntariosUltimosAnos} */
+    private static final OperationMetrics APRESENTAR_VOLUNTARIOS_ULTIMOS_ANOS_METRICS = Metrics.operation("apresentarVoluntariosUltimosAnos");
+    /** Metrics of {@link #relatorioContactos} */
+    private static final OperationMetrics RELATORIO_CONTACTOS_METRICS = Metrics.operation("relatorioContactos");
+    /** Metrics of {@link #relatorioColaboradores} */
+    private static final OperationMetrics RELATORIO_COLABORADORES_METRICS = Metrics.operation("relatorioColaboradores");
+    /** Metrics of {@link #relatorioVoluntariosUltimosAnos} */
+    private static final OperationMetrics RELATORIO_VOLUNTARIOS_ULTIMOS_ANOS_METRICS = Metrics.operation("relatorioVoluntariosUltimosAnos");
+    /** Metrics of {@link #listarColaboradores} */
+    private static final OperationMetrics LISTAR_COLABORADORES_METRICS = Metrics.operation("listarColaboradores");
+    /** Metrics of {@link #carregarIndices} */
+    private static final OperationMetrics CARREGAR_INDICES_METRICS = Metrics.operation("carregarIndices");
+    /** Metrics of {@link #pesquisarColaboradores} */
+    private static final OperationMetrics PESQUISAR_COLABORADORES_METRICS = Metrics.operation("pesquisarColaboradores");
+    /** Metrics of {@link #filtrarColaboradores} */
+    private static final OperationMetrics FILTRAR_COLABORADORES_METRICS = Metrics.operation("filtrarColaboradores");
+    /** Metrics of {@link #carregarProgramas} */
+    private static final OperationMetrics CARREGAR_PROGRAMAS_METRICS = Metrics.operation("carregarProgramas");
+    /** Metrics of {@link #procurarProgramasElegiveis} */
+    private static final OperationMetrics PROCURAR_PROGRAMAS_ELEGIVEIS_METRICS = Metrics.operation("procurarProgramasElegiveis");
+    /** Metrics of {@link #procurarTitularContacto} */
+    private static final OperationMetrics PROCURAR_TITULAR_CONTACTO_METRICS = Metrics.operation("procurarTitularContacto");
+    /** Metrics of {@link #listarContactos} */
+    private static final OperationMetrics LISTAR_CONTACTOS_METRICS = Metrics.operation("listarContactos");
+
+    /** Cache of the program lists, keyed by the {@link #listarProgramas(boolean, String)} arguments */
+    private static final ReferenceCache<String, ArrayList<PROGRAMA>> PROGRAMAS_CACHE =
+            new ReferenceCache<>("PROGRAMA", CACHE_MAX_ENTRIES, CACHE_TTL_SECONDS);
+    /** Cache of the intervention area names, keyed by area code */
+    private static final ReferenceCache<String, String> AREAS_CACHE =
+            new ReferenceCache<>("AREAINTERVENCAO", CACHE_MAX_ENTRIES, CACHE_TTL_SECONDS);
+
     /**
      * Test the connection to the database by checking if the {@code Connection} is valid.
      *
      * @return A {@code String[]} array with some info about the connection like URL and name. Null if not valid.
      */
     public static String[] testConnection() {
+        long start = System.nanoTime();
         Connection con = Driver.getConnection();
-        if (con != null) {
-            try {
-                DatabaseMetaData dmd = con.getMetaData();
-                String[] info = new String[]{dmd.getDatabaseProductName(), dmd.getURL().split(";")[0], con.getCatalog()};
-                DBUtils.closeQuietly(con);
-                return info;
-            } catch (final SQLException e) { return null; }
+        try {
+            if (con != null) {
+                try {
+                    DatabaseMetaData dmd = con.getMetaData();
+                    String[] info = new String[]{dmd.getDatabaseProductName(), dmd.getURL().split(";")[0], con.getCatalog()};
+                    DBUtils.closeQuietly(con);
+                    return info;
+                } catch (final SQLException e) { /* Counted as an error below */ }
+            }
+            TEST_CONNECTION_METRICS.error();
+            return null;
+        } finally {
+            TEST_CONNECTION_METRICS.record(start);
+        }
+    }
+
+    /**
+     * Get the usage statistics of the connection pool.
+     *
+     * @return A {@link PoolStats} snapshot
+     */
+    public static PoolStats getPoolStats() {
+        return Driver.getPoolStats();
+    }
+
+    /**
+     * Close every pooled connection to the database. Used when the application terminates.
+     */
+    public static void shutdown() {
+        Driver.shutdown();
+        ContactCache loadedCache = contactCache;
+        if (loadedCache != null) loadedCache.close();
+    }
+
+    /**
+     * Get the statistics of the reference data caches.
+     *
+     * @return A {@link CacheStats} snapshot for each cache
+     */
+    public static CacheStats[] getCacheStats() {
+        return new CacheStats[]{PROGRAMAS_CACHE.getStats(), AREAS_CACHE.getStats()};
+    }
+
+    /**
+     * Drop all cached reference data so that the next reads go to the database.
+     */
+    public static void invalidateReferenceData() {
+        PROGRAMAS_CACHE.invalidateAll();
+        AREAS_CACHE.invalidateAll();
+    }
+
+    /**
+     * Load the identification and fiscal numbers of every colaborator into the identity filters, so duplicates can be
+     * found without a query, their names into the name index, so they can be searched by name, their contacts
+     * and emergency contacts into the contact index, so the owner of a contact can be found, their attributes
+     * into the filter index, so they can be filtered, and every column into the colaborator snapshot.
+     * Each table is read once. The contacts are also kept in the contact cache and, if the cache file set in
+     * {@code ongd.contactCache.file} was loaded recently, they are read from it instead of the database.
+     * The indexes are then kept up to date by the inserts of this application.
+     *
+     * @return {@code boolean} indicating if it was successful
+     */
+    public static boolean carregarIndices() {
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
+
+        String SELECT_INDICES = "select nocolaborador, nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada from COLABORADOR order by nocolaborador";
+        String SELECT_VOLUNTARIOS = "select nocolaborador, ocupacaoatual, idioma, idprograma from VOLUNTARIO";
+        String SELECT_ASSALARIADOS = "select nocolaborador from ASSALARIADO";
+        String SELECT_CONTACTOS = "select idtitular, noordem, contacto, descricao from CONTACTO";
+        String SELECT_CONTACTOS_EMERGENCIA = "select idtitular, noordem, contacto, grauparentesco, nome from CONTACTOEMERGENCIA";
+
+        PreparedStatement selectIndices = null;
+        PreparedStatement selectContactos = null;
+        PreparedStatement selectContactosEmergencia = null;
+        PreparedStatement selectVoluntarios = null;
+        PreparedStatement selectAssalariados = null;
+        ResultSet rs = null;
+        ContactCache loadedCache = null;
+        try {
+            IdentityFilter loadedNidents = new IdentityFilter(IDENTITIES_EXPECTED);
+            IdentityFilter loadedNfiscais = new IdentityFilter(IDENTITIES_EXPECTED);
+            NameIndex loadedNomes = new NameIndex();
+            FilterIndex loadedFiltros = new FilterIndex();
+            ColaboratorSnapshot loadedSnapshot = new ColaboratorSnapshot();
+            selectIndices = con.prepareStatement(SELECT_INDICES);
+            selectIndices.setFetchSize(REPORT_FETCH_SIZE);
+            rs = selectIndices.executeQuery();
+            RowMapper<COLABORADOR> mapper = COLABORADOR.mapper(rs.getMetaData());
+            while (rs.next()) {
+                COLABORADOR colaborador = mapper.mapRow(rs);
+                loadedNidents.add(colaborador.nident);
+                loadedNfiscais.add(colaborador.nfiscal);
+                loadedNomes.add(colaborador.nocolaborador, colaborador.nome, colaborador.apelido, colaborador.nident);
+                loadedFiltros.add(colaborador.nocolaborador, FilterIndex.NACIONALIDADE, colaborador.nacionalidade);
+                loadedFiltros.add(colaborador.nocolaborador, FilterIndex.TIPOID, String.valueOf(colaborador.tipoid));
+                loadedSnapshot.add(colaborador);
+            }
+            rs.close();
+
+            selectVoluntarios = con.prepareStatement(SELECT_VOLUNTARIOS);
+            selectVoluntarios.setFetchSize(REPORT_FETCH_SIZE);
+            rs = selectVoluntarios.executeQuery();
+            while (rs.next()) {
+                loadedFiltros.add(rs.getInt(1), FilterIndex.TIPO, FilterIndex.VOLUNTARIO);
+                loadedFiltros.add(rs.getInt(1), FilterIndex.OCUPACAO, rs.getString(2));
+                loadedFiltros.add(rs.getInt(1), FilterIndex.IDIOMA, rs.getString(3));
+                loadedFiltros.add(rs.getInt(1), FilterIndex.PROGRAMA, rs.getString(4));
+            }
+            rs.close();
+
+            selectAssalariados = con.prepareStatement(SELECT_ASSALARIADOS);
+            selectAssalariados.setFetchSize(REPORT_FETCH_SIZE);
+            rs = selectAssalariados.executeQuery();
+            while (rs.next()) loadedFiltros.add(rs.getInt(1), FilterIndex.TIPO, FilterIndex.ASSALARIADO);
+            rs.close();
+
+            ContactIndex loadedContactos = new ContactIndex(CONTACTS_EXPECTED);
+            // The previous cache keeps the file locked and stops getting the changes once replaced, so its file must
+            // not be reopened after a restart. It is not closed yet, since it is still read until it is replaced.
+            ContactCache previousCache = contactCache;
+            if (previousCache != null) previousCache.markStale();
+            if (CONTACT_CACHE_FILE != null) {
+                loadedCache = ContactCache.reopen(Paths.get(CONTACT_CACHE_FILE), TimeUnit.MINUTES.toMillis(CONTACT_CACHE_MAX_AGE_MINUTES));
+            }
+            if (loadedCache != null) {
+                loadedCache.forEachContacto(c -> loadedContactos.add(c.contacto, c.idtitular, c.noordem, c.descricao, false));
+                loadedCache.forEachContactoEmergencia(c -> loadedContactos.add(c.contacto, c.idtitular, c.noordem, c.grauparentesco, true));
+            } else {
+                // The file is locked while the previous cache or another application has it open, then direct buffers are used.
+                // The next restart creates the file again.
+                if (CONTACT_CACHE_FILE != null) loadedCache = ContactCache.create(Paths.get(CONTACT_CACHE_FILE), CONTACTS_EXPECTED);
+                if (loadedCache == null) loadedCache = new ContactCache(CONTACTS_EXPECTED);
+
+                selectContactos = con.prepareStatement(SELECT_CONTACTOS);
+                selectContactos.setFetchSize(REPORT_FETCH_SIZE);
+                rs = selectContactos.executeQuery();
+                RowMapper<CONTACTO> contactoMapper = CONTACTO.mapper(rs.getMetaData());
+                while (rs.next()) {
+                    CONTACTO contacto = contactoMapper.mapRow(rs);
+                    loadedContactos.add(contacto.contacto, contacto.idtitular, contacto.noordem, contacto.descricao, false);
+                    loadedCache.putContacto(contacto);
+                }
+                rs.close();
+
+                selectContactosEmergencia = con.prepareStatement(SELECT_CONTACTOS_EMERGENCIA);
+                selectContactosEmergencia.setFetchSize(REPORT_FETCH_SIZE);
+                rs = selectContactosEmergencia.executeQuery();
+                RowMapper<CONTACTOEMERGENCIA> contactoEmergenciaMapper = CONTACTOEMERGENCIA.mapper(rs.getMetaData());
+                while (rs.next()) {
+                    CONTACTOEMERGENCIA contacto = contactoEmergenciaMapper.mapRow(rs);
+                    loadedContactos.add(contacto.contacto, contacto.idtitular, contacto.noordem, contacto.grauparentesco, true);
+                    loadedCache.putContactoEmergencia(contacto);
+                }
+                loadedCache.markLoaded();
+            }
+
+            nidents = loadedNidents;
+            nfiscais = loadedNfiscais;
+            nomes = loadedNomes;
+            contactos = loadedContactos;
+            filtros = loadedFiltros;
+            loadedSnapshot.trimToSize();
+            snapshot = loadedSnapshot;
+            contactCache = loadedCache;
+            if (previousCache != null) previousCache.close();
+            return true;
+        } catch (SQLException e) {
+            CARREGAR_INDICES_METRICS.error();
+        } finally {
+            CARREGAR_INDICES_METRICS.record(start);
+            if (loadedCache != null && loadedCache != contactCache) loadedCache.close();
+            DBUtils.closeQuietly(selectIndices);
+            DBUtils.closeQuietly(selectContactos);
+            DBUtils.closeQuietly(selectVoluntarios);
+            DBUtils.closeQuietly(selectAssalariados);
+            DBUtils.closeQuietly(con, selectContactosEmergencia, rs);
+        }
+        return false;
+    }
+
+    /**
+     * Find the colaborators that have a contact or emergency contact, using the contact index.
+     *
+     * @param contacto The email or phone number, in any format
+     * @return A {@code List} with the owners of the contact. Null if the contacts were not loaded.
+     */
+    public static List<ContactIndex.Owner> procurarTitularContacto(String contacto) {
+        ContactIndex index = contactos;
+        if (index == null) return null;
+        long start = System.nanoTime();
+        try {
+            return index.lookup(contacto);
+        } finally {
+            PROCURAR_TITULAR_CONTACTO_METRICS.record(start);
+        }
+    }
+
+    /**
+     * Get the size and memory usage of the contact index.
+     *
+     * @return A formatted {@code String}. Null if the contacts were not loaded.
+     */
+    public static String getContactStats() {
+        ContactIndex index = contactos;
+        return index == null ? null : index.toString();
+    }
+
+    /**
+     * Get a contact from the contact cache.
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return The {@code CONTACTO}. Null if not found or the contacts were not loaded.
+     */
+    public static CONTACTO getContacto(int idtitular, int noordem) {
+        ContactCache cache = contactCache;
+        return cache == null ? null : cache.getContacto(idtitular, noordem);
+    }
+
+    /**
+     * Get an emergency contact from the contact cache.
+     *
+     * @param idtitular The colaborator number
+     * @param noordem The order number
+     * @return The {@code CONTACTOEMERGENCIA}. Null if not found or the contacts were not loaded.
+     */
+    public static CONTACTOEMERGENCIA getContactoEmergencia(int idtitular, int noordem) {
+        ContactCache cache = contactCache;
+        return cache == null ? null : cache.getContactoEmergencia(idtitular, noordem);
+    }
+
+    /**
+     * Get the size and memory usage of the contact cache.
+     *
+     * @return A formatted {@code String}. Null if the contacts were not loaded.
+     */
+    public static String getContactCacheStats() {
+        ContactCache cache = contactCache;
+        return cache == null ? null : cache.toString();
+    }
+
+    /**
+     * Find the colaborators that match a filter on their attributes, using the filter index.
+     * See {@link FilterIndex#filter(String)} for the filter syntax.
+     *
+     * @param filtro The filter, like {@code tipo=voluntario AND idioma=ingles}
+     * @return A {@code Bitmap} with the numbers of the colaborators. Null if the filter is not valid or the
+     * attributes were not loaded.
+     */
+    public static Bitmap filtrarColaboradores(String filtro) {
+        FilterIndex index = filtros;
+        if (index == null) return null;
+        long start = System.nanoTime();
+        try {
+            Bitmap result = index.filter(filtro);
+            if (result == null) FILTRAR_COLABORADORES_METRICS.error();
+            return result;
+        } finally {
+            FILTRAR_COLABORADORES_METRICS.record(start);
+        }
+    }
+
+    /**
+     * Get the most common values of an attribute in the filter index.
+     *
+     * @param atributo The attribute, one of {@link FilterIndex#ATRIBUTOS}
+     * @param limit Maximum number of values
+     * @return A {@code List} with the values. Null if the attributes were not loaded.
+     */
+    public static List<String> getValoresFiltro(String atributo, int limit) {
+        FilterIndex index = filtros;
+        if (index == null) return null;
+        List<String> values = index.values(atributo);
+        return values.subList(0, Math.min(limit, values.size()));
+    }
+
+    /**
+     * Get a colaborator from the colaborator snapshot.
+     *
+     * @param nocolaborador The colaborator number
+     * @return The {@code COLABORADOR}. Null if not found or the snapshot was not loaded.
+     */
+    public static COLABORADOR getColaborador(int nocolaborador) {
+        ColaboratorSnapshot loadedSnapshot = snapshot;
+        return loadedSnapshot == null ? null : loadedSnapshot.find(nocolaborador);
+    }
+
+    /**
+     * Get every colaborator from the colaborator snapshot. Each colaborator is read from the snapshot when accessed.
+     *
+     * @return A read-only {@code List} of {@code COLABORADOR}. Null if the snapshot was not loaded.
+     */
+    public static List<COLABORADOR> getColaboradores() {
+        ColaboratorSnapshot loadedSnapshot = snapshot;
+        return loadedSnapshot == null ? null : loadedSnapshot.view();
+    }
+
+    /**
+     * Get the size and memory usage of the colaborator snapshot.
+     *
+     * @return A formatted {@code String}. Null if the snapshot was not loaded.
+     */
+    public static String getSnapshotStats() {
+        ColaboratorSnapshot loadedSnapshot = snapshot;
+        return loadedSnapshot == null ? null : loadedSnapshot.toString();
+    }
+
+    /**
+     * Get the size and memory usage of the filter index.
+     *
+     * @return A formatted {@code String}. Null if the attributes were not loaded.
+     */
+    public static String getFilterStats() {
+        FilterIndex index = filtros;
+        return index == null ? null : index.toString();
+    }
+
+    /**
+     * Search colaborators by name, using the name index. Colaborators with a word starting with each word of the
+     * query come first, followed by the colaborators with similar names.
+     * If the names were not loaded, the colaborators whose name, last name or full name start with the query, or whose
+     * identification number is the query, are searched in the database instead.
+     *
+     * @param query The name, or the start of the name, to search
+     * @param limit Maximum number of results
+     * @return A {@code List} with the results. Null if there was an error.
+     */
+    public static List<NameIndex.Entry> pesquisarColaboradores(String query, int limit) {
+        NameIndex index = nomes;
+        if (index == null) return pesquisarColaboradoresSemIndice(query, limit);
+        long start = System.nanoTime();
+        try {
+            return index.search(query, limit);
+        } finally {
+            PESQUISAR_COLABORADORES_METRICS.record(start);
+        }
+    }
+
+    /**
+     * Search colaborators by the start of the name, or by identification number, in the database. Used when the names
+     * were not loaded.
+     *
+     * @param query The name, or the start of the name, to search
+     * @param limit Maximum number of results
+     * @return A {@code List} with the results, ordered by colaborator number. Null if there was an error.
+     */
+    private static List<NameIndex.Entry> pesquisarColaboradoresSemIndice(String query, int limit) {
+        String SELECT_COLABORADORES_POR_NOME =
+                "select top (?) nocolaborador, nome, apelido, nident from COLABORADOR " +
+                "where nident = ? OR nome LIKE ? ESCAPE '\\' OR apelido LIKE ? ESCAPE '\\' " +
+                "OR (nome + ' ' + apelido) LIKE ? ESCAPE '\\' " +
+                "order by nocolaborador";
+        // The query is a literal prefix, so the LIKE wildcards in it are escaped
+        String prefix = query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_").replace("[", "\\[") + "%";
+
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
+
+        PreparedStatement colaboradores = null;
+        ResultSet rs = null;
+        try {
+            colaboradores = con.prepareStatement(SELECT_COLABORADORES_POR_NOME);
+            colaboradores.setInt(1, limit);
+            colaboradores.setString(2, query.trim());
+            colaboradores.setString(3, prefix);
+            colaboradores.setString(4, prefix);
+            colaboradores.setString(5, prefix);
+            rs = colaboradores.executeQuery();
+
+            List<NameIndex.Entry> resultados = new ArrayList<>();
+            while (rs.next()) {
+                resultados.add(new NameIndex.Entry(rs.getInt("nocolaborador"), rs.getString("nome"),
+                        rs.getString("apelido"), rs.getString("nident"), 1));
+            }
+            return resultados;
+        } catch (SQLException e) {
+            PESQUISAR_COLABORADORES_METRICS.error();
+        } finally {
+            PESQUISAR_COLABORADORES_METRICS.record(start);
+            DBUtils.closeQuietly(con, colaboradores, rs);
         }
         return null;
     }
 
     /**
-     * Get the list of programs
+     * Checks if a colaborator with an identification number exists, using the identity filter.
+     *
+     * @param nident The identification number
+     * @return {@code boolean} indicating if it exists. False if the identities were not loaded.
+     */
+    public static boolean existeIdentificacao(String nident) {
+        IdentityFilter filter = nidents;
+        return filter != null && filter.contains(nident);
+    }
+
+    /**
+     * Checks if a colaborator with a fiscal number exists, using the identity filter.
+     *
+     * @param nfiscal The fiscal number
+     * @return {@code boolean} indicating if it exists. False if the identities were not loaded.
+     */
+    public static boolean existeNumeroFiscal(String nfiscal) {
+        IdentityFilter filter = nfiscais;
+        return filter != null && filter.contains(nfiscal);
+    }
+
+    /**
+     * Get the size and memory usage of the identity filters.
+     *
+     * @return A formatted {@code String}. Null if the identities were not loaded.
+     */
+    public static String getIdentityStats() {
+        IdentityFilter loadedNidents = nidents;
+        IdentityFilter loadedNfiscais = nfiscais;
+        if (loadedNidents == null || loadedNfiscais == null) return null;
+        return "nident: " + loadedNidents + " | nfiscal: " + loadedNfiscais;
+    }
+
+    /**
+     * Get the number of colaborators in the name index.
+     *
+     * @return The number of colaborators. -1 if the names were not loaded.
+     */
+    public static int getNameIndexSize() {
+        NameIndex index = nomes;
+        return index == null ? -1 : index.size();
+    }
+
+    /**
+     * Add inserted colaborators to the identity filters, the name index, the contact index, the contact cache, the
+     * filter index and the colaborator snapshot, and count the languages of the volunteers in the program index
+     *
+     * @param registos The inserted colaborators, with their colaborator numbers set
+     */
+    private static void adicionarAosIndices(List<Registration> registos) {
+        IdentityFilter loadedNidents = nidents;
+        IdentityFilter loadedNfiscais = nfiscais;
+        NameIndex loadedNomes = nomes;
+        ContactIndex loadedContactos = contactos;
+        ContactCache loadedCache = contactCache;
+        FilterIndex loadedFiltros = filtros;
+        ColaboratorSnapshot loadedSnapshot = snapshot;
+        ProgramIndex loadedProgramas = programIndex;
+        for (Registration registo : registos) {
+            COLABORADOR colaborador = registo.colaborador;
+            if (loadedSnapshot != null) loadedSnapshot.add(colaborador);
+            if (loadedNidents != null) loadedNidents.add(colaborador.nident);
+            if (loadedNfiscais != null) loadedNfiscais.add(colaborador.nfiscal);
+            if (loadedNomes != null) loadedNomes.add(colaborador.nocolaborador, colaborador.nome, colaborador.apelido, colaborador.nident);
+            if (loadedFiltros != null) {
+                loadedFiltros.add(colaborador.nocolaborador, FilterIndex.NACIONALIDADE, colaborador.nacionalidade);
+                loadedFiltros.add(colaborador.nocolaborador, FilterIndex.TIPOID, String.valueOf(colaborador.tipoid));
+                if (registo.voluntario != null) {
+                    loadedFiltros.add(colaborador.nocolaborador, FilterIndex.TIPO, FilterIndex.VOLUNTARIO);
+                    loadedFiltros.add(colaborador.nocolaborador, FilterIndex.OCUPACAO, registo.voluntario.ocupacaoatual);
+                    loadedFiltros.add(colaborador.nocolaborador, FilterIndex.IDIOMA, registo.voluntario.idioma);
+                    loadedFiltros.add(colaborador.nocolaborador, FilterIndex.PROGRAMA, registo.voluntario.idprograma);
+                } else {
+                    loadedFiltros.add(colaborador.nocolaborador, FilterIndex.TIPO, FilterIndex.ASSALARIADO);
+                }
+            }
+            if (loadedProgramas != null && registo.voluntario != null) {
+                loadedProgramas.addVolunteer(registo.voluntario.idprograma, registo.voluntario.idioma);
+            }
+            if (loadedCache != null) {
+                for (CONTACTO contacto : registo.contactos) loadedCache.putContacto(contacto);
+                for (CONTACTOEMERGENCIA contacto_emergencia : registo.contactos_emergencia) loadedCache.putContactoEmergencia(contacto_emergencia);
+            }
+            if (loadedContactos == null) continue;
+            for (CONTACTO contacto : registo.contactos) {
+                loadedContactos.add(contacto.contacto, contacto.idtitular, contacto.noordem, contacto.descricao, false);
+            }
+            for (CONTACTOEMERGENCIA contacto_emergencia : registo.contactos_emergencia) {
+                loadedContactos.add(contacto_emergencia.contacto, contacto_emergencia.idtitular, contacto_emergencia.noordem,
+                        contacto_emergencia.grauparentesco, true);
+            }
+        }
+    }
+
+    /**
+     * Get the list of programs. The intervention area name of each program is loaded in the same query.
+     * Lists are cached until they expire or a program is changed.
      *
      * @param ativos {@code boolean} indicating if to return only active programs
      * @param filter {@code String} filter saying if the program is short or long term
      * @return A {@code ArrayList} of {@code PROGRAMA}
      */
     public static ArrayList<PROGRAMA> listarProgramas(boolean ativos, String filter) {
+        long start = System.nanoTime();
+        // Active programs depend on the current date, so the date is part of the key
+        String cacheKey = ativos + ":" + filter + (ativos ? ":" + LocalDate.now() : "");
+        ArrayList<PROGRAMA> cached = PROGRAMAS_CACHE.get(cacheKey);
+        if (cached != null) {
+            LISTAR_PROGRAMAS_METRICS.record(start);
+            return new ArrayList<>(cached);
+        }
+
         Connection con = Driver.getConnection();
 
+        // One fixed statement per combination of arguments so the server reuses its plans
         String SELECT_ALL_PROGRAMS;
         if (ativos) {
-            SELECT_ALL_PROGRAMS = "select * from PROGRAMA where datainicio > CAST(GETDATE() AS DATE) " +
-                                        (filter != null ? ("AND atrdiscriminante = '" + filter + "'") : "");
+            SELECT_ALL_PROGRAMS = filter != null
+                    ? "select P.*, A.areasintervencao as areaintervencao from PROGRAMA P " +
+                      "left join AREAINTERVENCAO A on A.codigo = P.codigo " +
+                      "where P.datainicio > CAST(GETDATE() AS DATE) AND P.atrdiscriminante = ?"
+                    : "select P.*, A.areasintervencao as areaintervencao from PROGRAMA P " +
+                      "left join AREAINTERVENCAO A on A.codigo = P.codigo " +
+                      "where P.datainicio > CAST(GETDATE() AS DATE)";
         } else {
-            SELECT_ALL_PROGRAMS = "select * from PROGRAMA " + (filter != null ? ("where atrdiscriminante = '" + filter + "'") : "");
+            SELECT_ALL_PROGRAMS = filter != null
+                    ? "select P.*, A.areasintervencao as areaintervencao from PROGRAMA P " +
+                      "left join AREAINTERVENCAO A on A.codigo = P.codigo " +
+                      "where P.atrdiscriminante = ?"
+                    : "select P.*, A.areasintervencao as areaintervencao from PROGRAMA P " +
+                      "left join AREAINTERVENCAO A on A.codigo = P.codigo";
         }
 
         PreparedStatement listPrograms = null;
@@ -51,26 +659,113 @@ public class Database {
         ArrayList<PROGRAMA> programas = new ArrayList<>();
         try {
             listPrograms = con.prepareStatement(SELECT_ALL_PROGRAMS);
+            if (filter != null) listPrograms.setString(1, filter);
             rs = listPrograms.executeQuery();
+            RowMapper<PROGRAMA> mapper = PROGRAMA.mapper(rs.getMetaData());
             while (rs.next()) {
-                programas.add(new PROGRAMA(rs));
+                programas.add(mapper.mapRow(rs));
             }
+            PROGRAMAS_CACHE.put(cacheKey, new ArrayList<>(programas));
             return programas;
         } catch (SQLException e) {
-            // Do nothing
+            LISTAR_PROGRAMAS_METRICS.error();
         } finally {
+            LISTAR_PROGRAMAS_METRICS.record(start);
             DBUtils.closeQuietly(con, listPrograms, rs);
         }
         return null;
     }
 
     /**
-     * Get the intervention area for a certain code
+     * Load every program into the program index, with the languages of the volunteers of each one.
+     * If the index is already loaded, only the programs that were added, changed or removed since are updated, and
+     * the list of programs comes from the program cache when it is there.
+     *
+     * @return {@code boolean} indicating if it was successful
+     */
+    public static boolean carregarProgramas() {
+        long start = System.nanoTime();
+        ArrayList<PROGRAMA> todos = listarProgramas(false, null);
+        if (todos == null) {
+            CARREGAR_PROGRAMAS_METRICS.error();
+            CARREGAR_PROGRAMAS_METRICS.record(start);
+            return false;
+        }
+        ProgramIndex loaded = programIndex;
+        if (loaded != null) {
+            loaded.refresh(todos);
+            programIndexRefreshed = start;
+            CARREGAR_PROGRAMAS_METRICS.record(start);
+            return true;
+        }
+
+        Connection con = Driver.getConnection();
+
+        String SELECT_IDIOMAS = "select idprograma, idioma from VOLUNTARIO";
+
+        PreparedStatement selectIdiomas = null;
+        ResultSet rs = null;
+        try {
+            loaded = new ProgramIndex();
+            loaded.refresh(todos);
+            selectIdiomas = con.prepareStatement(SELECT_IDIOMAS);
+            selectIdiomas.setFetchSize(REPORT_FETCH_SIZE);
+            rs = selectIdiomas.executeQuery();
+            while (rs.next()) loaded.addVolunteer(rs.getString(1), rs.getString(2));
+            programIndex = loaded;
+            programIndexRefreshed = start;
+            return true;
+        } catch (SQLException e) {
+            CARREGAR_PROGRAMAS_METRICS.error();
+        } finally {
+            CARREGAR_PROGRAMAS_METRICS.record(start);
+            DBUtils.closeQuietly(con, selectIdiomas, rs);
+        }
+        return false;
+    }
+
+    /**
+     * Find the short term programs a volunteer can join, using the program index: the programs that start after today
+     * and within the dates the volunteer is available, for which the volunteer has the minimum age.
+     * The index is brought up to date first if it is older than the program cache time to live.
+     *
+     * @param dtnascimento The volunteer birth date
+     * @param idioma The volunteer language
+     * @param de First day the volunteer is available. Null for tomorrow.
+     * @param ate Last day the volunteer is available. Null if there is no limit.
+     * @return A {@code ArrayList} of {@code PROGRAMA}, the programs with more volunteers of the same language first.
+     *         Null if the programs could not be loaded.
+     */
+    public static ArrayList<PROGRAMA> procurarProgramasElegiveis(java.sql.Date dtnascimento, String idioma, LocalDate de, LocalDate ate) {
+        if (programIndex == null || System.nanoTime() - programIndexRefreshed > TimeUnit.SECONDS.toNanos(CACHE_TTL_SECONDS)) {
+            carregarProgramas();
+        }
+        ProgramIndex index = programIndex;
+        if (index == null) return null;
+        long start = System.nanoTime();
+        try {
+            LocalDate amanha = LocalDate.now().plusDays(1);
+            LocalDate inicio = de == null || de.isBefore(amanha) ? amanha : de;
+            return index.match(dtnascimento.toLocalDate(), idioma, inicio, ate, "PCD");
+        } finally {
+            PROCURAR_PROGRAMAS_ELEGIVEIS_METRICS.record(start);
+        }
+    }
+
+    /**
+     * Get the intervention area for a certain code. Area names are cached until they expire.
      *
      * @param codigo The area code {@code String}
      * @return The intervention area {@code String}
      */
     public static String getAreaIntervencao(String codigo) {
+        long start = System.nanoTime();
+        String cached = AREAS_CACHE.get(codigo);
+        if (cached != null) {
+            GET_AREA_INTERVENCAO_METRICS.record(start);
+            return cached;
+        }
+
         Connection con = Driver.getConnection();
 
         String SELECT_AREA_INTERVENCAO_WHERE_CODIGO = "select areasintervencao from AREAINTERVENCAO where codigo = ?";
@@ -84,11 +779,15 @@ public class Database {
             rs = selectAreaIntervencao.executeQuery();
 
             if (rs.next()) areaintervencao = rs.getString(1);
-            if (areaintervencao != null) return areaintervencao.trim();
-            return null;
+            if (areaintervencao != null) {
+                areaintervencao = areaintervencao.trim();
+                AREAS_CACHE.put(codigo, areaintervencao);
+            }
+            return areaintervencao;
         } catch (SQLException e) {
-            // Do nothing
+            GET_AREA_INTERVENCAO_METRICS.error();
         } finally {
+            GET_AREA_INTERVENCAO_METRICS.record(start);
             DBUtils.closeQuietly(con, selectAreaIntervencao, rs);
         }
         return null;
@@ -113,9 +812,35 @@ public class Database {
             ArrayList<CONTACTO> contactos,
             ArrayList<CONTACTOEMERGENCIA> contactos_emergencia
     ) {
+        long start = System.nanoTime();
+        Registration registo = new Registration(colaborador, seguro, voluntario, assalariado, contactos, contactos_emergencia);
+        boolean success = adicionarColaboradores(Collections.singletonList(registo));
+        if (!success) ADICIONAR_COLABORADOR_METRICS.error();
+        ADICIONAR_COLABORADOR_METRICS.record(start);
+        return success;
+    }
+
+    /**
+     * Add many colaborators to the Database in a single transaction.
+     * The colaborator numbers are taken from {@link #COLABORADOR_KEYS} so the colaborators and all their insurances,
+     * volunteers, paycheck colaborators, contacts and emergency contacts are inserted in one batch per table. A single
+     * colaborator also takes its number from the sequence: inserting through the identity column would move its seed
+     * into blocks already reserved and give duplicate numbers.
+     * If the key sequence can never be used the colaborators are inserted one by one to get their generated numbers.
+     * Other failures of the sequence fail the insert, so this process does not use the identity column while
+     * others use the sequence.
+     * If any insert fails the whole transaction is rolled back.
+     *
+     * @param registos {@code List} of {@link Registration} to add
+     * @return {@code boolean} indicating if it was successful
+     */
+    public static boolean adicionarColaboradores(List<Registration> registos) {
+        if (registos.isEmpty()) return true;
+        long start = System.nanoTime();
         Connection con = Driver.getConnection();
 
         String ADICIONAR_COLABORADOR = "insert into COLABORADOR (nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada) values (?,?,?,?,?,?,?,?)";
+        String ADICIONAR_COLABORADOR_COM_NUMERO = "insert into COLABORADOR (nome, apelido, dtnascimento, nident, tipoid, nfiscal, nacionalidade, morada, nocolaborador) values (?,?,?,?,?,?,?,?,?)";
         String ADICIONAR_SEGURO = "insert into SEGURO (data, pessoa, descricao, premio, prazo, duracao) values (?,?,?,?,?,?)";
         String ADICIONAR_VOLUNTARIO = "insert into VOLUNTARIO (nocolaborador, ocupacaoatual, idioma, idprograma) values (?,?,?,?)";
         String ADICIONAR_ASSALARIADO = "insert into ASSALARIADO (nocolaborador, cargo, vencimento) values (?,?,?)";
@@ -125,74 +850,237 @@ public class Database {
         PreparedStatement adicionarColaborador = null;
         PreparedStatement adicionarSeguro = null;
         PreparedStatement adicionarVoluntario = null;
-        PreparedStatement adicionarAssalariadoo = null;
+        PreparedStatement adicionarAssalariado = null;
         PreparedStatement adicionarContacto = null;
         PreparedStatement adicionarContactoEmergencia = null;
+        boolean identityInsert = false;
         try {
-            con.setAutoCommit(false);
-
-            adicionarColaborador = con.prepareStatement(ADICIONAR_COLABORADOR, Statement.RETURN_GENERATED_KEYS);
-            colaborador.fillInPreparedStatement(adicionarColaborador, 1);
-
-            int nocolaborador;
-            int affectedRows = adicionarColaborador.executeUpdate();
-            if (affectedRows == 0) throw new SQLException(); // Rollback if no rows were affected
-            try (ResultSet generatedKeys = adicionarColaborador.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    nocolaborador = generatedKeys.getInt(1);
-                } else throw new SQLException();
+            int[] keys = COLABORADOR_KEYS.allocate(con, registos.size());
+            if (keys != null) {
+                try {
+                    setIdentityInsert(con, "COLABORADOR", true);
+                    identityInsert = true;
+                } catch (SQLException e) {
+                    // Only fall back to the identity column if the keys can never be inserted
+                    if (!KeyAllocator.isPermanent(e)) throw e;
+                    COLABORADOR_KEYS.disable();
+                }
             }
+            con.setAutoCommit(false);
 
-            adicionarSeguro = con.prepareStatement(ADICIONAR_SEGURO);
-            seguro.setNoColaborador(nocolaborador);
-            seguro.fillInPreparedStatement(adicionarSeguro, 1);
-            adicionarSeguro.executeUpdate();
-
-            if (assalariado == null) {
-                adicionarVoluntario = con.prepareStatement(ADICIONAR_VOLUNTARIO);
-                voluntario.setNoColaborador(nocolaborador);
-                voluntario.fillInPreparedStatement(adicionarVoluntario, 1);
-                adicionarVoluntario.executeUpdate();
+            if (identityInsert) {
+                adicionarColaborador = con.prepareStatement(ADICIONAR_COLABORADOR_COM_NUMERO);
+                for (int i = 0; i < registos.size(); i++) {
+                    Registration registo = registos.get(i);
+                    registo.setNoColaborador(keys[i]);
+                    registo.colaborador.fillInPreparedStatement(adicionarColaborador, 1);
+                    adicionarColaborador.setInt(9, keys[i]);
+                    adicionarColaborador.addBatch();
+                }
+                for (int affectedRows : adicionarColaborador.executeBatch()) {
+                    if (affectedRows == 0) throw new SQLException(); // Rollback if no rows were affected
+                }
             } else {
-                adicionarAssalariadoo = con.prepareStatement(ADICIONAR_ASSALARIADO);
-                assalariado.setNoColaborador(nocolaborador);
-                assalariado.fillInPreparedStatement(adicionarAssalariadoo, 1);
-                adicionarAssalariadoo.executeUpdate();
+                adicionarColaborador = con.prepareStatement(ADICIONAR_COLABORADOR, Statement.RETURN_GENERATED_KEYS);
+                for (Registration registo : registos) {
+                    registo.colaborador.fillInPreparedStatement(adicionarColaborador, 1);
+                    int affectedRows = adicionarColaborador.executeUpdate();
+                    if (affectedRows == 0) throw new SQLException(); // Rollback if no rows were affected
+                    try (ResultSet generatedKeys = adicionarColaborador.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            registo.setNoColaborador(generatedKeys.getInt(1));
+                        } else throw new SQLException();
+                    }
+                }
             }
 
+            adicionarSeguro = con.prepareStatement(ADICIONAR_SEGURO);
+            adicionarVoluntario = con.prepareStatement(ADICIONAR_VOLUNTARIO);
+            adicionarAssalariado = con.prepareStatement(ADICIONAR_ASSALARIADO);
             adicionarContacto = con.prepareStatement(ADICIONAR_CONTACTO);
-            for (CONTACTO contacto : contactos) {
-                contacto.setNoColaborador(nocolaborador);
-                contacto.fillInPreparedStatement(adicionarContacto, 1);
-                adicionarContacto.addBatch();
-                adicionarContacto.clearParameters();
-            }
-            adicionarContacto.executeBatch();
-
             adicionarContactoEmergencia = con.prepareStatement(ADICIONAR_CONTACTO_EMERGENCIA);
-            for (CONTACTOEMERGENCIA contacto_emergencia : contactos_emergencia) {
-                contacto_emergencia.setNoColaborador(nocolaborador);
-                contacto_emergencia.fillInPreparedStatement(adicionarContactoEmergencia, 1);
-                adicionarContactoEmergencia.addBatch();
-                adicionarContactoEmergencia.clearParameters();
+            for (Registration registo : registos) {
+                registo.seguro.fillInPreparedStatement(adicionarSeguro, 1);
+                adicionarSeguro.addBatch();
+                if (registo.assalariado == null) {
+                    registo.voluntario.fillInPreparedStatement(adicionarVoluntario, 1);
+                    adicionarVoluntario.addBatch();
+                } else {
+                    registo.assalariado.fillInPreparedStatement(adicionarAssalariado, 1);
+                    adicionarAssalariado.addBatch();
+                }
+                for (CONTACTO contacto : registo.contactos) {
+                    contacto.fillInPreparedStatement(adicionarContacto, 1);
+                    adicionarContacto.addBatch();
+                }
+                for (CONTACTOEMERGENCIA contacto_emergencia : registo.contactos_emergencia) {
+                    contacto_emergencia.fillInPreparedStatement(adicionarContactoEmergencia, 1);
+                    adicionarContactoEmergencia.addBatch();
+                }
             }
+            adicionarSeguro.executeBatch();
+            adicionarVoluntario.executeBatch();
+            adicionarAssalariado.executeBatch();
+            adicionarContacto.executeBatch();
             adicionarContactoEmergencia.executeBatch();
 
             con.commit();
+            adicionarAosIndices(registos);
             return true;
         } catch (SQLException e) {
+            ADICIONAR_COLABORADORES_METRICS.error();
+            // Turn it off while the connection is still open, it is closed when rolled back
+            if (identityInsert) resetIdentityInsert(con, "COLABORADOR");
+            identityInsert = false;
             return DBUtils.handleExecuteUpdateException(con);
         } finally {
+            ADICIONAR_COLABORADORES_METRICS.record(start);
             DBUtils.closeQuietly(adicionarColaborador);
             DBUtils.closeQuietly(adicionarSeguro);
             DBUtils.closeQuietly(adicionarVoluntario);
-            DBUtils.closeQuietly(adicionarAssalariadoo);
+            DBUtils.closeQuietly(adicionarAssalariado);
             DBUtils.closeQuietly(adicionarContacto);
             DBUtils.closeQuietly(adicionarContactoEmergencia);
+            if (identityInsert) resetIdentityInsert(con, "COLABORADOR");
             DBUtils.closeQuietly(con);
         }
     }
 
+    /**
+     * Register a colaborator in a single call to the {@code registarColaborador} procedure.
+     * The colaborator, insurance, volunteer or paycheck row, contacts and emergency contacts are sent as
+     * table-valued parameters and the procedure inserts them in one transaction. The colaborator number is taken from
+     * {@link #COLABORADOR_KEYS}, as in {@link #adicionarColaboradores(List)}, so both insert numbers from one source.
+     * If the procedure is not installed, or the table-valued parameters can not be built, {@link #adicionarColaboradores(List)}
+     * is used instead.
+     *
+     * @param registo The {@link Registration} to add. Its colaborator number is set when successful.
+     * @return {@code boolean} indicating if it was successful
+     */
+    public static boolean registarColaborador(Registration registo) {
+        long start = System.nanoTime();
+        if (!registarColaboradorDisponivel) return registarColaboradorSemProcedimento(registo, start);
+        Connection con = Driver.getConnection();
+
+        String REGISTAR_COLABORADOR = "{call dbo.registarColaborador(?, ?, ?, ?, ?, ?, ?)}";
+
+        CallableStatement registarColaborador = null;
+        boolean sent = false;
+        try {
+            TableParameter colaborador = new TableParameter("dbo.TT_COLABORADOR",
+                    new String[]{"nome", "apelido", "dtnascimento", "nident", "tipoid", "nfiscal", "nacionalidade", "morada"},
+                    new int[]{Types.NVARCHAR, Types.NVARCHAR, Types.DATE, Types.NVARCHAR, Types.INTEGER, Types.NVARCHAR, Types.NVARCHAR, Types.NVARCHAR});
+            TableParameter seguro = new TableParameter("dbo.TT_SEGURO",
+                    new String[]{"data", "pessoa", "descricao", "premio", "prazo", "duracao"},
+                    new int[]{Types.DATE, Types.INTEGER, Types.NVARCHAR, Types.DECIMAL, Types.NVARCHAR, Types.INTEGER});
+            TableParameter voluntario = new TableParameter("dbo.TT_VOLUNTARIO",
+                    new String[]{"nocolaborador", "ocupacaoatual", "idioma", "idprograma"},
+                    new int[]{Types.INTEGER, Types.NVARCHAR, Types.NVARCHAR, Types.NVARCHAR});
+            TableParameter assalariado = new TableParameter("dbo.TT_ASSALARIADO",
+                    new String[]{"nocolaborador", "cargo", "vencimento"},
+                    new int[]{Types.INTEGER, Types.NVARCHAR, Types.DECIMAL});
+            TableParameter contactos = new TableParameter("dbo.TT_CONTACTO",
+                    new String[]{"idtitular", "noordem", "contacto", "descricao"},
+                    new int[]{Types.INTEGER, Types.INTEGER, Types.NVARCHAR, Types.NVARCHAR});
+            TableParameter contactos_emergencia = new TableParameter("dbo.TT_CONTACTOEMERGENCIA",
+                    new String[]{"nome", "grauparentesco", "contacto", "idtitular", "noordem"},
+                    new int[]{Types.NVARCHAR, Types.NVARCHAR, Types.NVARCHAR, Types.INTEGER, Types.INTEGER});
+
+            colaborador.addRow(ps -> registo.colaborador.fillInPreparedStatement(ps, 1));
+            seguro.addRow(ps -> registo.seguro.fillInPreparedStatement(ps, 1));
+            if (registo.assalariado == null) voluntario.addRow(ps -> registo.voluntario.fillInPreparedStatement(ps, 1));
+            else assalariado.addRow(ps -> registo.assalariado.fillInPreparedStatement(ps, 1));
+            for (CONTACTO contacto : registo.contactos) contactos.addRow(ps -> contacto.fillInPreparedStatement(ps, 1));
+            for (CONTACTOEMERGENCIA contacto_emergencia : registo.contactos_emergencia)
+                contactos_emergencia.addRow(ps -> contacto_emergencia.fillInPreparedStatement(ps, 1));
+
+            registarColaborador = con.prepareCall(REGISTAR_COLABORADOR);
+            SQLServerCallableStatement call = registarColaborador.unwrap(SQLServerCallableStatement.class);
+            colaborador.bind(call, 1);
+            seguro.bind(call, 2);
+            voluntario.bind(call, 3);
+            assalariado.bind(call, 4);
+            contactos.bind(call, 5);
+            contactos_emergencia.bind(call, 6);
+            // The procedure inserts the number with IDENTITY_INSERT, or through the identity column if the sequence can not be used
+            int[] key = COLABORADOR_KEYS.allocate(con, 1);
+            if (key != null) call.setInt(7, key[0]);
+            else call.setNull(7, Types.INTEGER);
+            call.registerOutParameter(7, Types.INTEGER);
+            long executeStart = System.nanoTime();
+            sent = true;
+            call.execute();
+            Metrics.EXECUTE.record(executeStart);
+            registo.setNoColaborador(call.getInt(7));
+            adicionarAosIndices(Collections.singletonList(registo));
+            REGISTAR_COLABORADOR_METRICS.record(start);
+            return true;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ERROR_MISSING_PROCEDURE || e.getErrorCode() == ERROR_MISSING_TYPE) {
+                registarColaboradorDisponivel = false;
+            } else if (sent && KeyAllocator.isPermanent(e)) {
+                // The number can never be inserted, the procedure rolled back and the identity column is used from now on
+                COLABORADOR_KEYS.disable();
+            } else if (sent) {
+                REGISTAR_COLABORADOR_METRICS.error();
+                REGISTAR_COLABORADOR_METRICS.record(start);
+                return false;
+            }
+        } finally {
+            DBUtils.closeQuietly(registarColaborador);
+            DBUtils.closeQuietly(con);
+        }
+        return registarColaboradorSemProcedimento(registo, start);
+    }
+
+    /**
+     * Register a colaborator with {@link #adicionarColaboradores(List)}, when the procedure can not be used.
+     *
+     * @param registo The {@link Registration} to add
+     * @param start The {@code System.nanoTime()} when {@link #registarColaborador(Registration)} was called
+     * @return {@code boolean} indicating if it was successful
+     */
+    private static boolean registarColaboradorSemProcedimento(Registration registo, long start) {
+        boolean success = adicionarColaboradores(Collections.singletonList(registo));
+        if (!success) REGISTAR_COLABORADOR_METRICS.error();
+        REGISTAR_COLABORADOR_METRICS.record(start);
+        return success;
+    }
+
+    /**
+     * Turn {@code IDENTITY_INSERT} on or off for a table so rows can be inserted with explicit identity values.
+     * The setting belongs to the session, so it must be turned off before the connection goes back to the pool.
+     *
+     * @param con The {@code Connection} to use
+     * @param table The table name
+     * @param on {@code true} to turn it on, {@code false} to turn it off
+     * @throws SQLException if it could not be set
+     */
+    private static void setIdentityInsert(Connection con, String table, boolean on) throws SQLException {
+        Statement setIdentityInsert = null;
+        try {
+            setIdentityInsert = con.createStatement();
+            setIdentityInsert.execute("set identity_insert " + table + (on ? " on" : " off"));
+        } finally {
+            DBUtils.closeQuietly(setIdentityInsert);
+        }
+    }
+
+    /**
+     * Turn {@code IDENTITY_INSERT} off for a table before the connection goes back to the pool.
+     * If it can not be turned off the connection is discarded, so the setting does not leak to the next borrower.
+     *
+     * @param con The {@code Connection} to use
+     * @param table The table name
+     */
+    private static void resetIdentityInsert(Connection con, String table) {
+        try {
+            setIdentityInsert(con, table, false);
+        } catch (SQLException e) {
+            DBUtils.abortQuietly(con);
+        }
+    }
+
     /**
      * Alters a volunteer program
      *
@@ -201,14 +1089,17 @@ public class Database {
      * @return {@code boolean} indicating if it was successful
      */
     public static boolean alterarProgramaVoluntario(String nident, String programaId) {
+        long start = System.nanoTime();
         Connection con = Driver.getConnection();
 
         String ALTERAR_PROGRAMA_VOLUNTARIO =
-                "UPDATE VOLUNTARIO SET idprograma = ? WHERE nocolaborador IN (" +
+                "UPDATE VOLUNTARIO SET idprograma = ? OUTPUT inserted.nocolaborador, deleted.idprograma, inserted.idioma " +
+                        "WHERE nocolaborador IN (" +
                         "SELECT nocolaborador FROM COLABORADOR WHERE nident = ?" +
                         ")";
 
         PreparedStatement alterarProgramaVoluntario = null;
+        ResultSet rs = null;
         try {
             con.setAutoCommit(false);
             alterarProgramaVoluntario = con.prepareStatement(ALTERAR_PROGRAMA_VOLUNTARIO);
@@ -216,176 +1107,351 @@ public class Database {
             alterarProgramaVoluntario.setString(1, programaId);
             alterarProgramaVoluntario.setString(2, nident);
 
-            alterarProgramaVoluntario.executeUpdate();
+            // The changed volunteers come back from the update, to keep the filter and program indexes up to date
+            rs = alterarProgramaVoluntario.executeQuery();
+            ArrayList<Integer> alterados = new ArrayList<>();
+            ArrayList<String> anteriores = new ArrayList<>();
+            ArrayList<String> idiomas = new ArrayList<>();
+            while (rs.next()) {
+                alterados.add(rs.getInt(1));
+                anteriores.add(rs.getString(2));
+                idiomas.add(rs.getString(3));
+            }
             con.commit();
+            FilterIndex loadedFiltros = filtros;
+            ProgramIndex loadedProgramas = programIndex;
+            for (int i = 0; i < alterados.size(); i++) {
+                if (loadedFiltros != null) loadedFiltros.set(alterados.get(i), FilterIndex.PROGRAMA, programaId);
+                if (loadedProgramas != null) loadedProgramas.moveVolunteer(anteriores.get(i), programaId, idiomas.get(i));
+            }
             return true;
         } catch (SQLException e) {
+            ALTERAR_PROGRAMA_VOLUNTARIO_METRICS.error();
             return DBUtils.handleExecuteUpdateException(con);
         } finally {
-            DBUtils.closeQuietly(con, alterarProgramaVoluntario, null);
+            ALTERAR_PROGRAMA_VOLUNTARIO_METRICS.record(start);
+            DBUtils.closeQuietly(con, alterarProgramaVoluntario, rs);
         }
     }
 
     /**
-     * Cancels a future program
+     * Cancels a future program. Its volunteers are deleted and removed from the in-memory indexes.
      *
      * @param programaId Program ID {@code String} to cancel
      * @return {@code boolean} indicating if it was successful
      */
     public static boolean cancelarProgramaCurtaDuracao(String programaId) {
+        long start = System.nanoTime();
         Connection con = Driver.getConnection();
 
-        String DELETE_VOLUNTARIOS = "delete from COLABORADOR where nocolaborador IN (SELECT nocolaborador from VOLUNTARIO where idprograma = ?)";
+        String DELETE_VOLUNTARIOS = "delete from COLABORADOR " +
+                "OUTPUT deleted.nocolaborador, deleted.nident, deleted.nfiscal " +
+                "where nocolaborador IN (SELECT nocolaborador from VOLUNTARIO where idprograma = ?)";
         String DELETE_PROGRAMA = "delete from PROGRAMA where identificador = ?";
 
         PreparedStatement deleteVoluntarios = null;
         PreparedStatement deletePrograma = null;
+        ResultSet rs = null;
         try {
             con.setAutoCommit(false);
             deleteVoluntarios = con.prepareStatement(DELETE_VOLUNTARIOS);
             deleteVoluntarios.setString(1, programaId);
-            deleteVoluntarios.executeUpdate();
+            rs = deleteVoluntarios.executeQuery();
+            Bitmap removidos = new Bitmap();
+            ArrayList<String> removidosNidents = new ArrayList<>();
+            ArrayList<String> removidosNfiscais = new ArrayList<>();
+            while (rs.next()) {
+                removidos.add(rs.getInt(1));
+                removidosNidents.add(rs.getString(2));
+                removidosNfiscais.add(rs.getString(3));
+            }
+            rs.close();
 
             deletePrograma = con.prepareStatement(DELETE_PROGRAMA);
             deletePrograma.setString(1, programaId);
             deletePrograma.executeUpdate();
 
             con.commit();
+            PROGRAMAS_CACHE.invalidateAll();
+            ProgramIndex loadedProgramas = programIndex;
+            if (loadedProgramas != null) loadedProgramas.remove(programaId);
+            FilterIndex loadedFiltros = filtros;
+            if (loadedFiltros != null) loadedFiltros.removeMatching(FilterIndex.PROGRAMA, programaId);
+            ColaboratorSnapshot loadedSnapshot = snapshot;
+            if (loadedSnapshot != null) loadedSnapshot.removeAll(removidos);
+            ContactCache loadedCache = contactCache;
+            if (loadedCache != null) loadedCache.removeAll(removidos);
+            NameIndex loadedNomes = nomes;
+            if (loadedNomes != null) loadedNomes.removeAll(removidos);
+            ContactIndex loadedContactos = contactos;
+            if (loadedContactos != null) loadedContactos.removeAll(removidos);
+            IdentityFilter loadedNidents = nidents;
+            if (loadedNidents != null) for (String nident : removidosNidents) loadedNidents.remove(nident);
+            IdentityFilter loadedNfiscais = nfiscais;
+            if (loadedNfiscais != null) for (String nfiscal : removidosNfiscais) loadedNfiscais.remove(nfiscal);
             return true;
         } catch (SQLException e) {
+            CANCELAR_PROGRAMA_CURTA_DURACAO_METRICS.error();
             return DBUtils.handleExecuteUpdateException(con);
         } finally {
+            CANCELAR_PROGRAMA_CURTA_DURACAO_METRICS.record(start);
+            DBUtils.closeQuietly(rs);
             DBUtils.closeQuietly(deleteVoluntarios);
             DBUtils.closeQuietly(deletePrograma);
             DBUtils.closeQuietly(con);
         }
     }
 
-    /**
-     * Pad right function. Fills in the right side of a string with spaces.
-     *
-     * @param s The {@code String} to pad
-     * @param n A {@code int} with the max length of the string with the pads
-     * @return The padded {@code String}
-     */
-    private static String padRight(String s, int n) { return String.format("%-" + (n > 25 ? 27 : n + 2) + "s", s); }
-
     /**
      * Formats and prints the results of a {@code ResultSet} to the console.
+     * The layout is read once from the {@code ResultSetMetaData} and rows are streamed through a {@link TableRenderer}.
+     * A failure while fetching the rows is shown and counted as an error of the operation.
      *
      * @param rs The {@code ResultSet} to print.
+     * @param metrics The metrics of the operation printing the results
      */
-    private static void printResults(ResultSet rs) {
+    private static void printResults(ResultSet rs, OperationMetrics metrics) {
         try {
             ResultSetMetaData rsmd = rs.getMetaData();
             int columnsNumber = rsmd.getColumnCount();
+            String[] labels = new String[columnsNumber];
+            int[] displaySizes = new int[columnsNumber];
+            for (int i = 1; i <= columnsNumber; i++) {
+                labels[i - 1] = rsmd.getColumnLabel(i);
+                displaySizes[i - 1] = rsmd.getColumnDisplaySize(i);
+            }
+
+            TableRenderer table = TableRenderer.console(labels, displaySizes);
             boolean isFirst = true;
-            while (rs.next()) {
-                if (isFirst) {
-                    System.out.print(view.ASCII.BV + " ");
-                    int totalPad = 0;
-                    for (int i = 1; i <= columnsNumber; i++) {
-                        int displaySize = rsmd.getColumnDisplaySize(i);
-                        totalPad += (displaySize > 25 ? 27 : displaySize + 2);
-                        System.out.print(padRight(rsmd.getColumnLabel(i), displaySize));
+            long renderNanos = 0;
+            try {
+                while (rs.next()) {
+                    long renderStart = System.nanoTime();
+                    if (isFirst) {
+                        table.writeHeader();
+                        isFirst = false;
                     }
-                    System.out.println("\n" + view.ASCII.BVR + String.format("%0" + (totalPad + 1) + "d", 0).replace("0", view.ASCII.BH.toString()));
-                    isFirst = false;
-                }
-                System.out.print(view.ASCII.BV + " ");
-                for (int i = 1; i <= columnsNumber; i++) {
-                    System.out.print(padRight(rs.getString(i), rsmd.getColumnDisplaySize(i)));
+                    table.beginRow();
+                    for (int i = 1; i <= columnsNumber; i++) table.cell(rs.getString(i));
+                    table.endRow();
+                    renderNanos += System.nanoTime() - renderStart;
                 }
-                System.out.println();
+            } finally {
+                long flushStart = System.nanoTime();
+                table.flush();
+                Metrics.RENDER.recordNanos(renderNanos + System.nanoTime() - flushStart);
             }
         } catch (SQLException e) {
-            // Do nothing
+            metrics.error();
+            UI.printASCIIError("CROSS", "Resultados incompletos. A ligação á base de dados falhou.");
         }
     }
 
     /**
-     * Get and print all contacts from the CONTACTO and CONTACTOEMERGENCIA tables.
+     * Shows the results of a {@code ResultSet} one screen at a time with {@link UI#page(String, UI.UIRowCursor)}.
+     * Rows are only fetched when the user asks for them and quitting cancels the statement.
+     * When the console is not interactive the results are printed with {@link #printResults(ResultSet, OperationMetrics)}.
+     * A failure while fetching the rows is shown and counted as an error of the operation.
      *
-     * @param tipo {@code String} with the type of contact (normal or emergency)
-     * @param tempo {@code String} time filter (last 6 months or 1 year)
-     * @param filter {@code String} contact filter to show (email, phone or both)
+     * @param statement The {@code Statement} that produced the results
+     * @param rs The {@code ResultSet} to show
+     * @param metrics The metrics of the operation showing the results
      */
-    public static void apresentarContactos(String tipo, String tempo, String filter) {
-        Connection con = Driver.getConnection();
+    private static void pageResults(final Statement statement, final ResultSet rs, final OperationMetrics metrics) {
+        if (System.console() == null) {
+            printResults(rs, metrics);
+            return;
+        }
+        try {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            final int columnsNumber = rsmd.getColumnCount();
+            String[] labels = new String[columnsNumber];
+            int[] displaySizes = new int[columnsNumber];
+            for (int i = 1; i <= columnsNumber; i++) {
+                labels[i - 1] = rsmd.getColumnLabel(i);
+                displaySizes[i - 1] = rsmd.getColumnDisplaySize(i);
+            }
 
-        String SELECT_TIPO = tipo.equals("Emergência") ? "" : "NOT";
-        String SELECT_TEMPO = tempo.equals("Nos últimos 6 meses") ? "-6" : "-12";
-        String SELECT_FILTER = "(descricao = 'email' OR descricao = 'telefone')";
-        switch (filter) {
-            case "Emails": SELECT_FILTER = "descricao = 'email'"; break;
-            case "Telefones": SELECT_FILTER = "descricao = 'telefone'"; break;
+            final TableRenderer table = new TableRenderer(labels, displaySizes, null);
+            final long[] renderNanos = new long[1];
+            UI.page(table.headerString(), new UI.UIRowCursor() {
+                /** Whether fetching a row failed */
+                private boolean failed;
+
+                @Override
+                public String nextRow() {
+                    try {
+                        if (!rs.next()) return null;
+                        long renderStart = System.nanoTime();
+                        table.beginRow();
+                        for (int i = 1; i <= columnsNumber; i++) table.cell(rs.getString(i));
+                        String row = table.rowString();
+                        renderNanos[0] += System.nanoTime() - renderStart;
+                        return row;
+                    } catch (SQLException e) {
+                        failed = true;
+                        metrics.error();
+                        return null;
+                    }
+                }
+
+                @Override
+                public boolean failed() {
+                    return failed;
+                }
+
+                @Override
+                public void cancel() {
+                    try {
+                        statement.cancel();
+                    } catch (SQLException e) {
+                        // Do nothing
+                    }
+                }
+            });
+            Metrics.RENDER.recordNanos(renderNanos[0]);
+        } catch (SQLException e) {
+            metrics.error();
+            UI.printASCIIError("CROSS", "Não foi possível obter os resultados. A ligação á base de dados falhou.");
         }
+    }
 
-        String SELECT_CONTACTOS =
+    /**
+     * Prepare the query of the contacts shown by {@link #apresentarContactos(String, String, String)}
+     *
+     * @param con The {@code Connection} to use
+     * @param tipo {@code String} with the type of contact (normal or emergency)
+     * @param tempo {@code String} time filter (last 6 months or 1 year)
+     * @param filter {@code String} contact filter to show (email, phone or both)
+     * @return The {@code PreparedStatement} with its parameters set
+     * @throws SQLException if the statement can not be prepared
+     */
+    private static PreparedStatement prepararContactos(Connection con, String tipo, String tempo, String filter) throws SQLException {
+        String SELECT_CONTACTOS_EMERGENCIA =
+                "select * from CONTACTO C " +
+                "where EXISTS (" +
+                      "select idtitular, noordem from CONTACTOEMERGENCIA CE " +
+                      "where C.idtitular = CE.idtitular AND C.noordem = CE.noordem" +
+                ") AND EXISTS (" +
+                      "select idtitular from SEGURO S " +
+                      "where C.idtitular = S.pessoa AND S.data >= dateadd(month, ?, getdate())" +
+                ") AND descricao IN (?, ?)";
+        String SELECT_CONTACTOS_NORMAIS =
                 "select * from CONTACTO C " +
-                "where " + SELECT_TIPO + " EXISTS (" +
+                "where NOT EXISTS (" +
                       "select idtitular, noordem from CONTACTOEMERGENCIA CE " +
                       "where C.idtitular = CE.idtitular AND C.noordem = CE.noordem" +
                 ") AND EXISTS (" +
                       "select idtitular from SEGURO S " +
-                      "where C.idtitular = S.pessoa AND S.data >= dateadd(month, " + SELECT_TEMPO + ", getdate())" +
-                ") AND " + SELECT_FILTER;
+                      "where C.idtitular = S.pessoa AND S.data >= dateadd(month, ?, getdate())" +
+                ") AND descricao IN (?, ?)";
+
+        String SELECT_CONTACTOS = tipo.equals("Emergência") ? SELECT_CONTACTOS_EMERGENCIA : SELECT_CONTACTOS_NORMAIS;
+        int meses = tempo.equals("Nos últimos 6 meses") ? -6 : -12;
+        String descricao1 = "email";
+        String descricao2 = "telefone";
+        switch (filter) {
+            case "Emails": descricao2 = "email"; break;
+            case "Telefones": descricao1 = "telefone"; break;
+        }
+
+        PreparedStatement contactos = con.prepareStatement(SELECT_CONTACTOS);
+        contactos.setInt(1, meses);
+        contactos.setString(2, descricao1);
+        contactos.setString(3, descricao2);
+        return contactos;
+    }
+
+    /**
+     * Get and show all contacts from the CONTACTO and CONTACTOEMERGENCIA tables, one screen at a time.
+     *
+     * @param tipo {@code String} with the type of contact (normal or emergency)
+     * @param tempo {@code String} time filter (last 6 months or 1 year)
+     * @param filter {@code String} contact filter to show (email, phone or both)
+     */
+    public static void apresentarContactos(String tipo, String tempo, String filter) {
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
 
         PreparedStatement contactos = null;
         ResultSet rs = null;
         try {
-            contactos = con.prepareStatement(SELECT_CONTACTOS);
+            contactos = prepararContactos(con, tipo, tempo, filter);
+            contactos.setFetchSize(UI.PAGE_ROWS);
             rs = contactos.executeQuery();
             if (!rs.isBeforeFirst() ) {
                 UI.printASCII("IT", "Não há contactos que satisfaçam as condições.");
                 return;
             }
-            printResults(rs);
+            pageResults(contactos, rs, APRESENTAR_CONTACTOS_METRICS);
         } catch (SQLException e) {
-            // Do nothing
+            APRESENTAR_CONTACTOS_METRICS.error();
         } finally {
+            APRESENTAR_CONTACTOS_METRICS.record(start);
             DBUtils.closeQuietly(con, contactos, rs);
         }
     }
 
     /**
-     * Get and print all colaborators from the COLABORADOR, ASSALARIADO and VOLUNTARIO tables.
+     * Prepare the query of the colaborators shown by {@link #apresentarColaboradores(String)}
      *
+     * @param con The {@code Connection} to use
      * @param tipoColaborador {@code String} Type of colaborator to show. Either "Assalariado" or "Voluntário".
+     * @return The {@code PreparedStatement}
+     * @throws SQLException if the statement can not be prepared
      */
-    public static void apresentarColaboradores(String tipoColaborador) {
-        Connection con = Driver.getConnection();
-
-        String TABLE_NAME = tipoColaborador.equals("Assalariado") ? "ASSALARIADO" : "VOLUNTARIO";
-        String SELECT_COLABORADORES =
+    private static PreparedStatement prepararColaboradores(Connection con, String tipoColaborador) throws SQLException {
+        String SELECT_ASSALARIADOS =
                 "select nocolaborador as 'Nr. Colab', nome as 'Nome', apelido as 'Apelido', dtnascimento as 'Data Nascimento' " +
                 "from COLABORADOR where nocolaborador IN (" +
-                    "select nocolaborador from " + TABLE_NAME +
+                    "select nocolaborador from ASSALARIADO" +
                 ")";
+        String SELECT_VOLUNTARIOS =
+                "select nocolaborador as 'Nr. Colab', nome as 'Nome', apelido as 'Apelido', dtnascimento as 'Data Nascimento' " +
+                "from COLABORADOR where nocolaborador IN (" +
+                    "select nocolaborador from VOLUNTARIO" +
+                ")";
+        String SELECT_COLABORADORES = tipoColaborador.equals("Assalariado") ? SELECT_ASSALARIADOS : SELECT_VOLUNTARIOS;
+
+        return con.prepareStatement(SELECT_COLABORADORES);
+    }
+
+    /**
+     * Get and show all colaborators from the COLABORADOR, ASSALARIADO and VOLUNTARIO tables, one screen at a time.
+     *
+     * @param tipoColaborador {@code String} Type of colaborator to show. Either "Assalariado" or "Voluntário".
+     */
+    public static void apresentarColaboradores(String tipoColaborador) {
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
 
         PreparedStatement colaboradores = null;
         ResultSet rs = null;
         try {
-            colaboradores = con.prepareStatement(SELECT_COLABORADORES);
+            colaboradores = prepararColaboradores(con, tipoColaborador);
+            colaboradores.setFetchSize(UI.PAGE_ROWS);
             rs = colaboradores.executeQuery();
             if (!rs.isBeforeFirst() ) {
                 UI.printASCII("IT", "Não existem colaboradores para apresentar.");
                 return;
             }
-            printResults(rs);
+            pageResults(colaboradores, rs, APRESENTAR_COLABORADORES_METRICS);
         } catch (SQLException e) {
-            // Do nothing
+            APRESENTAR_COLABORADORES_METRICS.error();
         } finally {
+            APRESENTAR_COLABORADORES_METRICS.record(start);
             DBUtils.closeQuietly(con, colaboradores, rs);
         }
     }
 
     /**
-     * Get and print all volunteers under 30 and the have been in a program in the last 3 years
+     * Prepare the query of the volunteers shown by {@link #apresentarVoluntariosUltimosAnos()}
+     *
+     * @param con The {@code Connection} to use
+     * @return The {@code PreparedStatement}
+     * @throws SQLException if the statement can not be prepared
      */
-    public static void apresentarVoluntariosUltimosAnos()  {
-        Connection con = Driver.getConnection();
-
+    private static PreparedStatement prepararVoluntariosUltimosAnos(Connection con) throws SQLException {
         String SELECT_VOLUNTARIOS_ULTIMOS_ANOS =
                 "SELECT nome as 'Nome', apelido as 'Apelido' " +
                 "FROM COLABORADOR " +
@@ -396,20 +1462,248 @@ public class Database {
                         "WHERE (datafinal < GETDATE() AND YEAR(datafinal) > YEAR(GETDATE()) - 3))" +
                 ") AND CAST(YEAR(GETDATE()) - YEAR(dtnascimento) as int) <= 30";
 
+        return con.prepareStatement(SELECT_VOLUNTARIOS_ULTIMOS_ANOS);
+    }
+
+    /**
+     * Get and show all volunteers under 30 and the have been in a program in the last 3 years, one screen at a time.
+     */
+    public static void apresentarVoluntariosUltimosAnos()  {
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
+
         PreparedStatement voluntariosUltimosAnos = null;
         ResultSet rs = null;
         try {
-            voluntariosUltimosAnos = con.prepareStatement(SELECT_VOLUNTARIOS_ULTIMOS_ANOS);
+            voluntariosUltimosAnos = prepararVoluntariosUltimosAnos(con);
+            voluntariosUltimosAnos.setFetchSize(UI.PAGE_ROWS);
             rs = voluntariosUltimosAnos.executeQuery();
             if (!rs.isBeforeFirst() ) {
                 UI.printASCII("IT", "Não há voluntários que satisfaçam as condições.");
                 return;
             }
-            printResults(rs);
+            pageResults(voluntariosUltimosAnos, rs, APRESENTAR_VOLUNTARIOS_ULTIMOS_ANOS_METRICS);
         } catch (SQLException e) {
-            // Do nothing
+            APRESENTAR_VOLUNTARIOS_ULTIMOS_ANOS_METRICS.error();
         } finally {
+            APRESENTAR_VOLUNTARIOS_ULTIMOS_ANOS_METRICS.record(start);
             DBUtils.closeQuietly(con, voluntariosUltimosAnos, rs);
         }
     }
+
+    /**
+     * Interface used to represent the preparation of a report query
+     */
+    private interface ReportQuery { PreparedStatement prepare(Connection con) throws SQLException; }
+
+    /**
+     * Run a report query on its own connection and read all its rows into a {@link Report}.
+     *
+     * @param title The report title
+     * @param metrics The metrics of the report operation
+     * @param query Prepares the report query
+     * @return The {@link Report}. Null if there was an error.
+     */
+    private static Report relatorio(String title, OperationMetrics metrics, ReportQuery query) {
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
+
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = query.prepare(con);
+            statement.setFetchSize(REPORT_FETCH_SIZE);
+            rs = statement.executeQuery();
+            return Report.read(title, rs, start);
+        } catch (SQLException e) {
+            metrics.error();
+        } finally {
+            metrics.record(start);
+            DBUtils.closeQuietly(con, statement, rs);
+        }
+        return null;
+    }
+
+    /**
+     * Get the contacts shown by {@link #apresentarContactos(String, String, String)} as a {@link Report}
+     *
+     * @param tipo {@code String} with the type of contact (normal or emergency)
+     * @param tempo {@code String} time filter (last 6 months or 1 year)
+     * @param filter {@code String} contact filter to show (email, phone or both)
+     * @return The {@link Report}. Null if there was an error.
+     */
+    public static Report relatorioContactos(String tipo, String tempo, String filter) {
+        return relatorio("Contactos: " + tipo + ", " + tempo + ", " + filter, RELATORIO_CONTACTOS_METRICS,
+                con -> prepararContactos(con, tipo, tempo, filter));
+    }
+
+    /**
+     * Get the colaborators shown by {@link #apresentarColaboradores(String)} as a {@link Report}
+     *
+     * @param tipoColaborador {@code String} Type of colaborator. Either "Assalariado" or "Voluntário".
+     * @return The {@link Report}. Null if there was an error.
+     */
+    public static Report relatorioColaboradores(String tipoColaborador) {
+        return relatorio("Colaboradores: " + tipoColaborador, RELATORIO_COLABORADORES_METRICS,
+                con -> prepararColaboradores(con, tipoColaborador));
+    }
+
+    /**
+     * Get the volunteers shown by {@link #apresentarVoluntariosUltimosAnos()} as a {@link Report}
+     *
+     * @return The {@link Report}. Null if there was an error.
+     */
+    public static Report relatorioVoluntariosUltimosAnos() {
+        return relatorio("Voluntários com menos de 30 anos nos últimos 3 anos", RELATORIO_VOLUNTARIOS_ULTIMOS_ANOS_METRICS,
+                Database::prepararVoluntariosUltimosAnos);
+    }
+
+    /**
+     * Get a page of colaborators, ordered by colaborator number.
+     * Pages are keyed on {@code nocolaborador} so every page is a short indexed seek no matter how deep it is.
+     *
+     * @param tipoColaborador {@code String} Type of colaborator to list. Either "Assalariado" or "Voluntário".
+     * @param pageSize Maximum number of colaborators in the page
+     * @param continuationToken Token of the previous page. Null for the first page.
+     * @return A {@link Page} of {@code COLABORADOR}. Null if there was an error.
+     * @throws IllegalArgumentException if the page size is not positive or the token is invalid
+     */
+    public static Page<COLABORADOR> listarColaboradores(String tipoColaborador, int pageSize, String continuationToken) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        // The token names the listing and its type, so the token of another listing is rejected
+        String listing = tipoColaborador.equals("Assalariado") ? "COLABORADOR/ASSALARIADO" : "COLABORADOR/VOLUNTARIO";
+        int after = continuationToken == null ? Integer.MIN_VALUE : Page.decodeToken(listing, 1, continuationToken)[0];
+
+        String SELECT_PAGE_ASSALARIADOS =
+                "select top (?) C.* from COLABORADOR C " +
+                "where C.nocolaborador > ? AND C.nocolaborador IN (select nocolaborador from ASSALARIADO) " +
+                "order by C.nocolaborador";
+        String SELECT_PAGE_VOLUNTARIOS =
+                "select top (?) C.* from COLABORADOR C " +
+                "where C.nocolaborador > ? AND C.nocolaborador IN (select nocolaborador from VOLUNTARIO) " +
+                "order by C.nocolaborador";
+
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
+
+        PreparedStatement colaboradores = null;
+        ResultSet rs = null;
+        try {
+            colaboradores = con.prepareStatement(listing.equals("COLABORADOR/ASSALARIADO") ? SELECT_PAGE_ASSALARIADOS : SELECT_PAGE_VOLUNTARIOS);
+            colaboradores.setFetchSize(pageSize + 1);
+            colaboradores.setInt(1, pageSize + 1); // One more row tells if there is a next page
+            colaboradores.setInt(2, after);
+            rs = colaboradores.executeQuery();
+
+            RowMapper<COLABORADOR> mapper = COLABORADOR.mapper(rs.getMetaData());
+            List<COLABORADOR> rows = new ArrayList<>(pageSize);
+            boolean hasNext = false;
+            while (rs.next()) {
+                if (rows.size() == pageSize) {
+                    hasNext = true;
+                    break;
+                }
+                rows.add(mapper.mapRow(rs));
+            }
+            String token = hasNext ? Page.encodeToken(listing, rows.get(rows.size() - 1).nocolaborador) : null;
+            return new Page<>(rows, token);
+        } catch (SQLException e) {
+            LISTAR_COLABORADORES_METRICS.error();
+        } finally {
+            LISTAR_COLABORADORES_METRICS.record(start);
+            DBUtils.closeQuietly(con, colaboradores, rs);
+        }
+        return null;
+    }
+
+    /**
+     * Get a page of the contacts shown by {@link #apresentarContactos(String, String, String)}, ordered by owner and order number.
+     * Pages are keyed on ({@code idtitular}, {@code noordem}) so every page is a short indexed seek no matter how deep it is.
+     *
+     * @param tipo {@code String} with the type of contact (normal or emergency)
+     * @param tempo {@code String} time filter (last 6 months or 1 year)
+     * @param filter {@code String} contact filter to show (email, phone or both)
+     * @param pageSize Maximum number of contacts in the page
+     * @param continuationToken Token of the previous page. Null for the first page.
+     * @return A {@link Page} of {@code CONTACTO}. Null if there was an error.
+     * @throws IllegalArgumentException if the page size is not positive or the token is invalid
+     */
+    public static Page<CONTACTO> listarContactos(String tipo, String tempo, String filter, int pageSize, String continuationToken) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+
+        String SELECT_PAGE_CONTACTOS_EMERGENCIA =
+                "select top (?) C.* from CONTACTO C " +
+                "where EXISTS (" +
+                      "select idtitular, noordem from CONTACTOEMERGENCIA CE " +
+                      "where C.idtitular = CE.idtitular AND C.noordem = CE.noordem" +
+                ") AND EXISTS (" +
+                      "select idtitular from SEGURO S " +
+                      "where C.idtitular = S.pessoa AND S.data >= dateadd(month, ?, getdate())" +
+                ") AND descricao IN (?, ?) " +
+                "AND C.idtitular >= ? AND (C.idtitular > ? OR C.noordem > ?) " +
+                "order by C.idtitular, C.noordem";
+        String SELECT_PAGE_CONTACTOS_NORMAIS =
+                "select top (?) C.* from CONTACTO C " +
+                "where NOT EXISTS (" +
+                      "select idtitular, noordem from CONTACTOEMERGENCIA CE " +
+                      "where C.idtitular = CE.idtitular AND C.noordem = CE.noordem" +
+                ") AND EXISTS (" +
+                      "select idtitular from SEGURO S " +
+                      "where C.idtitular = S.pessoa AND S.data >= dateadd(month, ?, getdate())" +
+                ") AND descricao IN (?, ?) " +
+                "AND C.idtitular >= ? AND (C.idtitular > ? OR C.noordem > ?) " +
+                "order by C.idtitular, C.noordem";
+
+        int meses = tempo.equals("Nos últimos 6 meses") ? -6 : -12;
+        String descricao1 = "email";
+        String descricao2 = "telefone";
+        switch (filter) {
+            case "Emails": descricao2 = "email"; break;
+            case "Telefones": descricao1 = "telefone"; break;
+        }
+        boolean emergencia = tipo.equals("Emergência");
+        // The token names the listing and its filters, so the token of another listing is rejected
+        String listing = "CONTACTO/" + (emergencia ? "EMERGENCIA" : "NORMAL") + "/" + meses + "/" + descricao1 + "," + descricao2;
+        int[] after = continuationToken == null
+                ? new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE}
+                : Page.decodeToken(listing, 2, continuationToken);
+
+        long start = System.nanoTime();
+        Connection con = Driver.getConnection();
+
+        PreparedStatement contactos = null;
+        ResultSet rs = null;
+        try {
+            contactos = con.prepareStatement(emergencia ? SELECT_PAGE_CONTACTOS_EMERGENCIA : SELECT_PAGE_CONTACTOS_NORMAIS);
+            contactos.setFetchSize(pageSize + 1);
+            contactos.setInt(1, pageSize + 1); // One more row tells if there is a next page
+            contactos.setInt(2, meses);
+            contactos.setString(3, descricao1);
+            contactos.setString(4, descricao2);
+            contactos.setInt(5, after[0]);
+            contactos.setInt(6, after[0]);
+            contactos.setInt(7, after[1]);
+            rs = contactos.executeQuery();
+
+            RowMapper<CONTACTO> mapper = CONTACTO.mapper(rs.getMetaData());
+            List<CONTACTO> rows = new ArrayList<>(pageSize);
+            boolean hasNext = false;
+            while (rs.next()) {
+                if (rows.size() == pageSize) {
+                    hasNext = true;
+                    break;
+                }
+                rows.add(mapper.mapRow(rs));
+            }
+            CONTACTO last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            String token = hasNext ? Page.encodeToken(listing, last.idtitular, last.noordem) : null;
+            return new Page<>(rows, token);
+        } catch (SQLException e) {
+            LISTAR_CONTACTOS_METRICS.error();
+        } finally {
+            LISTAR_CONTACTOS_METRICS.record(start);
+            DBUtils.closeQuietly(con, contactos, rs);
+        }
+        return null;
+    }
 }
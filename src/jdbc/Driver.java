@@ -1,10 +1,14 @@
 package jdbc;
 
-import java.sql.DriverManager;
 import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 
 /**
  * Handles connection with database by creating a {@code Connection} with the SQL server info given.
+ * Connections are taken from a bounded {@link ConnectionPool} and return to it when closed.
+ * The pool can be tuned with the {@code ongd.pool.*} system properties, and the server details replaced with the
+ * {@code ongd.db.url}, {@code ongd.db.user} and {@code ongd.db.password} system properties.
  *
  * @see java.sql.Connection
  */
@@ -21,29 +25,108 @@ class Driver {
     private static final String USER_NAME = "*";
     /** SQL server password */
     private static final String PASSWORD = "*";
+    /** Connection URL that replaces the one built from the server details, for example to use a test database */
+    private static final String URL_OVERRIDE = System.getProperty("ongd.db.url");
+    /** Username used to connect, {@link #USER_NAME} unless replaced */
+    private static final String LOGIN_USER_NAME = System.getProperty("ongd.db.user", USER_NAME);
+    /** Password used to connect, {@link #PASSWORD} unless replaced */
+    private static final String LOGIN_PASSWORD = System.getProperty("ongd.db.password", PASSWORD);
+
+    /** Minimum number of connections kept open by the pool */
+    private static final int POOL_MIN_SIZE = Integer.getInteger("ongd.pool.minSize", 1);
+    /** Maximum number of connections open at the same time */
+    private static final int POOL_MAX_SIZE = Integer.getInteger("ongd.pool.maxSize", 10);
+    /** Maximum time to wait for a free connection, in milliseconds */
+    private static final long POOL_BORROW_TIMEOUT = Long.getLong("ongd.pool.borrowTimeoutMillis", 30_000L);
+    /** Time after which an idle connection above the minimum size is closed, in milliseconds */
+    private static final long POOL_IDLE_TIMEOUT = Long.getLong("ongd.pool.idleTimeoutMillis", 600_000L);
+    /** Time after which a connection is closed and replaced, in milliseconds */
+    private static final long POOL_MAX_LIFETIME = Long.getLong("ongd.pool.maxLifetimeMillis", 1_800_000L);
+    /** Connections used more recently than this are not validated on borrow, in milliseconds */
+    private static final long POOL_VALIDATION_BYPASS = Long.getLong("ongd.pool.validationBypassMillis", 500L);
+    /** Timeout of the validation done on borrow, in seconds */
+    private static final int POOL_VALIDATION_TIMEOUT = Integer.getInteger("ongd.pool.validationTimeoutSeconds", 5);
+    /** Number of prepared statements cached per connection */
+    private static final int POOL_STATEMENT_CACHE_SIZE = Integer.getInteger("ongd.pool.statementCacheSize", 32);
+    /** Interval between idle eviction runs, in milliseconds */
+    private static final long POOL_HOUSEKEEPING_INTERVAL = Long.getLong("ongd.pool.housekeepingMillis", 30_000L);
+
+    /** The connection pool. Created on first use. */
+    private static ConnectionPool pool;
 
     /**
-     * Get the full connection URL for the SQL server
+     * Get the full connection URL for the SQL server. The {@code ongd.db.url} system property replaces it if set.
      *
      * @return The {@code String} URL
      */
     private static String getConnectionUrl() {
+        if (URL_OVERRIDE != null) return URL_OVERRIDE;
         return URL + SERVER_IP + ":" + SERVER_PORT + ";databaseName=" + DB_NAME;
     }
 
     /**
-     * Create a {@code Connection} for the current SQL server
+     * Get or create the connection pool
      *
-     * @return The {@code Connection} created. Null if not a valid {@code Connection}.
+     * @return The {@link ConnectionPool}
+     */
+    private static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(getConnectionUrl(), LOGIN_USER_NAME, LOGIN_PASSWORD, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                    POOL_BORROW_TIMEOUT, POOL_IDLE_TIMEOUT, POOL_MAX_LIFETIME,
+                    POOL_VALIDATION_BYPASS, POOL_VALIDATION_TIMEOUT, POOL_STATEMENT_CACHE_SIZE,
+                    POOL_HOUSEKEEPING_INTERVAL);
+        }
+        return pool;
+    }
+
+    /**
+     * Get a {@code Connection} to the current SQL server from the pool.
+     * Closing it returns it to the pool.
+     *
+     * @return The {@code Connection}. Null if no valid {@code Connection} could be obtained.
      */
     static Connection getConnection() {
+        long start = System.nanoTime();
         try {
-            Connection con = DriverManager.getConnection(getConnectionUrl(), USER_NAME, PASSWORD);
+            Connection con = getPool().borrow();
             if (con != null) return con;
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println("Error Trace in getConnection() : " + e.getMessage());
+        } finally {
+            Metrics.ACQUIRE.record(start);
         }
+        Metrics.ACQUIRE.error();
         return null;
     }
+
+    /**
+     * Open a new {@code Connection} outside the pool. Used for work that changes session settings.
+     * The caller must close it.
+     *
+     * @return The {@code Connection}
+     * @throws SQLException if the connection can not be opened
+     */
+    static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(getConnectionUrl(), LOGIN_USER_NAME, LOGIN_PASSWORD);
+    }
+
+    /**
+     * Get the connection pool usage statistics
+     *
+     * @return A {@link PoolStats} snapshot
+     */
+    static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Close the connection pool and every idle connection in it
+     */
+    static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hands out keys from blocks reserved on a database sequence, so many rows can be inserted with known keys
+ * without a round trip per row to read the generated one.
+ * <p>
+ * A block of keys is reserved with {@code sys.sp_sequence_get_range} and the keys are handed out in memory until the
+ * block runs out. Keys of a block that is not used to the end are lost, so keys can have gaps.
+ * If the sequence can not be used (it does not exist or there is no permission) the allocator disables itself and
+ * callers fall back to the identity column. Other failures, like a dropped connection, are retried and then reported
+ * to the caller without disabling it, since inserting through the identity column while other processes insert keys
+ * from the sequence makes the two collide.
+ */
+final class KeyAllocator {
+    /** Reserves a range of values on a sequence and returns the first one */
+    private static final String GET_RANGE =
+            "set nocount on; " +
+            "declare @first sql_variant; " +
+            "exec sys.sp_sequence_get_range @sequence_name = ?, @range_size = ?, @range_first_value = @first output; " +
+            "select cast(@first as int)";
+
+    /** SQL Server error when an object does not exist */
+    private static final int ERROR_INVALID_OBJECT = 208;
+    /** SQL Server error when a permission is denied on an object */
+    private static final int ERROR_PERMISSION_DENIED = 229;
+    /** SQL Server error when {@code IDENTITY_INSERT} can not be set on a table */
+    private static final int ERROR_IDENTITY_INSERT_DENIED = 1088;
+    /** SQL Server error when an object does not exist or there is no permission on it */
+    private static final int ERROR_OBJECT_NOT_FOUND = 15151;
+    /** Number of times a block is reserved before a failure is reported */
+    private static final int RESERVE_ATTEMPTS = 3;
+
+    /** Name of the sequence the blocks are reserved on */
+    private final String sequence;
+    /** Number of keys reserved at a time */
+    private final int blockSize;
+    /** Next key to hand out */
+    private int next;
+    /** Number of keys left in the current block */
+    private int remaining;
+    /** Whether the sequence can be used */
+    private boolean enabled = true;
+
+    /**
+     * Creates a key allocator
+     *
+     * @param sequence The sequence name, optionally with the schema
+     * @param blockSize Number of keys reserved at a time
+     */
+    KeyAllocator(String sequence, int blockSize) {
+        this.sequence = sequence;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Checks if keys can still be allocated from the sequence
+     *
+     * @return {@code boolean} indicating if the allocator is enabled
+     */
+    synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stop allocating keys. Used when the keys can not be inserted, for example when {@code IDENTITY_INSERT}
+     * is not allowed.
+     */
+    synchronized void disable() {
+        enabled = false;
+        remaining = 0;
+    }
+
+    /**
+     * Checks if an error means the keys can never be allocated or inserted, like a missing sequence or a denied
+     * permission, rather than a failure that may not happen again.
+     *
+     * @param e The error
+     * @return {@code boolean} indicating if the allocator should be disabled
+     */
+    static boolean isPermanent(SQLException e) {
+        switch (e.getErrorCode()) {
+            case ERROR_INVALID_OBJECT:
+            case ERROR_PERMISSION_DENIED:
+            case ERROR_IDENTITY_INSERT_DENIED:
+            case ERROR_OBJECT_NOT_FOUND:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Allocate a number of keys, reserving new blocks on the sequence as needed.
+     * The allocator is disabled if the sequence can never be used.
+     *
+     * @param con The {@code Connection} used to reserve new blocks
+     * @param count Number of keys to allocate
+     * @return The allocated keys, in ascending order. Null if the allocator is disabled.
+     * @throws SQLException if a block could not be reserved for another reason, after retrying
+     */
+    synchronized int[] allocate(Connection con, int count) throws SQLException {
+        if (!enabled) return null;
+        int[] keys = new int[count];
+        int filled = 0;
+        while (filled < count) {
+            if (remaining == 0 && !reserve(con, Math.max(blockSize, count - filled))) {
+                disable();
+                return null;
+            }
+            int take = Math.min(remaining, count - filled);
+            for (int i = 0; i < take; i++) keys[filled++] = next++;
+            remaining -= take;
+        }
+        return keys;
+    }
+
+    /**
+     * Reserve a new block of keys on the sequence, trying again after a failure that may not happen again
+     *
+     * @param con The {@code Connection} to use
+     * @param size Number of keys to reserve
+     * @return {@code boolean} indicating if it was successful. False if the sequence can never be used.
+     * @throws SQLException if it failed for another reason on every attempt
+     */
+    private boolean reserve(Connection con, int size) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryReserve(con, size);
+            } catch (SQLException e) {
+                if (isPermanent(e)) return false;
+                if (attempt == RESERVE_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    /**
+     * Reserve a new block of keys on the sequence
+     *
+     * @param con The {@code Connection} to use
+     * @param size Number of keys to reserve
+     * @return {@code boolean} indicating if it was successful. False if the sequence returned no value.
+     * @throws SQLException if the sequence failed
+     */
+    private boolean tryReserve(Connection con, int size) throws SQLException {
+        PreparedStatement getRange = null;
+        ResultSet rs = null;
+        try {
+            getRange = con.prepareStatement(GET_RANGE);
+            getRange.setString(1, sequence);
+            getRange.setInt(2, size);
+            rs = getRange.executeQuery();
+            if (!rs.next()) return false;
+            next = rs.getInt(1);
+            remaining = size;
+            return !rs.wasNull();
+        } finally {
+            DBUtils.closeQuietly(rs);
+            DBUtils.closeQuietly(getRange);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with a fixed memory footprint.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into {@link #SUB_BUCKETS} equal buckets,
+ * so a percentile is never off by more than 1/16 (6.25%) of its value, from one nanosecond up to centuries.
+ * Recording a value is a few bit operations and one atomic increment.
+ */
+final class LatencyHistogram {
+    /** Number of bits of a value kept after its highest bit */
+    private static final int SUB_BUCKET_BITS = 4;
+    /** Number of buckets each power of two is split into */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Number of buckets needed for every positive {@code long} */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** Number of values in each bucket */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** Number of recorded values */
+    private final LongAdder count = new LongAdder();
+    /** Sum of the recorded values */
+    private final LongAdder sum = new LongAdder();
+    /** Highest recorded value */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     *
+     * @param nanos The latency, in nanoseconds
+     */
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        sum.add(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // Retry until this value is stored or a higher one is
+        }
+    }
+
+    /**
+     * Get the number of recorded values
+     *
+     * @return The count
+     */
+    long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the mean of the recorded values
+     *
+     * @return The mean, in nanoseconds. Zero if nothing was recorded.
+     */
+    double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Get the highest recorded value
+     *
+     * @return The maximum, in nanoseconds
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get a percentile of the recorded values, as the highest value of the bucket it falls in.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The percentile, in nanoseconds. Zero if nothing was recorded.
+     */
+    long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(bucketUpperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget every recorded value. Values recorded at the same time may be partly kept.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Get the bucket of a value. Values below {@link #SUB_BUCKETS} have a bucket each.
+     *
+     * @param value The value, not negative
+     * @return The bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the highest value that falls in a bucket
+     *
+     * @param index The bucket index
+     * @return The highest value of the bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package jdbc;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link OperationMetrics} of the database operations and of their phases.
+ * Every metric is published as an MBean named {@code ongd:type=Operation,name=<method>} or
+ * {@code ongd:type=Phase,name=<phase>}, so {@code jconsole} can watch a running application.
+ */
+final class Metrics {
+    /** JMX domain of the metrics */
+    private static final String DOMAIN = "ongd";
+    /** Metrics by MBean name */
+    private static final ConcurrentHashMap<String, OperationMetrics> METRICS = new ConcurrentHashMap<>();
+
+    /** Time to borrow a connection from the pool */
+    static final OperationMetrics ACQUIRE = phase("acquire");
+    /** Time the driver takes to execute a statement, until the first results are available */
+    static final OperationMetrics EXECUTE = phase("execute");
+    /** Time spent fetching the rows of a result set */
+    static final OperationMetrics FETCH = phase("fetch");
+    /** Time spent rendering rows to the console */
+    static final OperationMetrics RENDER = phase("render");
+
+    /** Not instantiable */
+    private Metrics() {}
+
+    /**
+     * Get or create the metrics of a {@link Database} operation
+     *
+     * @param name The operation name, usually the method name
+     * @return The {@link OperationMetrics}
+     */
+    static OperationMetrics operation(String name) {
+        return get("Operation", name);
+    }
+
+    /**
+     * Get or create the metrics of a phase shared by every operation
+     *
+     * @param name The phase name
+     * @return The {@link OperationMetrics}
+     */
+    static OperationMetrics phase(String name) {
+        return get("Phase", name);
+    }
+
+    /**
+     * Get every metric created so far
+     *
+     * @return The {@link OperationMetrics}
+     */
+    static List<OperationMetrics> all() {
+        return new ArrayList<>(METRICS.values());
+    }
+
+    /**
+     * Get or create a metric and register its MBean
+     *
+     * @param type The MBean type
+     * @param name The metric name
+     * @return The {@link OperationMetrics}
+     */
+    private static OperationMetrics get(String type, String name) {
+        String objectName = DOMAIN + ":type=" + type + ",name=" + name;
+        return METRICS.computeIfAbsent(objectName, key -> {
+            OperationMetrics metrics = new OperationMetrics(name);
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName mbean = new ObjectName(key);
+                if (!server.isRegistered(mbean)) server.registerMBean(metrics, mbean);
+            } catch (JMException | SecurityException e) {
+                // Do nothing. The metrics are still recorded, only not published.
+            }
+            return metrics;
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package jdbc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram, call count and error count of a database operation or phase.
+ * Published over JMX by {@link Metrics}.
+ */
+final class OperationMetrics implements OperationMetricsMBean {
+    /** Nanoseconds in a millisecond */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /** The operation or phase name */
+    private final String name;
+    /** Latencies of the calls */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    /** Number of failed calls */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Creates the metrics of an operation
+     *
+     * @param name The operation or phase name
+     */
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record a call that started at a given time and ends now
+     *
+     * @param startNanos The {@code System.nanoTime()} when the call started
+     */
+    void record(long startNanos) {
+        latencies.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a call that took a given time
+     *
+     * @param nanos The call latency, in nanoseconds
+     */
+    void recordNanos(long nanos) {
+        latencies.record(nanos);
+    }
+
+    /**
+     * Count a failed call. Its latency is recorded separately.
+     */
+    void error() {
+        errors.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latencies.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latencies.getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latencies.getPercentile(95) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latencies.getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d chamadas, %d erros, p50=%.2fms p95=%.2fms p99=%.2fms máx=%.2fms",
+                name, getCalls(), getErrors(), getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis());
+    }
+}
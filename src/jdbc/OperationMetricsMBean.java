@@ -0,0 +1,68 @@
+package jdbc;
+
+/**
+ * Management interface of the {@link OperationMetrics} of a database operation or phase.
+ * Times are in milliseconds.
+ */
+public interface OperationMetricsMBean {
+    /**
+     * Get the operation or phase name
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Get the number of times the operation ran
+     *
+     * @return The number of calls
+     */
+    long getCalls();
+
+    /**
+     * Get the number of times the operation failed
+     *
+     * @return The number of errors
+     */
+    long getErrors();
+
+    /**
+     * Get the mean latency
+     *
+     * @return The mean, in milliseconds
+     */
+    double getMeanMillis();
+
+    /**
+     * Get the median latency
+     *
+     * @return The 50th percentile, in milliseconds
+     */
+    double getP50Millis();
+
+    /**
+     * Get the 95th percentile latency
+     *
+     * @return The 95th percentile, in milliseconds
+     */
+    double getP95Millis();
+
+    /**
+     * Get the 99th percentile latency
+     *
+     * @return The 99th percentile, in milliseconds
+     */
+    double getP99Millis();
+
+    /**
+     * Get the highest latency
+     *
+     * @return The maximum, in milliseconds
+     */
+    double getMaxMillis();
+
+    /**
+     * Forget every recorded call
+     */
+    void reset();
+}
@@ -0,0 +1,73 @@
+package jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of a keyset paginated listing.
+ * The continuation token is opaque to callers and is passed back to get the page after this one.
+ *
+ * @param <T> The model type of the rows
+ */
+public final class Page<T> {
+    /** The rows of this page, in key order */
+    public final List<T> rows;
+    /** Token to get the next page. Null if this is the last page. */
+    public final String continuationToken;
+
+    /**
+     * Creates a page
+     *
+     * @param rows_ The rows of the page
+     * @param continuationToken_ Token for the next page. Null if this is the last page.
+     */
+    Page(List<T> rows_, String continuationToken_) {
+        this.rows = Collections.unmodifiableList(rows_);
+        this.continuationToken = continuationToken_;
+    }
+
+    /**
+     * Checks if there is a page after this one
+     *
+     * @return {@code boolean} indicating if there are more rows
+     */
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+
+    /**
+     * Encode the key of the last row of a page into a continuation token.
+     *
+     * @param listing Name of the listing the token belongs to, with its filters. Must not contain {@code :}.
+     * @param keys The key columns of the last row
+     * @return The continuation token
+     */
+    static String encodeToken(String listing, int... keys) {
+        StringBuilder sb = new StringBuilder(listing);
+        for (int key : keys) sb.append(':').append(key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a continuation token into the key it was created from.
+     *
+     * @param listing Name of the listing the token must belong to, with its filters
+     * @param keyCount Number of key columns of the listing
+     * @param token The continuation token
+     * @return The key columns
+     * @throws IllegalArgumentException if the token is malformed or belongs to another listing
+     */
+    static int[] decodeToken(String listing, int keyCount, String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != keyCount + 1 || !parts[0].equals(listing)) throw new IllegalArgumentException();
+            int[] keys = new int[keyCount];
+            for (int i = 0; i < keyCount; i++) keys[i] = Integer.parseInt(parts[i + 1]);
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+    }
+}
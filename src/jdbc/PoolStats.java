@@ -0,0 +1,68 @@
+package jdbc;
+
+/**
+ * A snapshot of the connection pool usage statistics.
+ *
+ * @see Database#getPoolStats()
+ */
+public final class PoolStats {
+    /** Number of physical connections currently open */
+    public final int total;
+    /** Number of open connections waiting to be borrowed */
+    public final int idle;
+    /** Number of connections currently borrowed */
+    public final int active;
+    /** Number of successful borrows */
+    public final long borrows;
+    /** Number of borrows that had to wait for a connection to be returned */
+    public final long waits;
+    /** Number of borrows that gave up waiting */
+    public final long timeouts;
+    /** Number of physical connections opened */
+    public final long created;
+    /** Number of physical connections closed */
+    public final long destroyed;
+    /** Average time spent getting a connection, in nanoseconds */
+    public final long averageWaitNanos;
+    /** Longest time spent getting a connection, in nanoseconds */
+    public final long maxWaitNanos;
+
+    /**
+     * Creates a snapshot of the pool statistics
+     *
+     * @param total_ Number of physical connections open
+     * @param idle_ Number of idle connections
+     * @param borrows_ Number of successful borrows
+     * @param waits_ Number of borrows that had to wait
+     * @param timeouts_ Number of borrows that timed out
+     * @param created_ Number of physical connections opened
+     * @param destroyed_ Number of physical connections closed
+     * @param averageWaitNanos_ Average borrow time
+     * @param maxWaitNanos_ Longest borrow time
+     */
+    PoolStats(int total_, int idle_, long borrows_, long waits_, long timeouts_, long created_, long destroyed_,
+              long averageWaitNanos_, long maxWaitNanos_) {
+        this.total = total_;
+        this.idle = idle_;
+        this.active = total_ - idle_;
+        this.borrows = borrows_;
+        this.waits = waits_;
+        this.timeouts = timeouts_;
+        this.created = created_;
+        this.destroyed = destroyed_;
+        this.averageWaitNanos = averageWaitNanos_;
+        this.maxWaitNanos = maxWaitNanos_;
+    }
+
+    /**
+     * Returns a formatted {@code String} representation of the statistics.
+     *
+     * @return A formatted {@code String}
+     */
+    @Override
+    public String toString() {
+        return "Ligações: " + total + " (" + active + " em uso, " + idle + " livres) | Pedidos: " + borrows +
+                " (" + waits + " em espera, " + timeouts + " expirados) | Espera média: " + (averageWaitNanos / 1000) +
+                "µs, máx: " + (maxWaitNanos / 1000) + "µs";
+    }
+}
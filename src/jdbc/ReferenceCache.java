@@ -0,0 +1,152 @@
+package jdbc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process cache for reference data that rarely changes, like the intervention areas and the program lists.
+ * Entries expire after a fixed time to live and the least recently used entry is evicted when the cache is full.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class ReferenceCache<K, V> {
+    /** Name of the cache, used in its statistics */
+    private final String name;
+    /** Maximum number of entries */
+    private final int maxEntries;
+    /** Time to live of an entry, in nanoseconds */
+    private final long ttlNanos;
+    /** Entries in access order, the least recently used first */
+    private final LinkedHashMap<K, CachedValue<V>> entries;
+
+    /** Number of lookups that found a live entry */
+    private long hits;
+    /** Number of lookups that found no entry or an expired one */
+    private long misses;
+    /** Number of entries removed because the cache was full */
+    private long evictions;
+    /** Number of entries removed because they expired */
+    private long expirations;
+    /** Number of explicit invalidations */
+    private long invalidations;
+
+    /**
+     * Creates a cache
+     *
+     * @param name The cache name
+     * @param maxEntries Maximum number of entries
+     * @param ttlSeconds Time to live of an entry, in seconds
+     */
+    ReferenceCache(String name, int maxEntries, long ttlSeconds) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                if (size() <= ReferenceCache.this.maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get a cached value
+     *
+     * @param key The key
+     * @return The cached value. Null if there is none or it expired.
+     */
+    synchronized V get(K key) {
+        CachedValue<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.loadedAt >= ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Cache a value. Null values are not cached.
+     *
+     * @param key The key
+     * @param value The value
+     */
+    synchronized void put(K key, V value) {
+        if (value == null || maxEntries <= 0) return;
+        entries.put(key, new CachedValue<>(value, System.nanoTime()));
+        purgeExpired();
+    }
+
+    /**
+     * Remove a single entry
+     *
+     * @param key The key to remove
+     */
+    synchronized void invalidate(K key) {
+        if (entries.remove(key) != null) invalidations++;
+    }
+
+    /**
+     * Remove every entry. Used after writes that change the cached data.
+     */
+    synchronized void invalidateAll() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    /**
+     * Get a snapshot of the cache statistics
+     *
+     * @return A {@link CacheStats} with the current counters
+     */
+    synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), hits, misses, evictions, expirations, invalidations);
+    }
+
+    /**
+     * Remove the expired entries at the least recently used end of the cache.
+     */
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        Iterator<CachedValue<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().loadedAt < ttlNanos) break;
+            it.remove();
+            expirations++;
+        }
+    }
+
+    /**
+     * A cached value and the time it was loaded
+     *
+     * @param <V> The value type
+     */
+    private static final class CachedValue<V> {
+        /** The cached value */
+        final V value;
+        /** The {@code System.nanoTime()} when the value was cached */
+        final long loadedAt;
+
+        /**
+         * Creates a cache entry
+         *
+         * @param value The cached value
+         * @param loadedAt The time the value was cached
+         */
+        CachedValue(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package jdbc;
+
+import view.TableRenderer;
+import view.UI;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of a report query, read to the end so the connection can be released before they are shown.
+ * Used to run many reports at the same time and show them afterwards in a fixed order.
+ */
+public final class Report {
+    /** The report title */
+    public final String title;
+    /** The column labels */
+    public final String[] labels;
+    /** The display size of each column */
+    public final int[] displaySizes;
+    /** The rows, each one with the column values as {@code String} */
+    public final List<String[]> rows;
+    /** Time taken to run the query and read the rows, in nanoseconds */
+    public final long elapsedNanos;
+
+    /**
+     * Creates a report
+     *
+     * @param title_ The report title
+     * @param labels_ The column labels
+     * @param displaySizes_ The display size of each column
+     * @param rows_ The rows
+     * @param elapsedNanos_ Time taken to get the rows, in nanoseconds
+     */
+    Report(String title_, String[] labels_, int[] displaySizes_, List<String[]> rows_, long elapsedNanos_) {
+        this.title = title_;
+        this.labels = labels_;
+        this.displaySizes = displaySizes_;
+        this.rows = Collections.unmodifiableList(rows_);
+        this.elapsedNanos = elapsedNanos_;
+    }
+
+    /**
+     * Read every row of a {@code ResultSet} into a report
+     *
+     * @param title The report title
+     * @param rs The {@code ResultSet} to read
+     * @param start The {@code System.nanoTime()} when the query started
+     * @return The {@link Report}
+     * @throws SQLException if the rows can not be read
+     */
+    static Report read(String title, ResultSet rs, long start) throws SQLException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        int columnsNumber = rsmd.getColumnCount();
+        String[] labels = new String[columnsNumber];
+        int[] displaySizes = new int[columnsNumber];
+        for (int i = 1; i <= columnsNumber; i++) {
+            labels[i - 1] = rsmd.getColumnLabel(i);
+            displaySizes[i - 1] = rsmd.getColumnDisplaySize(i);
+        }
+
+        ArrayList<String[]> rows = new ArrayList<>();
+        while (rs.next()) {
+            String[] row = new String[columnsNumber];
+            for (int i = 1; i <= columnsNumber; i++) row[i - 1] = rs.getString(i);
+            rows.add(row);
+        }
+        return new Report(title, labels, displaySizes, rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Show the report title and its rows as a table on the console
+     */
+    public void print() {
+        UI.printASCII("IT", String.format("%s (%d linhas, %.0fms)", title, rows.size(), elapsedNanos / 1e6));
+        if (rows.isEmpty()) {
+            System.out.println("Sem resultados.");
+            return;
+        }
+        long start = System.nanoTime();
+        TableRenderer table = TableRenderer.console(labels, displaySizes);
+        try {
+            table.writeHeader();
+            for (String[] row : rows) {
+                table.beginRow();
+                for (String value : row) table.cell(value);
+                table.endRow();
+            }
+        } finally {
+            table.flush();
+            Metrics.RENDER.record(start);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Handles the calls made to a {@code ResultSet} returned by a statement of the {@link StatementCache}.
+ * The time spent in {@code next()}, where the driver fetches the rows from the server, is added up and recorded in
+ * {@link Metrics#FETCH} once the rows run out or the result set is closed. At that point the statement is also given
+ * to the {@link SlowQueryLog} with its execution time plus the fetch time and the number of rows read.
+ */
+final class ResultSetHandle implements InvocationHandler {
+    /** The statement seen by the caller, returned by {@code getStatement()} */
+    private final Statement owner;
+    /** The physical result set */
+    private final ResultSet rs;
+    /** The SQL text of the statement */
+    private final String sql;
+    /** The bind values of the execution. May be null. */
+    private final Object[] binds;
+    /** Time taken to execute the statement, in nanoseconds */
+    private final long executeNanos;
+    /** Number of rows read */
+    private long rows;
+    /** Time spent fetching rows, in nanoseconds */
+    private long fetchNanos;
+    /** Whether the fetch time was already recorded */
+    private boolean recorded;
+
+    /**
+     * Creates a result set handle
+     *
+     * @param owner The statement seen by the caller
+     * @param rs The physical result set
+     * @param sql The SQL text of the statement
+     * @param binds The bind values of the execution. May be null.
+     * @param executeNanos Time taken to execute the statement, in nanoseconds
+     */
+    private ResultSetHandle(Statement owner, ResultSet rs, String sql, Object[] binds, long executeNanos) {
+        this.owner = owner;
+        this.rs = rs;
+        this.sql = sql;
+        this.binds = binds;
+        this.executeNanos = executeNanos;
+    }
+
+    /**
+     * Create the proxy handed to the caller
+     *
+     * @param owner The statement seen by the caller
+     * @param rs The physical result set
+     * @param sql The SQL text of the statement
+     * @param binds The bind values of the execution. May be null.
+     * @param executeNanos Time taken to execute the statement, in nanoseconds
+     * @return The {@code ResultSet} proxy
+     */
+    static ResultSet proxy(Statement owner, ResultSet rs, String sql, Object[] binds, long executeNanos) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                new ResultSetHandle(owner, rs, sql, binds, executeNanos));
+    }
+
+    /**
+     * Record the fetch time and check the slow query log, only the first time it is called
+     */
+    private void finish() {
+        if (recorded) return;
+        recorded = true;
+        Metrics.FETCH.recordNanos(fetchNanos);
+        SlowQueryLog.record(sql, binds, executeNanos + fetchNanos, rows);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "next":
+                long start = System.nanoTime();
+                try {
+                    boolean hasRow = rs.next();
+                    fetchNanos += System.nanoTime() - start;
+                    if (hasRow) rows++;
+                    else finish();
+                    return hasRow;
+                } catch (Throwable e) {
+                    Metrics.FETCH.error();
+                    throw e;
+                }
+            case "close":
+                finish();
+                rs.close();
+                return null;
+            case "getStatement":
+                return owner;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return rs.toString();
+        }
+        try {
+            return method.invoke(rs, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
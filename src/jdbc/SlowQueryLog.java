@@ -0,0 +1,244 @@
+package jdbc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log of the statements slower than a threshold, written to a size-rolled file.
+ * Each entry has the time, the elapsed time (execution plus fetching every row), the row count, the SQL text and
+ * the type of each bind value. The bind values hold personal data, like identification and fiscal numbers, names and
+ * contacts, so they are only written when {@code ongd.slowQuery.logBinds} is {@code true}.
+ * <p>
+ * The log is off unless {@code ongd.slowQuery.thresholdMillis} is set. It is written to {@code ongd.slowQuery.file},
+ * by default {@code slow-queries.log} in the working directory, with the rolled files and plans next to it.
+ * <p>
+ * When plan capture is on, the statement is run again in the background on a separate connection with the server
+ * plan output enabled, and the XML plan is stored in a {@code .sqlplan} file named in the log entry.
+ * Queries are run again with {@code STATISTICS XML} to get the actual plan. Other statements are only compiled with
+ * {@code SHOWPLAN_XML}, so they are not executed twice. The actual plans of queries hold the bind values.
+ * <p>
+ * Configured with the {@code ongd.slowQuery.*} system properties.
+ */
+final class SlowQueryLog {
+    /** Statements slower than this are logged, in milliseconds. Negative, the default, disables the log. */
+    private static final long THRESHOLD_MILLIS = Long.getLong("ongd.slowQuery.thresholdMillis", -1L);
+    /** The log file */
+    private static final Path FILE = Paths.get(System.getProperty("ongd.slowQuery.file", "slow-queries.log"));
+    /** Size after which the log file is rolled, in bytes */
+    private static final long MAX_BYTES = Long.getLong("ongd.slowQuery.maxBytes", 10L * 1024 * 1024);
+    /** Number of rolled log files kept */
+    private static final int MAX_FILES = Math.max(1, Integer.getInteger("ongd.slowQuery.maxFiles", 5));
+    /** Whether the bind values are written as they are, instead of only their type */
+    private static final boolean LOG_BINDS = Boolean.getBoolean("ongd.slowQuery.logBinds");
+    /** Whether the plans of the logged statements are captured */
+    private static final boolean CAPTURE_PLANS = Boolean.getBoolean("ongd.slowQuery.capturePlans");
+    /** Maximum number of plan captures waiting to run. Further captures are skipped. */
+    private static final int PLAN_QUEUE_SIZE = 16;
+
+    /** Whether the log is enabled */
+    static final boolean ENABLED = THRESHOLD_MILLIS >= 0;
+    /** The threshold, in nanoseconds */
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MILLIS);
+    /** Number of the next plan file */
+    private static final AtomicLong PLAN_SEQUENCE = new AtomicLong();
+    /** Runs the plan captures one at a time on a daemon thread. Created on first use. */
+    private static ThreadPoolExecutor planCapture;
+
+    /** The open log file. Null until the first entry. */
+    private static BufferedWriter writer;
+    /** Size of the current log file, in bytes */
+    private static long size;
+
+    /** Not instantiable */
+    private SlowQueryLog() {}
+
+    /**
+     * Log a statement if it took longer than the threshold
+     *
+     * @param sql The SQL text
+     * @param binds The bind values by parameter index minus one. May be null.
+     * @param elapsedNanos Time to execute the statement and fetch its rows, in nanoseconds
+     * @param rows Number of rows fetched or changed. Negative if unknown.
+     */
+    static void record(String sql, Object[] binds, long elapsedNanos, long rows) {
+        if (!ENABLED || elapsedNanos < THRESHOLD_NANOS || sql == null) return;
+
+        Path plan = null;
+        if (CAPTURE_PLANS) {
+            plan = Paths.get(FILE.toString() + "." + PLAN_SEQUENCE.incrementAndGet() + ".sqlplan");
+            if (!submitPlanCapture(sql, binds, plan)) plan = null;
+        }
+
+        StringBuilder entry = new StringBuilder(256 + sql.length());
+        entry.append(LocalDateTime.now()).append(" | ")
+                .append(String.format("%.1fms", elapsedNanos / 1e6)).append(" | ")
+                .append(rows < 0 ? "?" : String.valueOf(rows)).append(" linhas");
+        if (plan != null) entry.append(" | plano: ").append(plan.getFileName());
+        entry.append(System.lineSeparator()).append("  SQL: ").append(sql.replaceAll("\\s+", " "));
+        entry.append(System.lineSeparator()).append("  Parâmetros: ").append(formatBinds(binds));
+        entry.append(System.lineSeparator());
+        write(entry.toString());
+    }
+
+    /**
+     * Format the bind values as {@code [1=value, 2=value]}, or as {@code [1=<String>, 2=<Integer>]} unless
+     * {@link #LOG_BINDS} is set
+     *
+     * @param binds The bind values. May be null.
+     * @return The formatted values
+     */
+    private static String formatBinds(Object[] binds) {
+        if (binds == null || binds.length == 0) return "[]";
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < binds.length; i++) {
+            if (i > 0) sb.append(", ");
+            Object value = binds[i];
+            sb.append(i + 1).append('=');
+            if (value == null) sb.append("null");
+            else if (!LOG_BINDS) sb.append('<').append(value.getClass().getSimpleName()).append('>');
+            else if (value instanceof String) sb.append('\'').append(value).append('\'');
+            else sb.append(value);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Append an entry to the log file, rolling it first if it is full. Write errors are ignored.
+     *
+     * @param entry The entry text
+     */
+    private static synchronized void write(String entry) {
+        try {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            if (writer == null) {
+                writer = open();
+            } else if (size + bytes.length > MAX_BYTES) {
+                writer.close();
+                roll();
+                writer = open();
+            }
+            writer.write(entry);
+            writer.flush();
+            size += bytes.length;
+        } catch (IOException e) {
+            // Do nothing. The log must never break the operation being logged.
+        }
+    }
+
+    /**
+     * Open the log file for appending
+     *
+     * @return The {@code BufferedWriter}
+     * @throws IOException if the file can not be opened
+     */
+    private static BufferedWriter open() throws IOException {
+        size = Files.exists(FILE) ? Files.size(FILE) : 0;
+        return Files.newBufferedWriter(FILE, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Roll the log files: {@code .log} becomes {@code .log.1}, {@code .log.1} becomes {@code .log.2} and so on.
+     * The oldest file is deleted.
+     *
+     * @throws IOException if a file can not be moved
+     */
+    private static void roll() throws IOException {
+        Files.deleteIfExists(Paths.get(FILE + "." + MAX_FILES));
+        for (int i = MAX_FILES - 1; i >= 1; i--) {
+            Path from = Paths.get(FILE + "." + i);
+            if (Files.exists(from)) Files.move(from, Paths.get(FILE + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (Files.exists(FILE)) Files.move(FILE, Paths.get(FILE + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Queue the capture of a statement plan
+     *
+     * @param sql The SQL text
+     * @param binds The bind values. May be null.
+     * @param plan The file to store the plan in
+     * @return {@code boolean} indicating if the capture was queued
+     */
+    private static synchronized boolean submitPlanCapture(String sql, Object[] binds, Path plan) {
+        if (planCapture == null) {
+            planCapture = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(PLAN_QUEUE_SIZE), runnable -> {
+                Thread thread = new Thread(runnable, "ongd-slow-query-plan");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        try {
+            planCapture.execute(() -> capturePlan(sql, binds, plan));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run a statement again with the plan output enabled and store the plan. Uses a connection outside the pool,
+     * since the plan option belongs to the session, and closes it afterwards.
+     *
+     * @param sql The SQL text
+     * @param binds The bind values. May be null.
+     * @param plan The file to store the plan in
+     */
+    private static void capturePlan(String sql, Object[] binds, Path plan) {
+        String trimmed = sql.trim();
+        boolean query = trimmed.regionMatches(true, 0, "select", 0, 6) || trimmed.regionMatches(true, 0, "with", 0, 4);
+        String option = query ? "statistics xml" : "showplan_xml";
+
+        Connection con = null;
+        Statement setOption = null;
+        PreparedStatement statement = null;
+        try {
+            con = Driver.openConnection();
+            setOption = con.createStatement();
+            setOption.execute("set " + option + " on");
+
+            statement = con.prepareStatement(sql);
+            if (binds != null) {
+                for (int i = 0; i < binds.length; i++) statement.setObject(i + 1, binds[i]);
+            }
+            StringBuilder xml = new StringBuilder();
+            boolean isResultSet = statement.execute();
+            while (isResultSet || statement.getUpdateCount() != -1) {
+                if (isResultSet) {
+                    try (ResultSet rs = statement.getResultSet()) {
+                        ResultSetMetaData rsmd = rs.getMetaData();
+                        boolean isPlan = rsmd.getColumnCount() == 1 && rsmd.getColumnLabel(1).contains("Showplan");
+                        while (rs.next()) {
+                            if (isPlan) xml.append(rs.getString(1)).append(System.lineSeparator());
+                        }
+                    }
+                }
+                isResultSet = statement.getMoreResults();
+            }
+            if (xml.length() > 0) Files.write(plan, xml.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (SQLException | IOException e) {
+            // Do nothing. The log entry names a plan file that was not written.
+        } finally {
+            DBUtils.closeQuietly(statement);
+            DBUtils.closeQuietly(setOption);
+            DBUtils.closeQuietly(con);
+        }
+    }
+}
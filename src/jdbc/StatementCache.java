@@ -0,0 +1,314 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the {@code PreparedStatement}s of one physical connection, keyed by their SQL text.
+ * Closing a cached statement only clears its parameters so the next {@code prepareStatement} call with the same SQL
+ * reuses the driver statement handle and the server side prepared plan.
+ * <p>
+ * Statement executions are timed in {@link Metrics#EXECUTE} and the result sets they return are timed by a
+ * {@link ResultSetHandle}. Statements slower than the {@link SlowQueryLog} threshold are logged with their bind values.
+ * <p>
+ * A statement is only handed to one caller at a time. Preparing the same SQL while it is in use returns a
+ * regular statement that is really closed when the caller closes it.
+ */
+final class StatementCache {
+    /** The physical connection owning the statements */
+    private final Connection physical;
+    /** Maximum number of cached statements */
+    private final int capacity;
+    /** Cached statements in access order, the least recently used first */
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    /**
+     * Creates a statement cache for a physical connection
+     *
+     * @param physical The physical connection
+     * @param capacity Maximum number of cached statements. Zero disables caching.
+     */
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) return false;
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Prepare a statement, reusing a cached one when possible.
+     *
+     * @param owner The {@code Connection} seen by the caller, returned by {@code Statement.getConnection()}
+     * @param sql The SQL text
+     * @param autoGeneratedKeys Either {@code Statement.RETURN_GENERATED_KEYS} or {@code Statement.NO_GENERATED_KEYS}
+     * @return A {@code PreparedStatement} whose {@code close()} returns it to the cache
+     * @throws SQLException if the statement can not be prepared
+     */
+    synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) return proxy(new Handle(owner, sql, physical.prepareStatement(sql, autoGeneratedKeys), null));
+
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "#" + sql : sql;
+        CachedStatement cached = statements.get(key);
+        if (cached == null) {
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            try {
+                cached = new CachedStatement(statement);
+            } catch (SQLException e) {
+                DBUtils.closeQuietly(statement);
+                throw e;
+            }
+            statements.put(key, cached);
+        } else if (cached.handle != null) {
+            return proxy(new Handle(owner, sql, physical.prepareStatement(sql, autoGeneratedKeys), null));
+        }
+        cached.handle = new Handle(owner, sql, cached.statement, cached);
+        return proxy(cached.handle);
+    }
+
+    /**
+     * Reclaim every cached statement still handed out. Used when the connection returns to the pool
+     * so statements the borrower forgot to close can be reused.
+     */
+    synchronized void reclaim() {
+        // Closing a handle reads or removes its entry, which changes the access ordered map, so a copy is iterated
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.handle != null) cached.handle.close();
+        }
+    }
+
+    /**
+     * Close every cached statement. Used before the physical connection is closed.
+     */
+    synchronized void closeAll() {
+        ArrayList<CachedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) cached.evict();
+    }
+
+    /**
+     * Create the proxy handed to the caller
+     *
+     * @param handle The handler of the proxy
+     * @return The {@code PreparedStatement} proxy
+     */
+    private static PreparedStatement proxy(Handle handle) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                handle);
+    }
+
+    /**
+     * A cached physical statement
+     */
+    private static final class CachedStatement {
+        /** The physical statement */
+        final PreparedStatement statement;
+        /** The handle currently using the statement. Null if the statement is free. */
+        Handle handle;
+        /** Whether the statement was removed from the cache */
+        boolean evicted;
+        /** Fetch size of the statement when it was prepared */
+        final int fetchSize;
+        /** Maximum number of rows of the statement when it was prepared */
+        final int maxRows;
+        /** Query timeout of the statement when it was prepared, in seconds */
+        final int queryTimeout;
+
+        /**
+         * Creates a cache entry, keeping the settings the statement is reset to when its handle is closed
+         *
+         * @param statement The physical statement
+         * @throws SQLException if the settings of the statement can not be read
+         */
+        CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+
+        /**
+         * Remove the statement from the cache. It is closed now if free or when its handle is closed.
+         */
+        void evict() {
+            evicted = true;
+            if (handle == null) DBUtils.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Handles the calls made to a statement handed out by the cache.
+     * Any call after the handle is closed fails like it would on a closed statement.
+     */
+    private final class Handle implements InvocationHandler {
+        /** The {@code Connection} seen by the caller */
+        private final Connection owner;
+        /** The SQL text of the statement */
+        private final String sql;
+        /** The physical statement */
+        private final PreparedStatement statement;
+        /** The cache entry. Null if the statement is not cached. */
+        private final CachedStatement cached;
+        /** Whether this handle was closed */
+        private boolean closed;
+        /** Bind values of the next execution, by parameter index minus one. Only kept when the slow query log is enabled. */
+        private Object[] binds = SlowQueryLog.ENABLED ? new Object[8] : null;
+        /** Number of parameters set in {@link #binds} */
+        private int bindCount;
+        /** Bind values and duration of the last execution, used when its result set is taken with {@code getResultSet()} */
+        private Object[] lastBinds;
+        /** Time taken by the last execution, in nanoseconds */
+        private long lastExecuteNanos;
+
+        /**
+         * Creates a statement handle
+         *
+         * @param owner The {@code Connection} seen by the caller
+         * @param sql The SQL text of the statement
+         * @param statement The physical statement
+         * @param cached The cache entry. Null if the statement is not cached.
+         */
+        Handle(Connection owner, String sql, PreparedStatement statement, CachedStatement cached) {
+            this.owner = owner;
+            this.sql = sql;
+            this.statement = statement;
+            this.cached = cached;
+        }
+
+        /**
+         * Close the handle. Cached statements are cleared, get back the fetch size, maximum rows and query timeout
+         * they were prepared with and are made available again, others are closed.
+         */
+        void close() {
+            if (closed) return;
+            closed = true;
+            if (binds != null) Arrays.fill(binds, 0, bindCount, null);
+            if (cached == null) {
+                DBUtils.closeQuietly(statement);
+                return;
+            }
+            boolean reusable;
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setFetchSize(cached.fetchSize);
+                statement.setMaxRows(cached.maxRows);
+                statement.setQueryTimeout(cached.queryTimeout);
+                reusable = true;
+            } catch (SQLException e) {
+                reusable = false;
+            }
+            synchronized (StatementCache.this) {
+                cached.handle = null;
+                if (!reusable) {
+                    statements.values().remove(cached);
+                    cached.evicted = true;
+                }
+                if (!cached.evicted) return;
+            }
+            DBUtils.closeQuietly(statement);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return statement.toString();
+            }
+            if (closed) throw new SQLException("Statement is closed");
+            String name = method.getName();
+            if (binds != null) recordBind(name, args);
+            boolean execute = name.startsWith("execute");
+            long start = execute ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                if (execute) {
+                    Metrics.EXECUTE.error();
+                    Metrics.EXECUTE.record(start);
+                }
+                throw e.getCause();
+            }
+            if (execute) {
+                lastExecuteNanos = System.nanoTime() - start;
+                Metrics.EXECUTE.recordNanos(lastExecuteNanos);
+                lastBinds = binds == null ? null : Arrays.copyOf(binds, bindCount);
+                if (!(result instanceof ResultSet)) SlowQueryLog.record(sql, lastBinds, lastExecuteNanos, updateCount(result));
+            }
+            if (result instanceof ResultSet) {
+                result = ResultSetHandle.proxy((Statement) proxy, (ResultSet) result, sql, lastBinds, lastExecuteNanos);
+            }
+            return result;
+        }
+
+        /**
+         * Keep the value of a parameter setter call, so it can be logged with the statement.
+         *
+         * @param name The method name
+         * @param args The method arguments
+         */
+        private void recordBind(String name, Object[] args) {
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0] - 1;
+                if (index < 0) return;
+                if (index >= binds.length) binds = Arrays.copyOf(binds, Math.max(index + 1, binds.length * 2));
+                binds[index] = name.equals("setNull") ? null : args[1];
+                bindCount = Math.max(bindCount, index + 1);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(binds, 0, bindCount, null);
+                bindCount = 0;
+            }
+        }
+
+        /**
+         * Get the number of rows changed from the result of an execute method
+         *
+         * @param result The result of {@code executeUpdate}, {@code executeLargeUpdate}, {@code executeBatch} or {@code execute}
+         * @return The number of rows changed. Negative if unknown.
+         */
+        private long updateCount(Object result) {
+            if (result instanceof Number) return ((Number) result).longValue();
+            if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) rows += Math.max(count, 0);
+                return rows;
+            }
+            if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) rows += Math.max(count, 0);
+                return rows;
+            }
+            return -1;
+        }
+    }
+}
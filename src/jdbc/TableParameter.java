@@ -0,0 +1,102 @@
+package jdbc;
+
+import com.microsoft.sqlserver.jdbc.SQLServerCallableStatement;
+import com.microsoft.sqlserver.jdbc.SQLServerDataTable;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A table-valued parameter of a stored procedure call.
+ * <p>
+ * Rows are filled in by the {@code fillInPreparedStatement} of the models: they fill a recording
+ * {@code PreparedStatement} and the recorded values become a row of the table. The columns of the table type must be
+ * in the same order as the parameters the model fills in. Any other call on the recording statement fails the row
+ * with a {@code SQLException}, even if the model ignores it.
+ */
+final class TableParameter {
+    /** Name of the server table type */
+    private final String typeName;
+    /** The rows sent to the server */
+    private final SQLServerDataTable table;
+    /** Values of the row being recorded, by parameter index minus one */
+    private final Object[] row;
+    /** {@code PreparedStatement} that records the parameters it is given into {@link #row} */
+    private final PreparedStatement recorder;
+    /** First failure of the recording statement while filling the current row. Null if none. */
+    private SQLException failure;
+
+    /**
+     * Creates an empty table parameter
+     *
+     * @param typeName The server table type name
+     * @param columns The column names, in parameter order
+     * @param sqlTypes The {@code java.sql.Types} of each column
+     * @throws SQLException if the column metadata is not valid
+     */
+    TableParameter(String typeName, String[] columns, int[] sqlTypes) throws SQLException {
+        this.typeName = typeName;
+        this.table = new SQLServerDataTable();
+        for (int i = 0; i < columns.length; i++) table.addColumnMetadata(columns[i], sqlTypes[i]);
+        this.row = new Object[columns.length];
+        this.recorder = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    switch (name) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "TableParameter[" + typeName + "]";
+                        case "clearParameters":
+                            Arrays.fill(row, null);
+                            return null;
+                    }
+                    SQLException e;
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        int index = (Integer) args[0];
+                        if (index >= 1 && index <= row.length) {
+                            row[index - 1] = name.equals("setNull") ? null : args[1];
+                            return null;
+                        }
+                        e = new SQLException("Parameter " + index + " is not a column of " + typeName);
+                    } else {
+                        e = new SQLFeatureNotSupportedException(name + " is not supported on a table parameter");
+                    }
+                    if (failure == null) failure = e;
+                    throw e;
+                });
+    }
+
+    /**
+     * Add a row filled in by a model
+     *
+     * @param fill Fills in the recording {@code PreparedStatement}, usually {@code ps -> model.fillInPreparedStatement(ps, 1)}
+     * @throws SQLException if the row does not match the columns or the model called an unsupported method
+     */
+    void addRow(Consumer<PreparedStatement> fill) throws SQLException {
+        recorder.clearParameters();
+        failure = null;
+        fill.accept(recorder);
+        if (failure != null) throw failure;
+        table.addRow(row.clone());
+    }
+
+    /**
+     * Bind this table to a parameter of a procedure call
+     *
+     * @param call The procedure call
+     * @param index The parameter index
+     * @throws SQLException if the call is not a SQL Server call or the parameter can not be set
+     */
+    void bind(SQLServerCallableStatement call, int index) throws SQLException {
+        call.setStructured(index, typeName, table);
+    }
+}
@@ -1,13 +1,23 @@
 package main;
 
+import index.Bitmap;
+import index.ContactIndex;
+import index.FilterIndex;
+import index.NameIndex;
+import jdbc.AsyncDatabase;
 import jdbc.Database;
+import jdbc.Report;
 import model.*;
 import view.UI;
 import view.Validator;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface used to represent a App class method
@@ -18,6 +28,10 @@ interface DbWorker { void doWork();}
  * Controls both the UI and database sides by allowing them to interact in order complete certain tasks
  */
 public class App {
+    /** Default number of colaborators inserted per transaction when importing from a file */
+    private static final int BULK_IMPORT_BATCH_SIZE = Integer.getInteger("ongd.import.batchSize", 500);
+    /** Number of values of each attribute shown before asking for a filter, the most common ones */
+    private static final int FILTER_VALUES_SHOWN = 8;
     /** Main app instance */
     private static App __instance;
 
@@ -46,16 +60,26 @@ public class App {
         Exit("Exit"),
         /** Add colaborator option. {@link App#adicionarColaborador()} */
         adicionarColaborador("Adicionar colaborador"),
+        /** Import colaborators from a file option. {@link App#importarColaboradores()} */
+        importarColaboradores("Importar colaboradores de um ficheiro CSV/TSV"),
+        /** Search colaborators by name option. {@link App#pesquisarColaboradores()} */
+        pesquisarColaboradores("Pesquisar colaboradores por nome"),
+        /** Filter colaborators by their attributes option. {@link App#filtrarColaboradores()} */
+        filtrarColaboradores("Filtrar colaboradores por tipo, nacionalidade, ocupação, idioma ou programa"),
         /** Alter volunteers program option. {@link App#alterarProgramaVoluntario()} ()} */
         alterarProgramaVoluntario("Alterar programa de um voluntário"),
         /** Cancel a short term program option. {@link App#cancelarProgramaCurtaDuracao()} ()} */
         cancelarProgramaCurtaDuracao("Cancelar programa de curta duração"),
+        /** Find the owner of a contact option. {@link App#procurarTitularContacto()} */
+        procurarTitularContacto("Procurar o titular de um contacto"),
         /** Present all contacts option. {@link App#apresentarContactos()} ()} */
         apresentarContactos("Apresentar todos os contactos"),
         /** Presents all colaborators option. {@link App#apresentarColaboradores()} ()} */
         apresentarColaboradores("Apresentar todos os colaboradores"),
         /** Present latest volunteers option. {@link App#apresentarVoluntariosUltimosAnos()} ()} */
-        apresentarVoluntariosUltimosAnos("Apresentar o nome completo dos voluntários com idade inferior a 30 anos e que tenham realizado voluntariado nos últimos 3 anos");
+        apresentarVoluntariosUltimosAnos("Apresentar o nome completo dos voluntários com idade inferior a 30 anos e que tenham realizado voluntariado nos últimos 3 anos"),
+        /** Dashboard option. Runs every report at the same time. {@link App#dashboard()} */
+        dashboard("Painel com todos os relatórios");
 
         /** Menu option description */
         public String description;
@@ -79,11 +103,16 @@ public class App {
     private App() {
         __dbMethods = new HashMap<>();
         __dbMethods.put(MenuOption.adicionarColaborador, App.this::adicionarColaborador);
+        __dbMethods.put(MenuOption.importarColaboradores, App.this::importarColaboradores);
+        __dbMethods.put(MenuOption.pesquisarColaboradores, App.this::pesquisarColaboradores);
+        __dbMethods.put(MenuOption.filtrarColaboradores, App.this::filtrarColaboradores);
         __dbMethods.put(MenuOption.alterarProgramaVoluntario, App.this::alterarProgramaVoluntario);
         __dbMethods.put(MenuOption.cancelarProgramaCurtaDuracao, App.this::cancelarProgramaCurtaDuracao);
+        __dbMethods.put(MenuOption.procurarTitularContacto, App.this::procurarTitularContacto);
         __dbMethods.put(MenuOption.apresentarContactos, App.this::apresentarContactos);
         __dbMethods.put(MenuOption.apresentarColaboradores, App.this::apresentarColaboradores);
         __dbMethods.put(MenuOption.apresentarVoluntariosUltimosAnos, App.this::apresentarVoluntariosUltimosAnos);
+        __dbMethods.put(MenuOption.dashboard, App.this::dashboard);
     }
 
     /**
@@ -120,6 +149,8 @@ public class App {
                 }
             }
         } while (option != MenuOption.Exit);
+        AsyncDatabase.shutdown();
+        Database.shutdown();
         UI.printASCII("IT", "Aplicação Encerrada. Tenha um bom dia.");
     }
 
@@ -129,12 +160,31 @@ public class App {
      * @return {@code Boolean} indicating if the database connection is valid
      */
     private boolean testDatabase() {
-        String[] info = Database.testConnection();
+        CompletableFuture<String[]> teste = AsyncDatabase.testConnection();
+        AsyncDatabase.listarProgramas(true, "PCD"); // Loads the program cache while the connection is tested
+        AsyncDatabase.carregarProgramas(); // Loads the program index for the program picker
+        CompletableFuture<Boolean> indices = AsyncDatabase.carregarIndices();
+        String[] info = UI.waitFor(teste, "A ligar á base de dados");
         if (info != null) {
             UI.printASCII("INF", "Conexão de teste á base de dados bem-sucedida:");
             System.out.println("- Driver: " + info[0]);
             System.out.println("- Host: " + info[1]);
             System.out.println("- Nome: " + info[2]);
+            System.out.println("- Pool: " + Database.getPoolStats());
+            if (Boolean.TRUE.equals(UI.waitFor(indices, "A carregar as identidades e os nomes dos colaboradores"))) {
+                System.out.println("- Identidades: " + Database.getIdentityStats());
+                System.out.println("- Nomes: " + Database.getNameIndexSize() + " colaboradores");
+                System.out.println("- Contactos: " + Database.getContactStats());
+                System.out.println("- Cache de contactos: " + Database.getContactCacheStats());
+                System.out.println("- Filtros: " + Database.getFilterStats());
+                System.out.println("- Colaboradores: " + Database.getSnapshotStats());
+            } else {
+                System.out.println("- Identidades: não carregadas, os duplicados só são detetados ao gravar.");
+                System.out.println("- Nomes: não carregados, a pesquisa por nome não está disponível.");
+                System.out.println("- Contactos: não carregados, a procura do titular não está disponível.");
+                System.out.println("- Filtros: não carregados, a filtragem de colaboradores não está disponível.");
+                System.out.println("- Colaboradores: não carregados, os filtros mostram apenas os números.");
+            }
             return true;
         } else {
             System.err.println("Conexão de teste á base de dados falhou. Por favor verifique as suas credenciais.");
@@ -151,11 +201,12 @@ public class App {
      *  - All the normal or emergency contacts
      *  - The insurance information
      *
-     *  {@link Database#adicionarColaborador(COLABORADOR, SEGURO, VOLUNTARIO, ASSALARIADO, ArrayList, ArrayList)}
+     *  {@link Database#registarColaborador(Registration)}
      */
     private void adicionarColaborador() {
         UI.printPromptStart("Registo de um novo colaborador:");
 
+        CompletableFuture<ArrayList<PROGRAMA>> programasDisponiveis = AsyncDatabase.listarProgramas(true, "PCD");
         String TIPO_COLABORADOR = UI.promptMultipleChoice(
                 "Tipo de Colaborador:",
                 new String[]{"Assalariado", "Voluntário"});
@@ -163,7 +214,7 @@ public class App {
 
         ArrayList<PROGRAMA> programas = null;
         if (TIPO_COLABORADOR.equals("Voluntário")) {
-            programas = Database.listarProgramas(true, "PCD");
+            programas = UI.waitFor(programasDisponiveis, "A obter os programas");
             if (programas == null || programas.isEmpty()) {
                 UI.printASCII("CROSS", "De momento não há programas disponiveis.");
                 return;
@@ -196,8 +247,8 @@ public class App {
 
         String nident = UI.prompt(
                 "Número de Identificação: ",
-                (str) -> Validator.isLength(str,11),
-                "O número de identificação do colaborador não deve passar os 11 characteres.");
+                (str) -> Validator.isLength(str,11) && !Database.existeIdentificacao(str),
+                "O número de identificação do colaborador não deve passar os 11 characteres nem pertencer a outro colaborador.");
         if (nident == null) return;
 
         String[] TIPOID = new String[]{"CC", "BI", "Passaporte"};
@@ -207,8 +258,8 @@ public class App {
 
         String nfiscal = UI.prompt(
                 "Número Fiscal (opcional):",
-                (str) -> Validator.isLength(str,9),
-                "O número fiscal do colaborador não deve passar os 9 characteres.",
+                (str) -> Validator.isLength(str,9) && !Database.existeNumeroFiscal(str),
+                "O número fiscal do colaborador não deve passar os 9 characteres nem pertencer a outro colaborador.",
                 true);
 
         String nacionalidade = UI.prompt(
@@ -245,6 +296,33 @@ public class App {
                     "O idioma do colaborador não deve passar os 250 characteres.");
             if (idioma == null) return;
 
+            // Volunteers with no eligible program may give other dates, or pick from every program
+            ArrayList<PROGRAMA> elegiveis;
+            do {
+                String disponivelDe = UI.prompt(
+                        "Disponível a partir de (Formato yyyy-MM-dd, Enter para qualquer data):",
+                        (str) -> Validator.isDate(str),
+                        "Data tem de estar no formato yyyy-MM-dd.",
+                        true);
+                String disponivelAte = UI.prompt(
+                        "Disponível até (Formato yyyy-MM-dd, Enter para qualquer data):",
+                        (str) -> Validator.isDate(str, disponivelDe == null ? "1960-01-01" : disponivelDe),
+                        "Data tem de estar no formato yyyy-MM-dd e depois da data de início.",
+                        true);
+
+                elegiveis = Database.procurarProgramasElegiveis(colaborador.dtnascimento, idioma,
+                        disponivelDe == null ? null : java.sql.Date.valueOf(disponivelDe).toLocalDate(),
+                        disponivelAte == null ? null : java.sql.Date.valueOf(disponivelAte).toLocalDate());
+                if (elegiveis != null && elegiveis.isEmpty()) {
+                    UI.printASCII("CROSS", "Não há programas disponíveis para a idade e as datas do voluntário.");
+                    if (!UI.confirm("Indicar outras datas de disponibilidade?")) {
+                        System.out.println("A mostrar todos os programas disponíveis.");
+                        elegiveis = null;
+                    }
+                }
+            } while (elegiveis != null && elegiveis.isEmpty());
+            if (elegiveis != null) programas = elegiveis;
+
             String programaId = selecionarPrograma(programas);
 
             voluntario = new VOLUNTARIO(ocupacaoactual, idioma, programaId);
@@ -383,21 +461,45 @@ public class App {
           :END SEGURO
          */
 
-        boolean success = Database.adicionarColaborador(
+        Boolean success = UI.waitFor(AsyncDatabase.registarColaborador(new Registration(
                 colaborador,
                 seguro,
                 voluntario,
                 assalariado,
                 contactos,
                 contactos_emergencia
-        );
-        if (success) {
+        )), "A registar o colaborador");
+        if (Boolean.TRUE.equals(success)) {
             UI.printASCII("BS", "Registo do Colaborador realizado com exito!");
         } else {
             UI.printASCII("CROSS", "Não foi possivel realizar o registo do Colaborador!");
         }
     }
 
+    /**
+     * Imports colaborators from a CSV or TSV file. Asks for the file path and the number of colaborators per transaction.
+     *
+     * {@link BulkImporter}
+     */
+    private void importarColaboradores() {
+        UI.printPromptStart("Importar colaboradores de um ficheiro:");
+
+        String ficheiro = UI.prompt(
+                "Caminho do ficheiro (.csv ou .tsv): ",
+                (str) -> Files.isRegularFile(Paths.get(str)),
+                "O ficheiro não existe.");
+        if (ficheiro == null) return;
+
+        String lote = UI.prompt(
+                "Colaboradores por transação (" + BULK_IMPORT_BATCH_SIZE + " por omissão): ",
+                (str) -> Validator.isInteger(str, true) && str.length() <= 6,
+                "O número de colaboradores por transação deve ser um inteiro positivo até 999999.",
+                true);
+        int batchSize = lote == null || lote.isEmpty() ? BULK_IMPORT_BATCH_SIZE : Integer.parseInt(lote);
+
+        new BulkImporter(Paths.get(ficheiro), batchSize).run();
+    }
+
     /**
      * Asks the user to select a program. Displays a multiple choice menu with all the programs and waits for input.
      *
@@ -414,30 +516,129 @@ public class App {
     }
 
     /**
-     * Alter volunteer program. Asks for the volunteer identification number and the new program.
+     * Searches colaborators by name. Asks for the name, or the start of it, and shows the best matches with their
+     * identification numbers.
+     *
+     * {@link Database#pesquisarColaboradores(String, int)}
+     */
+    private void pesquisarColaboradores() {
+        UI.printPromptStart("Pesquisar colaboradores por nome:");
+
+        String nome = UI.prompt(
+                "Nome: ",
+                (str) -> !str.trim().isEmpty(),
+                "O nome não deve estar vazio.");
+        if (nome == null) return;
+
+        long start = System.nanoTime();
+        List<NameIndex.Entry> resultados = Database.pesquisarColaboradores(nome, UI.PAGE_ROWS);
+        long elapsed = System.nanoTime() - start;
+        if (resultados == null) {
+            UI.printASCIIError("CROSS", "Não foi possível pesquisar os colaboradores.");
+            return;
+        }
+        UI.printASCII("IT", String.format("%d resultados (%.3fms)", resultados.size(), elapsed / 1e6));
+        for (NameIndex.Entry resultado : resultados) System.out.println(" - " + describe(resultado));
+    }
+
+    /**
+     * Filter colaborators by their attributes. Shows the attributes with their most common values, asks for a filter
+     * and shows how many colaborators match and the first ones.
+     *
+     * {@link Database#filtrarColaboradores(String)}
+     */
+    private void filtrarColaboradores() {
+        UI.printPromptStart("Filtrar colaboradores:");
+
+        if (Database.getFilterStats() == null) {
+            UI.printASCIIError("CROSS", "Os atributos dos colaboradores não foram carregados.");
+            return;
+        }
+        for (String atributo : FilterIndex.ATRIBUTOS) {
+            System.out.println(String.format(" - %s: %s", atributo, String.join(", ", Database.getValoresFiltro(atributo, FILTER_VALUES_SHOWN))));
+        }
+        System.out.println("Exemplo: tipo=voluntario AND idioma=ingles AND NOT (ocupacao=empregado OR nacionalidade=portuguesa)");
+
+        String filtro = UI.prompt(
+                "Filtro: ",
+                (str) -> Database.filtrarColaboradores(str) != null,
+                "O filtro deve ter condições atributo=valor, com o valor entre aspas se tiver espaços, ligadas por AND, OR, NOT e parênteses.");
+        if (filtro == null) return;
+
+        long start = System.nanoTime();
+        Bitmap colaboradores = Database.filtrarColaboradores(filtro);
+        long elapsed = System.nanoTime() - start;
+        if (colaboradores == null) return;
+        UI.printASCII("IT", String.format("%d colaboradores (%.3fms)", colaboradores.cardinality(), elapsed / 1e6));
+        for (int nocolaborador : colaboradores.toArray(UI.PAGE_ROWS)) {
+            COLABORADOR colaborador = Database.getColaborador(nocolaborador);
+            if (colaborador == null) System.out.println(" - Colaborador " + nocolaborador);
+            else System.out.println(String.format(" - %d | %s %s | %s | %s", nocolaborador, colaborador.nome, colaborador.apelido,
+                    colaborador.nident, colaborador.nacionalidade));
+        }
+    }
+
+    /**
+     * Asks the user to select a colaborator among the ones found by name.
+     *
+     * @param nome The name, or the start of the name, to search
+     * @return {@code String} with the identification number of the selected colaborator. Null if none.
+     */
+    private String selecionarColaborador(String nome) {
+        List<NameIndex.Entry> resultados = Database.pesquisarColaboradores(nome, UI.PAGE_ROWS);
+        if (resultados == null || resultados.isEmpty()) return null;
+        String[] displayStrings = new String[resultados.size()];
+        for (int i = 0; i < resultados.size(); i++) displayStrings[i] = describe(resultados.get(i));
+        String colaborador = UI.promptMultipleChoice("Selecione um colaborador:", displayStrings);
+        if (colaborador == null) return null;
+        return resultados.get(Arrays.asList(displayStrings).indexOf(colaborador)).nident;
+    }
+
+    /**
+     * Describe a name search result
+     *
+     * @param resultado The search result
+     * @return {@code String} with the number, full name and identification number of the colaborator
+     */
+    private static String describe(NameIndex.Entry resultado) {
+        return String.format("%d | %s %s | %s%s", resultado.nocolaborador, resultado.nome, resultado.apelido, resultado.nident,
+                resultado.score < 1 ? String.format(" (%.0f%%)", resultado.score * 100) : "");
+    }
+
+    /**
+     * Alter volunteer program. Asks for the volunteer identification number, or name to search for it, and the new
+     * program.
      *
      * {@link Database#alterarProgramaVoluntario(String, String)}
      */
     private void alterarProgramaVoluntario() {
         UI.printPromptStart("Alterar o programa de um voluntário:");
 
-        ArrayList<PROGRAMA> programas = Database.listarProgramas(true, "PCD");
+        ArrayList<PROGRAMA> programas = UI.waitFor(AsyncDatabase.listarProgramas(true, "PCD"), "A obter os programas");
         if (programas == null || programas.isEmpty()) {
             UI.printASCII("CROSS", "De momento não há programas disponiveis.");
             return;
         }
 
         String nident = UI.prompt(
-                "Número de Identificação do Voluntário: ",
-                (str) -> Validator.isLength(str,11),
-                "O número de identificação do voluntário não deve passar os 11 characteres.");
+                "Número de Identificação ou nome do Voluntário: ",
+                (str) -> Validator.isLength(str,100),
+                "O número de identificação ou nome do voluntário não deve passar os 100 characteres.");
         if (nident == null) return;
+        // Only a number known to the identity filter is taken as one, anything else is searched by name
+        if (!Validator.isLength(nident,11) || !Database.existeIdentificacao(nident)) {
+            nident = selecionarColaborador(nident);
+            if (nident == null) {
+                UI.printASCII("CROSS", "Nenhum voluntário encontrado com esse nome.");
+                return;
+            }
+        }
 
         String programaId = selecionarPrograma(programas);
         if (programaId == null) return;
 
-        boolean success = Database.alterarProgramaVoluntario(nident, programaId);
-        if (success) {
+        Boolean success = UI.waitFor(AsyncDatabase.alterarProgramaVoluntario(nident, programaId), "A alterar o programa");
+        if (Boolean.TRUE.equals(success)) {
             UI.printASCII("BS", "O voluntario foi adicionado com sucesso ao programa!");
         } else {
             UI.printASCII("CROSS", "Não foi possivel realizar o registo do voluntario no novo programa!");
@@ -452,7 +653,7 @@ public class App {
     private void cancelarProgramaCurtaDuracao() {
         UI.printPromptStart("Cancelar programa de curta duração:");
 
-        ArrayList<PROGRAMA> programas = Database.listarProgramas(true, "PCD");
+        ArrayList<PROGRAMA> programas = UI.waitFor(AsyncDatabase.listarProgramas(true, "PCD"), "A obter os programas");
         if (programas == null || programas.isEmpty()) {
             UI.printASCIIError("CROSS", "De momento não há programas disponiveis.");
             return;
@@ -460,14 +661,44 @@ public class App {
         String programaId = selecionarPrograma(programas);
         if (programaId == null) return;
 
-        boolean success = Database.cancelarProgramaCurtaDuracao(programaId);
-        if (success) {
+        Boolean success = UI.waitFor(AsyncDatabase.cancelarProgramaCurtaDuracao(programaId), "A cancelar o programa");
+        if (Boolean.TRUE.equals(success)) {
             UI.printASCII("BS", "O programa foi cancelado com sucesso!");
         } else {
             UI.printASCII("CROSS", "Não foi possivel cancelar o programa!");
         }
     }
 
+    /**
+     * Finds the colaborators that have a contact. Asks for the email or phone number.
+     *
+     * {@link Database#procurarTitularContacto(String)}
+     */
+    private void procurarTitularContacto() {
+        UI.printPromptStart("Procurar o titular de um contacto:");
+
+        String contacto = UI.prompt(
+                "Contacto:",
+                (str) -> Validator.isEmailOrPhone(str),
+                "O contacto deve ser um email ou número de telefone válido.");
+        if (contacto == null) return;
+
+        long start = System.nanoTime();
+        List<ContactIndex.Owner> titulares = Database.procurarTitularContacto(contacto);
+        long elapsed = System.nanoTime() - start;
+        if (titulares == null) {
+            UI.printASCIIError("CROSS", "Os contactos dos colaboradores não foram carregados.");
+            return;
+        }
+        UI.printASCII("IT", String.format("%d titulares (%.3fms)", titulares.size(), elapsed / 1e6));
+        for (ContactIndex.Owner titular : titulares) {
+            CONTACTOEMERGENCIA emergencia = titular.emergencia ? Database.getContactoEmergencia(titular.idtitular, titular.noordem) : null;
+            System.out.println(String.format(" - Colaborador %d | %s %d | %s%s", titular.idtitular,
+                    titular.emergencia ? "Contacto de emergência" : "Contacto", titular.noordem, titular.descricao,
+                    emergencia != null ? " | " + emergencia.nome : ""));
+        }
+    }
+
     /**
      * Shows all contacts.
      * Asks type of contact (normal or emergency), time filter (last 6 months or 1 year) and contact filter to show (email, phone or both).
@@ -522,6 +753,53 @@ public class App {
         Database.apresentarVoluntariosUltimosAnos();
     }
 
+    /**
+     * Shows every report: the contacts for each type, time and contact filter, the colaborators of both types and the
+     * latest volunteers. The report queries run at the same time, each on its own connection, and the reports are
+     * shown in a fixed order once they are all done.
+     *
+     * {@link AsyncDatabase#relatorioContactos(String, String, String)}
+     * {@link AsyncDatabase#relatorioColaboradores(String)}
+     * {@link AsyncDatabase#relatorioVoluntariosUltimosAnos()}
+     */
+    private void dashboard() {
+        UI.printPromptStart("Painel com todos os relatórios:");
+
+        long start = System.nanoTime();
+        ArrayList<CompletableFuture<Report>> relatorios = new ArrayList<>();
+        for (String tipo : new String[]{"Normal", "Emergência"}) {
+            for (String tempo : new String[]{"Nos últimos 6 meses", "No último ano"}) {
+                for (String filter : new String[]{"Emails", "Telefones", "Ambos"}) {
+                    relatorios.add(AsyncDatabase.relatorioContactos(tipo, tempo, filter));
+                }
+            }
+        }
+        relatorios.add(AsyncDatabase.relatorioColaboradores("Assalariado"));
+        relatorios.add(AsyncDatabase.relatorioColaboradores("Voluntário"));
+        relatorios.add(AsyncDatabase.relatorioVoluntariosUltimosAnos());
+
+        UI.waitFor(CompletableFuture.allOf(relatorios.toArray(new CompletableFuture<?>[0])), "A obter os relatórios");
+        long elapsed = System.nanoTime() - start;
+
+        long queries = 0;
+        int failed = 0;
+        for (CompletableFuture<Report> future : relatorios) {
+            Report relatorio = future.isCompletedExceptionally() ? null : future.getNow(null);
+            if (relatorio == null) {
+                failed++;
+                continue;
+            }
+            System.out.println();
+            relatorio.print();
+            queries += relatorio.elapsedNanos;
+        }
+
+        System.out.println();
+        UI.printASCII("INF", String.format("%d relatórios em %.0fms (%.0fms somando as consultas).",
+                relatorios.size() - failed, elapsed / 1e6, queries / 1e6));
+        if (failed > 0) UI.printASCII("CROSS", "Não foi possivel obter " + failed + " relatórios.");
+    }
+
     /*
         MENU:
         1. Adicionar Colaborador
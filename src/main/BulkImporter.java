@@ -0,0 +1,444 @@
+package main;
+
+import index.IdentityFilter;
+import jdbc.Database;
+import model.*;
+import view.UI;
+import view.Validator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Imports colaborators in bulk from a CSV (comma separated) or TSV (tab separated) file.
+ * <p>
+ * The file is streamed in chunks of lines. Every chunk is checked in parallel with
+ * {@link Validator#validateRecords(String[][], java.util.function.Predicate)}, which applies the rules used by
+ * {@link App} when a colaborator is added by hand, and valid lines are inserted in batches of a configurable size,
+ * one transaction per batch. Colaborators whose identification or fiscal number is already in the database, or in an
+ * earlier line of the file, are rejected without a query using the identity filters. The numbers of the file are only
+ * kept until their batch is inserted, when the database filters have them, so memory does not grow with the file.
+ * Without the database filters a repeated number is rejected by the unique constraint of the database.
+ * If a batch fails its lines are retried one by one so only the bad ones are rejected.
+ * Rejected lines are written, with the reason, to a file next to the imported one.
+ * <p>
+ * The first line must be a header with the {@link #COLUMNS} in order. Contacts are separated by {@code |}.
+ * Emergency contacts are separated by {@code |} and each one has four parts separated by {@code ;}:
+ * the contact, the name, the kinship degree and the emergency contact.
+ */
+final class BulkImporter {
+    /** Columns of the import file, in the order they must appear. The same order as {@link Validator.Field}. */
+    static final String[] COLUMNS = {
+            "tipo", "nome", "apelido", "dtnascimento", "nident", "tipoid", "nfiscal", "nacionalidade", "morada",
+            "ocupacaoatual", "idioma", "idprograma", "cargo", "vencimento",
+            "seguro_data", "seguro_descricao", "seguro_premio", "seguro_prazo", "seguro_duracao",
+            "contactos", "contactos_emergencia"
+    };
+    /** Index of each column in {@link #COLUMNS} */
+    private static final int TIPO = 0, NOME = 1, APELIDO = 2, DTNASCIMENTO = 3, NIDENT = 4, TIPOID = 5, NFISCAL = 6,
+            NACIONALIDADE = 7, MORADA = 8, OCUPACAOATUAL = 9, IDIOMA = 10, IDPROGRAMA = 11, CARGO = 12, VENCIMENTO = 13,
+            SEGURO_DATA = 14, SEGURO_DESCRICAO = 15, SEGURO_PREMIO = 16, SEGURO_PRAZO = 17, SEGURO_DURACAO = 18,
+            CONTACTOS = 19, CONTACTOS_EMERGENCIA = 20;
+    /** Reason a line is rejected for each invalid field, in the {@link Validator.Field} order */
+    private static final String[] REASONS = {
+            "Tipo de colaborador inválido", "Nome inválido", "Apelido inválido", "Data de nascimento inválida",
+            "Número de identificação inválido", "Tipo de identificação inválido", "Número fiscal inválido",
+            "Nacionalidade inválida", "Morada inválida", "Ocupação atual inválida", "Idioma inválido",
+            "Programa inexistente ou já iniciado", "Cargo inválido", "Vencimento inválido", "Data do seguro inválida",
+            "Descrição do seguro inválida", "Prémio do seguro inválido", "Prazo do seguro inválido",
+            "Duração do seguro inválida", "Contactos inválidos", "Contactos de emergência inválidos"
+    };
+    /** Number of lines validated together, in parallel */
+    private static final int VALIDATION_CHUNK = Math.max(1, Integer.getInteger("ongd.import.validationChunk", 16384));
+    /** Number of batches between progress messages */
+    private static final int PROGRESS_BATCHES = 10;
+
+    /** The file to import */
+    private final Path input;
+    /** The file where rejected lines are written */
+    private final Path rejects;
+    /** Number of colaborators inserted per transaction */
+    private final int batchSize;
+    /** Field separator of the file */
+    private final char delimiter;
+
+    /** Identifiers of the programs volunteers can be added to */
+    private HashSet<String> programas;
+    /** Identification numbers of the valid lines not inserted yet */
+    private IdentityFilter nidents;
+    /** Fiscal numbers of the valid lines not inserted yet */
+    private IdentityFilter nfiscais;
+    /** Number of lines read, without the header */
+    private long read;
+    /** Number of colaborators inserted */
+    private long imported;
+    /** Number of lines rejected */
+    private long rejected;
+    /** Number of batches inserted */
+    private long batches;
+
+    /**
+     * Creates an importer
+     *
+     * @param input The CSV or TSV file to import. Files ending in {@code .tsv} or {@code .tab} are tab separated.
+     * @param batchSize Number of colaborators inserted per transaction
+     */
+    BulkImporter(Path input, int batchSize) {
+        this.input = input;
+        this.rejects = Paths.get(input.toString() + ".rejeitados.tsv");
+        this.batchSize = batchSize;
+        String name = input.getFileName().toString().toLowerCase();
+        this.delimiter = name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+    }
+
+    /**
+     * Runs the import and shows a summary with the throughput.
+     *
+     * @return {@code boolean} indicating if the file could be read to the end
+     */
+    boolean run() {
+        ArrayList<PROGRAMA> ativos = Database.listarProgramas(true, "PCD");
+        if (ativos == null) {
+            UI.printASCIIError("CROSS", "Não foi possivel obter a lista de programas.");
+            return false;
+        }
+        programas = new HashSet<>();
+        for (PROGRAMA programa : ativos) programas.add(programa.identificador);
+        nidents = new IdentityFilter(batchSize);
+        nfiscais = new IdentityFilter(batchSize);
+
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejectWriter = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header != null && header.startsWith("\uFEFF")) header = header.substring(1);
+            String[] headerFields = new String[COLUMNS.length];
+            if (header == null || split(header, headerFields) != COLUMNS.length || !isHeader(headerFields)) {
+                UI.printASCIIError("CROSS", "O cabeçalho do ficheiro deve ter as colunas: " + String.join(String.valueOf(delimiter), COLUMNS));
+                return false;
+            }
+            rejectWriter.write("linha\tmotivo\tregisto");
+            rejectWriter.newLine();
+
+            Chunk chunk = new Chunk(VALIDATION_CHUNK);
+            ArrayList<Pending> batch = new ArrayList<>(batchSize);
+            int lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                read++;
+
+                String[] fields = new String[COLUMNS.length];
+                if (split(line, fields) != COLUMNS.length) {
+                    reject(rejectWriter, lineNumber, "Número de campos inválido", line);
+                    continue;
+                }
+                chunk.add(lineNumber, line, fields);
+                if (chunk.size == VALIDATION_CHUNK) importChunk(chunk, batch, rejectWriter, start);
+            }
+            importChunk(chunk, batch, rejectWriter, start);
+            flush(batch, rejectWriter);
+        } catch (IOException e) {
+            UI.printASCIIError("CROSS", "Erro ao ler o ficheiro: " + e.getMessage());
+            return false;
+        } finally {
+            printSummary(start);
+        }
+        return true;
+    }
+
+    /**
+     * Validate a chunk of lines in parallel, reject the invalid ones and insert the valid ones in batches.
+     *
+     * @param chunk The lines to import. Cleared afterwards.
+     * @param batch The lines waiting to be inserted. Lines left over are inserted with the next chunk.
+     * @param rejectWriter Where rejected lines are written
+     * @param start The {@code System.nanoTime()} when the import started
+     * @throws IOException if the reject file can not be written
+     */
+    private void importChunk(Chunk chunk, ArrayList<Pending> batch, BufferedWriter rejectWriter, long start) throws IOException {
+        if (chunk.size == 0) return;
+        String[][] records = chunk.size == chunk.records.length ? chunk.records : Arrays.copyOf(chunk.records, chunk.size);
+        long[] errors = Validator.validateRecords(records, programas::contains);
+        for (int i = 0; i < chunk.size; i++) {
+            if (errors[i] != 0) {
+                reject(rejectWriter, chunk.lineNumbers[i], reason(errors[i]), chunk.lines[i]);
+                continue;
+            }
+            String reason = duplicate(chunk.records[i]);
+            if (reason != null) {
+                reject(rejectWriter, chunk.lineNumbers[i], reason, chunk.lines[i]);
+                continue;
+            }
+            batch.add(new Pending(chunk.lineNumbers[i], chunk.lines[i], toRegistration(chunk.records[i])));
+            if (batch.size() == batchSize) {
+                flush(batch, rejectWriter);
+                if (++batches % PROGRESS_BATCHES == 0) printProgress(start);
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Checks if the identification or fiscal number of a valid line belongs to a colaborator in the database or in an
+     * earlier line not inserted yet. The numbers of a new colaborator are remembered until its batch is inserted.
+     *
+     * @param f The fields of the line
+     * @return The reason the line is a duplicate. Null if it is not.
+     */
+    private String duplicate(String[] f) {
+        if (Database.existeIdentificacao(f[NIDENT])) return "Número de identificação já registado";
+        if (Database.existeNumeroFiscal(f[NFISCAL])) return "Número fiscal já registado";
+        if (nidents.contains(f[NIDENT])) return "Número de identificação repetido no ficheiro";
+        if (nfiscais.contains(f[NFISCAL])) return "Número fiscal repetido no ficheiro";
+        nidents.add(f[NIDENT]);
+        nfiscais.add(f[NFISCAL]);
+        return null;
+    }
+
+    /**
+     * Get the reason a line is rejected from its error bitmap
+     *
+     * @param errors The error bitmap of the line
+     * @return The reason of every invalid field, separated by {@code ;}
+     */
+    private static String reason(long errors) {
+        StringBuilder reason = new StringBuilder();
+        for (Validator.Field field : Validator.Field.values()) {
+            if ((errors & field.bit) == 0) continue;
+            if (reason.length() > 0) reason.append("; ");
+            reason.append(REASONS[field.ordinal()]);
+        }
+        return reason.toString();
+    }
+
+    /**
+     * Insert a batch of valid lines. If the batch transaction fails each line is retried on its own.
+     * The numbers of the batch are then forgotten, the inserted ones are in the database filters.
+     *
+     * @param batch The pending lines. Cleared after the insert.
+     * @param rejectWriter Where rejected lines are written
+     * @throws IOException if the reject file can not be written
+     */
+    private void flush(ArrayList<Pending> batch, BufferedWriter rejectWriter) throws IOException {
+        if (batch.isEmpty()) return;
+        List<Registration> registos = new ArrayList<>(batch.size());
+        for (Pending pending : batch) registos.add(pending.registo);
+
+        if (Database.adicionarColaboradores(registos)) {
+            imported += batch.size();
+        } else {
+            for (Pending pending : batch) {
+                if (Database.adicionarColaboradores(Collections.singletonList(pending.registo))) imported++;
+                else reject(rejectWriter, pending.lineNumber, "Erro ao inserir na base de dados", pending.line);
+            }
+        }
+        batch.clear();
+        nidents.clear();
+        nfiscais.clear();
+    }
+
+    /**
+     * Write a rejected line to the reject file
+     *
+     * @param rejectWriter The reject file writer
+     * @param lineNumber The line number in the imported file
+     * @param reason The reason the line was rejected
+     * @param line The rejected line
+     * @throws IOException if the reject file can not be written
+     */
+    private void reject(BufferedWriter rejectWriter, int lineNumber, String reason, String line) throws IOException {
+        rejected++;
+        rejectWriter.write(lineNumber + "\t" + reason + "\t" + line);
+        rejectWriter.newLine();
+    }
+
+    /**
+     * Show how many lines were processed so far and the current throughput
+     *
+     * @param start The {@code System.nanoTime()} when the import started
+     */
+    private void printProgress(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(" - %d colaboradores importados, %d rejeitados (%.0f registos/s)%n", imported, rejected, read / seconds);
+    }
+
+    /**
+     * Show the import summary
+     *
+     * @param start The {@code System.nanoTime()} when the import started
+     */
+    private void printSummary(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        UI.printASCII("BS", String.format("Importação concluída em %.1fs: %d linhas lidas, %d colaboradores importados, %d rejeitados (%.0f registos/s).",
+                seconds, read, imported, rejected, seconds > 0 ? read / seconds : 0));
+        if (rejected > 0) UI.printASCII("IT", "Linhas rejeitadas em " + rejects);
+    }
+
+    /**
+     * Checks if the split header matches the {@link #COLUMNS}
+     *
+     * @param fields The header fields
+     * @return {@code boolean} indicating if the header is valid
+     */
+    private static boolean isHeader(String[] fields) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (!COLUMNS[i].equalsIgnoreCase(fields[i].trim())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Build the models of a valid line, numbering the contacts like {@link App} does.
+     *
+     * @param f The fields of the line
+     * @return The {@link Registration}
+     */
+    private static Registration toRegistration(String[] f) {
+        COLABORADOR colaborador = new COLABORADOR(f[NOME], f[APELIDO], f[DTNASCIMENTO], f[NIDENT], Validator.identificationType(f[TIPOID]),
+                f[NFISCAL].isEmpty() ? null : f[NFISCAL], f[NACIONALIDADE], f[MORADA]);
+        SEGURO seguro = new SEGURO(f[SEGURO_DATA], f[SEGURO_DESCRICAO], f[SEGURO_PREMIO], f[SEGURO_PRAZO], f[SEGURO_DURACAO]);
+
+        VOLUNTARIO voluntario = null;
+        ASSALARIADO assalariado = null;
+        if (Validator.isVolunteer(f[TIPO])) voluntario = new VOLUNTARIO(f[OCUPACAOATUAL], f[IDIOMA], f[IDPROGRAMA]);
+        else assalariado = new ASSALARIADO(f[CARGO], f[VENCIMENTO]);
+
+        ArrayList<CONTACTO> contactos = new ArrayList<>();
+        int noordem = 0;
+        for (String contacto : f[CONTACTOS].split("\\|")) {
+            contacto = contacto.trim();
+            contactos.add(new CONTACTO(++noordem, contacto, Validator.isEmail(contacto) ? "email" : "telefone"));
+        }
+        ArrayList<CONTACTOEMERGENCIA> contactos_emergencia = new ArrayList<>();
+        if (voluntario != null) {
+            for (String emergencia : f[CONTACTOS_EMERGENCIA].split("\\|")) {
+                String[] parts = emergencia.split(";", -1);
+                String contacto = parts[0].trim();
+                contactos.add(new CONTACTO(++noordem, contacto, Validator.isEmail(contacto) ? "email" : "telefone"));
+                contactos_emergencia.add(new CONTACTOEMERGENCIA(parts[1].trim(), parts[2].trim(), parts[3].trim(), noordem));
+            }
+        }
+        return new Registration(colaborador, seguro, voluntario, assalariado, contactos, contactos_emergencia);
+    }
+
+    /**
+     * Split a line into fields. Fields can be quoted with {@code "} to contain the delimiter, and a quote inside a
+     * quoted field is written as {@code ""}. Fields are trimmed.
+     *
+     * @param line The line to split
+     * @param fields Array filled with the fields. Extra fields are counted but not stored.
+     * @return The number of fields in the line
+     */
+    private int split(String line, String[] fields) {
+        StringBuilder field = new StringBuilder();
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                if (count < fields.length) fields[count] = field.toString().trim();
+                count++;
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (count < fields.length) fields[count] = field.toString().trim();
+        return count + 1;
+    }
+
+    /**
+     * Lines read from the file and split into fields, waiting to be validated
+     */
+    private static final class Chunk {
+        /** The line numbers in the imported file */
+        final int[] lineNumbers;
+        /** The original lines */
+        final String[] lines;
+        /** The fields of each line */
+        final String[][] records;
+        /** Number of lines in the chunk */
+        int size;
+
+        /**
+         * Creates an empty chunk
+         *
+         * @param capacity Maximum number of lines
+         */
+        Chunk(int capacity) {
+            this.lineNumbers = new int[capacity];
+            this.lines = new String[capacity];
+            this.records = new String[capacity][];
+        }
+
+        /**
+         * Add a line to the chunk
+         *
+         * @param lineNumber The line number
+         * @param line The original line
+         * @param fields The fields of the line
+         */
+        void add(int lineNumber, String line, String[] fields) {
+            lineNumbers[size] = lineNumber;
+            lines[size] = line;
+            records[size++] = fields;
+        }
+
+        /**
+         * Remove every line from the chunk
+         */
+        void clear() {
+            Arrays.fill(lines, 0, size, null);
+            Arrays.fill(records, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * A valid line waiting to be inserted
+     */
+    private static final class Pending {
+        /** The line number in the imported file */
+        final int lineNumber;
+        /** The original line */
+        final String line;
+        /** The models built from the line */
+        final Registration registo;
+
+        /**
+         * Creates a pending line
+         *
+         * @param lineNumber The line number
+         * @param line The original line
+         * @param registo The models built from the line
+         */
+        Pending(int lineNumber, String line, Registration registo) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.registo = registo;
+        }
+    }
+}
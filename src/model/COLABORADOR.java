@@ -2,6 +2,7 @@ package model;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 /**
@@ -28,12 +29,50 @@ public class COLABORADOR {
     /** Colaborator adress */
     public String morada;
 
+    /** Columns read by {@link #mapper(ResultSetMetaData)} */
+    private static final String[] COLUMNS = {
+            "nocolaborador", "nome", "apelido", "dtnascimento", "nident", "tipoid", "nfiscal", "nacionalidade", "morada"
+    };
+
+    /**
+     * Creates a {@link RowMapper} for colaborators. The column indexes are resolved once from the metadata.
+     *
+     * @param md The {@code ResultSetMetaData} of the query
+     * @return A {@code RowMapper} of {@code COLABORADOR}
+     * @throws SQLException if a column is missing or a database access error occurs
+     */
+    public static RowMapper<COLABORADOR> mapper(ResultSetMetaData md) throws SQLException {
+        final int[] index = Columns.resolve(md, COLUMNS);
+        return rs -> new COLABORADOR(rs, index);
+    }
+
+    /**
+     * Creates a colaborator from the current row of a {@code ResultSet} using resolved column indexes.
+     *
+     * @param rs The {@code ResultSet} with the info
+     * @param index The column indexes, in the {@link #COLUMNS} order
+     * @throws SQLException if a database access error occurs
+     */
+    private COLABORADOR(ResultSet rs, int[] index) throws SQLException {
+        this.nocolaborador = rs.getInt(index[0]);
+        this.nome = rs.getString(index[1]);
+        this.apelido = rs.getString(index[2]);
+        this.dtnascimento = rs.getDate(index[3]);
+        this.nident = rs.getString(index[4]);
+        this.tipoid = rs.getInt(index[5]);
+        this.nfiscal = rs.getString(index[6]);
+        this.nacionalidade = rs.getString(index[7]);
+        this.morada = rs.getString(index[8]);
+    }
+
     /**
      * Creates a colaborator from a {@code ResultSet}.
      * Used to facilitate the creation of a java model from a {@code ResultSet}.
      *
      * @param rs The {@code ResultSet} with the info
+     * @deprecated Looks up every column by name and hides errors. Use {@link #mapper(ResultSetMetaData)}.
      */
+    @Deprecated
     public COLABORADOR(ResultSet rs) {
         try {
             this.nocolaborador = rs.getInt("nocolaborador");
@@ -72,6 +111,30 @@ public class COLABORADOR {
         this.morada = morada_;
     }
 
+    /**
+     * Creates a colaborator with every column, as read from the database
+     * @param nocolaborador_ Colaborator number
+     * @param nome_ Colaborator name
+     * @param apelido_ Colaborator last name
+     * @param dtnascimento_ Colaborator birth date
+     * @param nident_ Colaborator identification number
+     * @param tipoid_ Colaborator ID type
+     * @param nfiscal_ Colaborator fiscal number
+     * @param nacionalidade_ Colaborator nationality
+     * @param morada_ Colaborator adress
+     */
+    public COLABORADOR(int nocolaborador_,String nome_,String apelido_,java.sql.Date dtnascimento_,String nident_,int tipoid_,String nfiscal_,String nacionalidade_,String morada_) {
+        this.nocolaborador = nocolaborador_;
+        this.nome = nome_;
+        this.apelido = apelido_;
+        this.dtnascimento = dtnascimento_;
+        this.nident = nident_;
+        this.tipoid = tipoid_;
+        this.nfiscal = nfiscal_;
+        this.nacionalidade = nacionalidade_;
+        this.morada = morada_;
+    }
+
     /**
      * Fills in a {@code PreparedStatement} with the information from this model
      * @param statement The {@code PreparedStatement} to fill
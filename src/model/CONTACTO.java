@@ -2,6 +2,7 @@ package model;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 /**
@@ -18,12 +19,43 @@ public class CONTACTO {
     /** Contact description. */
     public String descricao;
 
+    /** Columns read by {@link #mapper(ResultSetMetaData)} */
+    private static final String[] COLUMNS = {"idtitular", "noordem", "contacto", "descricao"};
+
+    /**
+     * Creates a {@link RowMapper} for contacts. The column indexes are resolved once from the metadata.
+     *
+     * @param md The {@code ResultSetMetaData} of the query
+     * @return A {@code RowMapper} of {@code CONTACTO}
+     * @throws SQLException if a column is missing or a database access error occurs
+     */
+    public static RowMapper<CONTACTO> mapper(ResultSetMetaData md) throws SQLException {
+        final int[] index = Columns.resolve(md, COLUMNS);
+        return rs -> new CONTACTO(rs, index);
+    }
+
+    /**
+     * Creates a colaborator contact from the current row of a {@code ResultSet} using resolved column indexes.
+     *
+     * @param rs The {@code ResultSet} with the info
+     * @param index The column indexes, in the {@link #COLUMNS} order
+     * @throws SQLException if a database access error occurs
+     */
+    private CONTACTO(ResultSet rs, int[] index) throws SQLException {
+        this.idtitular = rs.getInt(index[0]);
+        this.noordem = rs.getInt(index[1]);
+        this.contacto = rs.getString(index[2]);
+        this.descricao = rs.getString(index[3]);
+    }
+
     /**
      * Creates a colaborator contact from a {@code ResultSet}.
      * Used to facilitate the creation of a java model from a {@code ResultSet}.
      *
      * @param rs The {@code ResultSet} with the info
+     * @deprecated Looks up every column by name and hides errors. Use {@link #mapper(ResultSetMetaData)}.
      */
+    @Deprecated
     public CONTACTO(ResultSet rs) {
         try {
             this.idtitular = rs.getInt("idtitular");
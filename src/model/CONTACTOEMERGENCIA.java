@@ -1,6 +1,8 @@
 package model;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 /**
@@ -19,6 +21,36 @@ public class CONTACTOEMERGENCIA {
     /** Order number of the contact. Used as a priority number. */
     public int noordem;
 
+    /** Columns read by {@link #mapper(ResultSetMetaData)} */
+    private static final String[] COLUMNS = {"nome", "grauparentesco", "contacto", "idtitular", "noordem"};
+
+    /**
+     * Creates a {@link RowMapper} for emergency contacts. The column indexes are resolved once from the metadata.
+     *
+     * @param md The {@code ResultSetMetaData} of the query
+     * @return A {@code RowMapper} of {@code CONTACTOEMERGENCIA}
+     * @throws SQLException if a column is missing or a database access error occurs
+     */
+    public static RowMapper<CONTACTOEMERGENCIA> mapper(ResultSetMetaData md) throws SQLException {
+        final int[] index = Columns.resolve(md, COLUMNS);
+        return rs -> new CONTACTOEMERGENCIA(rs, index);
+    }
+
+    /**
+     * Creates a emergency contact from the current row of a {@code ResultSet} using resolved column indexes.
+     *
+     * @param rs The {@code ResultSet} with the info
+     * @param index The column indexes, in the {@link #COLUMNS} order
+     * @throws SQLException if a database access error occurs
+     */
+    private CONTACTOEMERGENCIA(ResultSet rs, int[] index) throws SQLException {
+        this.nome = rs.getString(index[0]);
+        this.grauparentesco = rs.getString(index[1]);
+        this.contacto = rs.getString(index[2]);
+        this.idtitular = rs.getInt(index[3]);
+        this.noordem = rs.getInt(index[4]);
+    }
+
     /**
      * Creates a emergency contact for a volunteer
      *
@@ -0,0 +1,36 @@
+package model;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Resolves column names to column indexes. Used by the {@link RowMapper} factories of the models.
+ */
+final class Columns {
+    /**
+     * Find the index of each column in a result. The first column with a matching label wins.
+     *
+     * @param md The {@code ResultSetMetaData} of the result
+     * @param required Names of the columns that must be present
+     * @param optional Names of the columns that may be missing
+     * @return The 1-based column indexes, required columns first. Missing optional columns have index 0.
+     * @throws SQLException if a required column is missing or a database access error occurs
+     */
+    static int[] resolve(ResultSetMetaData md, String[] required, String... optional) throws SQLException {
+        int[] indexes = new int[required.length + optional.length];
+        int count = md.getColumnCount();
+        for (int column = count; column >= 1; column--) {
+            String label = md.getColumnLabel(column);
+            for (int i = 0; i < required.length; i++) {
+                if (required[i].equalsIgnoreCase(label)) indexes[i] = column;
+            }
+            for (int i = 0; i < optional.length; i++) {
+                if (optional[i].equalsIgnoreCase(label)) indexes[required.length + i] = column;
+            }
+        }
+        for (int i = 0; i < required.length; i++) {
+            if (indexes[i] == 0) throw new SQLException("Column " + required[i] + " not found in result");
+        }
+        return indexes;
+    }
+}
@@ -1,9 +1,8 @@
 package model;
 
-import jdbc.Database;
-
 import java.math.BigDecimal;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 /**
@@ -29,13 +28,58 @@ public class PROGRAMA {
     public BigDecimal custo;
     /** Program discrimination {@code String}. Says if the program is short ("pcd") or long ("pld") term. */
     public String atrdiscriminante;
+    /** Name of the intervention area. Loaded together with the program. */
+    public String areaintervencao;
+
+    /** Columns read by {@link #mapper(ResultSetMetaData)} */
+    private static final String[] COLUMNS = {
+            "identificador", "codigo", "idassociacao", "nome", "datainicio", "datafinal", "idademinima", "custo", "atrdiscriminante"
+    };
+
+    /**
+     * Creates a {@link RowMapper} for programs. The column indexes are resolved once from the metadata.
+     * The {@code areaintervencao} column is optional.
+     *
+     * @param md The {@code ResultSetMetaData} of the query
+     * @return A {@code RowMapper} of {@code PROGRAMA}
+     * @throws SQLException if a column is missing or a database access error occurs
+     */
+    public static RowMapper<PROGRAMA> mapper(ResultSetMetaData md) throws SQLException {
+        final int[] index = Columns.resolve(md, COLUMNS, "areaintervencao");
+        return rs -> new PROGRAMA(rs, index);
+    }
+
+    /**
+     * Creates a program from the current row of a {@code ResultSet} using resolved column indexes.
+     *
+     * @param rs The {@code ResultSet} with the info
+     * @param index The column indexes, in the {@link #COLUMNS} order followed by {@code areaintervencao}
+     * @throws SQLException if a database access error occurs
+     */
+    private PROGRAMA(ResultSet rs, int[] index) throws SQLException {
+        this.identificador = rs.getString(index[0]);
+        this.codigo = rs.getString(index[1]);
+        this.idassociacao = rs.getInt(index[2]);
+        this.nome = rs.getString(index[3]);
+        this.datainicio = rs.getDate(index[4]);
+        this.datafinal = rs.getDate(index[5]);
+        this.idademinima = rs.getInt(index[6]);
+        this.custo = rs.getBigDecimal(index[7]);
+        this.atrdiscriminante = rs.getString(index[8]);
+        if (index[9] != 0) {
+            this.areaintervencao = rs.getString(index[9]);
+            if (this.areaintervencao != null) this.areaintervencao = this.areaintervencao.trim();
+        }
+    }
 
     /**
      * Creates a program from a {@code ResultSet}.
      * Used to facilitate the creation of a java model from a {@code ResultSet}.
      *
      * @param rs The {@code ResultSet} with the info
+     * @deprecated Looks up every column by name and hides errors. Use {@link #mapper(ResultSetMetaData)}.
      */
+    @Deprecated
     public PROGRAMA(ResultSet rs) {
         try {
             this.identificador = rs.getString("identificador");
@@ -47,6 +91,8 @@ public class PROGRAMA {
             this.idademinima = rs.getInt("idademinima");
             this.custo = rs.getBigDecimal("custo");
             this.atrdiscriminante = rs.getString("atrdiscriminante");
+            this.areaintervencao = rs.getString("areaintervencao");
+            if (this.areaintervencao != null) this.areaintervencao = this.areaintervencao.trim();
         } catch (SQLException x) {
             // quiet
         }
@@ -59,7 +105,6 @@ public class PROGRAMA {
      */
     @Override
     public String toString() {
-        String areaintervencao = Database.getAreaIntervencao(codigo);
         return nome + " (" + areaintervencao + ") (Idade min: " + idademinima + ") | De " + datainicio.toString() + " a " + datafinal.toString();
     }
 }
@@ -0,0 +1,57 @@
+package model;
+
+import java.util.ArrayList;
+
+/**
+ * Everything needed to register a colaborator: the colaborator itself, its insurance,
+ * its volunteer or paycheck information and its contacts.
+ * Used to register many colaborators at once.
+ */
+public class Registration {
+    /** The colaborator */
+    public COLABORADOR colaborador;
+    /** The colaborator insurance */
+    public SEGURO seguro;
+    /** The volunteer information. Null if the colaborator has a paycheck. */
+    public VOLUNTARIO voluntario;
+    /** The paycheck information. Null if the colaborator is a volunteer. */
+    public ASSALARIADO assalariado;
+    /** The colaborator contacts, including the ones of the emergency contacts */
+    public ArrayList<CONTACTO> contactos;
+    /** The volunteer emergency contacts */
+    public ArrayList<CONTACTOEMERGENCIA> contactos_emergencia;
+
+    /**
+     * Creates a colaborator registration
+     *
+     * @param colaborador_ The colaborator
+     * @param seguro_ The colaborator insurance
+     * @param voluntario_ The volunteer information. Null if the colaborator has a paycheck.
+     * @param assalariado_ The paycheck information. Null if the colaborator is a volunteer.
+     * @param contactos_ The colaborator contacts
+     * @param contactos_emergencia_ The volunteer emergency contacts
+     */
+    public Registration(COLABORADOR colaborador_, SEGURO seguro_, VOLUNTARIO voluntario_, ASSALARIADO assalariado_,
+                        ArrayList<CONTACTO> contactos_, ArrayList<CONTACTOEMERGENCIA> contactos_emergencia_) {
+        this.colaborador = colaborador_;
+        this.seguro = seguro_;
+        this.voluntario = voluntario_;
+        this.assalariado = assalariado_;
+        this.contactos = contactos_;
+        this.contactos_emergencia = contactos_emergencia_;
+    }
+
+    /**
+     * Sets the colaborator number on the colaborator and every row that references it
+     *
+     * @param nocolaborador The colaborator number
+     */
+    public void setNoColaborador(int nocolaborador) {
+        colaborador.nocolaborador = nocolaborador;
+        seguro.setNoColaborador(nocolaborador);
+        if (voluntario != null) voluntario.setNoColaborador(nocolaborador);
+        if (assalariado != null) assalariado.setNoColaborador(nocolaborador);
+        for (CONTACTO contacto : contactos) contacto.setNoColaborador(nocolaborador);
+        for (CONTACTOEMERGENCIA contacto_emergencia : contactos_emergencia) contacto_emergencia.setNoColaborador(nocolaborador);
+    }
+}
@@ -0,0 +1,22 @@
+package model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@code ResultSet} to a java model.
+ * Mappers are created once per query from the {@code ResultSetMetaData}, so the column indexes are resolved once
+ * and every row is read with index based getters.
+ *
+ * @param <T> The model type
+ */
+public interface RowMapper<T> {
+    /**
+     * Create a model from the current row of a {@code ResultSet}
+     *
+     * @param rs The {@code ResultSet} positioned on the row to map
+     * @return The model
+     * @throws SQLException if a database access error occurs
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,234 @@
+package view;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Renders a table of results to the console one row at a time.
+ * The column layout is computed once, every row is padded into the same reused {@code char} buffer
+ * and written through a single buffered {@code Writer}, so memory use does not grow with the number of rows.
+ * <p>
+ * Like {@code PrintStream}, write errors are not thrown. Use {@link #checkError()} to know if one happened.
+ */
+public final class TableRenderer {
+    /** Number of rows written between flushes so long reports show up while they are rendered */
+    private static final int FLUSH_ROWS = 512;
+    /** Size of the console writer buffer, in chars */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Line separator of the platform */
+    private static final String NEW_LINE = System.lineSeparator();
+    /** {@link ASCII#BV} as a {@code char} */
+    private static final char VERTICAL = ASCII.BV.toString().charAt(0);
+    /** {@link ASCII#BVR} as a {@code char} */
+    private static final char VERTICAL_RIGHT = ASCII.BVR.toString().charAt(0);
+    /** {@link ASCII#BH} as a {@code char} */
+    private static final char HORIZONTAL = ASCII.BH.toString().charAt(0);
+
+    /** The column labels */
+    private final String[] labels;
+    /** The width of each column, including the padding */
+    private final int[] widths;
+    /** Where the table is written to */
+    private final Writer out;
+    /** Reused buffer with the row being rendered */
+    private char[] line;
+    /** Number of chars in {@link #line} */
+    private int length;
+    /** Index of the next cell in the current row */
+    private int cellIndex;
+    /** Number of rows written since the last flush */
+    private int pendingRows;
+    /** Whether a write failed */
+    private boolean error;
+
+    /**
+     * Creates a table renderer.
+     *
+     * @param labels The column labels
+     * @param displaySizes The display size of each column. Columns wider than 25 are shown 25 wide.
+     * @param out The {@code Writer} to render to. Null if rows are only taken with {@link #rowString()}.
+     */
+    public TableRenderer(String[] labels, int[] displaySizes, Writer out) {
+        this.labels = labels;
+        this.widths = new int[displaySizes.length];
+        int total = 2 + NEW_LINE.length();
+        for (int i = 0; i < displaySizes.length; i++) {
+            widths[i] = columnWidth(displaySizes[i]);
+            total += widths[i];
+        }
+        this.out = out;
+        this.line = new char[total];
+    }
+
+    /**
+     * Creates a table renderer that writes to {@code System.out}.
+     *
+     * @param labels The column labels
+     * @param displaySizes The display size of each column
+     * @return The {@code TableRenderer}
+     */
+    public static TableRenderer console(String[] labels, int[] displaySizes) {
+        System.out.flush();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), BUFFER_SIZE);
+        return new TableRenderer(labels, displaySizes, out);
+    }
+
+    /**
+     * Get the width a column takes in the table, including the padding.
+     *
+     * @param displaySize The display size of the column
+     * @return The column width
+     */
+    public static int columnWidth(int displaySize) {
+        return displaySize > 25 ? 27 : displaySize + 2;
+    }
+
+    /**
+     * Write the header with the column labels and the separator line below it.
+     */
+    public void writeHeader() {
+        renderLabels();
+        endRow();
+        renderSeparator();
+        appendNewLine();
+        write();
+    }
+
+    /**
+     * Render the header with the column labels and the separator line below it as a {@code String}.
+     * Used when rows are shown one screen at a time instead of written.
+     *
+     * @return The two header lines, without a trailing line separator
+     */
+    public String headerString() {
+        renderLabels();
+        String labelsLine = new String(line, 0, length);
+        renderSeparator();
+        return labelsLine + NEW_LINE + new String(line, 0, length);
+    }
+
+    /**
+     * Render the column labels into the row buffer.
+     */
+    private void renderLabels() {
+        beginRow();
+        for (String label : labels) cell(label);
+    }
+
+    /**
+     * Render the separator line below the labels into the row buffer.
+     */
+    private void renderSeparator() {
+        int separator = 1;
+        for (int width : widths) separator += width;
+        ensureCapacity(1 + separator + NEW_LINE.length());
+        length = 0;
+        line[length++] = VERTICAL_RIGHT;
+        for (int i = 0; i < separator; i++) line[length++] = HORIZONTAL;
+    }
+
+    /**
+     * Start rendering a row. Must be followed by one {@link #cell(String)} per column and {@link #endRow()}.
+     */
+    public void beginRow() {
+        length = 0;
+        line[length++] = VERTICAL;
+        line[length++] = ' ';
+    }
+
+    /**
+     * Render the next cell of the current row, padded to the column width.
+     * Values longer than the column are written in full.
+     *
+     * @param value The cell value. Null is rendered as {@code "null"}.
+     */
+    public void cell(String value) {
+        if (value == null) value = "null";
+        int column = cellIndex++;
+        int width = column < widths.length ? widths[column] : value.length();
+        int size = Math.max(width, value.length());
+        ensureCapacity(length + size + NEW_LINE.length());
+        value.getChars(0, value.length(), line, length);
+        for (int i = length + value.length(), end = length + size; i < end; i++) line[i] = ' ';
+        length += size;
+    }
+
+    /**
+     * Finish the current row and write it.
+     */
+    public void endRow() {
+        appendNewLine();
+        write();
+        if (++pendingRows >= FLUSH_ROWS) flush();
+    }
+
+    /**
+     * Finish the current row and return it instead of writing it.
+     *
+     * @return The rendered row, without a line separator
+     */
+    public String rowString() {
+        cellIndex = 0;
+        return new String(line, 0, length);
+    }
+
+    /**
+     * Flush every written row to the output.
+     */
+    public void flush() {
+        pendingRows = 0;
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+
+    /**
+     * Flush the output and check if any write failed.
+     *
+     * @return {@code boolean} indicating if a write failed
+     */
+    public boolean checkError() {
+        flush();
+        return error;
+    }
+
+    /**
+     * Add the line separator to the current row and reset the cell index.
+     */
+    private void appendNewLine() {
+        NEW_LINE.getChars(0, NEW_LINE.length(), line, length);
+        length += NEW_LINE.length();
+        cellIndex = 0;
+    }
+
+    /**
+     * Write the current row buffer to the output.
+     */
+    private void write() {
+        if (out == null) return;
+        try {
+            out.write(line, 0, length);
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+
+    /**
+     * Grow the row buffer if needed. Only happens for values longer than their column.
+     *
+     * @param capacity The needed capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > line.length) {
+            char[] bigger = new char[Math.max(capacity, line.length * 2)];
+            System.arraycopy(line, 0, bigger, 0, length);
+            line = bigger;
+        }
+    }
+}
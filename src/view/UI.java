@@ -1,6 +1,12 @@
 package view;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
 
 /**
@@ -10,6 +16,15 @@ public class UI {
     /** {@code Scanner} created from {@code System.in} */
     static private Scanner scanner = new Scanner(System.in);
 
+    /** Number of lines of the console */
+    public static final int CONSOLE_LINES = 25;
+    /** Number of result rows shown per screen by {@link #page(String, UIRowCursor)}. The rest is header and prompt. */
+    public static final int PAGE_ROWS = CONSOLE_LINES - 5;
+    /** Interval between the progress marks shown by {@link #waitFor(Future, String)}, in milliseconds */
+    private static final long WAIT_TICK_MILLIS = 250;
+    /** Number of screens kept in memory by {@link #page(String, UIRowCursor)} to allow going back */
+    private static final int PAGE_WINDOW = 10;
+
     /**
      * Waits for a new line from the scanner and then ignores it. Used as a user confirmation.
      */
@@ -30,6 +45,61 @@ public class UI {
         String populate(int index);
     }
 
+    /**
+     * Interface used to represent an open cursor over rows of results shown by {@link #page(String, UIRowCursor)}.
+     */
+    public interface UIRowCursor {
+        /**
+         * Fetch and render the next row.
+         *
+         * @return The rendered row. Null if there are no more rows or they could not be fetched.
+         */
+        String nextRow();
+
+        /**
+         * Check if the rows stopped because fetching them failed, like when the connection drops.
+         *
+         * @return {@code boolean} indicating if the last {@link #nextRow()} failed
+         */
+        boolean failed();
+
+        /**
+         * Stop fetching rows. Called when the user quits before the last row so the server stops working.
+         */
+        void cancel();
+    }
+
+    /**
+     * Waits for a background operation to finish. If it takes longer than a moment a message is shown,
+     * followed by a progress mark at regular intervals, so the console does not look frozen.
+     *
+     * @param future The background operation
+     * @param text Message shown while waiting
+     * @param <T> The result type
+     * @return The operation result. Null if it failed or the wait was interrupted.
+     */
+    public static <T> T waitFor(Future<T> future, String text) {
+        boolean shown = false;
+        try {
+            while (true) {
+                try {
+                    return future.get(WAIT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (!shown) System.out.print(text);
+                    else System.out.print('.');
+                    shown = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } finally {
+            if (shown) System.out.println();
+        }
+    }
+
     /**
      * Creates and displays the main menu to the user and then waits for user input on a menu option.
      *
@@ -94,6 +164,83 @@ public class UI {
             System.out.println("\n");
     }
 
+    /**
+     * Shows rows one screen at a time. Rows are only fetched from the cursor when the user asks for the next screen.
+     * The last {@link #PAGE_WINDOW} screens are kept so the user can go back to them.
+     * Quitting before the last row cancels the cursor. If fetching the rows fails the last screen is marked as
+     * incomplete, so it is not taken for the end of the results.
+     *
+     * @param header The header shown above the rows of every screen
+     * @param cursor The {@code UIRowCursor} with the rows
+     */
+    public static void page(String header, UIRowCursor cursor) {
+        ArrayList<String[]> window = new ArrayList<>();
+        int firstScreen = 1; // Number of the screen at the start of the window
+        int current = -1;
+        boolean exhausted = false;
+        boolean failed = false;
+        boolean shown = false;
+        boolean fetch = true;
+        while (true) {
+            if (fetch) {
+                fetch = false;
+                String[] rows = new String[PAGE_ROWS];
+                int count = 0;
+                while (count < PAGE_ROWS) {
+                    String row = cursor.nextRow();
+                    if (row == null) {
+                        exhausted = true;
+                        failed = cursor.failed();
+                        break;
+                    }
+                    rows[count++] = row;
+                }
+                if (count > 0) {
+                    window.add(count == PAGE_ROWS ? rows : Arrays.copyOf(rows, count));
+                    if (window.size() > PAGE_WINDOW) {
+                        window.remove(0);
+                        firstScreen++;
+                    }
+                    current = window.size() - 1;
+                }
+                if (window.isEmpty()) {
+                    if (failed) printASCIIError("CROSS", "Não foi possível obter os resultados. A ligação á base de dados falhou.");
+                    return;
+                }
+            }
+
+            if (shown) clearConsole();
+            shown = true;
+            System.out.println(header);
+            for (String row : window.get(current)) System.out.println(row);
+            boolean last = exhausted && current == window.size() - 1;
+            if (last && failed) printASCIIError("CROSS", "Resultados incompletos. A ligação á base de dados falhou.");
+            printASCII("IT", "Página " + (firstScreen + current) + (last ? (failed ? " (incompleto)" : " (fim)") : "") +
+                    " | Enter: " + (last ? "sair" : "seguinte") + " | a: anterior | s: sair");
+
+            while (true) {
+                String input = getInput().toLowerCase();
+                if (input.isEmpty()) {
+                    if (last) return;
+                    if (current < window.size() - 1) current++;
+                    else fetch = true;
+                    break;
+                } else if (input.equals("a")) {
+                    if (current > 0) {
+                        current--;
+                        break;
+                    }
+                    printASCIIError("CROSS", "Não há mais páginas anteriores em memória.");
+                } else if (input.equals("s")) {
+                    if (!exhausted) cursor.cancel();
+                    return;
+                } else {
+                    printASCIIError("CROSS", "Opção invalida. Pressione Enter, a ou s.");
+                }
+            }
+        }
+    }
+
     /**
      * Get input from the user
      *
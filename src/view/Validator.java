@@ -1,28 +1,36 @@
 package view;
 
-import java.text.*;
-import java.util.Date;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
 
 /**
  * Used to facilitate the verification and validation of inputs from the user in order to guarantee that all the information obtained satisfies certain conditions.
+ * <p>
+ * Every check is a hand written scanner over the chars of the input: no formatter, pattern or matcher is created, so
+ * the methods are thread safe and allocate nothing. They are used to validate whole files by {@code BulkImporter}.
+ * <p>
+ * Whole colaborator records can be checked at once with {@link #validateRecords(String[][], Predicate)}, which checks
+ * every {@link Field} of every record in parallel and returns an error bitmap.
  */
 public final class Validator {
+    /** Accepted identification types, in {@code tipoid} order */
+    private static final String[] TIPOS_ID = {"CC", "BI", "Passaporte"};
+    /** Minimal birth date of a colaborator (exclusive) */
+    private static final String MIN_DTNASCIMENTO = "1960-01-01";
+    /** Number of records below which a batch is validated by a single task */
+    private static final int RECORDS_PER_TASK = 1024;
+    /** Number of days of each month in a non leap year */
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
     /**
-     * Verifies if the input is a valid date in the yyyy-MM-dd format
+     * Verifies if the input is a valid date in the yyyy-MM-dd format.
+     * The month and the day may have one or two digits, as accepted by {@code java.sql.Date.valueOf}.
      * @param str The input to verify
      * @return {@code Boolean} indicating if the input is a valid date
      */
     public static boolean isDate(String str) {
-        try {
-            DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-            format.setLenient(false);
-            format.parse(str);
-            return true;
-        } catch (ParseException e) {
-            return false;
-        }
+        return parseDate(str) > 0;
     }
 
     /**
@@ -35,17 +43,46 @@ public final class Validator {
      * @return {@code Boolean} indicating if the input is a valid date and is bigger than the {@code minDate}
      */
     public static boolean isDate(String str, String minDate) {
-        try {
-            DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-            format.setLenient(false);
+        int inputDate = parseDate(str);
+        int testDate = parseDate(minDate);
+        return inputDate > 0 && testDate > 0 && inputDate > testDate;
+    }
 
-            Date inputDate = format.parse(str);
-            Date testDate = format.parse(minDate);
+    /**
+     * Parse a date in the yyyy-M(M)-d(d) format into a number that sorts like the date
+     * @param str The input to parse
+     * @return The date as {@code yyyyMMdd}. Zero if the input is not a valid date.
+     */
+    private static int parseDate(String str) {
+        if (str == null) return 0;
+        int length = str.length();
+        if (length < 8 || length > 10 || str.charAt(4) != '-') return 0;
+        int year = digits(str, 0, 4);
+        int secondDash = str.indexOf('-', 5);
+        if (year <= 0 || secondDash < 6 || secondDash > 7 || secondDash == length - 1 || length - secondDash > 3) return 0;
+        int month = digits(str, 5, secondDash);
+        int day = digits(str, secondDash + 1, length);
+        if (month < 1 || month > 12 || day < 1) return 0;
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int maxDay = month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+        return day <= maxDay ? year * 10000 + month * 100 + day : 0;
+    }
 
-            return inputDate.after(testDate);
-        } catch (ParseException e) {
-            return false;
+    /**
+     * Read a number written with the digits 0 to 9
+     * @param str The input to read
+     * @param start Index of the first digit
+     * @param end Index after the last digit
+     * @return The number. -1 if a char is not a digit.
+     */
+    private static int digits(String str, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
         }
+        return value;
     }
 
     /**
@@ -66,12 +103,25 @@ public final class Validator {
      * @return {@code Boolean} indicating if the input is a valid decimal number
      */
     public static boolean isDecimal(String str, int size, int decimals) {
-        boolean isActualDecimal = str.contains(".");
-        if (str.length() > (isActualDecimal ? size + 1 : size)) return false;
-        String patternString = isActualDecimal ? "\\d{0," + (size - decimals) + "}\\.\\d{1," + decimals + "}" : "\\d{1," + size + "}";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher m = pattern.matcher(str);
-        return m.matches();
+        int length = str.length();
+        int point = str.indexOf('.');
+        if (point < 0) return length >= 1 && length <= size && countDigits(str, 0, length) == length;
+        int fraction = length - point - 1;
+        return point <= size - decimals && fraction >= 1 && fraction <= decimals
+                && countDigits(str, 0, point) == point && countDigits(str, point + 1, length) == fraction;
+    }
+
+    /**
+     * Count the leading chars of a range that are digits
+     * @param str The input to verify
+     * @param start Index of the first char
+     * @param end Index after the last char
+     * @return The number of digits before the first char that is not a digit
+     */
+    private static int countDigits(String str, int start, int end) {
+        int i = start;
+        while (i < end && str.charAt(i) >= '0' && str.charAt(i) <= '9') i++;
+        return i - start;
     }
 
     /**
@@ -81,26 +131,73 @@ public final class Validator {
      * @return {@code Boolean} indicating if the input is a valid integer number
      */
     public static boolean isInteger(String str, boolean positiveOnly) {
-        return str.matches(positiveOnly ? "[1-9]\\d*" : "-?(0|[1-9]\\d*)");
+        int length = str.length();
+        int start = !positiveOnly && length > 0 && str.charAt(0) == '-' ? 1 : 0;
+        if (start == length) return false;
+        char first = str.charAt(start);
+        if (first == '0') return !positiveOnly && length == start + 1;
+        return first >= '1' && first <= '9' && countDigits(str, start, length) == length - start;
     }
 
-    /** REGEX {@code String} for email verification */
-    private static String EMAIL_STRING = "^[_A-Za-z0-9-\\+]+(\\.[_A-Za-z0-9-]+)*@" + "[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
+    /**
+     * Verifies if the input is an email: a local part of dot separated words, where the first word may also have
+     * {@code +}, then {@code @} and a domain whose last label has at least two letters.
+     * <p>
+     * Accepts the same inputs as the regular expression
+     * {@code [_A-Za-z0-9-\+]+(\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\.[A-Za-z0-9]+)*(\.[A-Za-z]{2,})}.
+     * @param email The input to verify
+     * @return {@code Boolean} indicating if the input is a valid email
+     */
+    public static boolean isEmail(String email) {
+        int at = email.indexOf('@');
+        if (at < 1) return false;
+
+        int start = 0;
+        for (int i = 0; i <= at; i++) {
+            if (i == at || email.charAt(i) == '.') {
+                if (i == start) return false;
+                start = i + 1;
+            } else if (!isWordChar(email.charAt(i), start == 0)) {
+                return false;
+            }
+        }
+
+        int length = email.length();
+        int lastDot = email.lastIndexOf('.');
+        if (lastDot <= at + 1 || length - lastDot - 1 < 2) return false;
+        for (int i = lastDot + 1; i < length; i++) {
+            if (!isLetter(email.charAt(i))) return false;
+        }
+        start = at + 1;
+        for (int i = start; i <= lastDot; i++) {
+            char c = email.charAt(i);
+            if (i == lastDot || c == '.') {
+                if (i == start) return false;
+                start = i + 1;
+            } else if (!isLetter(c) && !(c >= '0' && c <= '9') && !(c == '-' && start == at + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
-     * A java {@link Pattern} compiled from the {@link #EMAIL_STRING} regex
-     *
-     * @see Pattern
+     * Verifies if a char can be part of a word of the local part of an email
+     * @param c The char to verify
+     * @param plus {@code Boolean} indicating if {@code +} is accepted
+     * @return {@code Boolean} indicating if the char is accepted
      */
-    private static Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_STRING);
+    private static boolean isWordChar(char c, boolean plus) {
+        return isLetter(c) || (c >= '0' && c <= '9') || c == '_' || c == '-' || (plus && c == '+');
+    }
 
     /**
-     * Verifies if the input is an email
-     * @param email The input to verify
-     * @return {@code Boolean} indicating if the input is a valid email
+     * Verifies if a char is a letter from a to z, in lower or upper case
+     * @param c The char to verify
+     * @return {@code Boolean} indicating if the char is a letter
      */
-    public static boolean isEmail(String email) {
-        return EMAIL_PATTERN.matcher(email).matches();
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
     }
 
     /**
@@ -109,8 +206,10 @@ public final class Validator {
      * @return {@code Boolean} indicating if the input is a valid phone number
      */
     private static boolean isPhoneNumber(String phone) {
-        if (!Pattern.matches("[a-zA-Z]+", phone)) {
-            return phone.length() > 6 && phone.length() <= 13;
+        int length = phone.length();
+        if (length <= 6 || length > 13) return false;
+        for (int i = 0; i < length; i++) {
+            if (!isLetter(phone.charAt(i))) return true;
         }
         return false;
     }
@@ -127,4 +226,224 @@ public final class Validator {
     public static boolean isEmailOrPhone(String str) {
         return (isEmail(str) || isPhoneNumber(str));
     }
+
+    /**
+     * Fields of a colaborator record, in the order they appear in the record.
+     * The error bit of a field in the bitmap of {@link #validateRecords(String[][], Predicate)} is its ordinal.
+     */
+    public enum Field {
+        TIPO, NOME, APELIDO, DTNASCIMENTO, NIDENT, TIPOID, NFISCAL, NACIONALIDADE, MORADA,
+        OCUPACAOATUAL, IDIOMA, IDPROGRAMA, CARGO, VENCIMENTO,
+        SEGURO_DATA, SEGURO_DESCRICAO, SEGURO_PREMIO, SEGURO_PRAZO, SEGURO_DURACAO,
+        CONTACTOS, CONTACTOS_EMERGENCIA;
+
+        /** The bit of this field in an error bitmap */
+        public final long bit = 1L << ordinal();
+
+        /**
+         * Get the first field with an error
+         *
+         * @param errors The error bitmap of a record
+         * @return The first invalid {@code Field}. Null if the record is valid.
+         */
+        public static Field first(long errors) {
+            return errors == 0 ? null : values()[Long.numberOfTrailingZeros(errors)];
+        }
+    }
+
+    /**
+     * Checks a batch of colaborator records with the rules used when a colaborator is added by hand.
+     * Records are split between the tasks of the common {@code ForkJoinPool} and checked in parallel.
+     *
+     * @see #validateRecord(String[], Predicate)
+     *
+     * @param records The records, each one with a value per {@link Field}, in order
+     * @param programas Checks if a program can be chosen by a volunteer. Called from many threads.
+     * @return The error bitmap of each record, with the {@link Field#bit} of every invalid field set. 0 if valid.
+     */
+    public static long[] validateRecords(String[][] records, Predicate<String> programas) {
+        long[] errors = new long[records.length];
+        ForkJoinPool.commonPool().invoke(new RecordsTask(records, programas, errors, 0, records.length));
+        return errors;
+    }
+
+    /**
+     * Checks every field of a colaborator record with the rules used when a colaborator is added by hand.
+     * The fields of volunteers and paycheck colaborators are only checked when {@link Field#TIPO} is valid.
+     *
+     * @param r The record, with a value per {@link Field}, in order
+     * @param programas Checks if a program can be chosen by a volunteer
+     * @return The error bitmap, with the {@link Field#bit} of every invalid field set. 0 if valid.
+     */
+    public static long validateRecord(String[] r, Predicate<String> programas) {
+        if (r.length != Field.values().length) return -1L >>> (64 - Field.values().length);
+        long errors = 0;
+        String tipo = r[Field.TIPO.ordinal()];
+        boolean voluntario = isVolunteer(tipo);
+        boolean assalariado = tipo.equals("Assalariado");
+        if (!voluntario && !assalariado) errors |= Field.TIPO.bit;
+        if (!isRequired(r[Field.NOME.ordinal()], 15)) errors |= Field.NOME.bit;
+        if (!isRequired(r[Field.APELIDO.ordinal()], 30)) errors |= Field.APELIDO.bit;
+        if (!isDate(r[Field.DTNASCIMENTO.ordinal()], MIN_DTNASCIMENTO)) errors |= Field.DTNASCIMENTO.bit;
+        if (!isRequired(r[Field.NIDENT.ordinal()], 11)) errors |= Field.NIDENT.bit;
+        if (identificationType(r[Field.TIPOID.ordinal()]) == 0) errors |= Field.TIPOID.bit;
+        if (!isLength(r[Field.NFISCAL.ordinal()], 9)) errors |= Field.NFISCAL.bit;
+        if (!isRequired(r[Field.NACIONALIDADE.ordinal()], 20)) errors |= Field.NACIONALIDADE.bit;
+        if (!isRequired(r[Field.MORADA.ordinal()], 250)) errors |= Field.MORADA.bit;
+        if (voluntario) {
+            String ocupacao = r[Field.OCUPACAOATUAL.ordinal()];
+            if (!ocupacao.equals("estudante") && !ocupacao.equals("empregado") && !ocupacao.equals("desempregado"))
+                errors |= Field.OCUPACAOATUAL.bit;
+            if (!isRequired(r[Field.IDIOMA.ordinal()], 250)) errors |= Field.IDIOMA.bit;
+            if (!programas.test(r[Field.IDPROGRAMA.ordinal()])) errors |= Field.IDPROGRAMA.bit;
+        } else if (assalariado) {
+            if (!isRequired(r[Field.CARGO.ordinal()], 50)) errors |= Field.CARGO.bit;
+            if (!isDecimal(r[Field.VENCIMENTO.ordinal()], 8, 2)) errors |= Field.VENCIMENTO.bit;
+        }
+        if (!isDate(r[Field.SEGURO_DATA.ordinal()])) errors |= Field.SEGURO_DATA.bit;
+        if (!isRequired(r[Field.SEGURO_DESCRICAO.ordinal()], 150)) errors |= Field.SEGURO_DESCRICAO.bit;
+        if (!isDecimal(r[Field.SEGURO_PREMIO.ordinal()], 8, 2)) errors |= Field.SEGURO_PREMIO.bit;
+        String prazo = r[Field.SEGURO_PRAZO.ordinal()];
+        if (!prazo.equals("permanente") && !prazo.equals("temporario")) errors |= Field.SEGURO_PRAZO.bit;
+        if (!isInteger(r[Field.SEGURO_DURACAO.ordinal()], true)) errors |= Field.SEGURO_DURACAO.bit;
+        if (!isContactList(r[Field.CONTACTOS.ordinal()])) errors |= Field.CONTACTOS.bit;
+        String emergencia = r[Field.CONTACTOS_EMERGENCIA.ordinal()];
+        if (voluntario ? !isEmergencyContactList(emergencia) : assalariado && !emergencia.isEmpty())
+            errors |= Field.CONTACTOS_EMERGENCIA.bit;
+        return errors;
+    }
+
+    /**
+     * Checks if the colaborator type is volunteer
+     *
+     * @param tipo The colaborator type
+     * @return {@code Boolean} indicating if the colaborator is a volunteer
+     */
+    public static boolean isVolunteer(String tipo) {
+        return tipo.equals("Voluntário") || tipo.equals("Voluntario");
+    }
+
+    /**
+     * Get the identification type number from its name (CC, BI or Passaporte) or number
+     *
+     * @param tipoid The identification type
+     * @return The identification type number. 0 if invalid.
+     */
+    public static int identificationType(String tipoid) {
+        for (int i = 0; i < TIPOS_ID.length; i++) {
+            if (TIPOS_ID[i].equalsIgnoreCase(tipoid) || (tipoid.length() == 1 && tipoid.charAt(0) == '1' + i)) return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Verifies if the input is not empty and its length is lower or equal to a certain length
+     * @param str The input to verify
+     * @param length The maximum length the input can have
+     * @return {@code Boolean} indicating if the input is valid
+     */
+    private static boolean isRequired(String str, int length) {
+        return !str.isEmpty() && isLength(str, length);
+    }
+
+    /**
+     * Verifies if the input is a list of emails or phone numbers separated by {@code |}. Separators at the end are ignored.
+     * @param str The input to verify
+     * @return {@code Boolean} indicating if the input has at least one contact and all of them are valid
+     */
+    private static boolean isContactList(String str) {
+        int length = listLength(str);
+        if (length == 0) return false;
+        int start = 0;
+        while (start <= length) {
+            int end = str.indexOf('|', start);
+            if (end < 0 || end > length) end = length;
+            if (!isEmailOrPhone(str.substring(start, end).trim())) return false;
+            start = end + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Verifies if the input is a list of emergency contacts separated by {@code |}. Each one has four parts separated
+     * by {@code ;}: the contact, the name, the kinship degree and the emergency contact. Separators at the end are ignored.
+     * @param str The input to verify
+     * @return {@code Boolean} indicating if the input has at least one emergency contact and all of them are valid
+     */
+    private static boolean isEmergencyContactList(String str) {
+        int length = listLength(str);
+        if (length == 0) return false;
+        int start = 0;
+        while (start <= length) {
+            int end = str.indexOf('|', start);
+            if (end < 0 || end > length) end = length;
+            int first = str.indexOf(';', start);
+            int second = first < 0 || first > end ? -1 : str.indexOf(';', first + 1);
+            int third = second < 0 || second > end ? -1 : str.indexOf(';', second + 1);
+            if (third < 0 || third > end || str.lastIndexOf(';', end - 1) != third) return false;
+            if (!isEmailOrPhone(str.substring(start, first).trim())
+                    || !isRequired(str.substring(first + 1, second).trim(), 50)
+                    || !isRequired(str.substring(second + 1, third).trim(), 15)
+                    || !isEmailOrPhone(str.substring(third + 1, end).trim())) return false;
+            start = end + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Get the length of a {@code |} separated list without the separators at its end, like {@code String.split} does
+     * @param str The list
+     * @return The length of the list without the trailing separators
+     */
+    private static int listLength(String str) {
+        int length = str.length();
+        while (length > 0 && str.charAt(length - 1) == '|') length--;
+        return length;
+    }
+
+    /**
+     * Checks a range of records, splitting it in two tasks while it is bigger than {@link #RECORDS_PER_TASK}
+     */
+    private static final class RecordsTask extends RecursiveAction {
+        /** Serial version, as required by {@code RecursiveAction} */
+        private static final long serialVersionUID = 1L;
+        /** The records */
+        private final String[][] records;
+        /** Checks if a program can be chosen by a volunteer */
+        private final Predicate<String> programas;
+        /** The error bitmap of each record */
+        private final long[] errors;
+        /** Index of the first record of the range */
+        private final int from;
+        /** Index after the last record of the range */
+        private final int to;
+
+        /**
+         * Creates a task
+         *
+         * @param records The records
+         * @param programas Checks if a program can be chosen by a volunteer
+         * @param errors Where the error bitmap of each record is stored
+         * @param from Index of the first record of the range
+         * @param to Index after the last record of the range
+         */
+        RecordsTask(String[][] records, Predicate<String> programas, long[] errors, int from, int to) {
+            this.records = records;
+            this.programas = programas;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RECORDS_PER_TASK) {
+                for (int i = from; i < to; i++) errors[i] = validateRecord(records[i], programas);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RecordsTask(records, programas, errors, from, middle),
+                    new RecordsTask(records, programas, errors, middle, to));
+        }
+    }
 }
@@ -6,7 +6,7 @@ if not exist ".\out" echo "Output directory not found. Creating one..."
 if not exist ".\out" mkdir ".\out\production\ONGD_PROJECT"
 
 echo "Compiling java files..."
-javac -d ./out/production/ONGD_PROJECT -cp ./lib/mssql-jdbc-7.2.2.jre8.jar ./src/main/*java ./src/model/*.java ./src/view/*.java ./src/jdbc/*.java
+javac -d ./out/production/ONGD_PROJECT -cp ./lib/mssql-jdbc-7.2.2.jre8.jar ./src/main/*java ./src/model/*.java ./src/view/*.java ./src/jdbc/*.java ./src/index/*.java
 
 @cls
 